@@ -0,0 +1,58 @@
+package tn.esprit.spring.configs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import tn.esprit.spring.services.EntityLookups;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caffeine caches of {@link EntityLookups}, each bounded by its own
+ * {@code entity-cache.<name>.max-entries} and {@code entity-cache.<name>.ttl}.
+ * <p>
+ * Evictions made inside a transaction wait for its commit, so that a lookup running
+ * meanwhile cannot put the old row back. Spring Boot binds every cache to the meter
+ * registry ({@code cache.gets} by result, {@code cache.evictions}, ...), and each also
+ * gets a {@code cache.hit.ratio} gauge.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    private static final long DEFAULT_MAX_ENTRIES = 10_000;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+    @Bean
+    public CacheManager cacheManager(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // Only the caches below: a misspelt cache name fails instead of creating an unbounded cache
+        cacheManager.setCacheNames(List.of());
+        cacheManager.setAllowNullValues(false);
+        for (String name : EntityLookups.CACHES) {
+            Cache<Object, Object> cache = Caffeine.newBuilder()
+                    .maximumSize(environment.getProperty("entity-cache." + name + ".max-entries", Long.class,
+                            DEFAULT_MAX_ENTRIES))
+                    .expireAfterWrite(environment.getProperty("entity-cache." + name + ".ttl", Duration.class,
+                            DEFAULT_TTL))
+                    .recordStats()
+                    .build();
+            cacheManager.registerCustomCache(name, cache);
+            meterRegistry.ifAvailable(registry -> Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                    .description("Share of the lookups served from the cache")
+                    .tag("cache", name)
+                    .register(registry));
+        }
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,83 @@
+package tn.esprit.spring.configs;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves each table-backed id generator past the ids already in its entity's table, before
+ * the application serves requests. Rows created while ids came from IDENTITY columns, or
+ * inserted outside of the application, would otherwise collide with the first blocks the
+ * generators hand out. Generators are only ever moved forward, so running it again, or on
+ * several nodes at once, is harmless. Nothing is done when the application runs without a
+ * database.
+ */
+@Slf4j
+@Component
+public class IdGeneratorMigration implements InitializingBean {
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IdGeneratorMigration(ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                                ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        this(entityManagerFactory.getIfAvailable(), jdbcTemplate.getIfAvailable());
+    }
+
+    IdGeneratorMigration(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.sessionFactory = entityManagerFactory == null ? null
+                : entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (sessionFactory == null || jdbcTemplate == null) {
+            return;
+        }
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (persister.getGenerator() instanceof TableGenerator generator
+                    && persister instanceof AbstractEntityPersister entity) {
+                migrate(generator, entity.getTableName(), entity.getIdentifierColumnNames()[0]);
+            }
+        });
+    }
+
+    private void migrate(TableGenerator generator, String table, String idColumn) {
+        Long highest = jdbcTemplate.queryForObject("select max(" + idColumn + ") from " + table, Long.class);
+        if (highest == null) {
+            return;
+        }
+        // Past the highest id whether the stored value is the start or the end of the next block
+        long next = highest + generator.getIncrementSize() + 1;
+        String name = generator.getSegmentValue();
+        int moved = jdbcTemplate.update("update " + generator.getTableName() + " set " + generator.getValueColumnName()
+                        + " = ? where " + generator.getSegmentColumnName() + " = ? and " + generator.getValueColumnName()
+                        + " < ?", next, name, next);
+        if (moved == 0) {
+            Integer rows = jdbcTemplate.queryForObject("select count(*) from " + generator.getTableName() + " where "
+                    + generator.getSegmentColumnName() + " = ?", Integer.class, name);
+            if (rows != null && rows > 0) {
+                return;
+            }
+            try {
+                jdbcTemplate.update("insert into " + generator.getTableName() + " (" + generator.getSegmentColumnName()
+                        + ", " + generator.getValueColumnName() + ") values (?, ?)", name, next);
+            } catch (DuplicateKeyException e) {
+                // Created concurrently by another node: move it forward if needed
+                migrate(generator, table, idColumn);
+                return;
+            }
+        }
+        log.info("Id generator " + name + " moved past " + table + " id " + highest);
+    }
+}
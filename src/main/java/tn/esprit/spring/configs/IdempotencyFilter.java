@@ -0,0 +1,287 @@
+package tn.esprit.spring.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+import tn.esprit.spring.entities.IdempotentResponse;
+import tn.esprit.spring.repositories.IIdempotentResponseRepositoryCustom;
+import tn.esprit.spring.services.JobLeases;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Makes the creation endpoints safe to retry with an {@code Idempotency-Key} header.
+ * <p>
+ * The first request with a key claims it in the {@code idempotent_response} table, runs
+ * normally, and stores its response there until a time to live expires. Later requests
+ * with the same key, method and path get the stored response back, flagged with
+ * {@code Idempotent-Replayed: true}, without reaching the controller, whichever node they
+ * reach. Requests arriving while the first one is still running are answered 409 at once,
+ * with a {@code Retry-After} header, rather than holding a thread while it runs. A key
+ * reused with a different body is rejected with 422, and server errors are not stored so
+ * that the client can retry. A claim whose node stopped before storing the response is
+ * given up after {@code idempotency.claim-ttl}. Expired responses are purged hourly, and
+ * the table is trimmed to the {@code idempotency.max-responses} expiring last.
+ */
+@Slf4j
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IIdempotentResponseRepositoryCustom responseRepository;
+    private final JobLeases jobLeases;
+    private final List<String> paths;
+    private final Duration ttl;
+    private final Duration claimTtl;
+    private final Duration retryAfter;
+    private final int maxResponses;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public IdempotencyFilter(IIdempotentResponseRepositoryCustom responseRepository, JobLeases jobLeases,
+                             @Value("${idempotency.paths:/skier/add,/registration/addAndAssignToSkierAndCourse/{numSkier}/{numCourse},/registration/addAndAssignToSkierAndCourse/bulk}") List<String> paths,
+                             @Value("${idempotency.ttl:24h}") Duration ttl,
+                             @Value("${idempotency.claim-ttl:5m}") Duration claimTtl,
+                             @Value("${idempotency.retry-after:1s}") Duration retryAfter,
+                             @Value("${idempotency.max-responses:100000}") int maxResponses,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        if (maxResponses <= 0) {
+            throw new IllegalArgumentException("idempotency.max-responses must be positive");
+        }
+        this.responseRepository = responseRepository;
+        this.jobLeases = jobLeases;
+        this.paths = paths;
+        this.ttl = ttl;
+        this.claimTtl = claimTtl;
+        this.retryAfter = retryAfter;
+        this.maxResponses = maxResponses;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (request.getHeader(IDEMPOTENCY_KEY) == null) {
+            return true;
+        }
+        String method = request.getMethod();
+        if (!HttpMethod.POST.matches(method) && !HttpMethod.PUT.matches(method)) {
+            return true;
+        }
+        String path = urlPathHelper.getPathWithinApplication(request);
+        return paths.stream().noneMatch(pattern -> pathMatcher.match(pattern.trim(), path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    IDEMPOTENCY_KEY + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        byte[] fingerprint = sha256(body);
+        String requestKey = HexFormat.of().formatHex(sha256((request.getMethod() + ' '
+                + urlPathHelper.getPathWithinApplication(request) + ' ' + key).getBytes(StandardCharsets.UTF_8)));
+
+        try {
+            long now = System.currentTimeMillis();
+            if (!responseRepository.tryClaim(requestKey, fingerprint, now, now + claimTtl.toMillis())) {
+                // Run or running on this node or another one, or on one that stopped since
+                replay(responseRepository.find(requestKey), fingerprint, response);
+                return;
+            }
+        } catch (DataAccessException e) {
+            log.warn(IDEMPOTENCY_KEY + " could not be claimed: " + e.getMessage());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), IDEMPOTENCY_KEY + " could not be checked, retry it");
+            return;
+        }
+
+        count("run");
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(new CachedBodyRequest(request, body), wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            release(requestKey);
+            throw e;
+        }
+        StoredResponse stored = new StoredResponse(fingerprint, wrapper.getStatus(), wrapper.getContentType(),
+                wrapper.getContentAsByteArray());
+        if (stored.status() >= 500) {
+            release(requestKey);
+        } else {
+            store(requestKey, stored);
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    /**
+     * Deletes the responses whose time to live is over, then the oldest ones beyond
+     * {@code idempotency.max-responses}, on one node per run.
+     */
+    @Scheduled(cron = "${idempotency.purge-cron:0 10 * * * *}")
+    public void purgeExpired() {
+        jobLeases.runExclusively("idempotency.purge", () -> {
+            int deleted = responseRepository.deleteExpired(System.currentTimeMillis());
+            if (deleted > 0) {
+                log.info(deleted + " expired idempotent responses deleted");
+            }
+            int trimmed = responseRepository.deleteOldest(maxResponses);
+            if (trimmed > 0) {
+                log.warn(trimmed + " idempotent responses deleted before expiry, over " + maxResponses + " kept");
+            }
+        });
+    }
+
+    private void store(String requestKey, StoredResponse stored) {
+        try {
+            responseRepository.complete(requestKey, stored.status(), stored.contentType(), stored.body(),
+                    System.currentTimeMillis() + ttl.toMillis());
+        } catch (DataAccessException e) {
+            // Retries are answered 409 until the claim expires, then run the request again
+            log.warn("Response for " + IDEMPOTENCY_KEY + " could not be stored: " + e.getMessage());
+        }
+    }
+
+    private void release(String requestKey) {
+        try {
+            responseRepository.release(requestKey);
+        } catch (DataAccessException e) {
+            log.warn(IDEMPOTENCY_KEY + " could not be released: " + e.getMessage());
+        }
+    }
+
+    /** Answers with the response stored for the claim, or 409 while there is none yet. */
+    private void replay(IdempotentResponse claim, byte[] fingerprint, HttpServletResponse response) throws IOException {
+        if (claim == null || claim.getStatus() == 0) {
+            count("conflict");
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+            response.sendError(HttpStatus.CONFLICT.value(), claim == null
+                    ? "The request with this " + IDEMPOTENCY_KEY + " failed, retry it"
+                    : "The request with this " + IDEMPOTENCY_KEY + " is still running");
+            return;
+        }
+        StoredResponse stored = new StoredResponse(claim.getFingerprint(), claim.getStatus(), claim.getContentType(),
+                claim.getBody() == null ? new byte[0] : claim.getBody());
+        if (!MessageDigest.isEqual(stored.fingerprint(), fingerprint)) {
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                    IDEMPOTENCY_KEY + " was already used with a different request body");
+            return;
+        }
+        count("replayed");
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+        log.info("Replayed response for " + IDEMPOTENCY_KEY + " " + stored.status());
+    }
+
+    private void count(String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("idempotency.requests", "result", result).increment();
+        }
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredResponse(byte[] fingerprint, int status, String contentType, byte[] body) {
+    }
+
+    /** Request whose body was already read, served again from memory. */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /** The whole body is in memory: it is available, and read, at once. */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package tn.esprit.spring.configs;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Makes sure the unique constraints added to tables already in use exist before the
+ * application serves requests. The schema update only adds such a constraint to a table
+ * without duplicate rows, and skips it silently otherwise. When a constraint is missing,
+ * the duplicates are deleted, keeping the oldest or the newest row of each, and the
+ * constraint is added. Startup fails if it still cannot be found. Nothing is done when the
+ * application runs without a database.
+ */
+@Slf4j
+@Component
+public class UniqueConstraintMigration implements InitializingBean {
+
+    /** One registration per skier, course and week: the duplicate filter falls back on it. */
+    static final Constraint REGISTRATION = new Constraint("registration", "uk_registration_skier_course_week",
+            "num_registration", List.of("skier_num_skier", "course_num_course", "num_week"), false);
+
+    /** One waitlist entry per skier, course and week: the newest one is the current state. */
+    static final Constraint WAITLIST = new Constraint("waitlist_entry", "uk_waitlist_skier_course_week",
+            "num_entry", List.of("skier_num_skier", "course_num_course", "num_week"), true);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public UniqueConstraintMigration(ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                                     ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        // Resolved first, so that the schema update has run
+        this(entityManagerFactory.getIfAvailable() == null ? null : jdbcTemplate.getIfAvailable());
+    }
+
+    UniqueConstraintMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (jdbcTemplate == null) {
+            return;
+        }
+        migrate(REGISTRATION);
+        migrate(WAITLIST);
+    }
+
+    void migrate(Constraint constraint) {
+        if (constrained(constraint)) {
+            return;
+        }
+        int deleted = jdbcTemplate.update(constraint.deleteDuplicates());
+        log.warn("Constraint " + constraint.name() + " missing, " + deleted + " duplicate rows of "
+                + constraint.table() + " deleted");
+        try {
+            jdbcTemplate.execute("alter table " + constraint.table() + " add constraint " + constraint.name()
+                    + " unique (" + String.join(", ", constraint.columns()) + ")");
+        } catch (DataAccessException e) {
+            // Added concurrently by another node, or duplicates inserted meanwhile
+            if (!constrained(constraint)) {
+                throw new IllegalStateException("Constraint " + constraint.name() + " could not be added", e);
+            }
+            return;
+        }
+        log.info("Constraint " + constraint.name() + " added to the " + constraint.table() + " table");
+    }
+
+    /** @return whether a unique index covers exactly the columns of the constraint */
+    boolean constrained(Constraint constraint) {
+        Set<String> columns = Set.copyOf(constraint.columns());
+        Boolean found = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers()
+                    ? constraint.table().toUpperCase(Locale.ROOT) : constraint.table();
+            Map<String, Set<String>> indexes = new HashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table,
+                    true, false)) {
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME");
+                    if (column != null) {
+                        indexes.computeIfAbsent(rs.getString("INDEX_NAME"), name -> new HashSet<>())
+                                .add(column.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            return indexes.containsValue(columns);
+        });
+        return Boolean.TRUE.equals(found);
+    }
+
+    /**
+     * A unique constraint over {@code columns} of {@code table}, whose duplicates are told
+     * apart by their {@code id}.
+     *
+     * @param keepNewest whether the row with the highest id is kept rather than the lowest
+     */
+    record Constraint(String table, String name, String id, List<String> columns, boolean keepNewest) {
+
+        String deleteDuplicates() {
+            StringBuilder join = new StringBuilder();
+            for (String column : columns) {
+                join.append("k.").append(column).append(" = r.").append(column).append(" and ");
+            }
+            // Wrapped in a derived table, as MySQL cannot select from the table it deletes from
+            return "delete from " + table + " where " + id + " in (select " + id + " from (select r." + id
+                    + " from " + table + " r join " + table + " k on " + join + "k." + id
+                    + (keepNewest ? " > " : " < ") + "r." + id + ") duplicates)";
+        }
+    }
+}
@@ -9,13 +9,18 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import tn.esprit.spring.dto.AvailabilityMatrix;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.services.ICourseServices;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
 
 @Tag(name = "\uD83D\uDCDA Course Management")
 @RestController
@@ -26,6 +31,10 @@ public class CourseRestController {
     
     private final ICourseServices courseServices;
 
+    private final PageResponses pageResponses;
+
+    private static final CacheControl AVAILABILITY_CACHE = CacheControl.maxAge(Duration.ofSeconds(10)).cachePublic();
+
     @Operation(
         summary = "Add a new course",
         description = "Creates a new skiing course with specified level, type, support, price, and time slot.",
@@ -71,23 +80,43 @@ public class CourseRestController {
 
     @Operation(
         summary = "Get all courses",
-        description = "Retrieves a list of all available courses in the system.",
+        description = "Retrieves a page of the courses in numCourse order. When the page is full, the "
+            + "X-Next-Cursor header gives the cursor of the next page and the Link header links to it. "
+            + "fields keeps only the listed properties of each course.",
         tags = {"Courses"}
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of all courses retrieved successfully",
+            description = "Page of courses retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
                 schema = @Schema(implementation = Course.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid cursor, page size or field",
+            content = @Content(mediaType = "application/json")
         )
     })
     @GetMapping("/all")
-    public ResponseEntity<List<Course>> getAllCourses() {
-        List<Course> courses = courseServices.retrieveAllCourses();
-        return ResponseEntity.ok(courses);
+    public ResponseEntity<List<?>> getAllCourses(
+        @Parameter(description = "Cursor given by the previous page, none for the first page")
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @Parameter(description = "Maximum number of courses in the page (1 to 1000)", example = "100")
+        @RequestParam(value = "size", defaultValue = "100") int size,
+        @Parameter(description = "Properties to keep in each course", example = "numCourse,typeCourse,price")
+        @RequestParam(value = "fields", required = false) List<String> fields
+    ) {
+        try {
+            Set<String> selected = pageResponses.fields(Course.class, fields);
+            List<Course> courses = courseServices.retrieveCourses(PageResponses.afterId(cursor), size);
+            return pageResponses.page(courses, size, selected,
+                    course -> PageResponses.cursor(course.getNumCourse()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @Operation(
@@ -153,4 +182,55 @@ public class CourseRestController {
         return ResponseEntity.ok(course);
     }
 
+
+    @Operation(
+        summary = "Get the availability matrix",
+        description = "Returns the remaining seats of every collective course for every week of the season in one "
+            + "response. Each course carries one byte per week, from firstWeek to lastWeek, encoded in base64. "
+            + "Individual courses have no seat limit and are not listed. The response carries an ETag: send it back "
+            + "in If-None-Match to get 304 Not Modified while the remaining seats are unchanged. The ETag is derived from "
+            + "the seats themselves, so it holds across nodes and restarts.",
+        tags = {"Courses"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Availability matrix retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = AvailabilityMatrix.class),
+                examples = @ExampleObject(
+                    name = "Availability Matrix",
+                    value = """
+                        {
+                            "version": "3f9a1c0e5b27d864",
+                            "firstWeek": 1,
+                            "lastWeek": 53,
+                            "courses": [
+                                {
+                                    "numCourse": 1,
+                                    "typeCourse": "COLLECTIVE_ADULT",
+                                    "capacity": 6,
+                                    "remaining": "BgYGBgUEAAYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgYGBgY="
+                                }
+                            ]
+                        }
+                        """
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Availability unchanged since the ETag sent in If-None-Match"
+        )
+    })
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityMatrix> getAvailability(WebRequest request) {
+        String version = courseServices.availabilityVersion();
+        if (request.checkNotModified("\"" + version + "\"")) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version).cacheControl(AVAILABILITY_CACHE).build();
+        }
+        AvailabilityMatrix matrix = courseServices.retrieveAvailability();
+        return ResponseEntity.ok().eTag(matrix.getVersion()).cacheControl(AVAILABILITY_CACHE).body(matrix);
+    }
 }
@@ -0,0 +1,92 @@
+package tn.esprit.spring.controllers;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.dto.ExportFormat;
+
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.ToLongBiFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the responses of the full-table export endpoints, so that they all share one
+ * contract:
+ * <ul>
+ *     <li>CSV when the {@code Accept} header names {@value #CSV} before {@value #NDJSON}, NDJSON otherwise;</li>
+ *     <li>gzip-compressed, with {@code Content-Encoding: gzip}, when {@code Accept-Encoding} allows it;</li>
+ *     <li>served as an attachment named after the table.</li>
+ * </ul>
+ * Rows are written to the response while the cursor reads them, on the async request thread.
+ */
+final class ExportResponses {
+
+    static final String CSV = "text/csv";
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private static final String GZIP = "gzip";
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private ExportResponses() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> export(String table, String accept, String acceptEncoding,
+                                                         ToLongBiFunction<OutputStream, ExportFormat> export) {
+        ExportFormat format = format(accept);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> {
+            try {
+                if (gzip) {
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                    export.applyAsLong(compressed, format);
+                    compressed.finish();
+                } else {
+                    export.applyAsLong(out, format);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format == ExportFormat.CSV ? CSV : NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(table + (format == ExportFormat.CSV ? ".csv" : ".ndjson")).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return response.body(body);
+    }
+
+    static ExportFormat format(String accept) {
+        if (accept != null) {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (type.getQualityValue() > 0 && type.equalsTypeAndSubtype(MediaType.parseMediaType(CSV))) {
+                    return ExportFormat.CSV;
+                }
+                if (type.getQualityValue() > 0 && type.equalsTypeAndSubtype(MediaType.parseMediaType(NDJSON))) {
+                    return ExportFormat.NDJSON;
+                }
+            }
+        }
+        return ExportFormat.NDJSON;
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase(GZIP)) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
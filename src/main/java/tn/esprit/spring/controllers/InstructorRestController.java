@@ -16,6 +16,7 @@ import tn.esprit.spring.entities.Instructor;
 import tn.esprit.spring.services.IInstructorServices;
 
 import java.util.List;
+import java.util.Set;
 
 @Tag(name = "\uD83D\uDC69\u200D\uD83C\uDFEB Instructor Management")
 @RestController
@@ -26,6 +27,8 @@ public class InstructorRestController {
 
     private final IInstructorServices instructorServices;
 
+    private final PageResponses pageResponses;
+
     @Operation(
         summary = "Add a new instructor",
         description = "Creates a new instructor profile in the system with their personal information and hire date.",
@@ -103,23 +106,43 @@ public class InstructorRestController {
     }
     @Operation(
         summary = "Get all instructors",
-        description = "Retrieves a list of all instructors in the system with their complete information.",
+        description = "Retrieves a page of the instructors in numInstructor order. When the page is full, the "
+            + "X-Next-Cursor header gives the cursor of the next page and the Link header links to it. "
+            + "fields keeps only the listed properties of each instructor.",
         tags = {"Instructors"}
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of all instructors retrieved successfully",
+            description = "Page of instructors retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
                 schema = @Schema(implementation = Instructor.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid cursor, page size or field",
+            content = @Content(mediaType = "application/json")
         )
     })
     @GetMapping("/all")
-    public ResponseEntity<List<Instructor>> getAllInstructors() {
-        List<Instructor> instructors = instructorServices.retrieveAllInstructors();
-        return ResponseEntity.ok(instructors);
+    public ResponseEntity<List<?>> getAllInstructors(
+        @Parameter(description = "Cursor given by the previous page, none for the first page")
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @Parameter(description = "Maximum number of instructors in the page (1 to 1000)", example = "100")
+        @RequestParam(value = "size", defaultValue = "100") int size,
+        @Parameter(description = "Properties to keep in each instructor", example = "numInstructor,firstName,lastName")
+        @RequestParam(value = "fields", required = false) List<String> fields
+    ) {
+        try {
+            Set<String> selected = pageResponses.fields(Instructor.class, fields);
+            List<Instructor> instructors = instructorServices.retrieveInstructors(PageResponses.afterId(cursor), size);
+            return pageResponses.page(instructors, size, selected,
+                    instructor -> PageResponses.cursor(instructor.getNumInstructor()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @Operation(
@@ -0,0 +1,126 @@
+package tn.esprit.spring.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import tn.esprit.spring.services.KeysetPaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Builds the responses of the keyset-paged list endpoints, so that they all share one
+ * contract:
+ * <ul>
+ *     <li>{@code cursor}: opaque position given by the previous page, absent for the first one;</li>
+ *     <li>{@code size}: rows per page, from 1 to {@link KeysetPaging#MAX_PAGE_SIZE};</li>
+ *     <li>{@code fields}: comma-separated properties kept in each row, all of them when absent.</li>
+ * </ul>
+ * A full page gives the cursor of the next one in the {@value #NEXT_CURSOR} header, and a
+ * {@code Link} to it; a shorter page is the last one.
+ */
+@Component
+@RequiredArgsConstructor
+public class PageResponses {
+
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    private static final String SEPARATOR = ",";
+
+    private final ObjectMapper objectMapper;
+
+    /** Opaque cursor continuing after a row with the given sort keys. */
+    public static String cursor(Object... keys) {
+        List<String> values = new ArrayList<>(keys.length);
+        for (Object key : keys) {
+            values.add(String.valueOf(key));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(SEPARATOR, values).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sort keys of a cursor made by {@link #cursor(Object...)}.
+     *
+     * @throws IllegalArgumentException when it is not a cursor of {@code count} keys
+     */
+    public static String[] keys(String cursor, int count) {
+        String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        if (keys.length != count) {
+            throw new IllegalArgumentException("Invalid page cursor " + cursor);
+        }
+        return keys;
+    }
+
+    /** Primary key a page continues after, or null for the first page. */
+    public static Long afterId(String cursor) {
+        return cursor == null ? null : Long.valueOf(keys(cursor, 1)[0]);
+    }
+
+    /**
+     * Properties of {@code type} selected by the {@code fields} parameter, or null to keep
+     * them all.
+     *
+     * @throws IllegalArgumentException on a property {@code type} does not serialize
+     */
+    public Set<String> fields(Class<?> type, List<String> fields) {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> known = new HashSet<>();
+        objectMapper.getSerializationConfig().introspect(objectMapper.constructType(type)).findProperties()
+                .forEach(property -> known.add(property.getName()));
+        Set<String> selected = new LinkedHashSet<>();
+        for (String value : fields) {
+            for (String name : value.split(SEPARATOR)) {
+                if (name.isBlank()) {
+                    continue;
+                }
+                if (!known.contains(name.trim())) {
+                    throw new IllegalArgumentException("Unknown field " + name.trim());
+                }
+                selected.add(name.trim());
+            }
+        }
+        return selected.isEmpty() ? null : selected;
+    }
+
+    /**
+     * Page of at most {@code size} rows, reduced to the selected {@code fields} when given,
+     * linking to the page after its last row when it is full.
+     */
+    public <T> ResponseEntity<List<?>> page(List<T> rows, int size, Set<String> fields, Function<T, String> cursorOf) {
+        List<?> body = rows;
+        if (fields != null) {
+            List<ObjectNode> selected = new ArrayList<>(rows.size());
+            for (T row : rows) {
+                ObjectNode node = objectMapper.valueToTree(row);
+                node.retain(fields);
+                selected.add(node);
+            }
+            body = selected;
+        }
+        if (rows.size() < size) {
+            return ResponseEntity.ok(body);
+        }
+        String next = cursorOf.apply(rows.get(rows.size() - 1));
+        String link = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor", next)
+                .replaceQueryParam("size", size)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR, next)
+                .header(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"")
+                .body(body);
+    }
+}
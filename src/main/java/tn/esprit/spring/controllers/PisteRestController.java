@@ -16,6 +16,7 @@ import tn.esprit.spring.entities.Piste;
 import tn.esprit.spring.services.IPisteServices;
 
 import java.util.List;
+import java.util.Set;
 
 @Tag(name = "\uD83C\uDFBF Piste Management")
 @RestController
@@ -26,6 +27,8 @@ public class PisteRestController {
 
     private final IPisteServices pisteServices;
 
+    private final PageResponses pageResponses;
+
     @Operation(
         summary = "Add a new piste",
         description = "Creates a new piste (ski slope) with specified name, color, length, and slope information.",
@@ -69,23 +72,43 @@ public class PisteRestController {
     }
     @Operation(
         summary = "Get all pistes",
-        description = "Retrieves a list of all available pistes (ski slopes) in the system.",
+        description = "Retrieves a page of the pistes in numPiste order. When the page is full, the "
+            + "X-Next-Cursor header gives the cursor of the next page and the Link header links to it. "
+            + "fields keeps only the listed properties of each piste.",
         tags = {"Pistes"}
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of all pistes retrieved successfully",
+            description = "Page of pistes retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
                 schema = @Schema(implementation = Piste.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid cursor, page size or field",
+            content = @Content(mediaType = "application/json")
         )
     })
     @GetMapping("/all")
-    public ResponseEntity<List<Piste>> getAllPistes() {
-        List<Piste> pistes = pisteServices.retrieveAllPistes();
-        return ResponseEntity.ok(pistes);
+    public ResponseEntity<List<?>> getAllPistes(
+        @Parameter(description = "Cursor given by the previous page, none for the first page")
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @Parameter(description = "Maximum number of pistes in the page (1 to 1000)", example = "100")
+        @RequestParam(value = "size", defaultValue = "100") int size,
+        @Parameter(description = "Properties to keep in each piste", example = "numPiste,namePiste,color")
+        @RequestParam(value = "fields", required = false) List<String> fields
+    ) {
+        try {
+            Set<String> selected = pageResponses.fields(Piste.class, fields);
+            List<Piste> pistes = pisteServices.retrievePistes(PageResponses.afterId(cursor), size);
+            return pageResponses.page(pistes, size, selected,
+                    piste -> PageResponses.cursor(piste.getNumPiste()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @Operation(
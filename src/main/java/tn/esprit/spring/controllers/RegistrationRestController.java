@@ -9,12 +9,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.dto.BulkRegistrationItem;
+import tn.esprit.spring.dto.BulkRegistrationResult;
+import tn.esprit.spring.dto.WaitlistPosition;
 import tn.esprit.spring.entities.Registration;
 import tn.esprit.spring.entities.Support;
 import tn.esprit.spring.services.IRegistrationServices;
+import tn.esprit.spring.services.IWaitlistServices;
 
 import java.util.List;
 
@@ -24,6 +31,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RegistrationRestController {
     private final IRegistrationServices registrationServices;
+    private final IWaitlistServices waitlistServices;
 
     @Operation(
         summary = "Add registration and assign to skier",
@@ -89,6 +97,11 @@ public class RegistrationRestController {
             responseCode = "404",
             description = "Registration or course not found",
             content = @Content(mediaType = "application/json")
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Every seat of the collective course is taken for the week of the registration",
+            content = @Content(mediaType = "application/json")
         )
     })
     @PutMapping("/assignToCourse/{numRegis}/{numSkieur}")
@@ -99,6 +112,9 @@ public class RegistrationRestController {
         @PathVariable("numSkieur") Long numCourse
     ) {
         Registration updatedRegistration = registrationServices.assignRegistrationToCourse(numRegistration, numCourse);
+        if (updatedRegistration == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
         return ResponseEntity.ok(updatedRegistration);
     }
 
@@ -141,9 +157,182 @@ public class RegistrationRestController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdRegistration);
     }
 
+    @Operation(
+        summary = "Add registrations in bulk",
+        description = "Registers a whole class list in one transaction. Skiers and courses are loaded once, the age and "
+            + "capacity rules are applied in memory and the accepted registrations are inserted with one batched "
+            + "statement. Each item gets its own outcome: ACCEPTED, DUPLICATE, REJECTED_AGE, REJECTED_SUPPORT, FULL or NOT_FOUND. "
+            + "At most 1000 items per request.",
+        tags = {"Registrations"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Batch processed, one result per item in request order",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(type = "array", implementation = BulkRegistrationResult.class),
+                examples = @ExampleObject(
+                    name = "Bulk Results",
+                    value = """
+                        [
+                            {"numSkier": 1, "numCourse": 2, "numWeek": 5, "outcome": "ACCEPTED", "numRegistration": 41},
+                            {"numSkier": 2, "numCourse": 2, "numWeek": 5, "outcome": "REJECTED_AGE", "numRegistration": null}
+                        ]
+                        """
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid input data or too many items",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @PutMapping("/addAndAssignToSkierAndCourse/bulk")
+    public ResponseEntity<List<BulkRegistrationResult>> addAndAssignToSkierAndCourseInBulk(
+        @Parameter(description = "List of (skier, course, week) to register", required = true)
+        @RequestBody List<BulkRegistrationItem> items
+    ) {
+        try {
+            List<BulkRegistrationResult> results = registrationServices.addRegistrationsInBulk(items);
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+        summary = "Remove registration",
+        description = "Deletes a registration. The seat it held in a collective course week is handed to the first "
+            + "skiers of that week's waitlist.",
+        tags = {"Registrations"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "204",
+            description = "Registration removed successfully"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Registration not found",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @DeleteMapping("/delete/{numRegistration}")
+    public ResponseEntity<Void> removeRegistration(
+        @Parameter(description = "ID of the registration to delete", required = true, example = "1")
+        @PathVariable("numRegistration") Long numRegistration
+    ) {
+        registrationServices.removeRegistration(numRegistration);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+        summary = "Join the waitlist of a full course week",
+        description = "Queues a skier for a week of a full collective course. Waiting skiers are registered in arrival "
+            + "order as soon as seats free up; poll the returned entry instead of retrying the registration. "
+            + "Joining twice returns the existing entry.",
+        tags = {"Registrations"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Skier waitlisted",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = WaitlistPosition.class),
+                examples = @ExampleObject(
+                    name = "Waitlist Position",
+                    value = """
+                        {
+                            "numEntry": 12,
+                            "numSkier": 1,
+                            "numCourse": 2,
+                            "numWeek": 5,
+                            "status": "WAITING",
+                            "position": 3,
+                            "numRegistration": null
+                        }
+                        """
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Skier or course not found",
+            content = @Content(mediaType = "application/json")
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Individual courses have no waitlist",
+            content = @Content(mediaType = "application/json")
+        ),
+        @ApiResponse(
+            responseCode = "409",
+            description = "The skier is already registered to the week, or the week still has free seats",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @PutMapping("/waitlist/{numSkieur}/{numCourse}")
+    public ResponseEntity<WaitlistPosition> joinWaitlist(
+        @Parameter(description = "Registration object containing week number", required = true)
+        @RequestBody Registration registration,
+        @Parameter(description = "ID of the skier", required = true, example = "1")
+        @PathVariable("numSkieur") Long numSkieur,
+        @Parameter(description = "ID of the course", required = true, example = "1")
+        @PathVariable("numCourse") Long numCourse
+    ) {
+        try {
+            WaitlistPosition position = waitlistServices.joinWaitlist(numSkieur, numCourse, registration.getNumWeek());
+            if (position == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(position);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException | DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @Operation(
+        summary = "Get waitlist position",
+        description = "Returns the position of a waitlist entry (1 for the next skier to be registered). Once promoted, "
+            + "the position is 0 and the entry carries the ID of the created registration.",
+        tags = {"Registrations"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Waitlist position retrieved successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = WaitlistPosition.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Waitlist entry not found",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @GetMapping("/waitlist/{numEntry}")
+    public ResponseEntity<WaitlistPosition> getWaitlistPosition(
+        @Parameter(description = "ID of the waitlist entry", required = true, example = "1")
+        @PathVariable("numEntry") Long numEntry
+    ) {
+        WaitlistPosition position = waitlistServices.retrievePosition(numEntry);
+        if (position == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(position);
+    }
+
     @Operation(
         summary = "Get instructor teaching weeks by support",
-        description = "Retrieves the list of weeks when a specific instructor has given lessons for a particular support type (SKI or SNOWBOARD).",
+        description = "Retrieves the list of weeks when a specific instructor has given lessons for a particular support type (SKI or SNOWBOARD). "
+            + "A week appears once per registration in it, and the weeks are sorted.",
         tags = {"Registrations"}
     )
     @ApiResponses(value = {
@@ -155,7 +344,7 @@ public class RegistrationRestController {
                 schema = @Schema(type = "array", implementation = Integer.class),
                 examples = @ExampleObject(
                     name = "Weeks List",
-                    value = "[1, 3, 5, 7, 9]"
+                    value = "[1, 1, 3, 5, 5, 5]"
                 )
             )
         ),
@@ -175,4 +364,29 @@ public class RegistrationRestController {
         List<Integer> weeks = registrationServices.numWeeksCourseOfInstructorBySupport(numInstructor, support);
         return ResponseEntity.ok(weeks);
     }
+
+    @Operation(
+        summary = "Export all registrations",
+        description = "Streams every registration in id order as CSV (Accept: text/csv, header: numRegistration, numWeek, seat, numSkier, numCourse) or as "
+            + "newline-delimited JSON objects with the same fields. Rows are written as they are read from a "
+            + "database cursor, so memory use does not depend on the size of the table. The body is "
+            + "gzip-compressed when Accept-Encoding allows it.",
+        tags = {"Registrations"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Registrations streamed, one per line",
+            content = {@Content(mediaType = ExportResponses.CSV), @Content(mediaType = ExportResponses.NDJSON)}
+        )
+    })
+    @GetMapping(value = "/export", produces = {ExportResponses.CSV, ExportResponses.NDJSON})
+    public ResponseEntity<StreamingResponseBody> exportRegistrations(
+        @Parameter(description = "text/csv or application/x-ndjson", example = "text/csv")
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @Parameter(description = "gzip to compress the export", example = "gzip")
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return ExportResponses.export("registrations", accept, acceptEncoding, registrationServices::exportRegistrations);
+    }
 }
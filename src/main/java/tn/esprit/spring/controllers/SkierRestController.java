@@ -9,14 +9,27 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.dto.BulkExcursionAssignment;
+import tn.esprit.spring.dto.BulkExcursionResult;
+import tn.esprit.spring.dto.SkierExpansion;
+import tn.esprit.spring.dto.SkierImportFormat;
+import tn.esprit.spring.dto.SkierImportReport;
+import tn.esprit.spring.dto.SkierView;
 import tn.esprit.spring.entities.Skier;
 import tn.esprit.spring.entities.TypeSubscription;
 import tn.esprit.spring.services.ISkierServices;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Set;
 
 @Tag(name = "\uD83C\uDFC2 Skier Management")
 @RestController
@@ -24,8 +37,14 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SkierRestController {
 
+    static final String CSV = "text/csv";
+
+    static final String NDJSON = "application/x-ndjson";
+
     private final ISkierServices skierServices;
 
+    private final PageResponses pageResponses;
+
     @Operation(
         summary = "Add a new skier",
         description = "Creates a new skier profile in the system. The skier will be assigned a unique ID automatically.",
@@ -47,9 +66,7 @@ public class SkierRestController {
                             "lastName": "Doe",
                             "dateOfBirth": "1990-05-15",
                             "city": "Chamonix",
-                            "subscription": null,
-                            "pistes": [],
-                            "registrations": []
+                            "subscription": null
                         }
                         """
                 )
@@ -164,8 +181,52 @@ public class SkierRestController {
         @PathVariable("numPiste") Long numPiste
     ) {
         Skier updatedSkier = skierServices.assignSkierToPiste(numSkier, numPiste);
+        if (updatedSkier == null) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok(updatedSkier);
     }
+
+    @Operation(
+        summary = "Assign skiers to pistes in bulk",
+        description = "Assigns every listed skier to every listed piste with one statement, without loading the "
+            + "excursions skiers already have. Pairs already assigned and unknown skiers or pistes are skipped. "
+            + "At most 100000 pairs per request.",
+        tags = {"Skiers"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Skiers assigned",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = BulkExcursionResult.class),
+                examples = @ExampleObject(
+                    name = "Bulk Result",
+                    value = """
+                        {"requested": 6, "assigned": 5}
+                        """
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Too many skier and piste pairs",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @PutMapping("/assignToPiste/bulk")
+    public ResponseEntity<BulkExcursionResult> assignToPistesInBulk(
+        @Parameter(description = "Skiers and the pistes to assign each of them to", required = true)
+        @RequestBody BulkExcursionAssignment assignment
+    ) {
+        try {
+            return ResponseEntity.ok(skierServices.assignSkiersToPistes(assignment.getNumSkiers(),
+                    assignment.getNumPistes()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
     @Operation(
         summary = "Get skiers by subscription type",
         description = "Retrieves all skiers who have a specific type of subscription (ANNUAL, MONTHLY, or SEMESTRIEL).",
@@ -245,23 +306,139 @@ public class SkierRestController {
 
     @Operation(
         summary = "Get all skiers",
-        description = "Retrieves a list of all skiers in the system with their complete information.",
+        description = "Retrieves a page of the skiers in numSkier order, as flat read models with the number of "
+            + "their subscription. Use expand=subscription and/or expand=registrations to embed them. A page "
+            + "costs one query, plus one query per expansion. When the page is full, the X-Next-Cursor header "
+            + "gives the cursor of the next page and the Link header links to it. fields keeps only the listed "
+            + "properties of each skier.",
         tags = {"Skiers"}
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of all skiers retrieved successfully",
+            description = "Page of skiers retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
-                schema = @Schema(implementation = Skier.class)
+                schema = @Schema(implementation = SkierView.class),
+                examples = @ExampleObject(
+                    name = "Skiers with their subscription",
+                    value = """
+                        [{
+                            "numSkier": 1,
+                            "firstName": "John",
+                            "lastName": "Doe",
+                            "dateOfBirth": "1990-05-15",
+                            "city": "Chamonix",
+                            "numSub": 4,
+                            "subscription": {"numSub": 4, "startDate": "2025-01-01", "endDate": "2026-01-01",
+                                "price": 900.0, "typeSub": "ANNUAL"}
+                        }]
+                        """
+                )
             )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid cursor, page size, field or expansion",
+            content = @Content(mediaType = "application/json")
         )
     })
     @GetMapping("/all")
-    public ResponseEntity<List<Skier>> getAllSkiers() {
-        List<Skier> skiers = skierServices.retrieveAllSkiers();
-        return ResponseEntity.ok(skiers);
+    public ResponseEntity<List<?>> getAllSkiers(
+        @Parameter(description = "Cursor given by the previous page, none for the first page")
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @Parameter(description = "Maximum number of skiers in the page (1 to 1000)", example = "100")
+        @RequestParam(value = "size", defaultValue = "100") int size,
+        @Parameter(description = "Properties to keep in each skier", example = "numSkier,lastName,subscription")
+        @RequestParam(value = "fields", required = false) List<String> fields,
+        @Parameter(description = "Associations to embed: subscription, registrations", example = "subscription")
+        @RequestParam(value = "expand", required = false) List<String> expand
+    ) {
+        try {
+            Set<String> selected = pageResponses.fields(SkierView.class, fields);
+            List<SkierView> skiers = skierServices.retrieveSkierViews(PageResponses.afterId(cursor), size,
+                    SkierExpansion.parse(expand));
+            return pageResponses.page(skiers, size, selected, skier -> PageResponses.cursor(skier.getNumSkier()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
+    @Operation(
+        summary = "Import skiers in bulk",
+        description = "Imports skiers with their subscription from a CSV file (header: firstName, lastName, "
+            + "dateOfBirth, city, startDate, typeSub, price, in any order) or from newline-delimited JSON objects "
+            + "with the same fields. Subscription end dates are computed from their type. The body is read as it "
+            + "arrives and inserted in batches; invalid rows are skipped and reported with their line.",
+        tags = {"Skiers"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "File imported",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = SkierImportReport.class),
+                examples = @ExampleObject(
+                    name = "Import Report",
+                    value = """
+                        {
+                            "rows": 3,
+                            "imported": 2,
+                            "rejected": 1,
+                            "errors": [{"line": 3, "message": "Invalid typeSub WEEKLY"}],
+                            "durationMillis": 12,
+                            "rowsPerSecond": 250.0
+                        }
+                        """
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "CSV header missing a column",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @PostMapping(value = "/import", consumes = {CSV, NDJSON})
+    public ResponseEntity<SkierImportReport> importSkiers(
+        @Parameter(description = "text/csv or application/x-ndjson", required = true)
+        @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+        InputStream body
+    ) {
+        SkierImportFormat format = MediaType.parseMediaType(NDJSON).includes(contentType)
+                ? SkierImportFormat.NDJSON : SkierImportFormat.CSV;
+        InputStreamReader reader = new InputStreamReader(body,
+                contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset());
+        try {
+            return ResponseEntity.ok(skierServices.importSkiers(reader, format));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+        summary = "Export all skiers",
+        description = "Streams every skier in id order as CSV (Accept: text/csv, header: numSkier, firstName, lastName, dateOfBirth, city, numSub) or as "
+            + "newline-delimited JSON objects with the same fields. Rows are written as they are read from a "
+            + "database cursor, so memory use does not depend on the size of the table. The body is "
+            + "gzip-compressed when Accept-Encoding allows it.",
+        tags = {"Skiers"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Skiers streamed, one per line",
+            content = {@Content(mediaType = ExportResponses.CSV), @Content(mediaType = ExportResponses.NDJSON)}
+        )
+    })
+    @GetMapping(value = "/export", produces = {ExportResponses.CSV, ExportResponses.NDJSON})
+    public ResponseEntity<StreamingResponseBody> exportSkiers(
+        @Parameter(description = "text/csv or application/x-ndjson", example = "text/csv")
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @Parameter(description = "gzip to compress the export", example = "gzip")
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return ExportResponses.export("skiers", accept, acceptEncoding, skierServices::exportSkiers);
+    }
 }
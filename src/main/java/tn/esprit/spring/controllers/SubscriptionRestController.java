@@ -8,16 +8,31 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tn.esprit.spring.dto.RecurringRevenue;
+import tn.esprit.spring.dto.RenewalProgress;
+import tn.esprit.spring.dto.RevenueGranularity;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.dto.SubscriptionView;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
 import tn.esprit.spring.services.ISubscriptionServices;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Set;
 
@@ -27,8 +42,14 @@ import java.util.Set;
 @RequiredArgsConstructor
 public class SubscriptionRestController {
 
+    static final String NDJSON = "application/x-ndjson";
+
     private final ISubscriptionServices subscriptionServices;
 
+    private final ObjectMapper objectMapper;
+
+    private final PageResponses pageResponses;
+
     @Operation(
         summary = "Add a new subscription",
         description = "Creates a new subscription with specified type, dates, and price.",
@@ -100,26 +121,48 @@ public class SubscriptionRestController {
     
     @Operation(
         summary = "Get subscriptions by type",
-        description = "Retrieves all subscriptions of a specific type (ANNUAL, MONTHLY, or SEMESTRIEL).",
+        description = "Retrieves a page of the subscriptions of a specific type (ANNUAL, MONTHLY, or SEMESTRIEL), "
+            + "ordered by start date then number. When the page is full, the X-Next-Cursor header gives the "
+            + "cursor of the next page and the Link header links to it. fields keeps only the listed properties "
+            + "of each subscription.",
         tags = {"Subscriptions"}
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of subscriptions retrieved successfully",
+            description = "Page of subscriptions retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
-                schema = @Schema(implementation = Subscription.class)
+                schema = @Schema(implementation = SubscriptionView.class)
             )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid cursor, page size or field",
+            content = @Content(mediaType = "application/json")
         )
     })
     @GetMapping("/all/{typeSub}")
-    public ResponseEntity<Set<Subscription>> getSubscriptionsByType(
+    public ResponseEntity<List<?>> getSubscriptionsByType(
         @Parameter(description = "Type of subscription to filter by", required = true, example = "ANNUAL")
-        @PathVariable("typeSub") TypeSubscription typeSubscription
+        @PathVariable("typeSub") TypeSubscription typeSubscription,
+        @Parameter(description = "Cursor given by the previous page, none for the first page")
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @Parameter(description = "Maximum number of subscriptions in the page (1 to 1000)", example = "100")
+        @RequestParam(value = "size", defaultValue = "100") int size,
+        @Parameter(description = "Properties to keep in each subscription", example = "numSub,startDate,price")
+        @RequestParam(value = "fields", required = false) List<String> fields
     ) {
-        Set<Subscription> subscriptions = subscriptionServices.getSubscriptionByType(typeSubscription);
-        return ResponseEntity.ok(subscriptions);
+        try {
+            Set<String> selected = pageResponses.fields(SubscriptionView.class, fields);
+            String[] after = cursor == null ? null : PageResponses.keys(cursor, 2);
+            List<SubscriptionView> subscriptions = subscriptionServices.getSubscriptionByType(typeSubscription,
+                    afterDate(after), afterNumSub(after), size);
+            return pageResponses.page(subscriptions, size, selected,
+                    subscription -> PageResponses.cursor(subscription.getStartDate(), subscription.getNumSub()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     @Operation(
         summary = "Update subscription",
@@ -156,13 +199,16 @@ public class SubscriptionRestController {
     }
     @Operation(
         summary = "Get subscriptions by date range",
-        description = "Retrieves all subscriptions created between two specific dates (inclusive).",
+        description = "Retrieves a page of the subscriptions created between two specific dates (inclusive), "
+            + "ordered by start date then number. When the page is full, the X-Next-Cursor header gives the "
+            + "cursor of the next page and the Link header links to it. fields keeps only the listed properties "
+            + "of each subscription.",
         tags = {"Subscriptions"}
     )
     @ApiResponses(value = {
         @ApiResponse(
             responseCode = "200",
-            description = "List of subscriptions retrieved successfully",
+            description = "Page of subscriptions retrieved successfully",
             content = @Content(
                 mediaType = "application/json",
                 schema = @Schema(implementation = Subscription.class)
@@ -170,19 +216,268 @@ public class SubscriptionRestController {
         ),
         @ApiResponse(
             responseCode = "400",
-            description = "Invalid date format or range",
+            description = "Invalid date format, range, cursor, page size or field",
             content = @Content(mediaType = "application/json")
         )
     })
     @GetMapping("/all/{date1}/{date2}")
-    public ResponseEntity<List<Subscription>> getSubscriptionsByDates(
+    public ResponseEntity<List<?>> getSubscriptionsByDates(
+        @Parameter(description = "Start date (YYYY-MM-DD)", required = true, example = "2024-01-01")
+        @PathVariable("date1") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+        @Parameter(description = "End date (YYYY-MM-DD)", required = true, example = "2024-12-31")
+        @PathVariable("date2") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+        @Parameter(description = "Cursor given by the previous page, none for the first page")
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @Parameter(description = "Maximum number of subscriptions in the page (1 to 1000)", example = "100")
+        @RequestParam(value = "size", defaultValue = "100") int size,
+        @Parameter(description = "Properties to keep in each subscription", example = "numSub,startDate,price")
+        @RequestParam(value = "fields", required = false) List<String> fields
+    ) {
+        try {
+            Set<String> selected = pageResponses.fields(Subscription.class, fields);
+            String[] after = cursor == null ? null : PageResponses.keys(cursor, 2);
+            List<Subscription> subscriptions = subscriptionServices.retrieveSubscriptionsByDates(startDate, endDate,
+                    afterDate(after), afterNumSub(after), size);
+            return pageResponses.page(subscriptions, size, selected,
+                    subscription -> PageResponses.cursor(subscription.getStartDate(), subscription.getNumSub()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(
+        summary = "Stream subscriptions by date range",
+        description = "Streams every subscription created between two specific dates (inclusive) as "
+            + "newline-delimited JSON, ordered by start date then number. Rows are written as they are read "
+            + "from the database, so memory use does not depend on the size of the range.",
+        tags = {"Subscriptions"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Subscriptions streamed, one JSON object per line",
+            content = @Content(mediaType = NDJSON)
+        )
+    })
+    @GetMapping(value = "/all/{date1}/{date2}/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamSubscriptionsByDates(
         @Parameter(description = "Start date (YYYY-MM-DD)", required = true, example = "2024-01-01")
         @PathVariable("date1") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
         @Parameter(description = "End date (YYYY-MM-DD)", required = true, example = "2024-12-31")
         @PathVariable("date2") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
     ) {
-        List<Subscription> subscriptions = subscriptionServices.retrieveSubscriptionsByDates(startDate, endDate);
-        return ResponseEntity.ok(subscriptions);
+        // Rows go to the response buffer, which is flushed to the client whenever it fills up
+        ObjectWriter writer = objectMapper.writerFor(Subscription.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try {
+                subscriptionServices.forEachSubscriptionByDates(startDate, endDate, subscription -> {
+                    try {
+                        writer.writeValue(out, subscription);
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
 
+    @Operation(
+        summary = "Get monthly recurring revenue",
+        description = "Returns the monthly recurring revenue (average monthly price, plus average semester price / 6, "
+            + "plus average annual price / 12) with the per type sum and count it is computed from. "
+            + "Served from running aggregates kept by each node and reconciled with the database every 5 minutes "
+            + "by default: subscriptions saved through another node may be missing until then.",
+        tags = {"Subscriptions"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Monthly recurring revenue computed successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = RecurringRevenue.class),
+                examples = @ExampleObject(
+                    name = "Monthly Recurring Revenue",
+                    value = """
+                        {
+                            "monthlyRecurringRevenue": 141.67,
+                            "aggregates": [
+                                {"typeSub": "ANNUAL", "sum": 1000.0, "count": 2, "averagePrice": 500.0},
+                                {"typeSub": "MONTHLY", "sum": 100.0, "count": 1, "averagePrice": 100.0},
+                                {"typeSub": "SEMESTRIEL", "sum": 0.0, "count": 0, "averagePrice": 0.0}
+                            ]
+                        }
+                        """
+                )
+            )
+        )
+    })
+    @GetMapping("/mrr")
+    public ResponseEntity<RecurringRevenue> getMonthlyRecurringRevenue() {
+        return ResponseEntity.ok(subscriptionServices.retrieveMonthlyRecurringRevenue());
+    }
+
+    @Operation(
+        summary = "Get revenue time series",
+        description = "Returns the revenue and number of subscriptions per period and type, for the subscriptions "
+            + "starting between two dates (inclusive). Periods are days, weeks starting on Monday or months, "
+            + "clipped to the range. Served from daily rollups; days changed since the last rollup are "
+            + "aggregated from the subscriptions, so results always match the subscriptions.",
+        tags = {"Subscriptions"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Revenue time series computed successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = RevenuePoint.class),
+                examples = @ExampleObject(
+                    name = "Monthly Revenue",
+                    value = """
+                        [
+                            {"period": "2024-01-01", "typeSub": "ANNUAL", "revenue": 1000.0, "subscriptions": 2},
+                            {"period": "2024-01-01", "typeSub": "MONTHLY", "revenue": 100.0, "subscriptions": 1},
+                            {"period": "2024-02-01", "typeSub": "MONTHLY", "revenue": 200.0, "subscriptions": 2}
+                        ]
+                        """
+                )
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid date format, range or granularity",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @GetMapping("/revenue")
+    public ResponseEntity<List<RevenuePoint>> getRevenue(
+        @Parameter(description = "First start date (YYYY-MM-DD)", required = true, example = "2024-01-01")
+        @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @Parameter(description = "Last start date (YYYY-MM-DD)", required = true, example = "2024-12-31")
+        @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @Parameter(description = "Period of the series: DAY, WEEK or MONTH", example = "MONTH")
+        @RequestParam(value = "granularity", defaultValue = "DAY") RevenueGranularity granularity
+    ) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(subscriptionServices.retrieveRevenue(from, to, granularity));
+    }
+
+    @Operation(
+        summary = "Renew expiring subscriptions",
+        description = "Renews the subscriptions of the given types ending between two dates (inclusive): each one "
+            + "starts again on its end date, with the end date of a new subscription of its type. Subscriptions "
+            + "are renewed in checkpointed chunks, so calling again after a failure resumes the renewal, and "
+            + "calling again once it is completed changes nothing.",
+        tags = {"Subscriptions"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Renewal run; not completed if another node is running it",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = RenewalProgress.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Invalid date format, range or types",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @PostMapping("/renewal")
+    public ResponseEntity<RenewalProgress> renewSubscriptions(
+        @Parameter(description = "First end date (YYYY-MM-DD)", required = true, example = "2025-04-01")
+        @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @Parameter(description = "Last end date (YYYY-MM-DD)", required = true, example = "2025-04-30")
+        @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @Parameter(description = "Types of subscription to renew", example = "ANNUAL,SEMESTRIEL")
+        @RequestParam(value = "types", defaultValue = "ANNUAL,SEMESTRIEL") Set<TypeSubscription> types
+    ) {
+        if (from.isAfter(to) || types.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(subscriptionServices.renewSubscriptions(from, to, types));
+    }
+
+    @Operation(
+        summary = "Get renewal progress",
+        description = "Returns the progress and throughput of the renewal of the subscriptions of the given types "
+            + "ending between two dates (inclusive).",
+        tags = {"Subscriptions"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Renewal progress returned successfully",
+            content = @Content(
+                mediaType = "application/json",
+                schema = @Schema(implementation = RenewalProgress.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Renewal never started",
+            content = @Content(mediaType = "application/json")
+        )
+    })
+    @GetMapping("/renewal")
+    public ResponseEntity<RenewalProgress> getRenewal(
+        @Parameter(description = "First end date (YYYY-MM-DD)", required = true, example = "2025-04-01")
+        @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @Parameter(description = "Last end date (YYYY-MM-DD)", required = true, example = "2025-04-30")
+        @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @Parameter(description = "Types of subscription renewed", example = "ANNUAL,SEMESTRIEL")
+        @RequestParam(value = "types", defaultValue = "ANNUAL,SEMESTRIEL") Set<TypeSubscription> types
+    ) {
+        if (from.isAfter(to) || types.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        RenewalProgress progress = subscriptionServices.retrieveRenewal(from, to, types);
+        return progress == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(progress);
+    }
+
+    /** Start date in the keys of a subscription page cursor, null for the first page. */
+    private static LocalDate afterDate(String[] after) {
+        return after == null ? null : LocalDate.parse(after[0]);
+    }
+
+    /** Subscription number in the keys of a subscription page cursor, null for the first page. */
+    private static Long afterNumSub(String[] after) {
+        return after == null ? null : Long.valueOf(after[1]);
+    }
+
+    @Operation(
+        summary = "Export all subscriptions",
+        description = "Streams every subscription in id order as CSV (Accept: text/csv, header: numSub, startDate, endDate, price, typeSub) or as "
+            + "newline-delimited JSON objects with the same fields. Rows are written as they are read from a "
+            + "database cursor, so memory use does not depend on the size of the table. The body is "
+            + "gzip-compressed when Accept-Encoding allows it.",
+        tags = {"Subscriptions"}
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Subscriptions streamed, one per line",
+            content = {@Content(mediaType = ExportResponses.CSV), @Content(mediaType = ExportResponses.NDJSON)}
+        )
+    })
+    @GetMapping(value = "/export", produces = {ExportResponses.CSV, ExportResponses.NDJSON})
+    public ResponseEntity<StreamingResponseBody> exportSubscriptions(
+        @Parameter(description = "text/csv or application/x-ndjson", example = "text/csv")
+        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+        @Parameter(description = "gzip to compress the export", example = "gzip")
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return ExportResponses.export("subscriptions", accept, acceptEncoding, subscriptionServices::exportSubscriptions);
+    }
 }
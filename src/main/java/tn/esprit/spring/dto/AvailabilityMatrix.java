@@ -0,0 +1,23 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Remaining seats of every collective course for the weeks {@code firstWeek} to
+ * {@code lastWeek}, tagged with a version derived from these counts, the same on every node.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AvailabilityMatrix {
+
+    String version;
+    int firstWeek;
+    int lastWeek;
+    List<CourseAvailability> courses;
+}
@@ -0,0 +1,17 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BulkExcursionResult {
+
+    /** Distinct (skier, piste) pairs asked for. */
+    long requested;
+    /** Pairs added; the others were already assigned or name an unknown skier or piste. */
+    long assigned;
+}
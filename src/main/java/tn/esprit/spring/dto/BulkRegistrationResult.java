@@ -0,0 +1,23 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkRegistrationResult {
+
+    Long numSkier;
+    Long numCourse;
+    int numWeek;
+    RegistrationOutcome outcome;
+    /** Id of the created registration, null unless the outcome is ACCEPTED. */
+    Long numRegistration;
+}
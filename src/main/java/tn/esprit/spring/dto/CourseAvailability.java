@@ -0,0 +1,22 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.spring.entities.TypeCourse;
+
+/**
+ * Remaining seats of one course, one unsigned byte per week starting at the first week of
+ * the matrix, encoded in base64.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CourseAvailability {
+
+    Long numCourse;
+    TypeCourse typeCourse;
+    int capacity;
+    String remaining;
+}
@@ -0,0 +1,20 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Number of registrations of one course for one week, as returned by the
+ * grouped aggregate queries of {@code IRegistrationRepository}.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CourseWeekCount {
+
+    Long numCourse;
+    Integer numWeek;
+    Long total;
+}
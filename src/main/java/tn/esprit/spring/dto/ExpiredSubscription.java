@@ -0,0 +1,23 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+/**
+ * Line of the expired subscriptions report. The names are {@code null} when no skier
+ * holds the subscription.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ExpiredSubscription {
+
+    Long numSub;
+    LocalDate endDate;
+    String firstName;
+    String lastName;
+}
@@ -0,0 +1,8 @@
+package tn.esprit.spring.dto;
+
+public enum ExportFormat {
+    /** Comma-separated values, after a header line naming the columns. */
+    CSV,
+    /** One JSON object per line. */
+    NDJSON
+}
@@ -0,0 +1,24 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * One registration decision read back from the registration journal. Identifiers unknown
+ * when the decision was taken are 0.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class JournalEntry {
+
+    long offset;
+    long timestamp;
+    JournalEntryType type;
+    long numRegistration;
+    long numSkier;
+    long numCourse;
+    int numWeek;
+}
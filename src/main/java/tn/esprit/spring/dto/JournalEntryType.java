@@ -0,0 +1,8 @@
+package tn.esprit.spring.dto;
+
+/**
+ * Registration decision recorded by a journal entry.
+ */
+public enum JournalEntryType {
+    ADDED, REMOVED, DUPLICATE, REJECTED_AGE, REJECTED_SUPPORT, FULL
+}
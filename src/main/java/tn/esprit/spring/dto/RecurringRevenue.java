@@ -0,0 +1,20 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Monthly recurring revenue and the per type aggregates it is computed from.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RecurringRevenue {
+
+    double monthlyRecurringRevenue;
+    List<RevenueAggregate> aggregates;
+}
@@ -0,0 +1,20 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Id and (skier, course, week) of an existing registration, used to detect duplicates.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RegistrationKey {
+
+    Long numRegistration;
+    Long numSkier;
+    Long numCourse;
+    Integer numWeek;
+}
@@ -0,0 +1,8 @@
+package tn.esprit.spring.dto;
+
+/**
+ * Decision taken on a registration request.
+ */
+public enum RegistrationOutcome {
+    ACCEPTED, DUPLICATE, REJECTED_AGE, REJECTED_SUPPORT, FULL, NOT_FOUND
+}
@@ -0,0 +1,31 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+
+import java.util.Set;
+
+/**
+ * One row of the registration rule table: who may register to the courses of a type and
+ * how many seats a week of such a course has. Absent bounds mean no limit; an absent or
+ * zero capacity means the course is not seat-limited.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class RegistrationRule {
+
+    TypeCourse typeCourse;
+    Integer minAge;
+    Integer maxAge;
+    Integer capacity;
+    Set<Support> supports;
+}
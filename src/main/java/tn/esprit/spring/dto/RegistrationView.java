@@ -0,0 +1,22 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Read-only registration row, with the numbers of its skier and course instead of the
+ * entities themselves.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RegistrationView {
+
+    Long numRegistration;
+    int numWeek;
+    Integer seat;
+    Long numSkier;
+    Long numCourse;
+}
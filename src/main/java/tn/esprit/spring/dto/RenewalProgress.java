@@ -0,0 +1,29 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a bulk renewal, with its throughput since it started.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RenewalProgress {
+
+    String job;
+    LocalDate fromDate;
+    LocalDate toDate;
+    Long lastNumSub;
+    long renewed;
+    long skipped;
+    boolean completed;
+    LocalDateTime startedAt;
+    LocalDateTime updatedAt;
+    double renewedPerSecond;
+}
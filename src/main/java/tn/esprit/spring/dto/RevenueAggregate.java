@@ -0,0 +1,25 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.spring.entities.TypeSubscription;
+
+/**
+ * Running sum and count of the subscription prices of one type.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RevenueAggregate {
+
+    TypeSubscription typeSub;
+    Double sum;
+    Long count;
+
+    /** Average price of the subscriptions of this type, 0 when there is none. */
+    public double getAveragePrice() {
+        return count == null || count == 0 || sum == null ? 0 : sum / count;
+    }
+}
@@ -0,0 +1,26 @@
+package tn.esprit.spring.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Period the revenue time series is bucketed by.
+ */
+public enum RevenueGranularity {
+    DAY,
+    WEEK,
+    MONTH;
+
+    /** First day of the period containing the given day; weeks start on Monday. */
+    public LocalDate periodOf(LocalDate day) {
+        switch (this) {
+            case WEEK:
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return day.withDayOfMonth(1);
+            default:
+                return day;
+        }
+    }
+}
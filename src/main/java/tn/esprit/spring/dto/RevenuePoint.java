@@ -0,0 +1,24 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.spring.entities.TypeSubscription;
+
+import java.time.LocalDate;
+
+/**
+ * Revenue and number of the subscriptions of one type starting in the period beginning
+ * on {@code period}.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RevenuePoint {
+
+    LocalDate period;
+    TypeSubscription typeSub;
+    Double revenue;
+    Long subscriptions;
+}
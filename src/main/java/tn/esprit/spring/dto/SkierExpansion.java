@@ -0,0 +1,34 @@
+package tn.esprit.spring.dto;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Associations a skier read model may be expanded with, each fetched with its own batched
+ * IN query.
+ */
+public enum SkierExpansion {
+    SUBSCRIPTION, REGISTRATIONS;
+
+    /**
+     * Parses {@code expand} values such as {@code registrations,subscription}, ignoring case.
+     *
+     * @throws IllegalArgumentException on an unknown expansion
+     */
+    public static Set<SkierExpansion> parse(List<String> values) {
+        Set<SkierExpansion> expansions = EnumSet.noneOf(SkierExpansion.class);
+        if (values == null) {
+            return expansions;
+        }
+        for (String value : values) {
+            for (String name : value.split(",")) {
+                if (!name.isBlank()) {
+                    expansions.add(valueOf(name.trim().toUpperCase(Locale.ROOT)));
+                }
+            }
+        }
+        return expansions;
+    }
+}
@@ -0,0 +1,16 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SkierImportError {
+
+    /** Line of the file, starting at 1 and counting the CSV header. */
+    long line;
+    String message;
+}
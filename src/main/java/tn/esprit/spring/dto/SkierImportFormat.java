@@ -0,0 +1,8 @@
+package tn.esprit.spring.dto;
+
+public enum SkierImportFormat {
+    /** Comma-separated values, with a header line naming the columns. */
+    CSV,
+    /** One JSON object per line. */
+    NDJSON
+}
@@ -0,0 +1,25 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Outcome of an import: rows read, imported and rejected, the first rejected rows with
+ * their reason, and the throughput of the whole import.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SkierImportReport {
+
+    long rows;
+    long imported;
+    long rejected;
+    List<SkierImportError> errors;
+    long durationMillis;
+    double rowsPerSecond;
+}
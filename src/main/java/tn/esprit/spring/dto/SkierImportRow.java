@@ -0,0 +1,31 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.spring.entities.TypeSubscription;
+
+import java.time.LocalDate;
+
+/**
+ * Skier and subscription read from one line of an import file. The end date of the
+ * subscription is not read: it is computed from its type, as for {@code /skier/add}.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SkierImportRow {
+
+    String firstName;
+    String lastName;
+    LocalDate dateOfBirth;
+    String city;
+    LocalDate startDate;
+    TypeSubscription typeSub;
+    Float price;
+}
@@ -0,0 +1,44 @@
+package tn.esprit.spring.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read-only skier row, read with a single projection query. Its subscription and
+ * registrations are only filled, and serialized, when expanded.
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SkierView {
+
+    final Long numSkier;
+    final String firstName;
+    final String lastName;
+    final LocalDate dateOfBirth;
+    final String city;
+    final Long numSub;
+
+    @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    SubscriptionView subscription;
+
+    @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    List<RegistrationView> registrations;
+
+    public SkierView(Long numSkier, String firstName, String lastName, LocalDate dateOfBirth, String city,
+                     Long numSub) {
+        this.numSkier = numSkier;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.dateOfBirth = dateOfBirth;
+        this.city = city;
+        this.numSub = numSub;
+    }
+}
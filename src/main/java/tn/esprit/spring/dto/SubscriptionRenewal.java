@@ -0,0 +1,23 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+/**
+ * New period of a renewed subscription, applied only while its end date is still
+ * {@code previousEndDate}.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SubscriptionRenewal {
+
+    Long numSub;
+    LocalDate previousEndDate;
+    LocalDate startDate;
+    LocalDate endDate;
+}
@@ -0,0 +1,20 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Seat taken in a collective course for one week, null for a registration made before seats
+ * were numbered, which still fills one of them.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class TakenSeat {
+
+    Long numCourse;
+    Integer numWeek;
+    Integer seat;
+}
@@ -0,0 +1,27 @@
+package tn.esprit.spring.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.spring.entities.WaitlistStatus;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class WaitlistPosition {
+
+    Long numEntry;
+    Long numSkier;
+    Long numCourse;
+    int numWeek;
+    WaitlistStatus status;
+    /** 1 for the head of the waitlist, 0 once the entry is no longer waiting. */
+    long position;
+    /** Registration created by the promotion, null until then. */
+    Long numRegistration;
+}
@@ -21,7 +21,10 @@ import lombok.experimental.FieldDefaults;
 public class Course implements Serializable {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "course")
+	@TableGenerator(name = "course", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+			valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "course",
+			allocationSize = IdGenerators.ALLOCATION_SIZE)
 	Long numCourse;
 	int level;
 	@Enumerated(EnumType.STRING)
@@ -0,0 +1,22 @@
+package tn.esprit.spring.entities;
+
+/**
+ * Table-backed pooled identifiers of the entities inserted in bulk. Each entity has a row
+ * in {@value #TABLE}, from which Hibernate reserves {@value #ALLOCATION_SIZE} ids per round
+ * trip. Unlike IDENTITY columns, whose id is only known once the row is inserted, this lets
+ * Hibernate batch inserts.
+ * <p>
+ * Rows inserted with JDBC take their ids from the same generators, see
+ * {@link tn.esprit.spring.repositories.EntityIds}.
+ */
+public final class IdGenerators {
+
+	public static final String TABLE = "id_generator";
+	public static final String NAME_COLUMN = "name";
+	public static final String VALUE_COLUMN = "next_val";
+	/** Ids reserved per round trip, equal to the JDBC batch size. */
+	public static final int ALLOCATION_SIZE = 50;
+
+	private IdGenerators() {
+	}
+}
@@ -0,0 +1,42 @@
+package tn.esprit.spring.entities;
+
+import java.io.Serializable;
+
+import jakarta.persistence.*;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Response of a request sent with an {@code Idempotency-Key}, shared by every node so that
+ * a retry gets it back whichever node it reaches. The row is claimed before the request
+ * runs and completed with its response, see
+ * {@link tn.esprit.spring.repositories.IIdempotentResponseRepositoryCustom}.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level=AccessLevel.PRIVATE)
+@Entity
+public class IdempotentResponse implements Serializable {
+
+	/** SHA-256 of the method, path and key of the request, in hexadecimal. */
+	@Id
+	@Column(length = 64)
+	String requestKey;
+	/** SHA-256 of the request body. */
+	@Column(length = 32)
+	byte[] fingerprint;
+	/** HTTP status of the response, 0 while the request is running. */
+	int status;
+	String contentType;
+	@Lob
+	byte[] body;
+	/** Epoch milliseconds after which the key may be used again. */
+	long expiresAt;
+}
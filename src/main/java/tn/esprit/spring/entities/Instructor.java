@@ -9,6 +9,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.TableGenerator;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -24,7 +25,10 @@ import lombok.experimental.FieldDefaults;
 @Entity
 public class Instructor implements Serializable {
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "instructor")
+	@TableGenerator(name = "instructor", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+			valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "instructor",
+			allocationSize = IdGenerators.ALLOCATION_SIZE)
 	Long numInstructor;
 	String firstName;
 	String lastName;
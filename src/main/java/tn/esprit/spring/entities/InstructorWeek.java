@@ -0,0 +1,37 @@
+package tn.esprit.spring.entities;
+
+import java.io.Serializable;
+
+import jakarta.persistence.*;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Denormalized count of the registrations an instructor teaches in a week for a support,
+ * maintained alongside the registrations so that the weeks of an instructor are read
+ * without joining the instructor courses to every registration of the season.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level=AccessLevel.PRIVATE)
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_instructor_week",
+		columnNames = {"num_instructor", "support", "num_week"}))
+public class InstructorWeek implements Serializable {
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	Long numInstructorWeek;
+	Long numInstructor;
+	@Enumerated(EnumType.STRING)
+	Support support;
+	int numWeek;
+	long registrations;
+}
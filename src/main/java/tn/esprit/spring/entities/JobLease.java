@@ -0,0 +1,32 @@
+package tn.esprit.spring.entities;
+
+import java.io.Serializable;
+
+import jakarta.persistence.*;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Lease giving one node the right to run a scheduled job until it expires. Taken and
+ * renewed with conditional updates, see {@link tn.esprit.spring.repositories.IJobLeaseRepositoryCustom}.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level=AccessLevel.PRIVATE)
+@Entity
+public class JobLease implements Serializable {
+
+	@Id
+	@Column(length = 100)
+	String name;
+	String owner;
+	/** Epoch milliseconds after which another node may take the lease. */
+	long expiresAt;
+}
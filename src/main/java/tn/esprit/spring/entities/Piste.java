@@ -22,7 +22,10 @@ import lombok.experimental.FieldDefaults;
 public class Piste implements Serializable {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "piste")
+	@TableGenerator(name = "piste", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+			valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "piste",
+			allocationSize = IdGenerators.ALLOCATION_SIZE)
 	Long numPiste;
 	String namePiste;
 	@Enumerated(EnumType.STRING)
@@ -30,6 +33,7 @@ public class Piste implements Serializable {
 	int length;
 	int slope;
 
+	@JsonIgnore
 	@ManyToMany(mappedBy= "pistes")
 	Set<Skier> skiers;
 	
@@ -7,6 +7,9 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AccessLevel;
@@ -23,12 +26,22 @@ import lombok.experimental.FieldDefaults;
 @NoArgsConstructor
 @FieldDefaults(level=AccessLevel.PRIVATE)
 @Entity
+@Table(uniqueConstraints = {
+		@UniqueConstraint(name = "uk_registration_course_week_seat",
+				columnNames = {"course_num_course", "num_week", "seat"}),
+		@UniqueConstraint(name = "uk_registration_skier_course_week",
+				columnNames = {"skier_num_skier", "course_num_course", "num_week"})})
 public class Registration implements Serializable {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "registration")
+	@TableGenerator(name = "registration", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+			valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "registration",
+			allocationSize = IdGenerators.ALLOCATION_SIZE)
 	Long numRegistration;
 	int numWeek;
+	/** Seat taken in a collective course (1..capacity), null for individual courses. */
+	Integer seat;
 
 	@JsonIgnore
 	@ManyToOne
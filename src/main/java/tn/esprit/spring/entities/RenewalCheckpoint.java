@@ -0,0 +1,43 @@
+package tn.esprit.spring.entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Progress of a bulk renewal of the subscriptions ending in a window, saved in the same
+ * transaction as each chunk it renews, so that an interrupted renewal resumes after the
+ * last committed chunk.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level=AccessLevel.PRIVATE)
+@Entity
+public class RenewalCheckpoint implements Serializable {
+
+	/** Window and types of the renewal, see {@link tn.esprit.spring.services.SubscriptionRenewals}. */
+	@Id
+	@Column(length = 100)
+	String job;
+	LocalDate fromDate;
+	LocalDate toDate;
+	/** Number of the last subscription of the last committed chunk; null before the first one. */
+	Long lastNumSub;
+	long renewed;
+	/** Subscriptions of the window whose end date changed since they were read. */
+	long skipped;
+	boolean completed;
+	LocalDateTime startedAt;
+	LocalDateTime updatedAt;
+}
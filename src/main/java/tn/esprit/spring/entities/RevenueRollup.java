@@ -0,0 +1,36 @@
+package tn.esprit.spring.entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.*;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Revenue of the subscriptions of one type starting on one day, maintained by
+ * {@link tn.esprit.spring.services.RevenueRollups}.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level=AccessLevel.PRIVATE)
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_revenue_rollup_date_type",
+		columnNames = {"revenue_date", "type_sub"}))
+public class RevenueRollup implements Serializable {
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	Long numRollup;
+	LocalDate revenueDate;
+	TypeSubscription typeSub;
+	double revenue;
+	long subscriptions;
+}
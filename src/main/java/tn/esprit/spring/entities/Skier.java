@@ -24,7 +24,10 @@ import lombok.experimental.FieldDefaults;
 public class Skier implements Serializable {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "skier")
+	@TableGenerator(name = "skier", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+			valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "skier",
+			allocationSize = IdGenerators.ALLOCATION_SIZE)
 	Long numSkier;
 	String firstName;
 	String lastName;
@@ -43,6 +46,7 @@ public class Skier implements Serializable {
 	private Set<Piste> pistes;
 
 
+	@JsonIgnore
 	@OneToMany(mappedBy = "skier")
 	Set<Registration> registrations;
 
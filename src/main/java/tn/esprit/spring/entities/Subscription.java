@@ -19,10 +19,17 @@ import lombok.experimental.FieldDefaults;
 @NoArgsConstructor
 @FieldDefaults(level=AccessLevel.PRIVATE)
 @Entity
+@Table(indexes = {
+		@Index(name = "idx_subscription_end_date", columnList = "endDate"),
+		@Index(name = "idx_subscription_start_date_num_sub", columnList = "startDate, numSub"),
+		@Index(name = "idx_subscription_type_start_date", columnList = "typeSub, startDate, numSub")})
 public class Subscription implements Serializable {
 
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "subscription")
+	@TableGenerator(name = "subscription", table = IdGenerators.TABLE, pkColumnName = IdGenerators.NAME_COLUMN,
+			valueColumnName = IdGenerators.VALUE_COLUMN, pkColumnValue = "subscription",
+			allocationSize = IdGenerators.ALLOCATION_SIZE)
 	Long numSub;
 	LocalDate startDate;
 	LocalDate endDate;
@@ -1,5 +1,19 @@
 package tn.esprit.spring.entities;
 
+import java.time.LocalDate;
+
 public enum TypeSubscription {
-	ANNUAL, MONTHLY, SEMESTRIEL
+	// Persisted by ordinal: new types go last
+	ANNUAL(12), MONTHLY(1), SEMESTRIEL(6);
+
+	private final int months;
+
+	TypeSubscription(int months) {
+		this.months = months;
+	}
+
+	/** End date of a subscription of this type starting on the given day. */
+	public LocalDate endDateFrom(LocalDate startDate) {
+		return startDate.plusMonths(months);
+	}
 }
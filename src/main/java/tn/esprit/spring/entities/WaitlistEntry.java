@@ -0,0 +1,48 @@
+package tn.esprit.spring.entities;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Place of a skier in the FIFO waitlist of a full collective course week. Entries are
+ * ordered by their id and kept once promoted or rejected, one per skier, course and week.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level=AccessLevel.PRIVATE)
+@Entity
+@Table(indexes = @Index(name = "idx_waitlist_course_week_status",
+		columnList = "course_num_course, num_week, status, num_entry"),
+		uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_skier_course_week",
+				columnNames = {"skier_num_skier", "course_num_course", "num_week"}))
+public class WaitlistEntry implements Serializable {
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	Long numEntry;
+	int numWeek;
+	@Enumerated(EnumType.STRING)
+	WaitlistStatus status;
+	LocalDateTime createdAt;
+	/** Registration created when the entry was promoted. */
+	Long numRegistration;
+
+	@JsonIgnore
+	@ManyToOne
+	Skier skier;
+	@JsonIgnore
+	@ManyToOne
+	Course course;
+}
@@ -0,0 +1,21 @@
+package tn.esprit.spring.events;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Published when a registration is stored for a course week, inside the registering
+ * transaction.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RegistrationAddedEvent {
+
+    Long numRegistration;
+    Long numSkier;
+    Long numCourse;
+    int numWeek;
+}
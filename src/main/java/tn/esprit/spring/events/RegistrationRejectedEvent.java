@@ -0,0 +1,22 @@
+package tn.esprit.spring.events;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import tn.esprit.spring.dto.RegistrationOutcome;
+
+/**
+ * Published when a registration request for a course week is turned down, with the
+ * reason: duplicate, age or support rules, or no seat left.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RegistrationRejectedEvent {
+
+    Long numSkier;
+    Long numCourse;
+    int numWeek;
+    RegistrationOutcome outcome;
+}
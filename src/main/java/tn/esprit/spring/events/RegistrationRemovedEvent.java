@@ -0,0 +1,20 @@
+package tn.esprit.spring.events;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Published when a registration is deleted, freeing its seat in the course week.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class RegistrationRemovedEvent {
+
+    Long numRegistration;
+    Long numSkier;
+    Long numCourse;
+    int numWeek;
+}
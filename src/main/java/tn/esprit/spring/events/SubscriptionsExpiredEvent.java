@@ -0,0 +1,20 @@
+package tn.esprit.spring.events;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDate;
+
+/**
+ * Published when the subscriptions ending on a date lapse, at the start of that day.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SubscriptionsExpiredEvent {
+
+    LocalDate endDate;
+    int subscriptions;
+}
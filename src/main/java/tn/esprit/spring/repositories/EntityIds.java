@@ -0,0 +1,43 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+
+/**
+ * Ids for rows inserted with JDBC, drawn from the pooled generator Hibernate uses for the
+ * same entity, so that they never collide with ids Hibernate hands out itself. Most ids
+ * come from the block already reserved in memory; a new block costs one update of the
+ * {@link tn.esprit.spring.entities.IdGenerators#TABLE} table.
+ */
+public class EntityIds {
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    public EntityIds(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    public long next(Class<?> entity) {
+        return next(entity, 1)[0];
+    }
+
+    public long[] next(Class<?> entity, int count) {
+        Generator generator = sessionFactory.getMappingMetamodel().getEntityDescriptor(entity).getGenerator();
+        if (!(generator instanceof BeforeExecutionGenerator beforeInsert)) {
+            throw new IllegalArgumentException(entity.getSimpleName() + " ids are generated by the database");
+        }
+        long[] ids = new long[count];
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            for (int i = 0; i < count; i++) {
+                ids[i] = ((Number) beforeInsert.generate((SharedSessionContractImplementor) session, null, null,
+                        EventType.INSERT)).longValue();
+            }
+        }
+        return ids;
+    }
+}
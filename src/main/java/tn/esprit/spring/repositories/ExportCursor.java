@@ -0,0 +1,28 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Reads whole tables for the exports through a forward-only, read-only cursor, fetching
+ * {@value #FETCH_SIZE} rows at a time. With {@code useCursorFetch} the MySQL driver then
+ * keeps a single fetch in memory instead of the whole result.
+ */
+final class ExportCursor {
+
+    static final int FETCH_SIZE = 1000;
+
+    private ExportCursor() {
+    }
+
+    static void forEachRow(JdbcTemplate jdbcTemplate, String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+}
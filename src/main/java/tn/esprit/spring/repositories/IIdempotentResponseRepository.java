@@ -0,0 +1,14 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.repository.CrudRepository;
+import tn.esprit.spring.entities.IdempotentResponse;
+
+/**
+ * Primary, as the idempotency filter only needs {@link IIdempotentResponseRepositoryCustom},
+ * which its implementation fragment also provides as a bean.
+ */
+@Primary
+public interface IIdempotentResponseRepository extends CrudRepository<IdempotentResponse, String>,
+        IIdempotentResponseRepositoryCustom {
+}
@@ -0,0 +1,39 @@
+package tn.esprit.spring.repositories;
+
+import tn.esprit.spring.entities.IdempotentResponse;
+
+/**
+ * Idempotent response writes that need a conditional insert or update, implemented with
+ * JDBC in {@link IIdempotentResponseRepositoryCustomImpl}. Each call commits on its own
+ * outside of a transaction, so that other nodes see a claim as soon as it is taken.
+ */
+public interface IIdempotentResponseRepositoryCustom {
+
+    /**
+     * Claims a request key until {@code expiresAt}, replacing a claim expired at
+     * {@code now}. The primary key decides which of the racing callers gets the claim.
+     *
+     * @return whether the caller holds the claim and must run the request
+     */
+    boolean tryClaim(String requestKey, byte[] fingerprint, long now, long expiresAt);
+
+    /** @return the claim or response stored for the request key, or null */
+    IdempotentResponse find(String requestKey);
+
+    /** Stores the response of a claimed request, kept until {@code expiresAt}. */
+    void complete(String requestKey, int status, String contentType, byte[] body, long expiresAt);
+
+    /** Gives up a claim whose request did not complete, so that it can be retried. */
+    void release(String requestKey);
+
+    /** @return the number of expired responses deleted */
+    int deleteExpired(long now);
+
+    /**
+     * Deletes the stored responses beyond the {@code keep} that expire last. Running claims
+     * are kept.
+     *
+     * @return the number of responses deleted
+     */
+    int deleteOldest(int keep);
+}
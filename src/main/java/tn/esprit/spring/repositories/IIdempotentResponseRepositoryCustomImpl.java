@@ -0,0 +1,75 @@
+package tn.esprit.spring.repositories;
+
+import lombok.AllArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tn.esprit.spring.entities.IdempotentResponse;
+
+import java.util.List;
+
+@AllArgsConstructor
+class IIdempotentResponseRepositoryCustomImpl implements IIdempotentResponseRepositoryCustom {
+
+    private static final String DELETE_EXPIRED_KEY =
+            "delete from idempotent_response where request_key = ? and expires_at <= ?";
+
+    private static final String INSERT_CLAIM =
+            "insert into idempotent_response (request_key, fingerprint, status, expires_at) values (?, ?, 0, ?)";
+
+    private static final String FIND =
+            "select request_key, fingerprint, status, content_type, body, expires_at from idempotent_response "
+                    + "where request_key = ?";
+
+    private static final String COMPLETE = "update idempotent_response set status = ?, content_type = ?, body = ?, "
+            + "expires_at = ? where request_key = ? and status = 0";
+
+    private static final String RELEASE = "delete from idempotent_response where request_key = ? and status = 0";
+
+    private static final String DELETE_EXPIRED = "delete from idempotent_response where expires_at <= ?";
+
+    private static final String KEPT_EXPIRY = "select expires_at from idempotent_response where status <> 0 "
+            + "order by expires_at desc limit 1 offset ?";
+
+    private static final String DELETE_OLDEST =
+            "delete from idempotent_response where status <> 0 and expires_at <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean tryClaim(String requestKey, byte[] fingerprint, long now, long expiresAt) {
+        jdbcTemplate.update(DELETE_EXPIRED_KEY, requestKey, now);
+        try {
+            return jdbcTemplate.update(INSERT_CLAIM, requestKey, fingerprint, expiresAt) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public IdempotentResponse find(String requestKey) {
+        return jdbcTemplate.query(FIND, rs -> rs.next() ? new IdempotentResponse(rs.getString(1), rs.getBytes(2),
+                rs.getInt(3), rs.getString(4), rs.getBytes(5), rs.getLong(6)) : null, requestKey);
+    }
+
+    @Override
+    public void complete(String requestKey, int status, String contentType, byte[] body, long expiresAt) {
+        jdbcTemplate.update(COMPLETE, status, contentType, body, expiresAt, requestKey);
+    }
+
+    @Override
+    public void release(String requestKey) {
+        jdbcTemplate.update(RELEASE, requestKey);
+    }
+
+    @Override
+    public int deleteExpired(long now) {
+        return jdbcTemplate.update(DELETE_EXPIRED, now);
+    }
+
+    @Override
+    public int deleteOldest(int keep) {
+        // Expiry of the first response past the kept ones: responses share one time to live
+        List<Long> expiry = jdbcTemplate.queryForList(KEPT_EXPIRY, Long.class, keep);
+        return expiry.isEmpty() ? 0 : jdbcTemplate.update(DELETE_OLDEST, expiry.get(0));
+    }
+}
@@ -1,11 +1,21 @@
 package tn.esprit.spring.repositories;
 
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import tn.esprit.spring.entities.Instructor;
 
+import java.util.List;
+import java.util.Optional;
 
 
 public interface IInstructorRepository extends JpaRepository<Instructor, Long> {
 
+    List<Instructor> findAllByOrderByNumInstructorAsc(Pageable page);
+
+    List<Instructor> findByNumInstructorGreaterThanOrderByNumInstructorAsc(Long afterNumInstructor, Pageable page);
+
+    @EntityGraph(attributePaths = "courses")
+    Optional<Instructor> findWithCoursesByNumInstructor(Long numInstructor);
 }
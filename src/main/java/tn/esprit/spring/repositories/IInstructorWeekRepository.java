@@ -0,0 +1,17 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.entities.InstructorWeek;
+import tn.esprit.spring.entities.Support;
+
+import java.util.List;
+
+public interface IInstructorWeekRepository extends CrudRepository<InstructorWeek, Long>, IInstructorWeekRepositoryCustom {
+
+    @Query("select iw from InstructorWeek iw where iw.numInstructor = :numInstructor " +
+            "and iw.support = :support and iw.registrations > 0 order by iw.numWeek")
+    List<InstructorWeek> findByInstructorAndSupport(@Param("numInstructor") Long numInstructor,
+                                                    @Param("support") Support support);
+}
@@ -0,0 +1,29 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.transaction.Transactional;
+import tn.esprit.spring.dto.CourseWeekCount;
+
+import java.util.Collection;
+
+public interface IInstructorWeekRepositoryCustom {
+
+    /**
+     * Adds {@code total} registrations (negative for removals) to the week of every
+     * instructor teaching the course, creating the missing rows.
+     */
+    void addRegistrations(Collection<CourseWeekCount> deltas);
+
+    /**
+     * Recomputes the rows of one instructor, or of all instructors when {@code null}, from
+     * the registrations. The rows are locked before the registrations are counted, so that
+     * a registration committing meanwhile adds itself to the recomputed count.
+     *
+     * @return the number of registrations the index was off by
+     */
+    @Transactional
+    long reconcile(Long numInstructor);
+
+    /** Recomputes the rows of the instructors teaching the course. */
+    @Transactional
+    long reconcileCourse(Long numCourse);
+}
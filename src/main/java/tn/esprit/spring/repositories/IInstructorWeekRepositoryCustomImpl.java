@@ -0,0 +1,166 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import tn.esprit.spring.dto.CourseWeekCount;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class IInstructorWeekRepositoryCustomImpl implements IInstructorWeekRepositoryCustom {
+
+    private static final String TEACHERS =
+            "select ic.courses_num_course, ic.instructor_num_instructor, c.support from instructor_courses ic " +
+                    "join course c on c.num_course = ic.courses_num_course " +
+                    "where c.support is not null and ic.courses_num_course in (:courses)";
+
+    private static final String INCREMENT =
+            "update instructor_week set registrations = registrations + ? " +
+                    "where num_instructor = ? and support = ? and num_week = ?";
+
+    private static final String INSERT =
+            "insert into instructor_week (num_instructor, support, num_week, registrations) values (?, ?, ?, ?)";
+
+    private static final String SET =
+            "update instructor_week set registrations = ? where num_instructor = ? and support = ? and num_week = ?";
+
+    private static final String DELETE =
+            "delete from instructor_week where num_instructor = ? and support = ? and num_week = ?";
+
+    private static final String EXPECTED =
+            "select ic.instructor_num_instructor, c.support, r.num_week, count(*) from instructor_courses ic " +
+                    "join course c on c.num_course = ic.courses_num_course " +
+                    "join registration r on r.course_num_course = c.num_course " +
+                    "where c.support is not null%s " +
+                    "group by ic.instructor_num_instructor, c.support, r.num_week";
+
+    private static final String ACTUAL =
+            "select num_instructor, support, num_week, registrations from instructor_week where 1 = 1%s for update";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    IInstructorWeekRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Override
+    public void addRegistrations(Collection<CourseWeekCount> deltas) {
+        Set<Long> courses = new HashSet<>();
+        for (CourseWeekCount delta : deltas) {
+            courses.add(delta.getNumCourse());
+        }
+        if (courses.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Object[]>> teachers = new HashMap<>();
+        namedJdbcTemplate.query(TEACHERS, new MapSqlParameterSource("courses", courses), rs -> {
+            teachers.computeIfAbsent(rs.getLong(1), numCourse -> new ArrayList<>())
+                    .add(new Object[]{rs.getLong(2), rs.getString(3)});
+        });
+        if (teachers.isEmpty()) {
+            return;
+        }
+
+        Map<Key, Long> increments = new HashMap<>();
+        for (CourseWeekCount delta : deltas) {
+            for (Object[] teacher : teachers.getOrDefault(delta.getNumCourse(), List.of())) {
+                increments.merge(new Key((Long) teacher[0], (String) teacher[1], delta.getNumWeek()),
+                        delta.getTotal(), Long::sum);
+            }
+        }
+        List<Key> keys = new ArrayList<>(increments.keySet());
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            rows.add(new Object[]{increments.get(key), key.numInstructor(), key.support(), key.numWeek()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(INCREMENT, rows);
+        for (int i = 0; i < keys.size(); i++) {
+            long increment = increments.get(keys.get(i));
+            if (updated[i] == 0 && increment > 0) {
+                Key key = keys.get(i);
+                try {
+                    jdbcTemplate.update(INSERT, key.numInstructor(), key.support(), key.numWeek(), increment);
+                } catch (DuplicateKeyException e) {
+                    // Created concurrently by the first registration of another transaction
+                    jdbcTemplate.update(INCREMENT, increment, key.numInstructor(), key.support(), key.numWeek());
+                }
+            }
+        }
+    }
+
+    @Override
+    public long reconcile(Long numInstructor) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("numInstructor", numInstructor);
+        // Locked first: a registration counted below has already applied its increment, and
+        // one committing later waits for this transaction before applying it
+        Map<Key, Long> actual = new HashMap<>();
+        namedJdbcTemplate.query(String.format(ACTUAL,
+                numInstructor == null ? "" : " and num_instructor = :numInstructor"), parameters, rs -> {
+            actual.put(new Key(rs.getLong(1), rs.getString(2), rs.getInt(3)), rs.getLong(4));
+        });
+        Map<Key, Long> expected = new HashMap<>();
+        namedJdbcTemplate.query(String.format(EXPECTED,
+                numInstructor == null ? "" : " and ic.instructor_num_instructor = :numInstructor"), parameters, rs -> {
+            expected.put(new Key(rs.getLong(1), rs.getString(2), rs.getInt(3)), rs.getLong(4));
+        });
+
+        long corrected = 0;
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Map.Entry<Key, Long> entry : expected.entrySet()) {
+            Key key = entry.getKey();
+            Long count = actual.remove(key);
+            if (count == null) {
+                inserts.add(new Object[]{key.numInstructor(), key.support(), key.numWeek(), entry.getValue()});
+                corrected += entry.getValue();
+            } else if (count.longValue() != entry.getValue()) {
+                updates.add(new Object[]{entry.getValue(), key.numInstructor(), key.support(), key.numWeek()});
+                corrected += Math.abs(count - entry.getValue());
+            }
+        }
+        for (Map.Entry<Key, Long> entry : actual.entrySet()) {
+            Key key = entry.getKey();
+            deletes.add(new Object[]{key.numInstructor(), key.support(), key.numWeek()});
+            corrected += Math.abs(entry.getValue());
+        }
+        for (Object[] insert : inserts) {
+            try {
+                jdbcTemplate.update(INSERT, insert);
+            } catch (DuplicateKeyException e) {
+                // Created concurrently by the first registration of the week, which counted itself
+                corrected -= (Long) insert[3];
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET, updates);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE, deletes);
+        }
+        return corrected;
+    }
+
+    @Override
+    public long reconcileCourse(Long numCourse) {
+        long corrected = 0;
+        for (Long numInstructor : jdbcTemplate.queryForList(
+                "select instructor_num_instructor from instructor_courses where courses_num_course = ?",
+                Long.class, numCourse)) {
+            corrected += reconcile(numInstructor);
+        }
+        return corrected;
+    }
+
+    private record Key(Long numInstructor, String support, int numWeek) {
+    }
+}
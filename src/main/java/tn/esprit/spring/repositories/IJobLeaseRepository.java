@@ -0,0 +1,7 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+import tn.esprit.spring.entities.JobLease;
+
+public interface IJobLeaseRepository extends CrudRepository<JobLease, String>, IJobLeaseRepositoryCustom {
+}
@@ -0,0 +1,17 @@
+package tn.esprit.spring.repositories;
+
+/**
+ * Job lease writes that need a conditional update, implemented with JDBC in
+ * {@link IJobLeaseRepositoryCustomImpl}.
+ */
+public interface IJobLeaseRepositoryCustom {
+
+    /**
+     * Takes or renews the lease of a job for {@code owner} until {@code expiresAt}. The lease
+     * is granted by a single update matching only a lease held by the same owner or expired
+     * at {@code now}, so at most one owner holds a live lease whatever the number of callers.
+     *
+     * @return whether {@code owner} holds the lease
+     */
+    boolean tryAcquire(String name, String owner, long now, long expiresAt);
+}
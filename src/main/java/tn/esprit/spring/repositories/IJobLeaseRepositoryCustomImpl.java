@@ -0,0 +1,31 @@
+package tn.esprit.spring.repositories;
+
+import lombok.AllArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@AllArgsConstructor
+class IJobLeaseRepositoryCustomImpl implements IJobLeaseRepositoryCustom {
+
+    private static final String TAKE_LEASE =
+            "update job_lease set owner = ?, expires_at = ? where name = ? and (owner = ? or expires_at <= ?)";
+
+    private static final String INSERT_LEASE =
+            "insert into job_lease (name, owner, expires_at) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean tryAcquire(String name, String owner, long now, long expiresAt) {
+        if (jdbcTemplate.update(TAKE_LEASE, owner, expiresAt, name, owner, now) == 1) {
+            return true;
+        }
+        // No row matched: either the lease is held by another node, or the job never ran
+        // and the primary key decides which of the racing nodes creates it.
+        try {
+            return jdbcTemplate.update(INSERT_LEASE, name, owner, expiresAt) == 1;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
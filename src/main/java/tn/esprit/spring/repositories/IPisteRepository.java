@@ -1,9 +1,15 @@
 package tn.esprit.spring.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import tn.esprit.spring.entities.Piste;
 
+import java.util.List;
+
 public interface IPisteRepository extends JpaRepository<Piste, Long> {
 
+    List<Piste> findAllByOrderByNumPisteAsc(Pageable page);
+
+    List<Piste> findByNumPisteGreaterThanOrderByNumPisteAsc(Long afterNumPiste, Pageable page);
 }
@@ -4,11 +4,16 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
 import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.dto.RegistrationKey;
+import tn.esprit.spring.dto.RegistrationView;
+import tn.esprit.spring.dto.TakenSeat;
 import tn.esprit.spring.entities.*;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface IRegistrationRepository extends CrudRepository<Registration, Long> {
+public interface IRegistrationRepository extends CrudRepository<Registration, Long>, IRegistrationRepositoryCustom {
 
     long countByCourseAndNumWeek(Course course, int numWeek);
     @Query("select reg.numWeek from Registration reg " +
@@ -21,6 +26,28 @@ public interface IRegistrationRepository extends CrudRepository<Registration, Lo
             "where r.numWeek = ?1 and r.skier.numSkier = ?2 and r.course.numCourse = ?3")
     long countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(int numWeek, Long numSkier, Long numCourse);
 
+    @Query("select new tn.esprit.spring.dto.CourseWeekCount(r.course.numCourse, r.numWeek, count(r)) " +
+            "from Registration r group by r.course.numCourse, r.numWeek")
+    List<CourseWeekCount> countGroupByCourseAndNumWeek();
+
+    @Query("select new tn.esprit.spring.dto.CourseWeekCount(r.course.numCourse, r.numWeek, count(r)) " +
+            "from Registration r where r.course.numCourse = :numCourse group by r.course.numCourse, r.numWeek")
+    List<CourseWeekCount> countByCourseGroupByNumWeek(@Param("numCourse") Long numCourse);
+
+    @Query("select new tn.esprit.spring.dto.RegistrationKey(r.numRegistration, r.skier.numSkier, " +
+            "r.course.numCourse, r.numWeek) from Registration r where r.skier.numSkier in :skiers and r.course.numCourse in :courses")
+    List<RegistrationKey> findKeysBySkiersAndCourses(@Param("skiers") Collection<Long> numSkiers,
+                                                     @Param("courses") Collection<Long> numCourses);
+
+    @Query("select new tn.esprit.spring.dto.TakenSeat(r.course.numCourse, r.numWeek, r.seat) " +
+            "from Registration r where r.course.numCourse in :courses and r.numWeek in :weeks")
+    List<TakenSeat> findTakenSeatsByCoursesAndWeeks(@Param("courses") Collection<Long> numCourses,
+                                                    @Param("weeks") Collection<Integer> numWeeks);
+
+    @Query("select new tn.esprit.spring.dto.RegistrationView(r.numRegistration, r.numWeek, r.seat, r.skier.numSkier, " +
+            "r.course.numCourse) from Registration r where r.skier.numSkier in :skiers order by r.numRegistration")
+    List<RegistrationView> findViewsBySkiers(@Param("skiers") Collection<Long> numSkiers);
+
   //  long countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(int numWeek, Long numSkier, Long numCourse);
 
 
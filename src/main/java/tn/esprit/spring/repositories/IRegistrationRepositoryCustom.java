@@ -0,0 +1,66 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import tn.esprit.spring.dto.RegistrationKey;
+import tn.esprit.spring.entities.Registration;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Registration reads and writes that cannot be expressed through Spring Data, implemented with JDBC
+ * in {@link IRegistrationRepositoryCustomImpl}.
+ */
+public interface IRegistrationRepositoryCustom {
+
+    /** Columns of the rows given by {@link #exportAll}, in order. */
+    List<String> EXPORT_COLUMNS = List.of("numRegistration", "numWeek", "seat", "numSkier", "numCourse");
+
+    /**
+     * Inserts a registration into the first free seat of the course for the given week.
+     * The seat is admitted and the row written by a single insert guarded by the
+     * (course, week, seat) unique constraint, so concurrent callers can never take more
+     * than {@code capacity} seats. Registrations of the week without a seat, made before
+     * seats were numbered, count against the capacity.
+     *
+     * @return the id of the new registration, or {@code null} if every seat is taken
+     * @throws org.springframework.dao.DuplicateKeyException if the skier is already
+     * registered to the course for the week
+     */
+    Long insertIntoFreeSeat(int numWeek, Long numSkier, Long numCourse, int capacity);
+
+    /**
+     * Moves an existing registration into the first free seat of the course for its week,
+     * guarded like {@link #insertIntoFreeSeat}.
+     *
+     * @return the seat taken, or {@code null} if every seat is taken
+     * @throws org.springframework.dao.DuplicateKeyException if the skier of the registration
+     * is already registered to the course for the week
+     */
+    Integer moveIntoFreeSeat(Long numRegistration, Long numCourse, int numWeek, int capacity);
+
+    /**
+     * Inserts the registrations with one batched statement and sets their generated ids.
+     * Skier and course must be set; the seat may be null. Rows rejected by a unique
+     * constraint, such as a seat taken concurrently or a skier already registered to the
+     * course for the week, are left out instead of failing the others, and keep a null id.
+     *
+     * @return for each registration, whether it was inserted
+     */
+    boolean[] insertAll(List<Registration> registrations);
+
+    /**
+     * Streams the id and (skier, course, week) of the registrations whose id is greater than
+     * {@code afterNumRegistration}, without loading them as entities.
+     *
+     * @return the greatest registration id seen, or {@code afterNumRegistration} if none
+     */
+    long forEachKeyAfter(long afterNumRegistration, Consumer<RegistrationKey> consumer);
+
+    /**
+     * Passes every registration, in id order, to the handler as one row of
+     * {@link #EXPORT_COLUMNS}, read through a forward-only cursor so that the table is never
+     * held in memory.
+     */
+    void exportAll(RowCallbackHandler handler);
+}
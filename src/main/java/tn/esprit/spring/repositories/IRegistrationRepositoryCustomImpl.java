@@ -0,0 +1,187 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import tn.esprit.spring.dto.RegistrationKey;
+import tn.esprit.spring.entities.Registration;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+class IRegistrationRepositoryCustomImpl implements IRegistrationRepositoryCustom {
+
+    private static final String SEAT_CONSTRAINT = "uk_registration_course_week_seat";
+
+    private static final String SEATS =
+            "select seat from registration where course_num_course = ? and num_week = ?";
+
+    private static final String SEATS_OF_OTHERS = SEATS + " and num_registration <> ?";
+
+    private static final String INSERT_INTO_SEAT =
+            "insert into registration (num_registration, num_week, seat, skier_num_skier, course_num_course) "
+                    + "values (?, ?, ?, ?, ?)";
+
+    private static final String MOVE_INTO_SEAT =
+            "update registration set course_num_course = ?, seat = ? where num_registration = ?";
+
+    private static final String WRITTEN_IDS = "select num_registration from registration where num_registration in (:ids)";
+
+    private static final String KEYS_AFTER =
+            "select num_registration, skier_num_skier, course_num_course, num_week from registration " +
+                    "where num_registration > ? and skier_num_skier is not null and course_num_course is not null";
+
+    private static final String EXPORT =
+            "select num_registration, num_week, seat, skier_num_skier, course_num_course from registration "
+                    + "order by num_registration";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final EntityIds entityIds;
+
+    IRegistrationRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.entityIds = new EntityIds(entityManagerFactory);
+    }
+
+    @Override
+    public Long insertIntoFreeSeat(int numWeek, Long numSkier, Long numCourse, int capacity) {
+        long numRegistration = entityIds.next(Registration.class);
+        Integer seat = takeFreeSeat(numCourse, numWeek, capacity, null, free ->
+                jdbcTemplate.update(INSERT_INTO_SEAT, numRegistration, numWeek, free, numSkier, numCourse));
+        return seat == null ? null : numRegistration;
+    }
+
+    @Override
+    public Integer moveIntoFreeSeat(Long numRegistration, Long numCourse, int numWeek, int capacity) {
+        return takeFreeSeat(numCourse, numWeek, capacity, numRegistration, free ->
+                jdbcTemplate.update(MOVE_INTO_SEAT, numCourse, free, numRegistration));
+    }
+
+    /**
+     * Writes the row into the first free seat of the course for the week, other than the
+     * seat of {@code excluded}.
+     *
+     * @return the seat taken, or null if every seat is taken
+     */
+    private Integer takeFreeSeat(Long numCourse, int numWeek, int capacity, Long excluded, IntConsumer write) {
+        BitSet taken = new BitSet(capacity + 1);
+        int[] unseated = {0};
+        RowCallbackHandler seats = rs -> {
+            int seat = rs.getInt(1);
+            if (rs.wasNull()) {
+                unseated[0]++;
+            } else {
+                taken.set(seat);
+            }
+        };
+        if (excluded == null) {
+            jdbcTemplate.query(SEATS, seats, numCourse, numWeek);
+        } else {
+            jdbcTemplate.query(SEATS_OF_OTHERS, seats, numCourse, numWeek, excluded);
+        }
+        // Registrations without a seat, made before seats were numbered, still fill the
+        // course: only the seats left beside them can be taken. A seat seen free may be taken
+        // concurrently: the unique constraint rejects the write and the next free seat is
+        // tried, until every seat has been attempted.
+        int seatsLeft = capacity - unseated[0];
+        for (int seat = taken.nextClearBit(1); seat <= seatsLeft; seat = taken.nextClearBit(seat + 1)) {
+            try {
+                write.accept(seat);
+                return seat;
+            } catch (DuplicateKeyException e) {
+                if (!violates(e, SEAT_CONSTRAINT)) {
+                    // Such as the skier already registered to the course that week
+                    throw e;
+                }
+                taken.set(seat);
+            }
+        }
+        return null;
+    }
+
+    private static boolean violates(DuplicateKeyException e, String constraint) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains(constraint);
+    }
+
+    @Override
+    public boolean[] insertAll(List<Registration> registrations) {
+        boolean[] inserted = new boolean[registrations.size()];
+        if (registrations.isEmpty()) {
+            return inserted;
+        }
+        long[] ids = entityIds.next(Registration.class, registrations.size());
+        try {
+            batchInsert(registrations, ids);
+            Arrays.fill(inserted, true);
+        } catch (DuplicateKeyException e) {
+            // Drivers differ on the rows of a failed batch that are kept: read which ones were
+            List<Long> batchIds = Arrays.stream(ids).boxed().toList();
+            Set<Long> written = new HashSet<>(namedJdbcTemplate.queryForList(WRITTEN_IDS,
+                    new MapSqlParameterSource("ids", batchIds), Long.class));
+            for (int i = 0; i < ids.length; i++) {
+                inserted[i] = written.contains(ids[i]);
+            }
+        }
+        for (int i = 0; i < registrations.size(); i++) {
+            if (inserted[i]) {
+                registrations.get(i).setNumRegistration(ids[i]);
+            }
+        }
+        return inserted;
+    }
+
+    private void batchInsert(List<Registration> registrations, long[] ids) {
+        jdbcTemplate.batchUpdate(INSERT_INTO_SEAT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Registration registration = registrations.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setInt(2, registration.getNumWeek());
+                if (registration.getSeat() == null) {
+                    ps.setNull(3, Types.INTEGER);
+                } else {
+                    ps.setInt(3, registration.getSeat());
+                }
+                ps.setLong(4, registration.getSkier().getNumSkier());
+                ps.setLong(5, registration.getCourse().getNumCourse());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return registrations.size();
+            }
+        });
+    }
+
+    @Override
+    public long forEachKeyAfter(long afterNumRegistration, Consumer<RegistrationKey> consumer) {
+        long[] highest = {afterNumRegistration};
+        jdbcTemplate.query(KEYS_AFTER, rs -> {
+            highest[0] = Math.max(highest[0], rs.getLong(1));
+            consumer.accept(new RegistrationKey(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4)));
+        }, afterNumRegistration);
+        return highest[0];
+    }
+
+    @Override
+    public void exportAll(RowCallbackHandler handler) {
+        ExportCursor.forEachRow(jdbcTemplate, EXPORT, handler);
+    }
+}
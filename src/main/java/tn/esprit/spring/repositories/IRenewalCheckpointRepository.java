@@ -0,0 +1,7 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.data.repository.CrudRepository;
+import tn.esprit.spring.entities.RenewalCheckpoint;
+
+public interface IRenewalCheckpointRepository extends CrudRepository<RenewalCheckpoint, String> {
+}
@@ -0,0 +1,25 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.entities.RevenueRollupChange;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface IRevenueRollupChangeRepository extends CrudRepository<RevenueRollupChange, Long> {
+
+    List<RevenueRollupChange> findAllByOrderByNumChangeAsc(Pageable pageable);
+
+    @Query("select distinct c.revenueDate from RevenueRollupChange c where c.revenueDate between :from and :to")
+    Set<LocalDate> findDaysBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("delete from RevenueRollupChange c where c.numChange in :numChanges")
+    int deleteByNumChangeIn(@Param("numChanges") Collection<Long> numChanges);
+}
@@ -0,0 +1,23 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.entities.RevenueRollup;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface IRevenueRollupRepository extends CrudRepository<RevenueRollup, Long> {
+
+    @Query("select new tn.esprit.spring.dto.RevenuePoint(r.revenueDate, r.typeSub, r.revenue, r.subscriptions) "
+            + "from RevenueRollup r where r.revenueDate between :from and :to")
+    List<RevenuePoint> findPointsBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("delete from RevenueRollup r where r.revenueDate in :days")
+    int deleteByRevenueDateIn(@Param("days") Collection<LocalDate> days);
+}
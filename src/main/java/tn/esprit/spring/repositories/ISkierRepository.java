@@ -1,17 +1,30 @@
 package tn.esprit.spring.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.dto.SkierView;
 import tn.esprit.spring.entities.Skier;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
 
 import java.util.List;
 
-public interface ISkierRepository extends JpaRepository<Skier, Long> {
+public interface ISkierRepository extends JpaRepository<Skier, Long>, ISkierRepositoryCustom {
    List<Skier> findBySubscription_TypeSub(TypeSubscription typeSubscription);
    Skier findBySubscription(Subscription subscription);
 
+   /** First skiers as read models, in one query that loads none of their associations. */
+   @Query("select new tn.esprit.spring.dto.SkierView(s.numSkier, s.firstName, s.lastName, s.dateOfBirth, s.city, "
+           + "sub.numSub) from Skier s left join s.subscription sub order by s.numSkier")
+   List<SkierView> findViews(Pageable page);
+
+   /** Skiers numbered after {@code afterNumSkier} as read models, in numSkier order. */
+   @Query("select new tn.esprit.spring.dto.SkierView(s.numSkier, s.firstName, s.lastName, s.dateOfBirth, s.city, "
+           + "sub.numSub) from Skier s left join s.subscription sub where s.numSkier > :after order by s.numSkier")
+   List<SkierView> findViewsAfter(@Param("after") Long afterNumSkier, Pageable page);
+
 
 }
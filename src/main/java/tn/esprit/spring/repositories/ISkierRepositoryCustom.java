@@ -0,0 +1,43 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import tn.esprit.spring.entities.Skier;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Skier writes done in JDBC batches, and the export read, implemented in {@link ISkierRepositoryCustomImpl}.
+ */
+public interface ISkierRepositoryCustom {
+
+    /** Columns of the rows given by {@link #exportAll}, in order. */
+    List<String> EXPORT_COLUMNS = List.of("numSkier", "firstName", "lastName", "dateOfBirth", "city", "numSub");
+
+    /**
+     * Inserts the skiers with one batched statement, numbered by their pooled id generator. Their
+     * subscription, if any, must already be inserted; pistes and registrations are ignored.
+     */
+    void insertAll(List<Skier> skiers);
+
+    /**
+     * Adds the piste to the excursions of the skier, without loading them.
+     *
+     * @return false if the skier already had this excursion
+     */
+    boolean insertExcursion(Long numSkier, Long numPiste);
+
+    /**
+     * Adds every piste to the excursions of every skier with one statement, skipping the
+     * excursions they already have and the ids that match no row.
+     *
+     * @return the number of excursions added
+     */
+    int insertExcursions(Collection<Long> numSkiers, Collection<Long> numPistes);
+
+    /**
+     * Passes every skier, in id order, to the handler as one row of {@link #EXPORT_COLUMNS},
+     * read through a forward-only cursor so that the table is never held in memory.
+     */
+    void exportAll(RowCallbackHandler handler);
+}
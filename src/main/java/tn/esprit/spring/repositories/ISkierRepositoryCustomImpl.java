@@ -0,0 +1,115 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import tn.esprit.spring.entities.Skier;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+
+class ISkierRepositoryCustomImpl implements ISkierRepositoryCustom {
+
+    private static final String INSERT =
+            "insert into skier (num_skier, first_name, last_name, date_of_birth, city, subscription_num_sub) "
+                    + "values (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_EXCURSION = "insert into excursion (num_skier, num_piste) values (?, ?)";
+
+    private static final String INSERT_EXCURSIONS =
+            "insert into excursion (num_skier, num_piste) " +
+                    "select s.num_skier, p.num_piste from skier s cross join piste p " +
+                    "where s.num_skier in (:skiers) and p.num_piste in (:pistes) " +
+                    "and not exists (select 1 from excursion e where e.num_skier = s.num_skier and e.num_piste = p.num_piste)";
+
+    private static final String EXPORT =
+            "select num_skier, first_name, last_name, date_of_birth, city, subscription_num_sub from skier "
+                    + "order by num_skier";
+
+    /** Runs of the bulk insert racing with concurrent assignments of the same excursions. */
+    private static final int EXCURSION_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final EntityIds entityIds;
+
+    ISkierRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.entityIds = new EntityIds(entityManagerFactory);
+    }
+
+    @Override
+    public void insertAll(List<Skier> skiers) {
+        if (skiers.isEmpty()) {
+            return;
+        }
+        long[] ids = entityIds.next(Skier.class, skiers.size());
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Skier skier = skiers.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setString(2, skier.getFirstName());
+                ps.setString(3, skier.getLastName());
+                ps.setDate(4, skier.getDateOfBirth() == null ? null : Date.valueOf(skier.getDateOfBirth()));
+                ps.setString(5, skier.getCity());
+                if (skier.getSubscription() == null) {
+                    ps.setNull(6, Types.BIGINT);
+                } else {
+                    ps.setLong(6, skier.getSubscription().getNumSub());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return skiers.size();
+            }
+        });
+        for (int i = 0; i < skiers.size(); i++) {
+            skiers.get(i).setNumSkier(ids[i]);
+        }
+    }
+
+    @Override
+    public boolean insertExcursion(Long numSkier, Long numPiste) {
+        try {
+            jdbcTemplate.update(INSERT_EXCURSION, numSkier, numPiste);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int insertExcursions(Collection<Long> numSkiers, Collection<Long> numPistes) {
+        if (numSkiers.isEmpty() || numPistes.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource("skiers", numSkiers)
+                .addValue("pistes", numPistes);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return namedJdbcTemplate.update(INSERT_EXCURSIONS, parameters);
+            } catch (DuplicateKeyException e) {
+                // An excursion was added concurrently between the check and the insert: the next run skips it
+                if (attempt == EXCURSION_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void exportAll(RowCallbackHandler handler) {
+        ExportCursor.forEachRow(jdbcTemplate, EXPORT, handler);
+    }
+}
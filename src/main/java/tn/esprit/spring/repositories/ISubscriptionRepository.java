@@ -1,29 +1,144 @@
 package tn.esprit.spring.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 
 import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.dto.ExpiredSubscription;
+import tn.esprit.spring.dto.RevenueAggregate;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.dto.SubscriptionEnd;
+import tn.esprit.spring.dto.SubscriptionView;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.stream.Stream;
 
-public interface ISubscriptionRepository extends CrudRepository<Subscription, Long> {
+public interface ISubscriptionRepository extends CrudRepository<Subscription, Long>, ISubscriptionRepositoryCustom {
 
-    @Query("select s from Subscription s where s.typeSub = :typeS order by s.startDate")
-    Set<Subscription> findByTypeSubOrderByStartDateAsc(@Param("typeS") TypeSubscription typeSub);
+    int EXPIRED_FETCH_SIZE = 500;
 
-    List<Subscription> getSubscriptionsByStartDateBetween(LocalDate date1, LocalDate date2);
+    @Query("select new tn.esprit.spring.dto.SubscriptionView(s.numSub, s.startDate, s.endDate, s.price, s.typeSub) "
+            + "from Subscription s where s.numSub in :numSubs")
+    List<SubscriptionView> findViewsByNumSubIn(@Param("numSubs") Collection<Long> numSubs);
 
-    @Query("select distinct s from Subscription s where s.endDate <= CURRENT_TIME order by s.endDate")
-    List<Subscription> findDistinctOrderByEndDateAsc();
+    /**
+     * First page of the subscriptions of a type in (startDate, numSub) order, read through the
+     * (typeSub, startDate, numSub) index. Ordering by the type too lets every database walk
+     * the index instead of sorting the type.
+     */
+    @Query("select new tn.esprit.spring.dto.SubscriptionView(s.numSub, s.startDate, s.endDate, s.price, s.typeSub) "
+            + "from Subscription s where s.typeSub = :typeS and s.startDate is not null "
+            + "order by s.typeSub, s.startDate, s.numSub")
+    List<SubscriptionView> findViewsByTypeSub(@Param("typeS") TypeSubscription typeSub, Pageable page);
 
+    /**
+     * Page of the subscriptions of a type that come after ({@code afterDate}, {@code afterNumSub})
+     * in (startDate, numSub) order. The redundant lower bound on the start date lets the
+     * database seek the index instead of filtering every row of the type.
+     */
+    @Query("select new tn.esprit.spring.dto.SubscriptionView(s.numSub, s.startDate, s.endDate, s.price, s.typeSub) "
+            + "from Subscription s where s.typeSub = :typeS "
+            + "and s.startDate >= :afterDate and (s.startDate > :afterDate or s.numSub > :afterNumSub) "
+            + "order by s.typeSub, s.startDate, s.numSub")
+    List<SubscriptionView> findViewsByTypeSubAfter(@Param("typeS") TypeSubscription typeSub,
+                                                   @Param("afterDate") LocalDate afterDate,
+                                                   @Param("afterNumSub") Long afterNumSub, Pageable page);
 
-    @Query("select (sum(s.price))/(count(s)) from Subscription s where s.typeSub = ?1")
-    Float recurringRevenueByTypeSubEquals(TypeSubscription typeSub);
+    /**
+     * First page of the subscriptions starting between the given days, in (startDate, numSub)
+     * order; read through the (startDate, numSub) index.
+     */
+    List<Subscription> findByStartDateBetweenOrderByStartDateAscNumSubAsc(LocalDate date1, LocalDate date2,
+                                                                           Pageable page);
+
+    /**
+     * Page of the subscriptions starting between the given days that come after
+     * ({@code afterDate}, {@code afterNumSub}) in (startDate, numSub) order. The redundant
+     * lower bound on the start date turns the cursor into an index seek, which costs the
+     * same whatever the page, unlike an offset.
+     */
+    @Query("select s from Subscription s where s.startDate between :date1 and :date2 "
+            + "and s.startDate >= :afterDate and (s.startDate > :afterDate or s.numSub > :afterNumSub) "
+            + "order by s.startDate, s.numSub")
+    List<Subscription> findPageAfter(@Param("date1") LocalDate date1, @Param("date2") LocalDate date2,
+                                     @Param("afterDate") LocalDate afterDate, @Param("afterNumSub") Long afterNumSub,
+                                     Pageable page);
+
+    /**
+     * Subscriptions starting between the given days in (startDate, numSub) order, read from
+     * a forward-only cursor {@value #EXPIRED_FETCH_SIZE} rows at a time. The rows are built
+     * as detached instances, so the persistence context does not grow while streaming.
+     * Must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPIRED_FETCH_SIZE))
+    @Query("select new tn.esprit.spring.entities.Subscription(s.numSub, s.startDate, s.endDate, s.price, s.typeSub) "
+            + "from Subscription s where s.startDate between :date1 and :date2 order by s.startDate, s.numSub")
+    Stream<Subscription> streamByStartDateBetween(@Param("date1") LocalDate date1, @Param("date2") LocalDate date2);
+
+    /**
+     * Expired subscriptions with the name of their skier, read with one query and fetched
+     * from the database {@value #EXPIRED_FETCH_SIZE} rows at a time. Must be consumed and
+     * closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPIRED_FETCH_SIZE))
+    @Query("select new tn.esprit.spring.dto.ExpiredSubscription(s.numSub, s.endDate, k.firstName, k.lastName) "
+            + "from Subscription s left join Skier k on k.subscription = s "
+            + "where s.endDate <= CURRENT_DATE order by s.endDate, s.numSub")
+    Stream<ExpiredSubscription> streamExpired();
+
+    /**
+     * Subscriptions lapsing on the given day with the name of their skier, streamed like
+     * {@link #streamExpired()}.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + EXPIRED_FETCH_SIZE))
+    @Query("select new tn.esprit.spring.dto.ExpiredSubscription(s.numSub, s.endDate, k.firstName, k.lastName) "
+            + "from Subscription s left join Skier k on k.subscription = s "
+            + "where s.endDate = :endDate order by s.numSub")
+    Stream<ExpiredSubscription> streamByEndDate(@Param("endDate") LocalDate endDate);
+
+    /**
+     * Chunk of the subscriptions of the given types ending between the given days, in numSub
+     * order after {@code afterNumSub}. The cursor is the primary key rather than the end
+     * date, which renewals move forward, so a subscription renewed into the window is not
+     * met again by the same walk.
+     */
+    @Query("select new tn.esprit.spring.dto.SubscriptionView(s.numSub, s.startDate, s.endDate, s.price, s.typeSub) "
+            + "from Subscription s where s.typeSub in :types and s.endDate between :from and :to "
+            + "and s.numSub > :afterNumSub order by s.numSub")
+    List<SubscriptionView> findEndingBetweenAfter(@Param("types") Collection<TypeSubscription> types,
+                                                  @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                                  @Param("afterNumSub") Long afterNumSub, Pageable page);
+
+    /**
+     * End dates of the subscriptions that have not lapsed before the given day.
+     */
+    @Query("select new tn.esprit.spring.dto.SubscriptionEnd(s.numSub, s.endDate) from Subscription s "
+            + "where s.endDate >= :from")
+    List<SubscriptionEnd> findEndsFrom(@Param("from") LocalDate from);
+
+
+    @Query("select new tn.esprit.spring.dto.RevenueAggregate(s.typeSub, sum(s.price), count(s)) "
+            + "from Subscription s where s.typeSub is not null group by s.typeSub")
+    List<RevenueAggregate> sumPriceGroupByTypeSub();
+
+    /**
+     * Revenue per start day and type of the subscriptions starting on the given days.
+     */
+    @Query("select new tn.esprit.spring.dto.RevenuePoint(s.startDate, s.typeSub, sum(s.price), count(s)) "
+            + "from Subscription s where s.startDate in :days and s.typeSub is not null "
+            + "group by s.startDate, s.typeSub")
+    List<RevenuePoint> sumPriceByStartDateIn(@Param("days") Collection<LocalDate> days);
+
+    @Query("select distinct s.startDate from Subscription s where s.startDate is not null")
+    List<LocalDate> findDistinctStartDates();
 
 
 }
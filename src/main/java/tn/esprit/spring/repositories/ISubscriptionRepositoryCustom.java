@@ -0,0 +1,38 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import tn.esprit.spring.dto.SubscriptionRenewal;
+import tn.esprit.spring.entities.Subscription;
+
+import java.util.List;
+
+/**
+ * Subscription writes done in JDBC batches, and the export read, implemented in {@link ISubscriptionRepositoryCustomImpl}.
+ */
+public interface ISubscriptionRepositoryCustom {
+
+    /** Columns of the rows given by {@link #exportAll}, in order. */
+    List<String> EXPORT_COLUMNS = List.of("numSub", "startDate", "endDate", "price", "typeSub");
+
+    /**
+     * Moves every subscription to its new period with one batched update. Each row is only
+     * updated if its end date is still the one the renewal was computed from, so a
+     * subscription changed in the meantime, or already renewed by an earlier run, is left
+     * untouched.
+     *
+     * @return for each renewal, whether its subscription was renewed
+     */
+    boolean[] renewAll(List<SubscriptionRenewal> renewals);
+
+    /**
+     * Inserts the subscriptions with one batched statement, numbered by their pooled id generator.
+     */
+    void insertAll(List<Subscription> subscriptions);
+
+    /**
+     * Passes every subscription, in id order, to the handler as one row of
+     * {@link #EXPORT_COLUMNS}, with the type by name, read through a forward-only cursor so
+     * that the table is never held in memory.
+     */
+    void exportAll(RowCallbackHandler handler);
+}
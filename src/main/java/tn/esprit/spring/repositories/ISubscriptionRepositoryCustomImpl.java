@@ -0,0 +1,113 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import tn.esprit.spring.dto.SubscriptionRenewal;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+
+class ISubscriptionRepositoryCustomImpl implements ISubscriptionRepositoryCustom {
+
+    private static final String RENEW =
+            "update subscription set start_date = ?, end_date = ? where num_sub = ? and end_date = ?";
+
+    private static final String INSERT =
+            "insert into subscription (num_sub, start_date, end_date, price, type_sub) values (?, ?, ?, ?, ?)";
+
+    /** The type is persisted by ordinal and exported by name. */
+    private static final String EXPORT =
+            "select num_sub, start_date, end_date, price, " + typeNames() + " from subscription order by num_sub";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityIds entityIds;
+
+    ISubscriptionRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityIds = new EntityIds(entityManagerFactory);
+    }
+
+    @Override
+    public boolean[] renewAll(List<SubscriptionRenewal> renewals) {
+        boolean[] renewed = new boolean[renewals.size()];
+        if (renewals.isEmpty()) {
+            return renewed;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(RENEW, renewals, renewals.size(), (ps, renewal) -> {
+            ps.setDate(1, Date.valueOf(renewal.getStartDate()));
+            ps.setDate(2, Date.valueOf(renewal.getEndDate()));
+            ps.setLong(3, renewal.getNumSub());
+            ps.setDate(4, Date.valueOf(renewal.getPreviousEndDate()));
+        });
+        int i = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // Drivers rewriting the batch may not report the count of each statement
+                renewed[i++] = count > 0 || count == Statement.SUCCESS_NO_INFO;
+            }
+        }
+        return renewed;
+    }
+
+    @Override
+    public void insertAll(List<Subscription> subscriptions) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        long[] ids = entityIds.next(Subscription.class, subscriptions.size());
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Subscription subscription = subscriptions.get(i);
+                ps.setLong(1, ids[i]);
+                ps.setDate(2, date(subscription.getStartDate()));
+                ps.setDate(3, date(subscription.getEndDate()));
+                if (subscription.getPrice() == null) {
+                    ps.setNull(4, Types.FLOAT);
+                } else {
+                    ps.setFloat(4, subscription.getPrice());
+                }
+                // Persisted by ordinal, like the entity
+                if (subscription.getTypeSub() == null) {
+                    ps.setNull(5, Types.TINYINT);
+                } else {
+                    ps.setInt(5, subscription.getTypeSub().ordinal());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return subscriptions.size();
+            }
+        });
+        for (int i = 0; i < subscriptions.size(); i++) {
+            subscriptions.get(i).setNumSub(ids[i]);
+        }
+    }
+
+    @Override
+    public void exportAll(RowCallbackHandler handler) {
+        ExportCursor.forEachRow(jdbcTemplate, EXPORT, handler);
+    }
+
+    private static Date date(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+
+    private static String typeNames() {
+        StringBuilder sql = new StringBuilder("case type_sub");
+        for (TypeSubscription type : TypeSubscription.values()) {
+            sql.append(" when ").append(type.ordinal()).append(" then '").append(type.name()).append('\'');
+        }
+        return sql.append(" end").toString();
+    }
+}
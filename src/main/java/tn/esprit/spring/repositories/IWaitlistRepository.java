@@ -0,0 +1,34 @@
+package tn.esprit.spring.repositories;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.entities.WaitlistEntry;
+import tn.esprit.spring.entities.WaitlistStatus;
+
+import java.util.List;
+
+public interface IWaitlistRepository extends CrudRepository<WaitlistEntry, Long> {
+
+    @Query("select count(w) from WaitlistEntry w where w.course.numCourse = :numCourse and w.numWeek = :numWeek " +
+            "and w.status = tn.esprit.spring.entities.WaitlistStatus.WAITING and w.numEntry < :numEntry")
+    long countWaitingAhead(@Param("numCourse") Long numCourse, @Param("numWeek") int numWeek,
+                           @Param("numEntry") Long numEntry);
+
+    List<WaitlistEntry> findByCourse_NumCourseAndNumWeekAndStatusOrderByNumEntryAsc(Long numCourse, int numWeek,
+                                                                                   WaitlistStatus status, Limit limit);
+
+    WaitlistEntry findBySkier_NumSkierAndCourse_NumCourseAndNumWeek(Long numSkier, Long numCourse, int numWeek);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.numEntry = :numEntry")
+    void deleteEntry(@Param("numEntry") Long numEntry);
+
+    @Query("select new tn.esprit.spring.dto.CourseWeekCount(w.course.numCourse, w.numWeek, count(w)) " +
+            "from WaitlistEntry w where w.status = tn.esprit.spring.entities.WaitlistStatus.WAITING " +
+            "group by w.course.numCourse, w.numWeek")
+    List<CourseWeekCount> countWaitingGroupByCourseAndNumWeek();
+}
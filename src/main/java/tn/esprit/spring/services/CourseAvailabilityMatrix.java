@@ -0,0 +1,128 @@
+package tn.esprit.spring.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.AvailabilityMatrix;
+import tn.esprit.spring.dto.CourseAvailability;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Course × week grid of remaining seats, derived from the {@link CourseCapacityLedger}.
+ * <p>
+ * The ledger already holds the taken seats of every course in one array per course, kept
+ * up to date on each admission. The matrix only tracks which courses are collective and
+ * keeps an encoded snapshot, rebuilt on the first read after the ledger, the course list or
+ * the registration rules changed. The snapshot version, which doubles as the HTTP entity tag,
+ * is a digest of its content rather than of the node-local change counters: replicas holding
+ * the same counts tag them alike, and a tag never names different counts after a restart.
+ */
+@Slf4j
+@Component
+public class CourseAvailabilityMatrix {
+
+    static final int FIRST_WEEK = 1;
+    static final int LAST_WEEK = CourseCapacityLedger.WEEKS - 1;
+
+    private final ICourseRepository courseRepository;
+    private final CourseCapacityLedger capacityLedger;
+    private final RegistrationRuleEngine registrationRules;
+
+    private final ConcurrentSkipListMap<Long, TypeCourse> courses = new ConcurrentSkipListMap<>();
+    private final AtomicLong coursesVersion = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    public CourseAvailabilityMatrix(ICourseRepository courseRepository, CourseCapacityLedger capacityLedger,
+                                    RegistrationRuleEngine registrationRules) {
+        this.courseRepository = courseRepository;
+        this.capacityLedger = capacityLedger;
+        this.registrationRules = registrationRules;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (Course course : courseRepository.findByTypeCourseNot(TypeCourse.INDIVIDUAL)) {
+            courses.put(course.getNumCourse(), course.getTypeCourse());
+        }
+        coursesVersion.incrementAndGet();
+        log.info("Availability matrix tracking " + courses.size() + " collective courses");
+    }
+
+    /** Adds, updates or drops a course after it was saved. */
+    public void courseSaved(Course course) {
+        if (course == null || course.getNumCourse() == null) {
+            return;
+        }
+        if (course.getTypeCourse() == null || course.getTypeCourse() == TypeCourse.INDIVIDUAL) {
+            courses.remove(course.getNumCourse());
+        } else {
+            courses.put(course.getNumCourse(), course.getTypeCourse());
+        }
+        coursesVersion.incrementAndGet();
+    }
+
+    /** Version of the current snapshot, cheap enough to answer conditional requests while nothing changed. */
+    public String version() {
+        return snapshot().getVersion();
+    }
+
+    public AvailabilityMatrix snapshot() {
+        // Read before building: a change racing with the build only makes the next read rebuild
+        String changes = capacityLedger.version() + "." + coursesVersion.get() + "." + registrationRules.version();
+        Snapshot current = snapshot;
+        if (current != null && current.changes().equals(changes)) {
+            return current.matrix();
+        }
+        RegistrationRules rules = registrationRules.rules();
+        Base64.Encoder encoder = Base64.getEncoder();
+        MessageDigest digest = sha256();
+        ByteBuffer header = ByteBuffer.allocate(Long.BYTES + 2 * Integer.BYTES);
+        byte[] remaining = new byte[LAST_WEEK - FIRST_WEEK + 1];
+        List<CourseAvailability> availabilities = new ArrayList<>(courses.size());
+        for (Map.Entry<Long, TypeCourse> course : courses.entrySet()) {
+            int capacity = rules.capacity(course.getValue());
+            if (capacity == RegistrationRules.UNLIMITED) {
+                continue;
+            }
+            for (int week = FIRST_WEEK; week <= LAST_WEEK; week++) {
+                remaining[week - FIRST_WEEK] = (byte) Math.max(0, capacity - capacityLedger.taken(course.getKey(), week));
+            }
+            digest.update(header.clear().putLong(course.getKey()).putInt(course.getValue().ordinal())
+                    .putInt(capacity).array());
+            digest.update(remaining);
+            availabilities.add(new CourseAvailability(course.getKey(), course.getValue(), capacity,
+                    encoder.encodeToString(remaining)));
+        }
+        String version = HexFormat.of().formatHex(digest.digest(), 0, 8);
+        AvailabilityMatrix built = new AvailabilityMatrix(version, FIRST_WEEK, LAST_WEEK, availabilities);
+        snapshot = new Snapshot(changes, built);
+        return built;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** A built matrix and the local change counters it was built from. */
+    private record Snapshot(String changes, AvailabilityMatrix matrix) {
+    }
+}
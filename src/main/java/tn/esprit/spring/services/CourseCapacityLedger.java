@@ -0,0 +1,246 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.dto.JournalEntryType;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory count of the registrations taken for every (course, week), used to admit
+ * collective course registrations without counting rows in the database.
+ * <p>
+ * Each course owns one {@link AtomicIntegerArray} indexed by week, so reservations on
+ * different courses never contend and reservations on the same course only CAS a single
+ * slot. The ledger is warmed once the application is ready by replaying the
+ * {@link RegistrationJournal}, topped up with the registrations inserted after the last one
+ * it holds, or from {@link IRegistrationRepository} while the journal is empty, disabled or
+ * corrupt. It is reconciled against the database on a fixed delay: the database stays
+ * authoritative and any difference found, such as registrations removed through another
+ * node, is reported as drift.
+ */
+@Slf4j
+@Component
+public class CourseCapacityLedger {
+
+    /** Weeks are expected in [0, 53]; anything else is counted in the database. */
+    static final int WEEKS = 54;
+
+    private static final int STRIPES = 64;
+
+    private final IRegistrationRepository registrationRepository;
+    private final RegistrationJournal journal;
+
+    private final ConcurrentHashMap<Long, AtomicIntegerArray> courses = new ConcurrentHashMap<>();
+
+    /** Serializes the loading of a missing course so that concurrent misses query it once. */
+    private final Object[] loadLocks = new Object[STRIPES];
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter drift;
+
+    public CourseCapacityLedger(IRegistrationRepository registrationRepository, RegistrationJournal journal,
+                                MeterRegistry meterRegistry) {
+        this.registrationRepository = registrationRepository;
+        this.journal = journal;
+        for (int i = 0; i < STRIPES; i++) {
+            loadLocks[i] = new Object();
+        }
+        this.hits = Counter.builder("registration.ledger.lookups").tag("result", "hit")
+                .description("Admission decisions answered from memory").register(meterRegistry);
+        this.misses = Counter.builder("registration.ledger.lookups").tag("result", "miss")
+                .description("Admission decisions that had to load counts from the database").register(meterRegistry);
+        this.drift = Counter.builder("registration.ledger.drift")
+                .description("Seats corrected by reconciliation against the database").register(meterRegistry);
+        Gauge.builder("registration.ledger.courses", courses, Map::size)
+                .description("Courses tracked by the capacity ledger").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        Map<Long, AtomicIntegerArray> loaded = journal.isEnabled() && journal.hasEntries() ? replay() : null;
+        String source = "journal";
+        if (loaded == null) {
+            loaded = load(registrationRepository.countGroupByCourseAndNumWeek());
+            source = "database";
+        }
+        courses.putAll(loaded);
+        version.incrementAndGet();
+        log.info("Capacity ledger warmed with " + loaded.size() + " courses from the " + source);
+    }
+
+    /**
+     * Takes one seat of the given week if fewer than {@code capacity} are taken.
+     *
+     * @return {@code true} if the seat was taken, {@code false} if the week is full
+     */
+    public boolean tryAcquire(Long numCourse, int numWeek, int capacity) {
+        if (numWeek < 0 || numWeek >= WEEKS) {
+            misses.increment();
+            return registrationRepository.countByCourseGroupByNumWeek(numCourse).stream()
+                    .filter(count -> count.getNumWeek() == numWeek)
+                    .mapToLong(CourseWeekCount::getTotal)
+                    .sum() < capacity;
+        }
+        AtomicIntegerArray weeks = courses.get(numCourse);
+        if (weeks == null) {
+            misses.increment();
+            weeks = loadCourse(numCourse);
+        } else {
+            hits.increment();
+        }
+        while (true) {
+            int taken = weeks.get(numWeek);
+            if (taken >= capacity) {
+                return false;
+            }
+            if (weeks.compareAndSet(numWeek, taken, taken + 1)) {
+                version.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a seat taken by {@link #tryAcquire}, when the registration was not stored
+     * or has been removed.
+     */
+    public void release(Long numCourse, int numWeek) {
+        AtomicIntegerArray weeks = courses.get(numCourse);
+        if (weeks == null || numWeek < 0 || numWeek >= WEEKS) {
+            return;
+        }
+        while (true) {
+            int taken = weeks.get(numWeek);
+            if (taken == 0 || weeks.compareAndSet(numWeek, taken, taken - 1)) {
+                version.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /** Seats currently taken, as known by the ledger (0 for an unknown course). */
+    public int taken(Long numCourse, int numWeek) {
+        AtomicIntegerArray weeks = courses.get(numCourse);
+        return weeks == null || numWeek < 0 || numWeek >= WEEKS ? 0 : weeks.get(numWeek);
+    }
+
+    /** Incremented on every change, so that derived views can tell whether they are stale. */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Replaces the in-memory counts with the ones found in the database. Reservations in
+     * flight while the aggregate runs may be overwritten; the database remains the source
+     * of truth and the next reconciliation settles them.
+     */
+    @Scheduled(fixedDelayString = "${registration.ledger.reconcile-ms:60000}",
+            initialDelayString = "${registration.ledger.reconcile-ms:60000}")
+    public void reconcile() {
+        Map<Long, AtomicIntegerArray> actual = load(registrationRepository.countGroupByCourseAndNumWeek());
+        long corrected = 0;
+        for (Map.Entry<Long, AtomicIntegerArray> entry : courses.entrySet()) {
+            AtomicIntegerArray expected = actual.get(entry.getKey());
+            AtomicIntegerArray weeks = entry.getValue();
+            for (int week = 0; week < WEEKS; week++) {
+                int count = expected == null ? 0 : expected.get(week);
+                int previous = weeks.getAndSet(week, count);
+                corrected += Math.abs(previous - count);
+            }
+        }
+        for (Map.Entry<Long, AtomicIntegerArray> entry : actual.entrySet()) {
+            if (courses.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                AtomicIntegerArray weeks = entry.getValue();
+                for (int week = 0; week < WEEKS; week++) {
+                    corrected += weeks.get(week);
+                }
+            }
+        }
+        if (corrected > 0) {
+            drift.increment(corrected);
+            version.incrementAndGet();
+            log.info("Capacity ledger reconciled, " + corrected + " seats corrected");
+        }
+    }
+
+    private AtomicIntegerArray loadCourse(Long numCourse) {
+        synchronized (loadLocks[(numCourse.hashCode() & 0x7fffffff) % STRIPES]) {
+            AtomicIntegerArray weeks = courses.get(numCourse);
+            if (weeks != null) {
+                return weeks;
+            }
+            weeks = load(registrationRepository.countByCourseGroupByNumWeek(numCourse))
+                    .getOrDefault(numCourse, new AtomicIntegerArray(WEEKS));
+            courses.put(numCourse, weeks);
+            return weeks;
+        }
+    }
+
+    /**
+     * Counts the registrations of the journal, then the ones inserted after the last
+     * registration it holds, through another node or while an entry was lost.
+     *
+     * @return the counts, or {@code null} if the journal cannot be read
+     */
+    private Map<Long, AtomicIntegerArray> replay() {
+        Map<Long, AtomicIntegerArray> loaded = new HashMap<>();
+        long[] highest = {0};
+        try {
+            journal.replay(0L, entry -> {
+                if (entry.getType() == JournalEntryType.ADDED) {
+                    highest[0] = Math.max(highest[0], entry.getNumRegistration());
+                    count(loaded, entry.getNumCourse(), entry.getNumWeek(), 1);
+                } else if (entry.getType() == JournalEntryType.REMOVED) {
+                    count(loaded, entry.getNumCourse(), entry.getNumWeek(), -1);
+                }
+            });
+        } catch (IllegalStateException | UncheckedIOException e) {
+            log.warn("Registration journal cannot be replayed, warming from the database: " + e.getMessage());
+            return null;
+        }
+        registrationRepository.forEachKeyAfter(highest[0],
+                key -> count(loaded, key.getNumCourse(), key.getNumWeek(), 1));
+        return loaded;
+    }
+
+    private static void count(Map<Long, AtomicIntegerArray> loaded, long numCourse, int numWeek, int delta) {
+        if (numWeek < 0 || numWeek >= WEEKS) {
+            return;
+        }
+        AtomicIntegerArray weeks = loaded.computeIfAbsent(numCourse, course -> new AtomicIntegerArray(WEEKS));
+        if (weeks.get(numWeek) + delta >= 0) {
+            weeks.addAndGet(numWeek, delta);
+        }
+    }
+
+    private static Map<Long, AtomicIntegerArray> load(List<CourseWeekCount> counts) {
+        Map<Long, AtomicIntegerArray> loaded = new HashMap<>();
+        for (CourseWeekCount count : counts) {
+            int week = count.getNumWeek();
+            if (week >= 0 && week < WEEKS) {
+                loaded.computeIfAbsent(count.getNumCourse(), numCourse -> new AtomicIntegerArray(WEEKS))
+                        .set(week, Math.toIntExact(count.getTotal()));
+            }
+        }
+        return loaded;
+    }
+}
@@ -2,6 +2,7 @@ package tn.esprit.spring.services;
 
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
+import tn.esprit.spring.dto.AvailabilityMatrix;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.entities.TypeCourse;
 import tn.esprit.spring.repositories.ICourseRepository;
@@ -12,18 +13,32 @@ import java.util.List;
 public class CourseServicesImpl implements  ICourseServices{
 
     private ICourseRepository courseRepository;
+    private InstructorWeekIndex instructorWeekIndex;
+    private CourseAvailabilityMatrix availabilityMatrix;
+    private EntityLookups entityLookups;
 
     @Override
     public List<Course> retrieveAllCourses() {
         return courseRepository.findAll();
     }
 
+    @Override
+    public List<Course> retrieveCourses(Long afterNumCourse, int size) {
+        if (afterNumCourse == null) {
+            return courseRepository.findAllByOrderByNumCourseAsc(KeysetPaging.page(size));
+        }
+        return courseRepository.findByNumCourseGreaterThanOrderByNumCourseAsc(afterNumCourse, KeysetPaging.page(size));
+    }
+
     @Override
     public Course addCourse(Course course) {
         if (course == null) {
             throw new IllegalArgumentException("Course cannot be null");
         }
-        return courseRepository.save(course);
+        Course createdCourse = courseRepository.save(course);
+        availabilityMatrix.courseSaved(createdCourse);
+        entityLookups.courseChanged(createdCourse.getNumCourse());
+        return createdCourse;
     }
 
     @Override
@@ -38,7 +53,12 @@ public class CourseServicesImpl implements  ICourseServices{
         if (!courseRepository.existsById(course.getNumCourse())) {
             throw new IllegalArgumentException("Course with ID " + course.getNumCourse() + " does not exist");
         }
-        return courseRepository.save(course);
+        Course updatedCourse = courseRepository.save(course);
+        availabilityMatrix.courseSaved(updatedCourse);
+        entityLookups.courseChanged(course.getNumCourse());
+        // The support of the course may have changed
+        instructorWeekIndex.rebuildCourse(course.getNumCourse());
+        return updatedCourse;
     }
 
     @Override
@@ -46,7 +66,17 @@ public class CourseServicesImpl implements  ICourseServices{
         if (numCourse == null) {
             throw new IllegalArgumentException("Course ID cannot be null");
         }
-        return courseRepository.findById(numCourse).orElse(null);
+        return entityLookups.course(numCourse);
+    }
+
+    @Override
+    public AvailabilityMatrix retrieveAvailability() {
+        return availabilityMatrix.snapshot();
+    }
+
+    @Override
+    public String availabilityVersion() {
+        return availabilityMatrix.version();
     }
 
 
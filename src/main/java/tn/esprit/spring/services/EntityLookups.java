@@ -0,0 +1,88 @@
+package tn.esprit.spring.services;
+
+import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Instructor;
+import tn.esprit.spring.entities.Piste;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IPisteRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import java.util.List;
+
+/**
+ * Read-through cache of the skiers, courses, instructors and pistes looked up by id. Ids
+ * that match no row are not cached.
+ * <p>
+ * The services evict an entity whenever they write it; changes made by another node are
+ * seen once the entry expires. Cached entities are detached and shared by every request:
+ * read them, or reference them from the entities being saved, but never modify them.
+ */
+@Component
+@AllArgsConstructor
+public class EntityLookups {
+
+    public static final String SKIERS = "skiers";
+    public static final String COURSES = "courses";
+    public static final String INSTRUCTORS = "instructors";
+    public static final String PISTES = "pistes";
+    public static final List<String> CACHES = List.of(SKIERS, COURSES, INSTRUCTORS, PISTES);
+
+    private ISkierRepository skierRepository;
+    private ICourseRepository courseRepository;
+    private IInstructorRepository instructorRepository;
+    private IPisteRepository pisteRepository;
+
+    /** The skier with its subscription. */
+    @Cacheable(cacheNames = SKIERS, unless = "#result == null")
+    public Skier skier(Long numSkier) {
+        return skierRepository.findById(numSkier).orElse(null);
+    }
+
+    @Cacheable(cacheNames = COURSES, unless = "#result == null")
+    public Course course(Long numCourse) {
+        return courseRepository.findById(numCourse).orElse(null);
+    }
+
+    /** The instructor with its courses, which are serialized with it. */
+    @Cacheable(cacheNames = INSTRUCTORS, unless = "#result == null")
+    public Instructor instructor(Long numInstructor) {
+        return instructorRepository.findWithCoursesByNumInstructor(numInstructor).orElse(null);
+    }
+
+    @Cacheable(cacheNames = PISTES, unless = "#result == null")
+    public Piste piste(Long numPiste) {
+        return pisteRepository.findById(numPiste).orElse(null);
+    }
+
+    @CacheEvict(cacheNames = SKIERS)
+    public void skierChanged(Long numSkier) {
+        // Evicted by the cache interceptor
+    }
+
+    /** For writes that may change the subscription of any skier. */
+    @CacheEvict(cacheNames = SKIERS, allEntries = true)
+    public void skiersChanged() {
+        // Evicted by the cache interceptor
+    }
+
+    @CacheEvict(cacheNames = COURSES)
+    public void courseChanged(Long numCourse) {
+        // Evicted by the cache interceptor
+    }
+
+    @CacheEvict(cacheNames = INSTRUCTORS)
+    public void instructorChanged(Long numInstructor) {
+        // Evicted by the cache interceptor
+    }
+
+    @CacheEvict(cacheNames = PISTES)
+    public void pisteChanged(Long numPiste) {
+        // Evicted by the cache interceptor
+    }
+}
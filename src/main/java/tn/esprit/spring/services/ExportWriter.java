@@ -0,0 +1,163 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import tn.esprit.spring.dto.ExportFormat;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes the rows of an export cursor to a stream as they are read, in CSV or NDJSON,
+ * through a fixed-size buffer: nothing of a row is kept once it is written. Columns are
+ * named by the given list, in the order of the query.
+ * <p>
+ * Dates are written as {@code yyyy-MM-dd}, numbers as numbers and nulls as empty CSV
+ * fields or JSON nulls. Write failures are thrown as {@link UncheckedIOException}. The
+ * stream is flushed by {@link #finish()} but never closed.
+ */
+public class ExportWriter implements RowCallbackHandler {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final ExportFormat format;
+    private final List<String> columns;
+    private final Writer writer;
+    private final JsonGenerator json;
+    private int[] types;
+    private long rows;
+
+    public ExportWriter(OutputStream out, ExportFormat format, List<String> columns) {
+        this.format = format;
+        this.columns = columns;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try {
+            if (format == ExportFormat.CSV) {
+                this.json = null;
+                writer.write(String.join(",", columns));
+                writer.write('\n');
+            } else {
+                this.json = JSON.createGenerator(writer).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        if (types == null) {
+            types = types(rs.getMetaData());
+        }
+        try {
+            if (format == ExportFormat.CSV) {
+                writeCsv(rs);
+            } else {
+                writeJson(rs);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rows++;
+    }
+
+    /**
+     * Flushes what is left in the buffer.
+     *
+     * @return the number of rows written
+     */
+    public long finish() {
+        try {
+            if (json != null) {
+                json.flush();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private void writeCsv(ResultSet rs) throws SQLException, IOException {
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = value(rs, i + 1);
+            if (value != null) {
+                writer.write(csvField(value.toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    private void writeJson(ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        for (int i = 0; i < types.length; i++) {
+            json.writeFieldName(columns.get(i));
+            Object value = value(rs, i + 1);
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof Long number) {
+                json.writeNumber(number);
+            } else if (value instanceof Float number) {
+                json.writeNumber(number);
+            } else if (value instanceof Double number) {
+                json.writeNumber(number);
+            } else if (value instanceof BigDecimal number) {
+                json.writeNumber(number);
+            } else {
+                json.writeString(value.toString());
+            }
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    /** The value of the column as the type it is written as, or null. */
+    private Object value(ResultSet rs, int column) throws SQLException {
+        Object value = switch (types[column - 1]) {
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT -> rs.getLong(column);
+            case Types.REAL -> rs.getFloat(column);
+            case Types.FLOAT, Types.DOUBLE -> rs.getDouble(column);
+            case Types.DECIMAL, Types.NUMERIC -> rs.getBigDecimal(column);
+            case Types.DATE -> rs.getObject(column, LocalDate.class);
+            default -> rs.getString(column);
+        };
+        return rs.wasNull() ? null : value;
+    }
+
+    private int[] types(ResultSetMetaData metaData) throws SQLException {
+        if (metaData.getColumnCount() != columns.size()) {
+            throw new IllegalStateException("Export of " + metaData.getColumnCount() + " columns named "
+                    + columns);
+        }
+        int[] columnTypes = new int[columns.size()];
+        for (int i = 0; i < columnTypes.length; i++) {
+            columnTypes[i] = metaData.getColumnType(i + 1);
+        }
+        return columnTypes;
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,5 +1,6 @@
 package tn.esprit.spring.services;
 
+import tn.esprit.spring.dto.AvailabilityMatrix;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.entities.TypeCourse;
 
@@ -9,11 +10,21 @@ public interface ICourseServices {
 
     List<Course> retrieveAllCourses();
 
+    /**
+     * Page of at most {@code size} courses in numCourse order, after {@code afterNumCourse}
+     * or from the first one when it is null.
+     */
+    List<Course> retrieveCourses(Long afterNumCourse, int size);
+
     Course  addCourse(Course  course);
 
     Course updateCourse(Course course);
 
     Course retrieveCourse(Long numCourse);
 
+    AvailabilityMatrix retrieveAvailability();
+
+    String availabilityVersion();
+
 
 }
@@ -12,6 +12,12 @@ public interface IInstructorServices {
 
     List<Instructor> retrieveAllInstructors();
 
+    /**
+     * Page of at most {@code size} instructors in numInstructor order, after
+     * {@code afterNumInstructor} or from the first one when it is null.
+     */
+    List<Instructor> retrieveInstructors(Long afterNumInstructor, int size);
+
     Instructor updateInstructor(Instructor instructor);
 
     Instructor retrieveInstructor(Long numInstructor);
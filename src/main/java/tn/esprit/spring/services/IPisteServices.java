@@ -8,6 +8,12 @@ public interface IPisteServices {
 
     List<Piste> retrieveAllPistes();
 
+    /**
+     * Page of at most {@code size} pistes in numPiste order, after {@code afterNumPiste} or
+     * from the first one when it is null.
+     */
+    List<Piste> retrievePistes(Long afterNumPiste, int size);
+
     Piste  addPiste(Piste  piste);
 
     void removePiste (Long numPiste);
@@ -1,7 +1,11 @@
 package tn.esprit.spring.services;
 
+import tn.esprit.spring.dto.BulkRegistrationItem;
+import tn.esprit.spring.dto.BulkRegistrationResult;
+import tn.esprit.spring.dto.ExportFormat;
 import tn.esprit.spring.entities.*;
 
+import java.io.OutputStream;
 import java.util.List;
 
 public interface IRegistrationServices {
@@ -10,5 +14,15 @@ public interface IRegistrationServices {
 	Registration assignRegistrationToCourse(Long numRegistration, Long numCourse);
 	Registration addRegistrationAndAssignToSkierAndCourse(Registration registration, Long numSkieur, Long numCours);
 	List<Integer> numWeeksCourseOfInstructorBySupport(Long numInstructor, Support support);
+	List<BulkRegistrationResult> addRegistrationsInBulk(List<BulkRegistrationItem> items);
+	void removeRegistration(Long numRegistration);
+
+	/**
+	 * Writes every registration to the stream as CSV or NDJSON while it is read from the database,
+	 * in constant memory whatever the size of the table. The stream is flushed, not closed.
+	 *
+	 * @return the number of registrations written
+	 */
+	long exportRegistrations(OutputStream out, ExportFormat format);
 }
 
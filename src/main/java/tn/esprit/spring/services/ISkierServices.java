@@ -1,14 +1,30 @@
 package tn.esprit.spring.services;
 
+import tn.esprit.spring.dto.BulkExcursionResult;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.dto.SkierExpansion;
+import tn.esprit.spring.dto.SkierImportFormat;
+import tn.esprit.spring.dto.SkierImportReport;
+import tn.esprit.spring.dto.SkierView;
 import tn.esprit.spring.entities.Skier;
 import tn.esprit.spring.entities.TypeSubscription;
 
+import java.io.OutputStream;
+import java.io.Reader;
 import java.util.List;
+import java.util.Set;
 
 public interface ISkierServices {
 
 	List<Skier> retrieveAllSkiers();
 
+	/**
+	 * Page of at most {@code size} skiers as read models in numSkier order, after
+	 * {@code afterNumSkier} or from the first one when it is null, with the given associations
+	 * expanded. Runs one query, plus one per expansion.
+	 */
+	List<SkierView> retrieveSkierViews(Long afterNumSkier, int size, Set<SkierExpansion> expand);
+
 	Skier  addSkier(Skier  skier);
 
 	Skier assignSkierToSubscription(Long numSkier, Long numSubscription);
@@ -20,8 +36,21 @@ public interface ISkierServices {
 	Skier retrieveSkier (Long numSkier);
 
 
+	/** The skier, with the piste added to its excursions, or null if either does not exist. */
 	Skier assignSkierToPiste(Long numSkieur, Long numPiste);
 
+	BulkExcursionResult assignSkiersToPistes(List<Long> numSkiers, List<Long> numPistes);
+
 	List<Skier> retrieveSkiersBySubscriptionType(TypeSubscription typeSubscription);
 
+	SkierImportReport importSkiers(Reader reader, SkierImportFormat format);
+
+	/**
+	 * Writes every skier to the stream as CSV or NDJSON while it is read from the database,
+	 * in constant memory whatever the size of the table. The stream is flushed, not closed.
+	 *
+	 * @return the number of skiers written
+	 */
+	long exportSkiers(OutputStream out, ExportFormat format);
+
 }
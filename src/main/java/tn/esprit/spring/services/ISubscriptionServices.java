@@ -1,23 +1,52 @@
 package tn.esprit.spring.services;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
-
+import java.util.function.Consumer;
+
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.dto.RecurringRevenue;
+import tn.esprit.spring.dto.RenewalProgress;
+import tn.esprit.spring.dto.RevenueGranularity;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.dto.SubscriptionView;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
 
 public interface ISubscriptionServices {
 
+	int MAX_PAGE_SIZE = KeysetPaging.MAX_PAGE_SIZE;
+
 	Subscription addSubscription(Subscription subscription);
 
 	Subscription updateSubscription(Subscription subscription);
 
 	Subscription retrieveSubscriptionById(Long numSubscription);
 
-	Set<Subscription> getSubscriptionByType(TypeSubscription type);
+	List<SubscriptionView> getSubscriptionByType(TypeSubscription type, LocalDate afterDate, Long afterNumSub, int size);
+
+	List<Subscription> retrieveSubscriptionsByDates(LocalDate startDate, LocalDate endDate, LocalDate afterDate,
+													Long afterNumSub, int size);
+
+	void forEachSubscriptionByDates(LocalDate startDate, LocalDate endDate, Consumer<Subscription> consumer);
 
-	List<Subscription> retrieveSubscriptionsByDates(LocalDate startDate, LocalDate endDate);
+	/**
+	 * Writes every subscription to the stream as CSV or NDJSON while it is read from the database,
+	 * in constant memory whatever the size of the table. The stream is flushed, not closed.
+	 *
+	 * @return the number of subscriptions written
+	 */
+	long exportSubscriptions(OutputStream out, ExportFormat format);
 
 	void retrieveSubscriptions();
+
+	RecurringRevenue retrieveMonthlyRecurringRevenue();
+
+	List<RevenuePoint> retrieveRevenue(LocalDate from, LocalDate to, RevenueGranularity granularity);
+
+	RenewalProgress renewSubscriptions(LocalDate from, LocalDate to, Set<TypeSubscription> types);
+
+	RenewalProgress retrieveRenewal(LocalDate from, LocalDate to, Set<TypeSubscription> types);
 }
@@ -0,0 +1,17 @@
+package tn.esprit.spring.services;
+
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.dto.WaitlistPosition;
+
+import java.util.List;
+
+public interface IWaitlistServices {
+
+    WaitlistPosition joinWaitlist(Long numSkier, Long numCourse, int numWeek);
+
+    WaitlistPosition retrievePosition(Long numEntry);
+
+    int promote(Long numCourse, int numWeek);
+
+    List<CourseWeekCount> retrieveWaitingCourseWeeks();
+}
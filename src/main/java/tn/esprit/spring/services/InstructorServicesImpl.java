@@ -17,13 +17,15 @@ public class InstructorServicesImpl implements IInstructorServices{
 
     private IInstructorRepository instructorRepository;
     private ICourseRepository courseRepository;
+    private InstructorWeekIndex instructorWeekIndex;
+    private EntityLookups entityLookups;
 
     @Override
     public Instructor addInstructor(Instructor instructor) {
         if (instructor == null) {
             throw new NullPointerException("Instructor cannot be null");
         }
-        return instructorRepository.save(instructor);
+        return indexed(instructorRepository.save(instructor));
     }
 
     @Override
@@ -31,6 +33,15 @@ public class InstructorServicesImpl implements IInstructorServices{
         return instructorRepository.findAll();
     }
 
+    @Override
+    public List<Instructor> retrieveInstructors(Long afterNumInstructor, int size) {
+        if (afterNumInstructor == null) {
+            return instructorRepository.findAllByOrderByNumInstructorAsc(KeysetPaging.page(size));
+        }
+        return instructorRepository.findByNumInstructorGreaterThanOrderByNumInstructorAsc(afterNumInstructor,
+                KeysetPaging.page(size));
+    }
+
     @Override
     public Instructor updateInstructor(Instructor instructor) {
         if (instructor == null) {
@@ -43,7 +54,7 @@ public class InstructorServicesImpl implements IInstructorServices{
         if (!instructorRepository.existsById(instructor.getNumInstructor())) {
             throw new NullPointerException("Instructor with ID " + instructor.getNumInstructor() + " does not exist");
         }
-        return instructorRepository.save(instructor);
+        return indexed(instructorRepository.save(instructor));
     }
 
     @Override
@@ -51,7 +62,7 @@ public class InstructorServicesImpl implements IInstructorServices{
         if (numInstructor == null) {
             throw new NullPointerException("Instructor ID cannot be null");
         }
-        return instructorRepository.findById(numInstructor).orElse(null);
+        return entityLookups.instructor(numInstructor);
     }
 
     @Override
@@ -63,7 +74,15 @@ public class InstructorServicesImpl implements IInstructorServices{
         Set<Course> courseSet = new HashSet<>();
         courseSet.add(course);
         instructor.setCourses(courseSet);
-        return instructorRepository.save(instructor);
+        return indexed(instructorRepository.save(instructor));
+    }
+
+    private Instructor indexed(Instructor saved) {
+        if (saved != null) {
+            instructorWeekIndex.rebuildInstructor(saved.getNumInstructor());
+            entityLookups.instructorChanged(saved.getNumInstructor());
+        }
+        return saved;
     }
 
 
@@ -0,0 +1,111 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.events.RegistrationRemovedEvent;
+import tn.esprit.spring.repositories.IInstructorWeekRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the (instructor, support, week) index in step with the registrations.
+ * <p>
+ * Registration events are summed per transaction and written once, just before the
+ * registering transaction commits, so that a bulk registration costs one index update per
+ * (course, week) rather than one per skier, and a nested transaction writes its own.
+ * Changes to the courses of an instructor recompute that instructor's rows, and the whole
+ * index is reconciled nightly by the node holding the lease, with its rows locked.
+ */
+@Slf4j
+@Component
+public class InstructorWeekIndex {
+
+    private final IInstructorWeekRepository instructorWeekRepository;
+    private final JobLeases jobLeases;
+
+    private final Counter drift;
+
+    private final TransactionDeltas<Map<CourseWeek, Long>> transactionDeltas =
+            TransactionDeltas.beforeCommit(HashMap::new, this::apply);
+
+    public InstructorWeekIndex(IInstructorWeekRepository instructorWeekRepository, JobLeases jobLeases,
+                               MeterRegistry meterRegistry) {
+        this.instructorWeekRepository = instructorWeekRepository;
+        this.jobLeases = jobLeases;
+        this.drift = Counter.builder("registration.instructor.weeks.drift")
+                .description("Registrations corrected by reconciliation of the instructor week index").register(meterRegistry);
+    }
+
+    @EventListener
+    public void onRegistrationAdded(RegistrationAddedEvent event) {
+        record(event.getNumCourse(), event.getNumWeek(), 1);
+    }
+
+    @EventListener
+    public void onRegistrationRemoved(RegistrationRemovedEvent event) {
+        record(event.getNumCourse(), event.getNumWeek(), -1);
+    }
+
+    /** Recomputes the weeks of an instructor after its courses changed. */
+    public void rebuildInstructor(Long numInstructor) {
+        if (numInstructor != null) {
+            drift.increment(instructorWeekRepository.reconcile(numInstructor));
+        }
+    }
+
+    /** Recomputes the weeks of the instructors teaching a course after its support changed. */
+    public void rebuildCourse(Long numCourse) {
+        if (numCourse != null) {
+            drift.increment(instructorWeekRepository.reconcileCourse(numCourse));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${registration.instructor-weeks.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        // The index is shared by the nodes: one of them recomputes it
+        jobLeases.runExclusively("registration.instructor-weeks.reconcile", () -> {
+            long corrected = instructorWeekRepository.reconcile(null);
+            if (corrected > 0) {
+                drift.increment(corrected);
+                log.info("Instructor week index reconciled, " + corrected + " registrations corrected");
+            }
+        });
+    }
+
+    private void record(Long numCourse, int numWeek, int delta) {
+        if (numCourse == null) {
+            return;
+        }
+        Map<CourseWeek, Long> pending = transactionDeltas.current();
+        if (pending == null) {
+            instructorWeekRepository.addRegistrations(List.of(new CourseWeekCount(numCourse, numWeek, (long) delta)));
+            return;
+        }
+        pending.merge(new CourseWeek(numCourse, numWeek), (long) delta, Long::sum);
+    }
+
+    private void apply(Map<CourseWeek, Long> deltas) {
+        List<CourseWeekCount> counts = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            if (delta != 0) {
+                counts.add(new CourseWeekCount(key.numCourse(), key.numWeek(), delta));
+            }
+        });
+        deltas.clear();
+        instructorWeekRepository.addRegistrations(counts);
+    }
+
+    private record CourseWeek(Long numCourse, int numWeek) {
+    }
+}
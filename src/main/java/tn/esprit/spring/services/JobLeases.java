@@ -0,0 +1,105 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.repositories.IJobLeaseRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Runs scheduled jobs with cluster-wide side effects on a single node per tick.
+ * <p>
+ * Before each run the node takes the job's lease in the {@code job_lease} table, for the
+ * duration given by the job or {@code scheduling.lease.duration}. The lease is not released
+ * after the run: replicas ticking at the same time find it live and skip. The holder renews
+ * its own lease, so a job sticks to one node until that node stops, and fails over one
+ * lease duration later. The duration must be longer than a run, or than each step of a job
+ * renewing its lease step by step, and than the clock skew between nodes. Guarded jobs are
+ * best scheduled by cron, so that the ticks of all nodes line up.
+ * <p>
+ * Jobs that rebuild node-local state (ledger reconciliation, Bloom filter refresh, rule
+ * reload, journal compaction) must keep running on every node and are not guarded.
+ */
+@Slf4j
+@Component
+public class JobLeases {
+
+    private final IJobLeaseRepository jobLeaseRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration duration;
+    private final Clock clock;
+    private final String owner;
+
+    @Autowired
+    public JobLeases(IJobLeaseRepository jobLeaseRepository, MeterRegistry meterRegistry,
+                     @Value("${scheduling.lease.duration:25s}") Duration duration) {
+        this(jobLeaseRepository, meterRegistry, duration, Clock.systemUTC(), UUID.randomUUID().toString());
+    }
+
+    JobLeases(IJobLeaseRepository jobLeaseRepository, MeterRegistry meterRegistry, Duration duration,
+              Clock clock, String owner) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Lease duration must be positive");
+        }
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.meterRegistry = meterRegistry;
+        this.duration = duration;
+        this.clock = clock;
+        this.owner = owner;
+    }
+
+    /**
+     * Runs the job if this node holds its lease, and skips it otherwise. A lease that cannot
+     * be read or written counts as held by another node.
+     *
+     * @return whether the job ran on this node
+     */
+    public boolean runExclusively(String job, Runnable task) {
+        return runExclusively(job, duration, task);
+    }
+
+    /**
+     * Runs the job if this node holds its lease, taken or renewed for the given duration, and
+     * skips it otherwise. A job running in steps renews its lease by running each step through
+     * this method, and stops once a step is skipped.
+     *
+     * @return whether the job ran on this node
+     */
+    public boolean runExclusively(String job, Duration lease, Runnable task) {
+        if (lease.isNegative() || lease.isZero()) {
+            throw new IllegalArgumentException("Lease duration must be positive");
+        }
+        if (!acquire(job, lease)) {
+            meterRegistry.counter("scheduling.lease.skipped", "job", job).increment();
+            return false;
+        }
+        meterRegistry.counter("scheduling.lease.runs", "job", job).increment();
+        task.run();
+        return true;
+    }
+
+    public String owner() {
+        return owner;
+    }
+
+    private boolean acquire(String job, Duration lease) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            long now = clock.millis();
+            return jobLeaseRepository.tryAcquire(job, owner, now, now + lease.toMillis());
+        } catch (DataAccessException e) {
+            meterRegistry.counter("scheduling.lease.failures", "job", job).increment();
+            log.warn("Lease of job " + job + " could not be taken: " + e.getMessage());
+            return false;
+        } finally {
+            sample.stop(meterRegistry.timer("scheduling.lease.acquire", "job", job));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package tn.esprit.spring.services;
+
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Limits shared by the keyset-paged reads of the services. A page continues after the key
+ * of the last row of the previous one, so reading it costs the same however far the
+ * client has walked, and holds at most {@link #MAX_PAGE_SIZE} rows.
+ */
+public final class KeysetPaging {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private KeysetPaging() {
+    }
+
+    /**
+     * Request for the first {@code size} rows after the cursor.
+     *
+     * @throws IllegalArgumentException when {@code size} is not between 1 and {@link #MAX_PAGE_SIZE}
+     */
+    public static PageRequest page(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return PageRequest.of(0, size);
+    }
+}
@@ -11,18 +11,29 @@ import java.util.List;
 public class PisteServicesImpl implements  IPisteServices{
 
     private IPisteRepository pisteRepository;
+    private EntityLookups entityLookups;
 
     @Override
     public List<Piste> retrieveAllPistes() {
         return pisteRepository.findAll();
     }
 
+    @Override
+    public List<Piste> retrievePistes(Long afterNumPiste, int size) {
+        if (afterNumPiste == null) {
+            return pisteRepository.findAllByOrderByNumPisteAsc(KeysetPaging.page(size));
+        }
+        return pisteRepository.findByNumPisteGreaterThanOrderByNumPisteAsc(afterNumPiste, KeysetPaging.page(size));
+    }
+
     @Override
     public Piste addPiste(Piste piste) {
         if (piste == null) {
             throw new NullPointerException("Piste cannot be null");
         }
-        return pisteRepository.save(piste);
+        Piste saved = pisteRepository.save(piste);
+        entityLookups.pisteChanged(saved.getNumPiste());
+        return saved;
     }
 
     @Override
@@ -31,6 +42,7 @@ public class PisteServicesImpl implements  IPisteServices{
             throw new NullPointerException("Piste ID cannot be null");
         }
         pisteRepository.deleteById(numPiste);
+        entityLookups.pisteChanged(numPiste);
     }
 
     @Override
@@ -38,6 +50,6 @@ public class PisteServicesImpl implements  IPisteServices{
         if (numPiste == null) {
             throw new NullPointerException("Piste ID cannot be null");
         }
-        return pisteRepository.findById(numPiste).orElse(null);
+        return entityLookups.piste(numPiste);
     }
 }
@@ -0,0 +1,167 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.RecurringRevenue;
+import tn.esprit.spring.dto.RevenueAggregate;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running sum and count of the subscription prices per {@link TypeSubscription}, from
+ * which the monthly recurring revenue is derived without querying the subscriptions.
+ * <p>
+ * The aggregates are loaded once the application is ready, updated by the services saving
+ * subscriptions and reconciled nightly with one grouped query, which corrects the changes
+ * made outside of the services. Changes made in a transaction are summed
+ * apart and applied once it commits, so that a rollback leaves the aggregates untouched.
+ * They are kept per node: the subscriptions saved through another node are only counted
+ * from the next reconciliation. The revenue is recomputed on each change, so reading it is
+ * constant time.
+ */
+@Slf4j
+@Component
+public class RecurringRevenueAggregates {
+
+    private static final TypeSubscription[] TYPES = TypeSubscription.values();
+    /** Cents of difference tolerated between the running and the reconciled sums. */
+    private static final double SUM_TOLERANCE = 0.01;
+
+    private final ISubscriptionRepository subscriptionRepository;
+
+    private final double[] sums = new double[TYPES.length];
+    private final long[] counts = new long[TYPES.length];
+    private volatile double monthlyRecurringRevenue;
+
+    private final TransactionDeltas<Deltas> transactionDeltas = TransactionDeltas.afterCommit(Deltas::new, this::apply);
+
+    private final Counter drift;
+
+    public RecurringRevenueAggregates(ISubscriptionRepository subscriptionRepository, MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.drift = Counter.builder("subscription.revenue.drift")
+                .description("Subscription types whose aggregate was corrected by reconciliation").register(meterRegistry);
+        Gauge.builder("subscription.revenue.monthly.recurring", this, RecurringRevenueAggregates::monthlyRecurringRevenue)
+                .description("Monthly recurring revenue of the subscriptions").register(meterRegistry);
+    }
+
+    /** Replaces the aggregates with the ones computed by the database. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${subscription.revenue.reconcile-cron:0 0 2 * * *}")
+    public void reconcile() {
+        double[] actualSums = new double[TYPES.length];
+        long[] actualCounts = new long[TYPES.length];
+        for (RevenueAggregate aggregate : subscriptionRepository.sumPriceGroupByTypeSub()) {
+            int type = aggregate.getTypeSub().ordinal();
+            actualSums[type] = aggregate.getSum() == null ? 0 : aggregate.getSum();
+            actualCounts[type] = aggregate.getCount();
+        }
+        int corrected = 0;
+        synchronized (this) {
+            for (int type = 0; type < TYPES.length; type++) {
+                if (counts[type] != actualCounts[type] || Math.abs(sums[type] - actualSums[type]) > SUM_TOLERANCE) {
+                    corrected++;
+                }
+                sums[type] = actualSums[type];
+                counts[type] = actualCounts[type];
+            }
+            recompute();
+        }
+        if (corrected > 0) {
+            drift.increment(corrected);
+            log.info("Recurring revenue aggregates reconciled, " + corrected + " types corrected");
+        }
+    }
+
+    /**
+     * Accounts for a saved subscription, once the current transaction commits if there is one.
+     *
+     * @param previous the subscription as stored before the save, or {@code null} if it is new
+     */
+    public void subscriptionSaved(Subscription previous, Subscription saved) {
+        Deltas deltas = new Deltas();
+        deltas.add(previous, -1);
+        deltas.add(saved, 1);
+        record(deltas);
+    }
+
+    /** Accounts for a removed subscription, once the current transaction commits if there is one. */
+    public void subscriptionRemoved(Subscription removed) {
+        Deltas deltas = new Deltas();
+        deltas.add(removed, -1);
+        record(deltas);
+    }
+
+    public double monthlyRecurringRevenue() {
+        return monthlyRecurringRevenue;
+    }
+
+    public synchronized RecurringRevenue snapshot() {
+        List<RevenueAggregate> aggregates = new ArrayList<>(TYPES.length);
+        for (TypeSubscription type : TYPES) {
+            aggregates.add(new RevenueAggregate(type, sums[type.ordinal()], counts[type.ordinal()]));
+        }
+        return new RecurringRevenue(monthlyRecurringRevenue, aggregates);
+    }
+
+    private void record(Deltas deltas) {
+        Deltas pending = transactionDeltas.current();
+        if (pending == null) {
+            apply(deltas);
+        } else {
+            pending.add(deltas);
+        }
+    }
+
+    private synchronized void apply(Deltas deltas) {
+        for (int type = 0; type < TYPES.length; type++) {
+            sums[type] += deltas.sums[type];
+            counts[type] += deltas.counts[type];
+        }
+        recompute();
+    }
+
+    private void recompute() {
+        monthlyRecurringRevenue = average(TypeSubscription.MONTHLY)
+                + average(TypeSubscription.SEMESTRIEL) / 6
+                + average(TypeSubscription.ANNUAL) / 12;
+    }
+
+    private double average(TypeSubscription type) {
+        long count = counts[type.ordinal()];
+        return count == 0 ? 0 : sums[type.ordinal()] / count;
+    }
+
+    /** Changes to the sums and counts per type, not applied yet. */
+    private static final class Deltas {
+
+        private final double[] sums = new double[TYPES.length];
+        private final long[] counts = new long[TYPES.length];
+
+        void add(Subscription subscription, int sign) {
+            if (subscription == null || subscription.getTypeSub() == null) {
+                return;
+            }
+            int type = subscription.getTypeSub().ordinal();
+            sums[type] += sign * (subscription.getPrice() == null ? 0 : subscription.getPrice());
+            counts[type] += sign;
+        }
+
+        void add(Deltas other) {
+            for (int type = 0; type < TYPES.length; type++) {
+                sums[type] += other.sums[type];
+                counts[type] += other.counts[type];
+            }
+        }
+    }
+}
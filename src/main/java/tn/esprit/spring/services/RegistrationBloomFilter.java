@@ -0,0 +1,219 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the (week, skier, course) of every registration, letting the single
+ * registration path skip its duplicate count query when the key was definitely never
+ * registered. The filter only saves queries: a registration it has not learned yet is still
+ * rejected as a duplicate by the (skier, course, week) unique constraint.
+ * <p>
+ * The filter is built from the registration rows once the application is ready, fed by
+ * {@link RegistrationAddedEvent} and topped up on a fixed delay from the rows inserted
+ * since its last scan, which covers registrations made through another node. Ids come in
+ * blocks reserved per node, so another node may still insert ids below the highest one
+ * scanned: each scan goes back {@code registration.bloom.refresh-lookback} ids, and a
+ * row below that is only picked up by the nightly rebuild. Removed
+ * registrations cannot be cleared from a Bloom filter; they only cost a database check
+ * until the nightly rebuild. Until the first build completes every key is a possible hit.
+ */
+@Slf4j
+@Component
+public class RegistrationBloomFilter {
+
+    private final IRegistrationRepository registrationRepository;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final long refreshLookback;
+
+    private volatile Bits current;
+    /** Filter being rebuilt, also fed with the registrations added meanwhile. */
+    private volatile Bits next;
+    private long highestNumRegistration;
+
+    private final Counter definiteMisses;
+    private final Counter possibleHits;
+    private final Counter falsePositives;
+
+    public RegistrationBloomFilter(IRegistrationRepository registrationRepository, MeterRegistry meterRegistry,
+                                   @Value("${registration.bloom.expected-insertions:1000000}") long expectedInsertions,
+                                   @Value("${registration.bloom.fpp:0.01}") double falsePositiveProbability,
+                                   @Value("${registration.bloom.refresh-lookback:10000}") long refreshLookback) {
+        this.registrationRepository = registrationRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.refreshLookback = refreshLookback;
+        this.definiteMisses = Counter.builder("registration.bloom.checks").tag("result", "miss")
+                .description("Duplicate checks answered by the filter without a query").register(meterRegistry);
+        this.possibleHits = Counter.builder("registration.bloom.checks").tag("result", "possible")
+                .description("Duplicate checks that fell through to the database").register(meterRegistry);
+        this.falsePositives = Counter.builder("registration.bloom.false.positives")
+                .description("Possible hits the database found not to be duplicates").register(meterRegistry);
+        Gauge.builder("registration.bloom.memory", this, filter -> filter.current == null ? 0 : filter.current.bytes())
+                .baseUnit("bytes").description("Memory held by the filter bits").register(meterRegistry);
+        Gauge.builder("registration.bloom.fpp.expected", this,
+                        filter -> filter.current == null ? 1 : filter.current.expectedFalsePositiveProbability())
+                .description("False positive probability expected from the keys inserted").register(meterRegistry);
+        Gauge.builder("registration.bloom.fpp.observed", this, RegistrationBloomFilter::observedFalsePositiveRate)
+                .description("Share of the non-duplicate checks that fell through to the database").register(meterRegistry);
+    }
+
+    /**
+     * @return {@code false} if the key was definitely never registered, {@code true} if it
+     * may have been and the database must be asked
+     */
+    public boolean mightContain(int numWeek, Long numSkier, Long numCourse) {
+        Bits bits = current;
+        if (bits == null || bits.mightContain(numWeek, numSkier, numCourse)) {
+            possibleHits.increment();
+            return true;
+        }
+        definiteMisses.increment();
+        return false;
+    }
+
+    /** Records that a possible hit was not a duplicate. */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public void put(int numWeek, Long numSkier, Long numCourse) {
+        if (numSkier == null || numCourse == null) {
+            return;
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.put(numWeek, numSkier, numCourse);
+        }
+        Bits rebuilding = next;
+        if (rebuilding != null) {
+            rebuilding.put(numWeek, numSkier, numCourse);
+        }
+    }
+
+    @EventListener
+    public void onRegistrationAdded(RegistrationAddedEvent event) {
+        put(event.getNumWeek(), event.getNumSkier(), event.getNumCourse());
+    }
+
+    /**
+     * Builds a new filter from every registration and swaps it in, sized for at least twice
+     * the registrations found so that the season can grow before the next rebuild.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${registration.bloom.rebuild-cron:0 0 4 * * *}")
+    public synchronized void rebuild() {
+        Bits rebuilding = new Bits(Math.max(expectedInsertions, 2 * registrationRepository.count()),
+                falsePositiveProbability);
+        next = rebuilding;
+        try {
+            highestNumRegistration = registrationRepository.forEachKeyAfter(0, key ->
+                    rebuilding.put(key.getNumWeek(), key.getNumSkier(), key.getNumCourse()));
+            current = rebuilding;
+        } finally {
+            next = null;
+        }
+        log.info("Registration Bloom filter rebuilt with " + rebuilding.inserted() + " keys in "
+                + rebuilding.bytes() / 1024 + " KiB");
+    }
+
+    @Scheduled(fixedDelayString = "${registration.bloom.refresh-ms:30000}",
+            initialDelayString = "${registration.bloom.refresh-ms:30000}")
+    public synchronized void refresh() {
+        Bits bits = current;
+        if (bits != null) {
+            // Keys already in the filter are put again, which leaves it unchanged
+            long highest = registrationRepository.forEachKeyAfter(
+                    Math.max(0, highestNumRegistration - refreshLookback),
+                    key -> bits.put(key.getNumWeek(), key.getNumSkier(), key.getNumCourse()));
+            highestNumRegistration = Math.max(highestNumRegistration, highest);
+        }
+    }
+
+    double observedFalsePositiveRate() {
+        double misses = definiteMisses.count() + falsePositives.count();
+        return misses == 0 ? 0 : falsePositives.count() / misses;
+    }
+
+    /**
+     * Bit array probed at {@code hashes} positions derived from two 64-bit hashes of the key
+     * (Kirsch-Mitzenmacher double hashing).
+     */
+    static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+        private final AtomicLong inserted = new AtomicLong();
+
+        Bits(long expectedInsertions, double falsePositiveProbability) {
+            long n = Math.max(1, expectedInsertions);
+            long bits = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            int wordCount = Math.toIntExact(Math.max(1, (bits + 63) / 64));
+            this.words = new AtomicLongArray(wordCount);
+            this.size = 64L * wordCount;
+            this.hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+        }
+
+        void put(int numWeek, long numSkier, long numCourse) {
+            long h1 = hash(numWeek, numSkier, numCourse);
+            long h2 = mix(h1 ^ 0x5851F42D4C957F2DL) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, size);
+                words.getAndAccumulate((int) (bit >>> 6), 1L << bit, (word, mask) -> word | mask);
+            }
+            inserted.incrementAndGet();
+        }
+
+        boolean mightContain(int numWeek, long numSkier, long numCourse) {
+            long h1 = hash(numWeek, numSkier, numCourse);
+            long h2 = mix(h1 ^ 0x5851F42D4C957F2DL) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long inserted() {
+            return inserted.get();
+        }
+
+        long bytes() {
+            return 8L * words.length();
+        }
+
+        double expectedFalsePositiveProbability() {
+            return Math.pow(1 - Math.exp(-(double) hashes * inserted.get() / size), hashes);
+        }
+
+        private static long hash(int numWeek, long numSkier, long numCourse) {
+            return mix((numSkier * 0x9E3779B97F4A7C15L + numCourse) * 0xC2B2AE3D27D4EB4FL + numWeek);
+        }
+
+        /** Finalizer of MurmurHash3 (fmix64). */
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB93FE5A49B07L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
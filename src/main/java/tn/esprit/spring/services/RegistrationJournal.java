@@ -0,0 +1,462 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tn.esprit.spring.dto.JournalEntry;
+import tn.esprit.spring.dto.JournalEntryType;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.events.RegistrationRejectedEvent;
+import tn.esprit.spring.events.RegistrationRemovedEvent;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of every registration decision taken by this node: registrations
+ * added and removed, and requests turned down as duplicate, by the rules or for lack of seat.
+ * <p>
+ * Entries are fixed 48 byte records numbered by a global offset and written to memory-mapped
+ * segment files named after the offset of their first entry. When the active segment is full
+ * it is forced to disk and a new one is started. Entries reach the page cache on append, so
+ * they survive a crash of the process; the database stays authoritative for anything lost
+ * with the machine. On first start the journal is seeded with the existing registrations, so
+ * that replaying it from offset 0 rebuilds the registration counts without reading the table;
+ * {@link CourseCapacityLedger} does so at startup. Replay checks the checksum of every entry
+ * and fails on a corrupt segment, in which case the ledger reads the database instead. When
+ * the directory cannot be created or opened, the node starts without a journal and says so
+ * in a warning.
+ * <p>
+ * Compaction rewrites the sealed segments without the decisions older than the retention:
+ * rejections, and registrations added then removed. Entries keep their offset, so a
+ * compacted segment simply has gaps. The compacted journal thus serves as the checkpoint
+ * replay starts from: beyond the retention it only holds the registrations still in place.
+ */
+@Slf4j
+@Component
+public class RegistrationJournal {
+
+    static final int RECORD_BYTES = 48;
+
+    private static final String SUFFIX = ".seg";
+
+    // Record layout; a zero type marks the free slots of the active segment
+    private static final int OFFSET = 0;
+    private static final int TIMESTAMP = 8;
+    private static final int REGISTRATION = 16;
+    private static final int SKIER = 24;
+    private static final int COURSE = 32;
+    private static final int WEEK = 40;
+    private static final int TYPE = 42;
+    private static final int CHECKSUM = 44;
+
+    private static final JournalEntryType[] TYPES = JournalEntryType.values();
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final Duration retention;
+
+    private final ConcurrentSkipListMap<Long, Path> sealed = new ConcurrentSkipListMap<>();
+    private final Object compactionLock = new Object();
+
+    private MappedByteBuffer active;
+    private long activeBase;
+    private int activeCapacity;
+    private int position;
+    private volatile long nextOffset;
+
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 checksum = new CRC32();
+
+    private final Counter appended;
+    private final Counter failures;
+
+    public RegistrationJournal(IRegistrationRepository registrationRepository, MeterRegistry meterRegistry,
+                               @Value("${registration.journal.directory:registration-journal}") String directory,
+                               @Value("${registration.journal.segment-records:1048576}") int segmentRecords,
+                               @Value("${registration.journal.retention:30d}") Duration retention) {
+        if (segmentRecords <= 0) {
+            throw new IllegalArgumentException("A journal segment must hold at least one entry");
+        }
+        this.directory = Path.of(directory);
+        this.segmentRecords = segmentRecords;
+        this.retention = retention;
+        this.appended = Counter.builder("registration.journal.entries")
+                .description("Registration decisions appended to the journal").register(meterRegistry);
+        this.failures = Counter.builder("registration.journal.failures")
+                .description("Registration decisions that could not be journaled").register(meterRegistry);
+        Gauge.builder("registration.journal.offset", this, journal -> journal.nextOffset)
+                .description("Offset of the next journal entry").register(meterRegistry);
+        Gauge.builder("registration.journal.segments", this, journal -> journal.segments())
+                .description("Journal segment files, the active one included").register(meterRegistry);
+        try {
+            Files.createDirectories(this.directory);
+            open();
+        } catch (IOException e) {
+            sealed.clear();
+            active = null;
+            log.warn("Registration journal disabled, cannot open " + this.directory.toAbsolutePath() + ": " + e);
+            return;
+        }
+        if (nextOffset == 0) {
+            registrationRepository.forEachKeyAfter(0L, key -> append(JournalEntryType.ADDED,
+                    key.getNumRegistration(), key.getNumSkier(), key.getNumCourse(), key.getNumWeek()));
+            log.info("Registration journal seeded with " + nextOffset + " existing registrations");
+        }
+        log.info("Registration journal opened in " + directory + " at offset " + nextOffset);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationAdded(RegistrationAddedEvent event) {
+        journal(JournalEntryType.ADDED, event.getNumRegistration(), event.getNumSkier(), event.getNumCourse(),
+                event.getNumWeek());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationRemoved(RegistrationRemovedEvent event) {
+        journal(JournalEntryType.REMOVED, event.getNumRegistration(), event.getNumSkier(), event.getNumCourse(),
+                event.getNumWeek());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationRejected(RegistrationRejectedEvent event) {
+        JournalEntryType type = typeOf(event.getOutcome());
+        if (type != null) {
+            journal(type, null, event.getNumSkier(), event.getNumCourse(), event.getNumWeek());
+        }
+    }
+
+    /** @return whether the journal could be opened; decisions are not journaled otherwise */
+    public boolean isEnabled() {
+        return active != null;
+    }
+
+    /** @return whether any entry was ever appended, even if compacted away since */
+    public boolean hasEntries() {
+        return nextOffset > 0;
+    }
+
+    /** Offset the next entry will get. */
+    public long nextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Appends a decision. Unknown identifiers may be {@code null}.
+     *
+     * @return the offset of the entry
+     */
+    public synchronized long append(JournalEntryType type, Long numRegistration, Long numSkier, Long numCourse,
+                                    int numWeek) {
+        if (active == null) {
+            throw new IllegalStateException("The registration journal is disabled");
+        }
+        if (position == activeCapacity) {
+            roll();
+        }
+        long offset = nextOffset;
+        record.putLong(OFFSET, offset)
+                .putLong(TIMESTAMP, System.currentTimeMillis())
+                .putLong(REGISTRATION, numRegistration == null ? 0 : numRegistration)
+                .putLong(SKIER, numSkier == null ? 0 : numSkier)
+                .putLong(COURSE, numCourse == null ? 0 : numCourse)
+                .putShort(WEEK, (short) numWeek)
+                .put(TYPE, (byte) (type.ordinal() + 1))
+                .put(TYPE + 1, (byte) 0);
+        checksum.reset();
+        checksum.update(record.array(), 0, CHECKSUM);
+        record.putInt(CHECKSUM, (int) checksum.getValue());
+        active.put(position * RECORD_BYTES, record.array());
+        position++;
+        nextOffset = offset + 1;
+        appended.increment();
+        return offset;
+    }
+
+    /**
+     * Hands the entries from {@code fromOffset} on to the consumer, in offset order. Entries
+     * appended while replaying are not included.
+     *
+     * @return the offset to replay from next time
+     * @throws IllegalStateException if an entry does not match its checksum
+     */
+    public long replay(long fromOffset, Consumer<JournalEntry> consumer) {
+        NavigableMap<Long, Path> segments;
+        ByteBuffer tail;
+        int tailEntries;
+        long end;
+        synchronized (this) {
+            if (active == null) {
+                return nextOffset;
+            }
+            Long first = sealed.floorKey(fromOffset);
+            segments = new TreeMap<>(first == null ? sealed : sealed.tailMap(first, true));
+            tail = active.duplicate();
+            tailEntries = position;
+            end = nextOffset;
+        }
+        for (Path segment : segments.values()) {
+            ByteBuffer buffer;
+            try {
+                buffer = mapReadOnly(segment);
+            } catch (NoSuchFileException e) {
+                // Emptied by a compaction running meanwhile
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read journal segment " + segment, e);
+            }
+            read(buffer, buffer.capacity() / RECORD_BYTES, fromOffset, consumer);
+        }
+        read(tail, tailEntries, fromOffset, consumer);
+        return end;
+    }
+
+    @Scheduled(cron = "${registration.journal.compact-cron:0 30 3 * * *}")
+    public void compact() {
+        compact(System.currentTimeMillis() - retention.toMillis());
+    }
+
+    /**
+     * Drops from the sealed segments the rejections older than {@code cutoff}, and the
+     * registrations whose removal is older than {@code cutoff} together with that removal.
+     *
+     * @return the number of entries dropped
+     */
+    int compact(long cutoff) {
+        synchronized (compactionLock) {
+            List<Path> segments = new ArrayList<>(sealed.values());
+            Map<Key, Long> added = new HashMap<>();
+            Set<Long> dropped = new HashSet<>();
+            for (Path segment : segments) {
+                ByteBuffer buffer = mapForCompaction(segment);
+                read(buffer, buffer.capacity() / RECORD_BYTES, 0, entry -> {
+                    Key key = new Key(entry.getNumSkier(), entry.getNumCourse(), entry.getNumWeek());
+                    if (entry.getType() == JournalEntryType.ADDED) {
+                        added.put(key, entry.getOffset());
+                    } else if (entry.getType() == JournalEntryType.REMOVED) {
+                        Long addedAt = added.remove(key);
+                        if (addedAt != null && entry.getTimestamp() < cutoff) {
+                            dropped.add(addedAt);
+                            dropped.add(entry.getOffset());
+                        }
+                    } else if (entry.getTimestamp() < cutoff) {
+                        dropped.add(entry.getOffset());
+                    }
+                });
+            }
+            if (dropped.isEmpty()) {
+                return 0;
+            }
+            for (Path segment : segments) {
+                rewrite(segment, dropped);
+            }
+            log.info("Registration journal compacted, " + dropped.size() + " entries dropped");
+            return dropped.size();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    private void journal(JournalEntryType type, Long numRegistration, Long numSkier, Long numCourse, int numWeek) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            append(type, numRegistration, numSkier, numCourse, numWeek);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Registration decision " + type + " of course " + numCourse + " not journaled: " + e.getMessage());
+        }
+    }
+
+    private int segments() {
+        return active == null ? 0 : sealed.size() + 1;
+    }
+
+    private void open() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(file -> sealed.put(baseOf(file), file));
+        }
+        Map.Entry<Long, Path> last = sealed.pollLastEntry();
+        long base = last == null ? 0 : last.getKey();
+        map(base);
+        // Stop at the first free slot or torn entry, which the next append overwrites
+        while (position < activeCapacity && valid(active, position)) {
+            position++;
+        }
+        nextOffset = position == 0 ? base : active.getLong((position - 1) * RECORD_BYTES + OFFSET) + 1;
+    }
+
+    private void roll() {
+        active.force();
+        sealed.put(activeBase, segment(activeBase));
+        try {
+            map(nextOffset);
+        } catch (IOException e) {
+            sealed.remove(activeBase);
+            throw new UncheckedIOException("Cannot start journal segment " + nextOffset, e);
+        }
+        log.info("Registration journal rolled to segment " + activeBase);
+    }
+
+    private void map(long base) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment(base), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = Math.max(channel.size(), (long) segmentRecords * RECORD_BYTES);
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            activeBase = base;
+            activeCapacity = (int) (size / RECORD_BYTES);
+            position = 0;
+        }
+    }
+
+    private void rewrite(Path segment, Set<Long> dropped) {
+        ByteBuffer buffer = mapForCompaction(segment);
+        int entries = buffer.capacity() / RECORD_BYTES;
+        ByteBuffer kept = ByteBuffer.allocate(buffer.capacity());
+        for (int i = 0; i < entries; i++) {
+            if (!dropped.contains(buffer.getLong(i * RECORD_BYTES + OFFSET))) {
+                kept.put(buffer.slice(i * RECORD_BYTES, RECORD_BYTES));
+            }
+        }
+        if (kept.position() == buffer.capacity()) {
+            return;
+        }
+        try {
+            if (kept.position() == 0) {
+                sealed.values().remove(segment);
+                Files.delete(segment);
+                return;
+            }
+            Path compacted = segment.resolveSibling(segment.getFileName() + ".compact");
+            try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                kept.flip();
+                while (kept.hasRemaining()) {
+                    channel.write(kept);
+                }
+                channel.force(true);
+            }
+            Files.move(compacted, segment, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact journal segment " + segment, e);
+        }
+    }
+
+    private ByteBuffer mapForCompaction(Path segment) {
+        try {
+            return mapReadOnly(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal segment " + segment, e);
+        }
+    }
+
+    private static ByteBuffer mapReadOnly(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void read(ByteBuffer buffer, int entries, long fromOffset, Consumer<JournalEntry> consumer) {
+        CRC32 crc = new CRC32();
+        byte[] entry = new byte[CHECKSUM];
+        // Offsets grow within a segment, with gaps once compacted
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(middle * RECORD_BYTES + OFFSET) < fromOffset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        for (int i = low; i < entries; i++) {
+            int at = i * RECORD_BYTES;
+            buffer.get(at, entry);
+            crc.reset();
+            crc.update(entry);
+            int type = buffer.get(at + TYPE);
+            if (type <= 0 || type > TYPES.length || (int) crc.getValue() != buffer.getInt(at + CHECKSUM)) {
+                throw new IllegalStateException("Corrupt journal entry at offset " + buffer.getLong(at + OFFSET));
+            }
+            consumer.accept(new JournalEntry(buffer.getLong(at + OFFSET), buffer.getLong(at + TIMESTAMP),
+                    TYPES[buffer.get(at + TYPE) - 1], buffer.getLong(at + REGISTRATION), buffer.getLong(at + SKIER),
+                    buffer.getLong(at + COURSE), buffer.getShort(at + WEEK)));
+        }
+    }
+
+    private boolean valid(ByteBuffer buffer, int index) {
+        int at = index * RECORD_BYTES;
+        int type = buffer.get(at + TYPE);
+        if (type <= 0 || type > TYPES.length) {
+            return false;
+        }
+        buffer.get(at, record.array());
+        checksum.reset();
+        checksum.update(record.array(), 0, CHECKSUM);
+        return (int) checksum.getValue() == record.getInt(CHECKSUM);
+    }
+
+    private Path segment(long base) {
+        return directory.resolve(String.format("%020d", base) + SUFFIX);
+    }
+
+    private static long baseOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static JournalEntryType typeOf(RegistrationOutcome outcome) {
+        switch (outcome) {
+            case DUPLICATE:
+                return JournalEntryType.DUPLICATE;
+            case REJECTED_AGE:
+                return JournalEntryType.REJECTED_AGE;
+            case REJECTED_SUPPORT:
+                return JournalEntryType.REJECTED_SUPPORT;
+            case FULL:
+                return JournalEntryType.FULL;
+            default:
+                return null;
+        }
+    }
+
+    private record Key(long numSkier, long numCourse, int numWeek) {
+    }
+}
@@ -0,0 +1,121 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.dto.RegistrationRule;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Age, support and capacity rules of the registrations, read from the rule table at
+ * {@code registration.rules.location} and compiled into {@link RegistrationRules}.
+ * <p>
+ * The table is checked again on a fixed delay and recompiled when its content changed, so
+ * rules can be edited without a restart when the location is a {@code file:} one; a table
+ * on the classpath only changes with the deployment. An invalid table fails the startup,
+ * whereas an invalid edit is logged and counted while the current rules stay in force.
+ */
+@Slf4j
+@Component
+public class RegistrationRuleEngine {
+
+    private static final TypeReference<List<RegistrationRule>> RULES = new TypeReference<>() {
+    };
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final String location;
+    private final Counter reloadFailures;
+
+    private volatile RegistrationRules rules;
+
+    public RegistrationRuleEngine(ResourceLoader resourceLoader, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                  @Value("${registration.rules.location:classpath:registration-rules.json}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.location = location;
+        this.reloadFailures = Counter.builder("registration.rules.reload.failures")
+                .description("Rule table edits rejected because they could not be read or compiled").register(meterRegistry);
+        this.rules = load(read());
+        log.info("Registration rules " + rules.version() + " loaded from " + location);
+    }
+
+    /** Recompiles the rule table if its content changed since the last load. */
+    @Scheduled(fixedDelayString = "${registration.rules.reload-ms:30000}")
+    public void reload() {
+        try {
+            byte[] content = read();
+            if (version(content).equals(rules.version())) {
+                return;
+            }
+            rules = load(content);
+            log.info("Registration rules " + rules.version() + " reloaded from " + location);
+        } catch (RuntimeException e) {
+            reloadFailures.increment();
+            log.warn("Registration rules kept at " + rules.version() + ", " + location + " is invalid: " + e.getMessage());
+        }
+    }
+
+    public RegistrationOutcome check(TypeCourse typeCourse, Support support, int age) {
+        return rules.check(typeCourse, support, age);
+    }
+
+    /** @return seats of a week of a course of this type, or {@link RegistrationRules#UNLIMITED} */
+    public int capacity(TypeCourse typeCourse) {
+        return rules.capacity(typeCourse);
+    }
+
+    /** The rules in force, for callers evaluating several registrations against the same table. */
+    public RegistrationRules rules() {
+        return rules;
+    }
+
+    public String version() {
+        return rules.version();
+    }
+
+    private byte[] read() {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read registration rules from " + location, e);
+        }
+    }
+
+    private RegistrationRules load(byte[] content) {
+        List<RegistrationRule> rows;
+        try {
+            rows = objectMapper.readValue(content, RULES);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot parse registration rules: " + e.getMessage(), e);
+        }
+        return RegistrationRules.compile(rows, version(content));
+    }
+
+    private static String version(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package tn.esprit.spring.services;
+
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.dto.RegistrationRule;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+
+import java.util.Collection;
+
+/**
+ * Registration rule table compiled into flat arrays indexed by {@link TypeCourse} ordinal.
+ * <p>
+ * Instances are immutable and shared between threads; a reload compiles a new instance and
+ * swaps it in. Checking a registration only reads the arrays and returns an enum constant,
+ * so it allocates nothing.
+ */
+public final class RegistrationRules {
+
+    /** Capacity of the courses that are not seat-limited. */
+    public static final int UNLIMITED = 0;
+    /** Largest capacity, so that remaining seats fit the one byte per week of the availability matrix. */
+    static final int MAX_CAPACITY = Byte.MAX_VALUE;
+
+    private static final TypeCourse[] TYPES = TypeCourse.values();
+
+    private final int[] minAge;
+    private final int[] maxAge;
+    private final int[] capacity;
+    private final int[] supportMask;
+    private final String version;
+
+    private RegistrationRules(int[] minAge, int[] maxAge, int[] capacity, int[] supportMask, String version) {
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.capacity = capacity;
+        this.supportMask = supportMask;
+        this.version = version;
+    }
+
+    /**
+     * Compiles the rule rows, one per type of course.
+     *
+     * @throws IllegalArgumentException if a type is missing or defined twice, or a row is inconsistent
+     */
+    public static RegistrationRules compile(Collection<RegistrationRule> rules, String version) {
+        if (rules == null) {
+            throw new NullPointerException("Registration rules cannot be null");
+        }
+        int[] minAge = new int[TYPES.length];
+        int[] maxAge = new int[TYPES.length];
+        int[] capacity = new int[TYPES.length];
+        int[] supportMask = new int[TYPES.length];
+        boolean[] defined = new boolean[TYPES.length];
+        for (RegistrationRule rule : rules) {
+            if (rule == null || rule.getTypeCourse() == null) {
+                throw new IllegalArgumentException("Every registration rule needs a type of course");
+            }
+            int type = rule.getTypeCourse().ordinal();
+            if (defined[type]) {
+                throw new IllegalArgumentException("Registration rule defined twice for " + rule.getTypeCourse());
+            }
+            defined[type] = true;
+            minAge[type] = rule.getMinAge() == null ? 0 : rule.getMinAge();
+            maxAge[type] = rule.getMaxAge() == null ? Integer.MAX_VALUE : rule.getMaxAge();
+            capacity[type] = rule.getCapacity() == null ? UNLIMITED : rule.getCapacity();
+            if (minAge[type] < 0 || minAge[type] > maxAge[type]) {
+                throw new IllegalArgumentException("Invalid age bounds for " + rule.getTypeCourse());
+            }
+            if (capacity[type] < 0 || capacity[type] > MAX_CAPACITY) {
+                throw new IllegalArgumentException("Invalid capacity for " + rule.getTypeCourse());
+            }
+            if (rule.getSupports() == null || rule.getSupports().isEmpty()) {
+                throw new IllegalArgumentException("No support allowed for " + rule.getTypeCourse());
+            }
+            for (Support support : rule.getSupports()) {
+                supportMask[type] |= 1 << support.ordinal();
+            }
+        }
+        for (TypeCourse type : TYPES) {
+            if (!defined[type.ordinal()]) {
+                throw new IllegalArgumentException("No registration rule for " + type);
+            }
+        }
+        return new RegistrationRules(minAge, maxAge, capacity, supportMask, version);
+    }
+
+    /**
+     * @return {@link RegistrationOutcome#ACCEPTED}, {@link RegistrationOutcome#REJECTED_AGE}
+     * or {@link RegistrationOutcome#REJECTED_SUPPORT}; a course without support passes
+     */
+    public RegistrationOutcome check(TypeCourse typeCourse, Support support, int age) {
+        int type = typeCourse.ordinal();
+        if (age < minAge[type] || age > maxAge[type]) {
+            return RegistrationOutcome.REJECTED_AGE;
+        }
+        if (support != null && (supportMask[type] & (1 << support.ordinal())) == 0) {
+            return RegistrationOutcome.REJECTED_SUPPORT;
+        }
+        return RegistrationOutcome.ACCEPTED;
+    }
+
+    /** @return seats of a week of a course of this type, or {@link #UNLIMITED} */
+    public int capacity(TypeCourse typeCourse) {
+        return capacity[typeCourse.ordinal()];
+    }
+
+    public String version() {
+        return version;
+    }
+}
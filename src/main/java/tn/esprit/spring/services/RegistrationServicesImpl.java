@@ -2,24 +2,52 @@ package tn.esprit.spring.services;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import tn.esprit.spring.dto.BulkRegistrationItem;
+import tn.esprit.spring.dto.BulkRegistrationResult;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.dto.RegistrationKey;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.dto.TakenSeat;
 import tn.esprit.spring.entities.*;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.events.RegistrationRejectedEvent;
+import tn.esprit.spring.events.RegistrationRemovedEvent;
 import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorWeekRepository;
 import tn.esprit.spring.repositories.IRegistrationRepository;
 import tn.esprit.spring.repositories.ISkierRepository;
 
 import jakarta.transaction.Transactional;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 @Slf4j
 @AllArgsConstructor
 @Service
 public class RegistrationServicesImpl implements  IRegistrationServices{
 
+    private static final int MAX_BULK_ITEMS = 1000;
+
     private IRegistrationRepository registrationRepository;
     private ISkierRepository skierRepository;
     private ICourseRepository courseRepository;
+    private CourseCapacityLedger capacityLedger;
+    private RegistrationBloomFilter registrationFilter;
+    private RegistrationRuleEngine registrationRules;
+    private IInstructorWeekRepository instructorWeekRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private EntityLookups entityLookups;
 
 
     @Override
@@ -32,6 +60,7 @@ public class RegistrationServicesImpl implements  IRegistrationServices{
         return registrationRepository.save(registration);
     }
 
+    @Transactional
     @Override
     public Registration assignRegistrationToCourse(Long numRegistration, Long numCourse) {
         if (numRegistration == null || numCourse == null) {
@@ -42,8 +71,95 @@ public class RegistrationServicesImpl implements  IRegistrationServices{
             throw new NullPointerException("Registration not found");
         }
         Course course = courseRepository.findById(numCourse).orElse(null);
+        Course previous = registration.getCourse();
+        if (course != null && previous != null && previous.getNumCourse().equals(course.getNumCourse())) {
+            // Already in this course for its week: keeps its seat, no second one is taken
+            return registration;
+        }
+        if (course != null && registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(
+                        registration.getNumWeek(), skierOf(registration), course.getNumCourse()) >= 1) {
+            return rejectDuplicate(skierOf(registration), course.getNumCourse(), registration.getNumWeek());
+        }
+        Integer seat = null;
+        int capacity = course == null ? RegistrationRules.UNLIMITED : registrationRules.rules().capacity(course.getTypeCourse());
+        if (capacity != RegistrationRules.UNLIMITED) {
+            // Same guarded seat as a new registration, so the move cannot overfill the course
+            if (!capacityLedger.tryAcquire(course.getNumCourse(), registration.getNumWeek(), capacity)) {
+                return rejectFull(registration, course);
+            }
+            try {
+                seat = registrationRepository.moveIntoFreeSeat(numRegistration, course.getNumCourse(),
+                        registration.getNumWeek(), capacity);
+            } catch (DuplicateKeyException e) {
+                capacityLedger.release(course.getNumCourse(), registration.getNumWeek());
+                return rejectDuplicate(skierOf(registration), course.getNumCourse(), registration.getNumWeek());
+            } catch (RuntimeException e) {
+                capacityLedger.release(course.getNumCourse(), registration.getNumWeek());
+                throw e;
+            }
+            if (seat == null) {
+                capacityLedger.release(course.getNumCourse(), registration.getNumWeek());
+                return rejectFull(registration, course);
+            }
+        }
         registration.setCourse(course);
-        return registrationRepository.save(registration);
+        registration.setSeat(seat);
+        Registration saved = registrationRepository.save(registration);
+        if (previous != null) {
+            capacityLedger.release(previous.getNumCourse(), registration.getNumWeek());
+            eventPublisher.publishEvent(new RegistrationRemovedEvent(numRegistration, skierOf(registration),
+                    previous.getNumCourse(), registration.getNumWeek()));
+        }
+        if (course != null) {
+            publishAdded(numRegistration, registration);
+        }
+        return saved;
+    }
+
+    private Registration rejectFull(Registration registration, Course course) {
+        log.info("Full Course ! Please choose another week to register !");
+        publishRejected(skierOf(registration), course.getNumCourse(), registration.getNumWeek(), RegistrationOutcome.FULL);
+        return null;
+    }
+
+    private Registration rejectDuplicate(Long numSkier, Long numCourse, int numWeek) {
+        log.info("Sorry, you're already register to this course of the week :" + numWeek);
+        publishRejected(numSkier, numCourse, numWeek, RegistrationOutcome.DUPLICATE);
+        return null;
+    }
+
+    @Transactional
+    @Override
+    public void removeRegistration(Long numRegistration) {
+        if (numRegistration == null) {
+            throw new NullPointerException("Registration ID cannot be null");
+        }
+        Registration registration = registrationRepository.findById(numRegistration).orElse(null);
+        if (registration == null) {
+            throw new NullPointerException("Registration not found");
+        }
+        registrationRepository.delete(registration);
+        Course course = registration.getCourse();
+        if (course != null) {
+            capacityLedger.release(course.getNumCourse(), registration.getNumWeek());
+            eventPublisher.publishEvent(new RegistrationRemovedEvent(numRegistration, skierOf(registration),
+                    course.getNumCourse(), registration.getNumWeek()));
+        }
+        log.info("Registration " + numRegistration + " removed");
+    }
+
+    @Override
+    public long exportRegistrations(OutputStream out, ExportFormat format) {
+        if (out == null || format == null) {
+            throw new NullPointerException("Export stream and format cannot be null");
+        }
+        long began = System.nanoTime();
+        ExportWriter writer = new ExportWriter(out, format, IRegistrationRepository.EXPORT_COLUMNS);
+        registrationRepository.exportAll(writer);
+        long rows = writer.finish();
+        log.info("Registration export: " + rows + " registrations written as " + format + " in "
+                + (System.nanoTime() - began) / 1_000_000 + " ms");
+        return rows;
     }
 
     @Transactional
@@ -52,62 +168,267 @@ public class RegistrationServicesImpl implements  IRegistrationServices{
         if (registration == null || numSkieur == null || numCours == null) {
             throw new NullPointerException("Registration, skier ID, and course ID cannot be null");
         }
-        Skier skier = skierRepository.findById(numSkieur).orElse(null);
-        Course course = courseRepository.findById(numCours).orElse(null);
+        Skier skier = entityLookups.skier(numSkieur);
+        Course course = entityLookups.course(numCours);
 
         if (skier == null || course == null) {
             return null;
         }
 
-        if(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(registration.getNumWeek(), skier.getNumSkier(), course.getNumCourse()) >=1){
-            log.info("Sorry, you're already register to this course of the week :" + registration.getNumWeek());
-            return null;
+        // A definite miss skips the query. A registration the filter has not learned yet, such as
+        // one made through another node since its last refresh, is rejected by the unique
+        // (skier, course, week) constraint when the registration is written.
+        if (registrationFilter.mightContain(registration.getNumWeek(), skier.getNumSkier(), course.getNumCourse())) {
+            if(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(registration.getNumWeek(), skier.getNumSkier(), course.getNumCourse()) >=1){
+                return rejectDuplicate(skier.getNumSkier(), course.getNumCourse(), registration.getNumWeek());
+            }
+            registrationFilter.recordFalsePositive();
         }
 
         int ageSkieur = Period.between(skier.getDateOfBirth(), LocalDate.now()).getYears();
         log.info("Age " + ageSkieur);
 
-        switch (course.getTypeCourse()) {
-            case INDIVIDUAL:
-                log.info("add without tests");
-                return assignRegistration(registration, skier, course);
-
-            case COLLECTIVE_CHILDREN:
-                if (ageSkieur < 16) {
-                    log.info("Ok CHILD !");
-                    if (registrationRepository.countByCourseAndNumWeek(course, registration.getNumWeek()) < 6) {
-                        log.info("Course successfully added !");
-                        return assignRegistration(registration, skier, course);
-                    } else {
-                        log.info("Full Course ! Please choose another week to register !");
-                        return null;
-                    }
-                }
-                else{
-                    log.info("Sorry, your age doesn't allow you to register for this course ! \n Try to Register to a Collective Adult Course...");
-                }
-                break;
-
-            default:
-                if (ageSkieur >= 16) {
-                    log.info("Ok ADULT !");
-                    if (registrationRepository.countByCourseAndNumWeek(course, registration.getNumWeek()) < 6) {
-                        log.info("Course successfully added !");
-                        return assignRegistration(registration, skier, course);
-                    } else {
-                        log.info("Full Course ! Please choose another week to register !");
-                        return null;
-                    }
-                }
-                log.info("Sorry, your age doesn't allow you to register for this course ! \n Try to Register to a Collective Child Course...");
+        RegistrationRules rules = registrationRules.rules();
+        RegistrationOutcome outcome = rules.check(course.getTypeCourse(), course.getSupport(), ageSkieur);
+        if (outcome != RegistrationOutcome.ACCEPTED) {
+            log.info("Sorry, the rules of " + course.getTypeCourse() + " courses don't allow you to register : " + outcome);
+            publishRejected(skier.getNumSkier(), course.getNumCourse(), registration.getNumWeek(), outcome);
+            return registration;
         }
-        return registration;
+        int capacity = rules.capacity(course.getTypeCourse());
+        if (capacity == RegistrationRules.UNLIMITED) {
+            log.info("add without seat limit");
+            return assignRegistration(registration, skier, course);
+        }
+        return assignCollectiveRegistration(registration, skier, course, capacity);
 
     }
+    private Registration assignCollectiveRegistration(Registration registration, Skier skier, Course course, int capacity) {
+        if (!capacityLedger.tryAcquire(course.getNumCourse(), registration.getNumWeek(), capacity)) {
+            log.info("Full Course ! Please choose another week to register !");
+            publishRejected(skier.getNumSkier(), course.getNumCourse(), registration.getNumWeek(), RegistrationOutcome.FULL);
+            return null;
+        }
+        Long numRegistration;
+        try {
+            numRegistration = registrationRepository.insertIntoFreeSeat(registration.getNumWeek(),
+                    skier.getNumSkier(), course.getNumCourse(), capacity);
+        } catch (DuplicateKeyException e) {
+            capacityLedger.release(course.getNumCourse(), registration.getNumWeek());
+            return rejectDuplicate(skier.getNumSkier(), course.getNumCourse(), registration.getNumWeek());
+        } catch (RuntimeException e) {
+            capacityLedger.release(course.getNumCourse(), registration.getNumWeek());
+            throw e;
+        }
+        if (numRegistration == null) {
+            // Seats were taken through another node: the ledger catches up on its next reconciliation
+            log.info("Full Course ! Please choose another week to register !");
+            publishRejected(skier.getNumSkier(), course.getNumCourse(), registration.getNumWeek(), RegistrationOutcome.FULL);
+            return null;
+        }
+        log.info("Course successfully added !");
+        registration.setNumRegistration(numRegistration);
+        registration.setSkier(skier);
+        registration.setCourse(course);
+        publishAdded(numRegistration, registration);
+        return registration;
+    }
+
     private Registration assignRegistration (Registration registration, Skier skier, Course course){
         registration.setSkier(skier);
         registration.setCourse(course);
-        return registrationRepository.save(registration);
+        if (!registrationRepository.insertAll(List.of(registration))[0]) {
+            return rejectDuplicate(skier.getNumSkier(), course.getNumCourse(), registration.getNumWeek());
+        }
+        publishAdded(registration.getNumRegistration(), registration);
+        return registration;
+    }
+
+    private void publishAdded(Long numRegistration, Registration registration) {
+        eventPublisher.publishEvent(new RegistrationAddedEvent(numRegistration, skierOf(registration),
+                registration.getCourse().getNumCourse(), registration.getNumWeek()));
+    }
+
+    private void publishRejected(Long numSkier, Long numCourse, int numWeek, RegistrationOutcome outcome) {
+        eventPublisher.publishEvent(new RegistrationRejectedEvent(numSkier, numCourse, numWeek, outcome));
+    }
+
+    private static Long skierOf(Registration registration) {
+        return registration.getSkier() == null ? null : registration.getSkier().getNumSkier();
+    }
+
+    @Transactional
+    @Override
+    public List<BulkRegistrationResult> addRegistrationsInBulk(List<BulkRegistrationItem> items) {
+        if (items == null) {
+            throw new NullPointerException("Registration items cannot be null");
+        }
+        if (items.size() > MAX_BULK_ITEMS) {
+            throw new IllegalArgumentException("A bulk registration cannot contain more than " + MAX_BULK_ITEMS + " items");
+        }
+        Set<Long> skierIds = new HashSet<>();
+        Set<Long> courseIds = new HashSet<>();
+        Set<Integer> weeks = new HashSet<>();
+        for (BulkRegistrationItem item : items) {
+            if (item.getNumSkier() != null && item.getNumCourse() != null) {
+                skierIds.add(item.getNumSkier());
+                courseIds.add(item.getNumCourse());
+                weeks.add(item.getNumWeek());
+            }
+        }
+
+        Map<Long, Skier> skiers = new HashMap<>();
+        skierRepository.findAllById(skierIds).forEach(skier -> skiers.put(skier.getNumSkier(), skier));
+        RegistrationRules rules = registrationRules.rules();
+        Map<Long, Course> courses = new HashMap<>();
+        Set<Long> collectiveCourseIds = new HashSet<>();
+        courseRepository.findAllById(courseIds).forEach(course -> {
+            courses.put(course.getNumCourse(), course);
+            if (rules.capacity(course.getTypeCourse()) != RegistrationRules.UNLIMITED) {
+                collectiveCourseIds.add(course.getNumCourse());
+            }
+        });
+        Set<Key> registered = new HashSet<>();
+        if (!skiers.isEmpty() && !courses.isEmpty()) {
+            for (RegistrationKey key : registrationRepository.findKeysBySkiersAndCourses(skiers.keySet(), courses.keySet())) {
+                registered.add(new Key(key.getNumSkier(), key.getNumCourse(), key.getNumWeek()));
+            }
+        }
+        Map<Long, Map<Integer, BitSet>> takenSeats = new HashMap<>();
+        Map<Key, Integer> unseated = new HashMap<>();
+        if (!collectiveCourseIds.isEmpty()) {
+            for (TakenSeat taken : registrationRepository.findTakenSeatsByCoursesAndWeeks(collectiveCourseIds, weeks)) {
+                if (taken.getSeat() == null) {
+                    unseated.merge(new Key(null, taken.getNumCourse(), taken.getNumWeek()), 1, Integer::sum);
+                } else {
+                    seatsOf(takenSeats, taken.getNumCourse(), taken.getNumWeek()).set(taken.getSeat());
+                }
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        List<BulkRegistrationResult> results = new ArrayList<>(items.size());
+        List<Registration> accepted = new ArrayList<>();
+        List<BulkRegistrationResult> acceptedResults = new ArrayList<>();
+        for (BulkRegistrationItem item : items) {
+            BulkRegistrationResult result = new BulkRegistrationResult(item.getNumSkier(), item.getNumCourse(),
+                    item.getNumWeek(), RegistrationOutcome.ACCEPTED, null);
+            results.add(result);
+            Skier skier = skiers.get(item.getNumSkier());
+            Course course = courses.get(item.getNumCourse());
+            if (skier == null || course == null) {
+                result.setOutcome(RegistrationOutcome.NOT_FOUND);
+                continue;
+            }
+            Key key = new Key(skier.getNumSkier(), course.getNumCourse(), item.getNumWeek());
+            if (registered.contains(key)) {
+                result.setOutcome(RegistrationOutcome.DUPLICATE);
+                publishRejected(skier.getNumSkier(), course.getNumCourse(), item.getNumWeek(), RegistrationOutcome.DUPLICATE);
+                continue;
+            }
+            RegistrationOutcome outcome = rules.check(course.getTypeCourse(), course.getSupport(),
+                    Period.between(skier.getDateOfBirth(), today).getYears());
+            if (outcome != RegistrationOutcome.ACCEPTED) {
+                result.setOutcome(outcome);
+                publishRejected(skier.getNumSkier(), course.getNumCourse(), item.getNumWeek(), outcome);
+                continue;
+            }
+            Integer seat = null;
+            int capacity = rules.capacity(course.getTypeCourse());
+            if (capacity != RegistrationRules.UNLIMITED) {
+                BitSet seats = seatsOf(takenSeats, course.getNumCourse(), item.getNumWeek());
+                int free = seats.nextClearBit(1);
+                // Registrations without a seat fill the course as much as numbered ones
+                int seatsLeft = capacity - unseated.getOrDefault(new Key(null, course.getNumCourse(), item.getNumWeek()), 0);
+                if (free > seatsLeft
+                        || !capacityLedger.tryAcquire(course.getNumCourse(), item.getNumWeek(), capacity)) {
+                    result.setOutcome(RegistrationOutcome.FULL);
+                    publishRejected(skier.getNumSkier(), course.getNumCourse(), item.getNumWeek(), RegistrationOutcome.FULL);
+                    continue;
+                }
+                seats.set(free);
+                seat = free;
+            }
+            registered.add(key);
+            accepted.add(new Registration(null, item.getNumWeek(), seat, skier, course));
+            acceptedResults.add(result);
+        }
+
+        int added = 0;
+        try {
+            boolean[] inserted = registrationRepository.insertAll(accepted);
+            for (int i = 0; i < accepted.size(); i++) {
+                if (inserted[i] || insertConflicting(accepted.get(i), rules, acceptedResults.get(i))) {
+                    added++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // The transaction rolls back: give back the seats of the rows still accepted
+            for (int i = 0; i < accepted.size(); i++) {
+                Registration registration = accepted.get(i);
+                if (registration.getSeat() != null && acceptedResults.get(i).getOutcome() == RegistrationOutcome.ACCEPTED) {
+                    capacityLedger.release(registration.getCourse().getNumCourse(), registration.getNumWeek());
+                }
+            }
+            throw e;
+        }
+        for (int i = 0; i < accepted.size(); i++) {
+            if (acceptedResults.get(i).getOutcome() == RegistrationOutcome.ACCEPTED) {
+                acceptedResults.get(i).setNumRegistration(accepted.get(i).getNumRegistration());
+                publishAdded(accepted.get(i).getNumRegistration(), accepted.get(i));
+            }
+        }
+        log.info("Bulk registration: " + added + " of " + items.size() + " accepted");
+        return results;
+    }
+
+    /**
+     * Inserts on its own a registration the batch left out because a concurrent write took
+     * its seat: into the next free seat, or else rejects it as FULL and releases its ledger
+     * seat. A registration of the skier to the course for the week written concurrently
+     * rejects it as DUPLICATE.
+     *
+     * @return whether the registration was inserted
+     */
+    private boolean insertConflicting(Registration registration, RegistrationRules rules, BulkRegistrationResult result) {
+        Long numSkier = registration.getSkier().getNumSkier();
+        Long numCourse = registration.getCourse().getNumCourse();
+        int numWeek = registration.getNumWeek();
+        if (registration.getSeat() == null) {
+            // Left out with the rest of a failed multi-row statement
+            if (registrationRepository.insertAll(List.of(registration))[0]) {
+                return true;
+            }
+            result.setOutcome(RegistrationOutcome.DUPLICATE);
+            publishRejected(numSkier, numCourse, numWeek, RegistrationOutcome.DUPLICATE);
+            return false;
+        }
+        Long numRegistration;
+        try {
+            numRegistration = registrationRepository.insertIntoFreeSeat(numWeek, numSkier, numCourse,
+                    rules.capacity(registration.getCourse().getTypeCourse()));
+        } catch (DuplicateKeyException e) {
+            capacityLedger.release(numCourse, numWeek);
+            result.setOutcome(RegistrationOutcome.DUPLICATE);
+            publishRejected(numSkier, numCourse, numWeek, RegistrationOutcome.DUPLICATE);
+            return false;
+        }
+        if (numRegistration == null) {
+            capacityLedger.release(numCourse, numWeek);
+            result.setOutcome(RegistrationOutcome.FULL);
+            publishRejected(numSkier, numCourse, numWeek, RegistrationOutcome.FULL);
+            return false;
+        }
+        registration.setNumRegistration(numRegistration);
+        return true;
+    }
+
+    private static BitSet seatsOf(Map<Long, Map<Integer, BitSet>> takenSeats, Long numCourse, int numWeek) {
+        return takenSeats.computeIfAbsent(numCourse, c -> new HashMap<>())
+                .computeIfAbsent(numWeek, w -> new BitSet());
+    }
+
+    private record Key(Long numSkier, Long numCourse, int numWeek) {
     }
 
     @Override
@@ -115,7 +436,12 @@ public class RegistrationServicesImpl implements  IRegistrationServices{
         if (numInstructor == null || support == null) {
             throw new NullPointerException("Instructor ID and support cannot be null");
         }
-        return registrationRepository.numWeeksCourseOfInstructorBySupport(numInstructor, support);
+        // One entry per registration, as the join over the registrations returns
+        List<Integer> weeks = new ArrayList<>();
+        for (InstructorWeek week : instructorWeekRepository.findByInstructorAndSupport(numInstructor, support)) {
+            weeks.addAll(Collections.nCopies((int) week.getRegistrations(), week.getNumWeek()));
+        }
+        return weeks;
     }
 
 }
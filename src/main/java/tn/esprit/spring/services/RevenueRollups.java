@@ -0,0 +1,186 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.RevenueGranularity;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.entities.RevenueRollup;
+import tn.esprit.spring.entities.RevenueRollupChange;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.IRevenueRollupChangeRepository;
+import tn.esprit.spring.repositories.IRevenueRollupRepository;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Daily revenue per {@link TypeSubscription}, booked on the start date of the
+ * subscriptions, from which revenue by day, week or month is read without scanning the
+ * subscriptions.
+ * <p>
+ * Every write to a subscription records its start day, old and new, in the
+ * {@code revenue_rollup_change} table within the same transaction. The rollup job only
+ * recomputes those days, with one grouped query per chunk of changes. Reads overlay the
+ * days whose changes are still pending with their raw aggregate, so the series always
+ * matches an aggregation of the subscriptions themselves.
+ */
+@Slf4j
+@Component
+public class RevenueRollups {
+
+    private final ISubscriptionRepository subscriptionRepository;
+    private final IRevenueRollupRepository rollupRepository;
+    private final IRevenueRollupChangeRepository changeRepository;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final Duration lease;
+
+    public RevenueRollups(ISubscriptionRepository subscriptionRepository, IRevenueRollupRepository rollupRepository,
+                          IRevenueRollupChangeRepository changeRepository, MeterRegistry meterRegistry,
+                          @Value("${subscription.revenue.rollup-chunk:1000}") int chunkSize,
+                          @Value("${subscription.revenue.rollup-lease:60s}") Duration lease) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Rollup chunk size must be positive");
+        }
+        this.subscriptionRepository = subscriptionRepository;
+        this.rollupRepository = rollupRepository;
+        this.changeRepository = changeRepository;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.lease = lease;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /** Lease the rollup job takes for each chunk, at least its period so that runs never overlap. */
+    public Duration lease() {
+        return lease;
+    }
+
+    /** Marks the start days of a subscription before and after a write as stale. */
+    public void subscriptionChanged(Subscription previous, Subscription current) {
+        LocalDate before = previous == null ? null : previous.getStartDate();
+        LocalDate after = current == null ? null : current.getStartDate();
+        if (before != null) {
+            changeRepository.save(new RevenueRollupChange(null, before));
+        }
+        if (after != null && !after.equals(before)) {
+            changeRepository.save(new RevenueRollupChange(null, after));
+        }
+    }
+
+    /** Marks the given start days as stale, for writes made in bulk outside the entities. */
+    public void daysChanged(Collection<LocalDate> days) {
+        List<RevenueRollupChange> changes = new ArrayList<>(days.size());
+        for (LocalDate day : days) {
+            changes.add(new RevenueRollupChange(null, day));
+        }
+        changeRepository.saveAll(changes);
+    }
+
+    /**
+     * Marks every day with subscriptions as stale when the rollups were never built, so
+     * that the first runs of the job fill them.
+     */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public int backfill() {
+        if (rollupRepository.count() > 0 || changeRepository.count() > 0) {
+            return 0;
+        }
+        List<RevenueRollupChange> changes = new ArrayList<>();
+        for (LocalDate day : subscriptionRepository.findDistinctStartDates()) {
+            changes.add(new RevenueRollupChange(null, day));
+        }
+        changeRepository.saveAll(changes);
+        log.info("Revenue rollups backfill queued for " + changes.size() + " days");
+        return changes.size();
+    }
+
+    /**
+     * Recomputes the days of the oldest chunk of pending changes and clears them.
+     *
+     * @return the number of changes processed, less than the chunk size once none is left
+     */
+    @Transactional
+    public int rollUp() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<RevenueRollupChange> changes = changeRepository.findAllByOrderByNumChangeAsc(PageRequest.of(0, chunkSize));
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        Set<LocalDate> days = new TreeSet<>();
+        List<Long> numChanges = new ArrayList<>(changes.size());
+        for (RevenueRollupChange change : changes) {
+            days.add(change.getRevenueDate());
+            numChanges.add(change.getNumChange());
+        }
+        rollupRepository.deleteByRevenueDateIn(days);
+        List<RevenueRollup> rollups = new ArrayList<>();
+        for (RevenuePoint point : subscriptionRepository.sumPriceByStartDateIn(days)) {
+            rollups.add(new RevenueRollup(null, point.getPeriod(), point.getTypeSub(),
+                    point.getRevenue() == null ? 0 : point.getRevenue(), point.getSubscriptions()));
+        }
+        rollupRepository.saveAll(rollups);
+        changeRepository.deleteByNumChangeIn(numChanges);
+        sample.stop(meterRegistry.timer("subscription.revenue.rollup.duration"));
+        meterRegistry.counter("subscription.revenue.rollup.changes").increment(changes.size());
+        return changes.size();
+    }
+
+    /**
+     * Revenue per period and type of the subscriptions starting between {@code from} and
+     * {@code to} inclusive, ordered by period then type. Periods are clipped to the range.
+     */
+    @Transactional
+    public List<RevenuePoint> revenue(LocalDate from, LocalDate to, RevenueGranularity granularity) {
+        List<RevenuePoint> days = new ArrayList<>(rollupRepository.findPointsBetween(from, to));
+        Set<LocalDate> pending = changeRepository.findDaysBetween(from, to);
+        if (!pending.isEmpty()) {
+            days.removeIf(day -> pending.contains(day.getPeriod()));
+            days.addAll(subscriptionRepository.sumPriceByStartDateIn(pending));
+        }
+        return bucket(days, granularity);
+    }
+
+    static List<RevenuePoint> bucket(List<RevenuePoint> days, RevenueGranularity granularity) {
+        TypeSubscription[] types = TypeSubscription.values();
+        Map<LocalDate, double[]> revenues = new TreeMap<>();
+        Map<LocalDate, long[]> counts = new TreeMap<>();
+        for (RevenuePoint day : days) {
+            LocalDate period = granularity.periodOf(day.getPeriod());
+            int type = day.getTypeSub().ordinal();
+            revenues.computeIfAbsent(period, p -> new double[types.length])[type] +=
+                    day.getRevenue() == null ? 0 : day.getRevenue();
+            counts.computeIfAbsent(period, p -> new long[types.length])[type] += day.getSubscriptions();
+        }
+        List<RevenuePoint> points = new ArrayList<>();
+        for (Map.Entry<LocalDate, long[]> period : counts.entrySet()) {
+            double[] revenue = revenues.get(period.getKey());
+            for (int type = 0; type < types.length; type++) {
+                if (period.getValue()[type] > 0) {
+                    points.add(new RevenuePoint(period.getKey(), types[type], revenue[type], period.getValue()[type]));
+                }
+            }
+        }
+        return points;
+    }
+}
@@ -0,0 +1,226 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.SkierImportFormat;
+import tn.esprit.spring.dto.SkierImportRow;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * Parses, validates and inserts the lines of a skier import file, see
+ * {@link ISkierServices#importSkiers}.
+ * <p>
+ * Each chunk of {@code skier.import.chunk} rows is inserted in its own transaction with two
+ * batched statements, one for the subscriptions and one for the skiers, instead of one
+ * entity save per skier. The running revenue aggregates, revenue rollups and expiry
+ * schedule are updated per chunk as {@code addSkier} does per skier.
+ */
+@Component
+public class SkierImporter {
+
+    /** Columns of the CSV header; their order in the file is free. */
+    static final List<String> CSV_COLUMNS =
+            List.of("firstName", "lastName", "dateOfBirth", "city", "startDate", "typeSub", "price");
+
+    private final ISkierRepository skierRepository;
+    private final ISubscriptionRepository subscriptionRepository;
+    private final RecurringRevenueAggregates revenueAggregates;
+    private final RevenueRollups revenueRollups;
+    private final SubscriptionExpiryScheduler expiryScheduler;
+    private final ObjectReader rowReader;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+
+    public SkierImporter(ISkierRepository skierRepository, ISubscriptionRepository subscriptionRepository,
+                         RecurringRevenueAggregates revenueAggregates, RevenueRollups revenueRollups,
+                         SubscriptionExpiryScheduler expiryScheduler, ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry, @Value("${skier.import.chunk:1000}") int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Import chunk size must be positive");
+        }
+        this.skierRepository = skierRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.revenueAggregates = revenueAggregates;
+        this.revenueRollups = revenueRollups;
+        this.expiryScheduler = expiryScheduler;
+        this.rowReader = objectMapper.readerFor(SkierImportRow.class)
+                .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Parser of the lines of a file. For CSV, {@code header} is the first line of the file;
+     * a header missing a column is rejected.
+     */
+    public Function<String, SkierImportRow> parser(SkierImportFormat format, String header) {
+        if (format == SkierImportFormat.NDJSON) {
+            return this::parseJson;
+        }
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        for (String column : CSV_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("CSV header is missing column " + column);
+            }
+        }
+        return line -> parseCsv(line, columns);
+    }
+
+    /**
+     * Skier with its subscription ending as {@code addSkier} computes it.
+     *
+     * @throws IllegalArgumentException naming the first invalid field of the row
+     */
+    public Skier toSkier(SkierImportRow row) {
+        if (row.getFirstName() == null || row.getFirstName().isBlank()
+                || row.getLastName() == null || row.getLastName().isBlank()) {
+            throw new IllegalArgumentException("First name and last name are required");
+        }
+        if (row.getStartDate() == null || row.getTypeSub() == null) {
+            throw new IllegalArgumentException("Subscription start date and type are required");
+        }
+        if (row.getPrice() == null || row.getPrice() < 0 || row.getPrice().isNaN()) {
+            throw new IllegalArgumentException("Subscription price must be a number, not negative");
+        }
+        if (row.getDateOfBirth() != null && row.getDateOfBirth().isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Date of birth cannot be in the future");
+        }
+        Subscription subscription = new Subscription(null, row.getStartDate(),
+                row.getTypeSub().endDateFrom(row.getStartDate()), row.getPrice(), row.getTypeSub());
+        return new Skier(null, row.getFirstName().trim(), row.getLastName().trim(), row.getDateOfBirth(),
+                row.getCity() == null || row.getCity().isBlank() ? null : row.getCity().trim(), subscription,
+                null, null);
+    }
+
+    /** Inserts a chunk of skiers with their subscriptions in one transaction. */
+    @Transactional
+    public void insertChunk(List<Skier> skiers) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Subscription> subscriptions = new ArrayList<>(skiers.size());
+        Set<LocalDate> days = new TreeSet<>();
+        for (Skier skier : skiers) {
+            subscriptions.add(skier.getSubscription());
+            days.add(skier.getSubscription().getStartDate());
+        }
+        subscriptionRepository.insertAll(subscriptions);
+        skierRepository.insertAll(skiers);
+        revenueRollups.daysChanged(days);
+        for (Subscription subscription : subscriptions) {
+            revenueAggregates.subscriptionSaved(null, subscription);
+            expiryScheduler.subscriptionSaved(subscription);
+        }
+        sample.stop(meterRegistry.timer("skier.import.chunk.duration"));
+        meterRegistry.counter("skier.import.imported").increment(skiers.size());
+    }
+
+    private SkierImportRow parseJson(String line) {
+        try {
+            SkierImportRow row = rowReader.readValue(line);
+            if (row == null) {
+                throw new IllegalArgumentException("Line is not a JSON object");
+            }
+            return row;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static SkierImportRow parseCsv(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        Function<String, String> value = column -> {
+            int index = columns.get(column);
+            String text = index < values.size() ? values.get(index).trim() : "";
+            return text.isEmpty() ? null : text;
+        };
+        return new SkierImportRow(value.apply("firstName"), value.apply("lastName"),
+                date(value.apply("dateOfBirth"), "dateOfBirth"), value.apply("city"),
+                date(value.apply("startDate"), "startDate"), type(value.apply("typeSub")),
+                price(value.apply("price")));
+    }
+
+    private static LocalDate date(String text, String column) {
+        try {
+            return text == null ? null : LocalDate.parse(text);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + column + " " + text + ", expected YYYY-MM-DD");
+        }
+    }
+
+    private static TypeSubscription type(String text) {
+        try {
+            return text == null ? null : TypeSubscription.valueOf(text.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid typeSub " + text);
+        }
+    }
+
+    private static Float price(String text) {
+        try {
+            return text == null ? null : Float.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price " + text);
+        }
+    }
+
+    /** Fields of a CSV line; fields may be quoted, with doubled quotes inside quoted fields. */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -1,28 +1,60 @@
 package tn.esprit.spring.services;
 
+import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import tn.esprit.spring.dto.BulkExcursionResult;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.dto.RegistrationView;
+import tn.esprit.spring.dto.SkierExpansion;
+import tn.esprit.spring.dto.SkierImportError;
+import tn.esprit.spring.dto.SkierImportFormat;
+import tn.esprit.spring.dto.SkierImportReport;
+import tn.esprit.spring.dto.SkierImportRow;
+import tn.esprit.spring.dto.SkierView;
+import tn.esprit.spring.dto.SubscriptionView;
 import tn.esprit.spring.entities.*;
 import tn.esprit.spring.repositories.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
+@Slf4j
 @AllArgsConstructor
 @Service
 public class SkierServicesImpl implements ISkierServices {
 
-    private ISkierRepository skierRepository;
+    static final int MAX_REPORTED_IMPORT_ERRORS = 100;
 
-    private IPisteRepository pisteRepository;
+    static final int MAX_BULK_EXCURSIONS = 100_000;
 
-    private ICourseRepository courseRepository;
+    private ISkierRepository skierRepository;
 
     private IRegistrationRepository registrationRepository;
 
     private ISubscriptionRepository subscriptionRepository;
 
+    private RecurringRevenueAggregates revenueAggregates;
+
+    private SubscriptionExpiryScheduler expiryScheduler;
+
+    private RevenueRollups revenueRollups;
+
+    private SkierImporter skierImporter;
+
+    private EntityLookups entityLookups;
+
 
     @Override
     public List<Skier> retrieveAllSkiers() {
@@ -30,19 +62,56 @@ public class SkierServicesImpl implements ISkierServices {
     }
 
     @Override
-    public Skier addSkier(Skier skier) {
-        switch (skier.getSubscription().getTypeSub()) {
-            case ANNUAL:
-                skier.getSubscription().setEndDate(skier.getSubscription().getStartDate().plusYears(1));
-                break;
-            case SEMESTRIEL:
-                skier.getSubscription().setEndDate(skier.getSubscription().getStartDate().plusMonths(6));
-                break;
-            case MONTHLY:
-                skier.getSubscription().setEndDate(skier.getSubscription().getStartDate().plusMonths(1));
-                break;
+    public List<SkierView> retrieveSkierViews(Long afterNumSkier, int size, Set<SkierExpansion> expand) {
+        List<SkierView> skiers = afterNumSkier == null ? skierRepository.findViews(KeysetPaging.page(size))
+                : skierRepository.findViewsAfter(afterNumSkier, KeysetPaging.page(size));
+        if (expand.contains(SkierExpansion.SUBSCRIPTION)) {
+            expandSubscriptions(skiers);
         }
-        return skierRepository.save(skier);
+        if (expand.contains(SkierExpansion.REGISTRATIONS)) {
+            expandRegistrations(skiers);
+        }
+        return skiers;
+    }
+
+    private void expandSubscriptions(List<SkierView> skiers) {
+        Set<Long> numSubs = new HashSet<>();
+        skiers.forEach(skier -> {
+            if (skier.getNumSub() != null) {
+                numSubs.add(skier.getNumSub());
+            }
+        });
+        if (numSubs.isEmpty()) {
+            return;
+        }
+        Map<Long, SubscriptionView> subscriptions = new HashMap<>();
+        subscriptionRepository.findViewsByNumSubIn(numSubs)
+                .forEach(subscription -> subscriptions.put(subscription.getNumSub(), subscription));
+        skiers.forEach(skier -> skier.setSubscription(subscriptions.get(skier.getNumSub())));
+    }
+
+    private void expandRegistrations(List<SkierView> skiers) {
+        if (skiers.isEmpty()) {
+            return;
+        }
+        Map<Long, List<RegistrationView>> registrations = new HashMap<>();
+        skiers.forEach(skier -> registrations.put(skier.getNumSkier(), new ArrayList<>()));
+        registrationRepository.findViewsBySkiers(registrations.keySet())
+                .forEach(registration -> registrations.get(registration.getNumSkier()).add(registration));
+        skiers.forEach(skier -> skier.setRegistrations(registrations.get(skier.getNumSkier())));
+    }
+
+    @Transactional
+    @Override
+    public Skier addSkier(Skier skier) {
+        Subscription subscription = skier.getSubscription();
+        subscription.setEndDate(subscription.getTypeSub().endDateFrom(subscription.getStartDate()));
+        Skier saved = skierRepository.save(skier);
+        revenueAggregates.subscriptionSaved(null, saved.getSubscription());
+        expiryScheduler.subscriptionSaved(saved.getSubscription());
+        revenueRollups.subscriptionChanged(null, saved.getSubscription());
+        entityLookups.skierChanged(saved.getNumSkier());
+        return saved;
     }
 
     @Override
@@ -50,13 +119,16 @@ public class SkierServicesImpl implements ISkierServices {
         Skier skier = skierRepository.findById(numSkier).orElse(null);
         Subscription subscription = subscriptionRepository.findById(numSubscription).orElse(null);
         skier.setSubscription(subscription);
-        return skierRepository.save(skier);
+        Skier saved = skierRepository.save(skier);
+        entityLookups.skierChanged(numSkier);
+        return saved;
     }
 
     @Override
     public Skier addSkierAndAssignToCourse(Skier skier, Long numCourse) {
         Skier savedSkier = skierRepository.save(skier);
-        Course course = courseRepository.findById(numCourse).orElse(null);
+        entityLookups.skierChanged(savedSkier.getNumSkier());
+        Course course = entityLookups.course(numCourse);
         Set<Registration> registrations = savedSkier.getRegistrations();
         for (Registration r : registrations) {
             r.setSkier(savedSkier);
@@ -66,33 +138,152 @@ public class SkierServicesImpl implements ISkierServices {
         return savedSkier;
     }
 
+    @Transactional
     @Override
     public void removeSkier(Long numSkier) {
+        // The subscription is removed along with the skier
+        skierRepository.findById(numSkier).map(Skier::getSubscription).ifPresent(subscription -> {
+            revenueAggregates.subscriptionRemoved(subscription);
+            revenueRollups.subscriptionChanged(subscription, null);
+            expiryScheduler.subscriptionRemoved(subscription.getNumSub());
+        });
         skierRepository.deleteById(numSkier);
+        entityLookups.skierChanged(numSkier);
     }
 
     @Override
     public Skier retrieveSkier(Long numSkier) {
-        return skierRepository.findById(numSkier).orElse(null);
+        return entityLookups.skier(numSkier);
     }
 
     @Override
     public Skier assignSkierToPiste(Long numSkieur, Long numPiste) {
-        Skier skier = skierRepository.findById(numSkieur).orElse(null);
-        Piste piste = pisteRepository.findById(numPiste).orElse(null);
-        try {
-            skier.getPistes().add(piste);
-        } catch (NullPointerException exception) {
-            Set<Piste> pisteList = new HashSet<>();
-            pisteList.add(piste);
-            skier.setPistes(pisteList);
+        if (numSkieur == null || numPiste == null) {
+            throw new NullPointerException("Skier ID and piste ID cannot be null");
         }
+        Skier skier = entityLookups.skier(numSkieur);
+        if (skier == null || entityLookups.piste(numPiste) == null) {
+            return null;
+        }
+        // One row in the join table: the excursions of the skier are neither loaded nor cached
+        if (!skierRepository.insertExcursion(numSkieur, numPiste)) {
+            log.info("Skier " + numSkieur + " already has an excursion on piste " + numPiste);
+        }
+        return skier;
+    }
 
-        return skierRepository.save(skier);
+    /**
+     * Assigns every skier to every piste with one statement, at most
+     * {@value #MAX_BULK_EXCURSIONS} pairs. Pairs already assigned and unknown ids are skipped.
+     *
+     * @throws IllegalArgumentException if there are too many pairs
+     */
+    @Override
+    public BulkExcursionResult assignSkiersToPistes(List<Long> numSkiers, List<Long> numPistes) {
+        if (numSkiers == null || numPistes == null) {
+            throw new NullPointerException("Skier IDs and piste IDs cannot be null");
+        }
+        Set<Long> skiers = new HashSet<>(numSkiers);
+        Set<Long> pistes = new HashSet<>(numPistes);
+        skiers.remove(null);
+        pistes.remove(null);
+        long requested = (long) skiers.size() * pistes.size();
+        if (requested > MAX_BULK_EXCURSIONS) {
+            throw new IllegalArgumentException("A bulk assignment cannot contain more than " + MAX_BULK_EXCURSIONS
+                    + " skier and piste pairs");
+        }
+        int assigned = skierRepository.insertExcursions(skiers, pistes);
+        log.info("Bulk excursions: " + assigned + " of " + requested + " assigned");
+        return new BulkExcursionResult(requested, assigned);
     }
 
     @Override
     public List<Skier> retrieveSkiersBySubscriptionType(TypeSubscription typeSubscription) {
         return skierRepository.findBySubscription_TypeSub(typeSubscription);
     }
+
+    /**
+     * Imports the skiers and subscriptions of a CSV or NDJSON file, read line by line and
+     * inserted in chunks, so memory stays flat whatever the size of the file. Invalid rows
+     * are counted and skipped, and the first {@value #MAX_REPORTED_IMPORT_ERRORS} reported
+     * with their line. Chunks inserted before a database failure stay committed.
+     *
+     * @throws IllegalArgumentException if the CSV header is missing or incomplete
+     */
+    @Override
+    public SkierImportReport importSkiers(Reader reader, SkierImportFormat format) {
+        if (reader == null || format == null) {
+            throw new NullPointerException("Import file and format cannot be null");
+        }
+        long began = System.nanoTime();
+        long line = 0;
+        long rows = 0;
+        long imported = 0;
+        long rejected = 0;
+        List<SkierImportError> errors = new ArrayList<>();
+        List<Skier> chunk = new ArrayList<>(skierImporter.chunkSize());
+        try (BufferedReader lines = new BufferedReader(reader)) {
+            Function<String, SkierImportRow> parser = skierImporter.parser(format,
+                    format == SkierImportFormat.CSV ? lines.readLine() : null);
+            if (format == SkierImportFormat.CSV) {
+                line++;
+            }
+            String text;
+            while ((text = lines.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                rows++;
+                try {
+                    chunk.add(skierImporter.toSkier(parser.apply(text)));
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    if (errors.size() < MAX_REPORTED_IMPORT_ERRORS) {
+                        errors.add(new SkierImportError(line, e.getMessage()));
+                    }
+                    continue;
+                }
+                if (chunk.size() == skierImporter.chunkSize()) {
+                    skierImporter.insertChunk(chunk);
+                    imported += chunk.size();
+                    chunk = new ArrayList<>(skierImporter.chunkSize());
+                    log.info("Skier import: " + imported + " imported, " + rejected + " rejected, "
+                            + Math.round(rows / seconds(began)) + " rows per second");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!chunk.isEmpty()) {
+            skierImporter.insertChunk(chunk);
+            imported += chunk.size();
+        }
+        double seconds = seconds(began);
+        log.info("Skier import done: " + imported + " imported, " + rejected + " rejected in "
+                + Math.round(seconds * 1000) + " ms");
+        return new SkierImportReport(rows, imported, rejected, errors, Math.round(seconds * 1000), rows / seconds);
+    }
+
+    /**
+     * Reads the skiers with plain JDBC, without loading them as entities, so neither the
+     * persistence context nor the skier cache grows with the table.
+     */
+    @Override
+    public long exportSkiers(OutputStream out, ExportFormat format) {
+        if (out == null || format == null) {
+            throw new NullPointerException("Export stream and format cannot be null");
+        }
+        long began = System.nanoTime();
+        ExportWriter writer = new ExportWriter(out, format, ISkierRepository.EXPORT_COLUMNS);
+        skierRepository.exportAll(writer);
+        long rows = writer.finish();
+        log.info("Skier export: " + rows + " skiers written as " + format + " in "
+                + (System.nanoTime() - began) / 1_000_000 + " ms");
+        return rows;
+    }
+
+    private static double seconds(long began) {
+        return Math.max(System.nanoTime() - began, 1) / 1e9;
+    }
 }
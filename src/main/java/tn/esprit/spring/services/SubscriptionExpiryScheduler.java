@@ -0,0 +1,195 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.SubscriptionEnd;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.events.SubscriptionsExpiredEvent;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Fires a {@link SubscriptionsExpiredEvent} at the start of each day on which subscriptions
+ * lapse, instead of polling the subscriptions table.
+ * <p>
+ * The end dates still ahead are loaded with one query once the application is ready and
+ * kept up to date by the services saving subscriptions. Only the earliest end date is
+ * scheduled, on a {@link TaskScheduler} thread of its own so that the {@code @Scheduled}
+ * jobs sharing the application scheduler never delay a lapse; each firing schedules the
+ * next one. The
+ * subscriptions ending on the startup day are fired again on startup, so a lapse that
+ * happened while the application was down is not lost. With several nodes, the lapses
+ * are handled by the node holding the {@code subscription.expiry} lease.
+ */
+@Slf4j
+@Component
+public class SubscriptionExpiryScheduler {
+
+    private final ISubscriptionRepository subscriptionRepository;
+    private final TaskScheduler taskScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLeases jobLeases;
+    private final Clock clock;
+
+    private final TreeMap<LocalDate, Set<Long>> byEndDate = new TreeMap<>();
+    private final Map<Long, LocalDate> endDates = new HashMap<>();
+
+    private ScheduledFuture<?> next;
+    private LocalDate nextEndDate;
+
+    private final Counter expired;
+
+    @Autowired
+    public SubscriptionExpiryScheduler(ISubscriptionRepository subscriptionRepository,
+                                       ApplicationEventPublisher eventPublisher, JobLeases jobLeases,
+                                       MeterRegistry meterRegistry) {
+        this(subscriptionRepository, newTaskScheduler(), eventPublisher, jobLeases, meterRegistry,
+                Clock.systemDefaultZone());
+    }
+
+    SubscriptionExpiryScheduler(ISubscriptionRepository subscriptionRepository, TaskScheduler taskScheduler,
+                                ApplicationEventPublisher eventPublisher, JobLeases jobLeases,
+                                MeterRegistry meterRegistry, Clock clock) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.taskScheduler = taskScheduler;
+        this.eventPublisher = eventPublisher;
+        this.jobLeases = jobLeases;
+        this.clock = clock;
+        this.expired = Counter.builder("subscription.expiry.fired")
+                .description("Subscriptions whose lapse was handled").register(meterRegistry);
+        Gauge.builder("subscription.expiry.pending", this, SubscriptionExpiryScheduler::pending)
+                .description("Subscriptions waiting for their end date").register(meterRegistry);
+    }
+
+    /** A single thread is enough: a firing only moves ids between maps and publishes the lapsed days. */
+    static ThreadPoolTaskScheduler newTaskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("subscription-expiry-");
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        byEndDate.clear();
+        endDates.clear();
+        for (SubscriptionEnd end : subscriptionRepository.findEndsFrom(LocalDate.now(clock))) {
+            put(end.getNumSub(), end.getEndDate());
+        }
+        reschedule();
+        log.info("Expiry scheduler tracking " + endDates.size() + " subscriptions, next lapse on " + nextEndDate);
+    }
+
+    /** Tracks the end date of a saved subscription, replacing the one it had. */
+    public synchronized void subscriptionSaved(Subscription subscription) {
+        if (subscription == null || subscription.getNumSub() == null) {
+            return;
+        }
+        remove(subscription.getNumSub());
+        LocalDate endDate = subscription.getEndDate();
+        if (endDate != null && !endDate.isBefore(LocalDate.now(clock))) {
+            put(subscription.getNumSub(), endDate);
+        }
+        reschedule();
+    }
+
+    /** Stops tracking a removed subscription, so that it is not counted among the lapses. */
+    public synchronized void subscriptionRemoved(Long numSub) {
+        if (numSub == null) {
+            return;
+        }
+        remove(numSub);
+        reschedule();
+    }
+
+    public synchronized int pending() {
+        return endDates.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (taskScheduler instanceof ThreadPoolTaskScheduler scheduler) {
+            scheduler.shutdown();
+        }
+    }
+
+    /** Hands the subscriptions lapsed by now to the expiry handlers and schedules the next lapse. */
+    void fire() {
+        Map<LocalDate, Integer> lapsed = new TreeMap<>();
+        synchronized (this) {
+            LocalDate today = LocalDate.now(clock);
+            while (!byEndDate.isEmpty() && !byEndDate.firstKey().isAfter(today)) {
+                Map.Entry<LocalDate, Set<Long>> due = byEndDate.pollFirstEntry();
+                due.getValue().forEach(endDates::remove);
+                lapsed.put(due.getKey(), due.getValue().size());
+            }
+            next = null;
+            nextEndDate = null;
+            reschedule();
+        }
+        if (!lapsed.isEmpty()) {
+            // Every node keeps its own schedule, but only one hands the lapses to the handlers
+            jobLeases.runExclusively("subscription.expiry", () -> publish(lapsed));
+        }
+    }
+
+    private void publish(Map<LocalDate, Integer> lapsed) {
+        for (Map.Entry<LocalDate, Integer> due : lapsed.entrySet()) {
+            expired.increment(due.getValue());
+            try {
+                eventPublisher.publishEvent(new SubscriptionsExpiredEvent(due.getKey(), due.getValue()));
+            } catch (RuntimeException e) {
+                log.warn("Expiry of the subscriptions ending on " + due.getKey() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void put(Long numSub, LocalDate endDate) {
+        byEndDate.computeIfAbsent(endDate, date -> new HashSet<>()).add(numSub);
+        endDates.put(numSub, endDate);
+    }
+
+    private void remove(Long numSub) {
+        LocalDate endDate = endDates.remove(numSub);
+        if (endDate == null) {
+            return;
+        }
+        Set<Long> subscriptions = byEndDate.get(endDate);
+        subscriptions.remove(numSub);
+        if (subscriptions.isEmpty()) {
+            byEndDate.remove(endDate);
+        }
+    }
+
+    private void reschedule() {
+        LocalDate first = byEndDate.isEmpty() ? null : byEndDate.firstKey();
+        if (Objects.equals(first, nextEndDate)) {
+            return;
+        }
+        if (next != null) {
+            next.cancel(false);
+        }
+        nextEndDate = first;
+        next = first == null ? null : taskScheduler.schedule(this::fire, first.atStartOfDay(clock.getZone()).toInstant());
+    }
+}
@@ -0,0 +1,158 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import tn.esprit.spring.dto.RenewalProgress;
+import tn.esprit.spring.dto.SubscriptionRenewal;
+import tn.esprit.spring.dto.SubscriptionView;
+import tn.esprit.spring.entities.RenewalCheckpoint;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.IRenewalCheckpointRepository;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Renews in bulk the subscriptions of some types ending in a window: each one starts again
+ * on its end date, and gets the end date {@code addSubscription} gives a subscription of
+ * its type starting that day.
+ * <p>
+ * The subscriptions are read in chunks of {@code subscription.renewal.chunk} in numSub
+ * order and written with one batched update per chunk, guarded by their old end date. A
+ * {@link RenewalCheckpoint} per window and types is saved in the transaction of each chunk,
+ * so a renewal interrupted by a failure or a restart resumes after its last committed
+ * chunk, and a completed one is not run again.
+ */
+@Component
+public class SubscriptionRenewals {
+
+    private final ISubscriptionRepository subscriptionRepository;
+    private final IRenewalCheckpointRepository checkpointRepository;
+    private final RevenueRollups revenueRollups;
+    private final SubscriptionExpiryScheduler expiryScheduler;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final Clock clock;
+
+    @Autowired
+    public SubscriptionRenewals(ISubscriptionRepository subscriptionRepository,
+                                IRenewalCheckpointRepository checkpointRepository, RevenueRollups revenueRollups,
+                                SubscriptionExpiryScheduler expiryScheduler, MeterRegistry meterRegistry,
+                                @Value("${subscription.renewal.chunk:1000}") int chunkSize) {
+        this(subscriptionRepository, checkpointRepository, revenueRollups, expiryScheduler, meterRegistry, chunkSize,
+                Clock.systemDefaultZone());
+    }
+
+    SubscriptionRenewals(ISubscriptionRepository subscriptionRepository,
+                         IRenewalCheckpointRepository checkpointRepository, RevenueRollups revenueRollups,
+                         SubscriptionExpiryScheduler expiryScheduler, MeterRegistry meterRegistry, int chunkSize,
+                         Clock clock) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Renewal chunk size must be positive");
+        }
+        this.subscriptionRepository = subscriptionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.revenueRollups = revenueRollups;
+        this.expiryScheduler = expiryScheduler;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+    }
+
+    /** Key of the checkpoint of a renewal, such as {@code 2025-04-01/2025-04-30/ANNUAL,SEMESTRIEL}. */
+    public static String job(LocalDate from, LocalDate to, Set<TypeSubscription> types) {
+        return from + "/" + to + "/" + EnumSet.copyOf(types).stream().map(Enum::name)
+                .collect(Collectors.joining(","));
+    }
+
+    /** Checkpoint of the renewal, created on its first run. */
+    @Transactional
+    public RenewalCheckpoint start(LocalDate from, LocalDate to, Set<TypeSubscription> types) {
+        String job = job(from, to, types);
+        return checkpointRepository.findById(job).orElseGet(() -> {
+            LocalDateTime now = LocalDateTime.now(clock);
+            return checkpointRepository.save(new RenewalCheckpoint(job, from, to, null, 0, 0, false, now, now));
+        });
+    }
+
+    public RenewalCheckpoint find(LocalDate from, LocalDate to, Set<TypeSubscription> types) {
+        return checkpointRepository.findById(job(from, to, types)).orElse(null);
+    }
+
+    /**
+     * Renews the chunk following the checkpoint of the renewal and moves the checkpoint past
+     * it, or marks the renewal completed once no subscription is left.
+     */
+    @Transactional
+    public RenewalCheckpoint renewChunk(String job, Set<TypeSubscription> types) {
+        RenewalCheckpoint checkpoint = checkpointRepository.findById(job)
+                .orElseThrow(() -> new IllegalStateException("Renewal " + job + " was not started"));
+        if (checkpoint.isCompleted()) {
+            return checkpoint;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<SubscriptionView> expiring = subscriptionRepository.findEndingBetweenAfter(types,
+                checkpoint.getFromDate(), checkpoint.getToDate(),
+                checkpoint.getLastNumSub() == null ? 0L : checkpoint.getLastNumSub(), PageRequest.of(0, chunkSize));
+        List<SubscriptionRenewal> renewals = new ArrayList<>(expiring.size());
+        Set<LocalDate> days = new TreeSet<>();
+        for (SubscriptionView subscription : expiring) {
+            LocalDate startDate = subscription.getEndDate();
+            renewals.add(new SubscriptionRenewal(subscription.getNumSub(), subscription.getEndDate(), startDate,
+                    subscription.getTypeSub().endDateFrom(startDate)));
+            if (subscription.getStartDate() != null) {
+                days.add(subscription.getStartDate());
+            }
+            days.add(startDate);
+        }
+        boolean[] renewedRows = subscriptionRepository.renewAll(renewals);
+        revenueRollups.daysChanged(days);
+        int renewed = 0;
+        for (int i = 0; i < expiring.size(); i++) {
+            if (!renewedRows[i]) {
+                continue;
+            }
+            renewed++;
+            SubscriptionView subscription = expiring.get(i);
+            SubscriptionRenewal renewal = renewals.get(i);
+            expiryScheduler.subscriptionSaved(new Subscription(subscription.getNumSub(), renewal.getStartDate(),
+                    renewal.getEndDate(), subscription.getPrice(), subscription.getTypeSub()));
+        }
+        if (expiring.size() < chunkSize) {
+            checkpoint.setCompleted(true);
+        }
+        if (!expiring.isEmpty()) {
+            checkpoint.setLastNumSub(expiring.get(expiring.size() - 1).getNumSub());
+        }
+        checkpoint.setRenewed(checkpoint.getRenewed() + renewed);
+        checkpoint.setSkipped(checkpoint.getSkipped() + expiring.size() - renewed);
+        checkpoint.setUpdatedAt(LocalDateTime.now(clock));
+        sample.stop(meterRegistry.timer("subscription.renewal.chunk.duration"));
+        meterRegistry.counter("subscription.renewal.renewed").increment(renewed);
+        meterRegistry.counter("subscription.renewal.skipped").increment(expiring.size() - (double) renewed);
+        return checkpointRepository.save(checkpoint);
+    }
+
+    public static RenewalProgress progress(RenewalCheckpoint checkpoint) {
+        long millis = Duration.between(checkpoint.getStartedAt(), checkpoint.getUpdatedAt()).toMillis();
+        return new RenewalProgress(checkpoint.getJob(), checkpoint.getFromDate(), checkpoint.getToDate(),
+                checkpoint.getLastNumSub(), checkpoint.getRenewed(), checkpoint.getSkipped(), checkpoint.isCompleted(),
+                checkpoint.getStartedAt(), checkpoint.getUpdatedAt(),
+                millis == 0 ? 0 : checkpoint.getRenewed() * 1000.0 / millis);
+    }
+}
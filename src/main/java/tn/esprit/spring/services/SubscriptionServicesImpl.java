@@ -1,18 +1,36 @@
 package tn.esprit.spring.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.dto.ExpiredSubscription;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.dto.RecurringRevenue;
+import tn.esprit.spring.dto.RenewalProgress;
+import tn.esprit.spring.dto.RevenueGranularity;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.dto.SubscriptionView;
+import tn.esprit.spring.entities.RenewalCheckpoint;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
-import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.events.SubscriptionsExpiredEvent;
 import tn.esprit.spring.repositories.ISubscriptionRepository;
 
+import jakarta.transaction.Transactional;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @AllArgsConstructor
@@ -21,8 +39,21 @@ public class SubscriptionServicesImpl implements ISubscriptionServices{
 
     private ISubscriptionRepository subscriptionRepository;
 
-    private ISkierRepository skierRepository;
+    private RecurringRevenueAggregates revenueAggregates;
 
+    private RevenueRollups revenueRollups;
+
+    private SubscriptionExpiryScheduler expiryScheduler;
+
+    private SubscriptionRenewals subscriptionRenewals;
+
+    private JobLeases jobLeases;
+
+    private MeterRegistry meterRegistry;
+
+    private EntityLookups entityLookups;
+
+    @Transactional
     @Override
     public Subscription addSubscription(Subscription subscription) {
         if (subscription == null) {
@@ -31,26 +62,33 @@ public class SubscriptionServicesImpl implements ISubscriptionServices{
         if (subscription.getTypeSub() == null) {
             throw new NullPointerException("Subscription type cannot be null");
         }
-        switch (subscription.getTypeSub()) {
-            case ANNUAL:
-                subscription.setEndDate(subscription.getStartDate().plusYears(1));
-                break;
-            case SEMESTRIEL:
-                subscription.setEndDate(subscription.getStartDate().plusMonths(6));
-                break;
-            case MONTHLY:
-                subscription.setEndDate(subscription.getStartDate().plusMonths(1));
-                break;
-        }
-        return subscriptionRepository.save(subscription);
+        subscription.setEndDate(subscription.getTypeSub().endDateFrom(subscription.getStartDate()));
+        Subscription saved = subscriptionRepository.save(subscription);
+        revenueAggregates.subscriptionSaved(null, saved);
+        revenueRollups.subscriptionChanged(null, saved);
+        expiryScheduler.subscriptionSaved(saved);
+        return saved;
     }
 
+    @Transactional
     @Override
     public Subscription updateSubscription(Subscription subscription) {
         if (subscription == null) {
             throw new NullPointerException("Subscription cannot be null");
         }
-        return subscriptionRepository.save(subscription);
+        // Copied, as saving merges the new state into the entity loaded here
+        Subscription previous = subscription.getNumSub() == null ? null
+                : subscriptionRepository.findById(subscription.getNumSub())
+                        .map(stored -> new Subscription(stored.getNumSub(), stored.getStartDate(), stored.getEndDate(),
+                                stored.getPrice(), stored.getTypeSub()))
+                        .orElse(null);
+        Subscription saved = subscriptionRepository.save(subscription);
+        revenueAggregates.subscriptionSaved(previous, saved);
+        revenueRollups.subscriptionChanged(previous, saved);
+        expiryScheduler.subscriptionSaved(saved);
+        // Cached skiers hold their subscription
+        entityLookups.skiersChanged();
+        return saved;
     }
 
     @Override
@@ -61,38 +99,204 @@ public class SubscriptionServicesImpl implements ISubscriptionServices{
         return subscriptionRepository.findById(numSubscription).orElse(null);
     }
 
+    /**
+     * Page of at most {@code size} subscriptions of a type in (startDate, numSub) order,
+     * after the last subscription of the previous page or from the start when
+     * {@code afterDate} and {@code afterNumSub} are null.
+     */
     @Override
-    public Set<Subscription> getSubscriptionByType(TypeSubscription type) {
+    public List<SubscriptionView> getSubscriptionByType(TypeSubscription type, LocalDate afterDate, Long afterNumSub,
+                                                        int size) {
         if (type == null) {
             throw new NullPointerException("Subscription type cannot be null");
         }
-        return subscriptionRepository.findByTypeSubOrderByStartDateAsc(type);
+        PageRequest page = page(afterDate, afterNumSub, size);
+        if (afterDate == null) {
+            return subscriptionRepository.findViewsByTypeSub(type, page);
+        }
+        return subscriptionRepository.findViewsByTypeSubAfter(type, afterDate, afterNumSub, page);
     }
 
+    /**
+     * Page of at most {@code size} subscriptions starting between the given days, in
+     * (startDate, numSub) order, after the last subscription of the previous page or from
+     * the start when {@code afterDate} and {@code afterNumSub} are null.
+     */
     @Override
-    public List<Subscription> retrieveSubscriptionsByDates(LocalDate startDate, LocalDate endDate) {
+    public List<Subscription> retrieveSubscriptionsByDates(LocalDate startDate, LocalDate endDate, LocalDate afterDate,
+                                                           Long afterNumSub, int size) {
         if (startDate == null || endDate == null) {
             throw new NullPointerException("Start date and end date cannot be null");
         }
-        return subscriptionRepository.getSubscriptionsByStartDateBetween(startDate, endDate);
+        PageRequest page = page(afterDate, afterNumSub, size);
+        if (afterDate == null) {
+            return subscriptionRepository.findByStartDateBetweenOrderByStartDateAscNumSubAsc(startDate, endDate, page);
+        }
+        return subscriptionRepository.findPageAfter(startDate, endDate, afterDate, afterNumSub, page);
     }
 
+    private static PageRequest page(LocalDate afterDate, Long afterNumSub, int size) {
+        if ((afterDate == null) != (afterNumSub == null)) {
+            throw new IllegalArgumentException("Page cursor needs both a start date and a subscription number");
+        }
+        return KeysetPaging.page(size);
+    }
+
+    /**
+     * Hands the subscriptions starting between the given days to {@code consumer} in
+     * (startDate, numSub) order, as they are read from the database cursor.
+     */
+    @Transactional
+    @Override
+    public void forEachSubscriptionByDates(LocalDate startDate, LocalDate endDate, Consumer<Subscription> consumer) {
+        if (startDate == null || endDate == null) {
+            throw new NullPointerException("Start date and end date cannot be null");
+        }
+        try (Stream<Subscription> subscriptions = subscriptionRepository.streamByStartDateBetween(startDate, endDate)) {
+            subscriptions.forEach(consumer);
+        }
+    }
+
+    @Override
+    public long exportSubscriptions(OutputStream out, ExportFormat format) {
+        if (out == null || format == null) {
+            throw new NullPointerException("Export stream and format cannot be null");
+        }
+        long began = System.nanoTime();
+        ExportWriter writer = new ExportWriter(out, format, ISubscriptionRepository.EXPORT_COLUMNS);
+        subscriptionRepository.exportAll(writer);
+        long rows = writer.finish();
+        log.info("Subscription export: " + rows + " subscriptions written as " + format + " in "
+                + (System.nanoTime() - began) / 1_000_000 + " ms");
+        return rows;
+    }
+
+    /**
+     * Logs the expired subscriptions and their skier. The report is read with a single
+     * streamed query, so memory and query count stay flat whatever the number of rows.
+     * Lapses are handled as they happen by {@link #onSubscriptionsExpired}; this is the
+     * on-demand full report.
+     */
+    @Transactional
     @Override
-    @Scheduled(cron = "*/30 * * * * *") /* Cron expression to run a job every 30 secondes */
     public void retrieveSubscriptions() {
-        for (Subscription sub: subscriptionRepository.findDistinctOrderByEndDateAsc()) {
-            Skier   aSkier = skierRepository.findBySubscription(sub);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long rows = 0;
+        try (Stream<ExpiredSubscription> expired = subscriptionRepository.streamExpired()) {
+            rows = logExpired(expired);
+        } finally {
+            sample.stop(meterRegistry.timer("subscription.expired.report.duration"));
+            meterRegistry.counter("subscription.expired.report.rows").increment(rows);
+        }
+    }
+
+    /**
+     * Logs the subscriptions that lapsed on the day of the event, fired by the
+     * {@link SubscriptionExpiryScheduler} when that day starts.
+     */
+    @Transactional
+    @EventListener
+    public void onSubscriptionsExpired(SubscriptionsExpiredEvent event) {
+        try (Stream<ExpiredSubscription> expired = subscriptionRepository.streamByEndDate(event.getEndDate())) {
+            logExpired(expired);
+        }
+    }
+
+    private long logExpired(Stream<ExpiredSubscription> expired) {
+        long rows = 0;
+        Iterator<ExpiredSubscription> subscriptions = expired.iterator();
+        while (subscriptions.hasNext()) {
+            ExpiredSubscription sub = subscriptions.next();
             log.info(sub.getNumSub().toString() + " | "+ sub.getEndDate().toString()
-                    + " | "+ aSkier.getFirstName() + " " + aSkier.getLastName());
+                    + " | "+ (sub.getFirstName() == null && sub.getLastName() == null ? "no skier"
+                    : sub.getFirstName() + " " + sub.getLastName()));
+            rows++;
         }
+        return rows;
     }
 
    // @Scheduled(cron = "* 0 9 1 * *") /* Cron expression to run a job every month at 9am */
     @Scheduled(cron = "*/30 * * * * *") /* Cron expression to run a job every 30 secondes */
     public void showMonthlyRecurringRevenue() {
-        Float revenue = subscriptionRepository.recurringRevenueByTypeSubEquals(TypeSubscription.MONTHLY)
-                + subscriptionRepository.recurringRevenueByTypeSubEquals(TypeSubscription.SEMESTRIEL)/6
-                + subscriptionRepository.recurringRevenueByTypeSubEquals(TypeSubscription.ANNUAL)/12;
-        log.info("Monthly Revenue = " + revenue);
+        jobLeases.runExclusively("subscription.revenue.log",
+                () -> log.info("Monthly Revenue = " + revenueAggregates.monthlyRecurringRevenue()));
+    }
+
+    @Override
+    public RecurringRevenue retrieveMonthlyRecurringRevenue() {
+        return revenueAggregates.snapshot();
+    }
+
+    @Override
+    public List<RevenuePoint> retrieveRevenue(LocalDate from, LocalDate to, RevenueGranularity granularity) {
+        if (from == null || to == null || granularity == null) {
+            throw new NullPointerException("Start date, end date and granularity cannot be null");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        return revenueRollups.revenue(from, to, granularity);
+    }
+
+    /**
+     * Folds the subscriptions changed since the last run into the daily revenue rollups, one
+     * chunk per lease renewal, so that a long run keeps other nodes off until it ends.
+     */
+    @Scheduled(cron = "${subscription.revenue.rollup-cron:0 * * * * *}")
+    public void rollUpRevenue() {
+        AtomicInteger processed = new AtomicInteger();
+        boolean ran;
+        do {
+            ran = jobLeases.runExclusively("subscription.revenue.rollup", revenueRollups.lease(),
+                    () -> processed.set(revenueRollups.rollUp()));
+        } while (ran && processed.get() >= revenueRollups.chunkSize());
+    }
+
+    /**
+     * Renews the subscriptions of the given types ending between {@code from} and {@code to}
+     * inclusive, one committed chunk at a time, resuming after the last chunk committed by
+     * an earlier run of the same renewal. Chunks run under a lease, so a renewal is never
+     * walked by two nodes at once; it stops early if another node holds the lease.
+     */
+    @Override
+    public RenewalProgress renewSubscriptions(LocalDate from, LocalDate to, Set<TypeSubscription> types) {
+        validRenewal(from, to, types);
+        AtomicReference<RenewalCheckpoint> checkpoint =
+                new AtomicReference<>(subscriptionRenewals.start(from, to, types));
+        String job = checkpoint.get().getJob();
+        long began = System.nanoTime();
+        long renewedBefore = checkpoint.get().getRenewed();
+        while (!checkpoint.get().isCompleted()
+                && jobLeases.runExclusively("subscription.renewal",
+                        () -> checkpoint.set(subscriptionRenewals.renewChunk(job, types)))) {
+            long renewed = checkpoint.get().getRenewed() - renewedBefore;
+            double seconds = (System.nanoTime() - began) / 1e9;
+            log.info("Renewal " + job + ": " + checkpoint.get().getRenewed() + " renewed, "
+                    + checkpoint.get().getSkipped() + " skipped, up to subscription " + checkpoint.get().getLastNumSub()
+                    + " (" + Math.round(renewed / Math.max(seconds, 1e-3)) + " per second)");
+        }
+        if (checkpoint.get().getRenewed() > renewedBefore) {
+            entityLookups.skiersChanged();
+        }
+        return SubscriptionRenewals.progress(checkpoint.get());
+    }
+
+    @Override
+    public RenewalProgress retrieveRenewal(LocalDate from, LocalDate to, Set<TypeSubscription> types) {
+        validRenewal(from, to, types);
+        RenewalCheckpoint checkpoint = subscriptionRenewals.find(from, to, types);
+        return checkpoint == null ? null : SubscriptionRenewals.progress(checkpoint);
+    }
+
+    private static void validRenewal(LocalDate from, LocalDate to, Set<TypeSubscription> types) {
+        if (from == null || to == null || types == null) {
+            throw new NullPointerException("Start date, end date and types cannot be null");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("At least one subscription type must be renewed");
+        }
     }
 }
@@ -0,0 +1,86 @@
+package tn.esprit.spring.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Changes summed apart for each transaction and handed over once, either just before it
+ * commits or once it has committed, so that a rollback discards them. The sums of a
+ * transaction are unbound while it is suspended: a nested {@code REQUIRES_NEW} transaction,
+ * such as a waitlist promotion run after a commit, sums and hands over its own.
+ *
+ * @param <D> the sums of one transaction
+ */
+final class TransactionDeltas<D> {
+
+    private final Supplier<D> empty;
+    private final Consumer<D> apply;
+    private final boolean beforeCommit;
+
+    private TransactionDeltas(Supplier<D> empty, Consumer<D> apply, boolean beforeCommit) {
+        this.empty = empty;
+        this.apply = apply;
+        this.beforeCommit = beforeCommit;
+    }
+
+    /** Sums handed over within the transaction, just before it commits. */
+    static <D> TransactionDeltas<D> beforeCommit(Supplier<D> empty, Consumer<D> apply) {
+        return new TransactionDeltas<>(empty, apply, true);
+    }
+
+    /** Sums handed over once the transaction has committed. */
+    static <D> TransactionDeltas<D> afterCommit(Supplier<D> empty, Consumer<D> apply) {
+        return new TransactionDeltas<>(empty, apply, false);
+    }
+
+    /**
+     * @return the sums of the current transaction, created on first use, or {@code null}
+     *         outside of a transaction, where changes are applied straight away
+     */
+    @SuppressWarnings("unchecked")
+    D current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        D pending = (D) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        D deltas = empty.get();
+        TransactionSynchronizationManager.bindResource(this, deltas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(TransactionDeltas.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(TransactionDeltas.this, deltas);
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (beforeCommit) {
+                    apply.accept(deltas);
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+                if (!beforeCommit) {
+                    apply.accept(deltas);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionDeltas.this);
+            }
+        });
+        return deltas;
+    }
+}
@@ -0,0 +1,50 @@
+package tn.esprit.spring.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.events.RegistrationRemovedEvent;
+
+/**
+ * Hands freed seats to the waitlist: right after the commit that removed a registration,
+ * and on a fixed delay for seats freed elsewhere (another node, ledger reconciliation).
+ * The sweep runs on the node holding its {@link JobLeases lease} only.
+ */
+@Slf4j
+@AllArgsConstructor
+@Component
+public class WaitlistPromoter {
+
+    private IWaitlistServices waitlistServices;
+
+    private JobLeases jobLeases;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRegistrationRemoved(RegistrationRemovedEvent event) {
+        try {
+            waitlistServices.promote(event.getNumCourse(), event.getNumWeek());
+        } catch (RuntimeException e) {
+            // The removal is already committed; the next sweep retries the promotion
+            log.warn("Waitlist promotion failed for course " + event.getNumCourse() + " week " + event.getNumWeek(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${registration.waitlist.promote-ms:10000}",
+            initialDelayString = "${registration.waitlist.promote-ms:10000}")
+    public void promoteAll() {
+        jobLeases.runExclusively("registration.waitlist.promote", this::promoteWaiting);
+    }
+
+    private void promoteWaiting() {
+        for (CourseWeekCount waiting : waitlistServices.retrieveWaitingCourseWeeks()) {
+            try {
+                waitlistServices.promote(waiting.getNumCourse(), waiting.getNumWeek());
+            } catch (RuntimeException e) {
+                log.warn("Waitlist promotion failed for course " + waiting.getNumCourse() + " week " + waiting.getNumWeek(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package tn.esprit.spring.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import tn.esprit.spring.dto.BulkRegistrationItem;
+import tn.esprit.spring.dto.BulkRegistrationResult;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.dto.WaitlistPosition;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.IWaitlistRepository;
+
+import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FIFO waitlist of the full collective course weeks. Skiers not registered to a week join
+ * its waitlist once it is full, and poll their position; seats are handed out by
+ * {@link #promote}, which admits the head of the queue through the bulk registration path
+ * so the age and duplicate rules still apply.
+ */
+@Slf4j
+@AllArgsConstructor
+@Service
+public class WaitlistServicesImpl implements IWaitlistServices {
+
+    private IWaitlistRepository waitlistRepository;
+    private ISkierRepository skierRepository;
+    private ICourseRepository courseRepository;
+    private IRegistrationRepository registrationRepository;
+    private IRegistrationServices registrationServices;
+    private CourseCapacityLedger capacityLedger;
+    private RegistrationRuleEngine registrationRules;
+
+    @Transactional
+    @Override
+    public WaitlistPosition joinWaitlist(Long numSkier, Long numCourse, int numWeek) {
+        if (numSkier == null || numCourse == null) {
+            throw new NullPointerException("Skier ID and course ID cannot be null");
+        }
+        WaitlistEntry entry = waitlistRepository.findBySkier_NumSkierAndCourse_NumCourseAndNumWeek(
+                numSkier, numCourse, numWeek);
+        if (entry == null || entry.getStatus() != WaitlistStatus.WAITING) {
+            Skier skier = skierRepository.findById(numSkier).orElse(null);
+            Course course = courseRepository.findById(numCourse).orElse(null);
+            if (skier == null || course == null) {
+                return null;
+            }
+            int capacity = registrationRules.capacity(course.getTypeCourse());
+            if (capacity == RegistrationRules.UNLIMITED) {
+                throw new IllegalArgumentException("Courses without seat limit have no waitlist");
+            }
+            if (registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(
+                    numWeek, numSkier, numCourse) >= 1) {
+                throw new IllegalStateException("Skier " + numSkier + " is already registered to course "
+                        + numCourse + " week " + numWeek);
+            }
+            if (capacityLedger.taken(numCourse, numWeek) < capacity) {
+                throw new IllegalStateException("Course " + numCourse + " week " + numWeek + " still has free seats");
+            }
+            if (entry != null) {
+                // Promoted then unregistered, or rejected: queued again at the back
+                waitlistRepository.deleteEntry(entry.getNumEntry());
+            }
+            entry = waitlistRepository.save(new WaitlistEntry(null, numWeek, WaitlistStatus.WAITING,
+                    LocalDateTime.now(), null, skier, course));
+            log.info("Skier " + numSkier + " waitlisted for course " + numCourse + " week " + numWeek);
+        }
+        return positionOf(entry, numSkier, numCourse);
+    }
+
+    @Override
+    public WaitlistPosition retrievePosition(Long numEntry) {
+        if (numEntry == null) {
+            throw new NullPointerException("Waitlist entry ID cannot be null");
+        }
+        WaitlistEntry entry = waitlistRepository.findById(numEntry).orElse(null);
+        if (entry == null) {
+            return null;
+        }
+        return positionOf(entry, entry.getSkier().getNumSkier(), entry.getCourse().getNumCourse());
+    }
+
+    /**
+     * Admits waiting skiers of a course week while seats are free, in batches of the free
+     * seats known to the capacity ledger. Runs in its own transaction so that it can be
+     * called after the commit that released a seat.
+     *
+     * @return the number of skiers promoted
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    @Override
+    public int promote(Long numCourse, int numWeek) {
+        if (numCourse == null) {
+            throw new NullPointerException("Course ID cannot be null");
+        }
+        Course course = courseRepository.findById(numCourse).orElse(null);
+        if (course == null) {
+            return 0;
+        }
+        int capacity = registrationRules.capacity(course.getTypeCourse());
+        int promoted = 0;
+        while (capacity != RegistrationRules.UNLIMITED) {
+            int free = capacity - capacityLedger.taken(numCourse, numWeek);
+            if (free <= 0) {
+                break;
+            }
+            List<WaitlistEntry> heads = waitlistRepository.findByCourse_NumCourseAndNumWeekAndStatusOrderByNumEntryAsc(
+                    numCourse, numWeek, WaitlistStatus.WAITING, Limit.of(free));
+            if (heads.isEmpty()) {
+                break;
+            }
+            List<BulkRegistrationItem> items = new ArrayList<>(heads.size());
+            for (WaitlistEntry entry : heads) {
+                items.add(new BulkRegistrationItem(entry.getSkier().getNumSkier(), numCourse, numWeek));
+            }
+            List<BulkRegistrationResult> results = registrationServices.addRegistrationsInBulk(items);
+            boolean full = false;
+            for (int i = 0; i < heads.size(); i++) {
+                WaitlistEntry entry = heads.get(i);
+                BulkRegistrationResult result = results.get(i);
+                switch (result.getOutcome()) {
+                    case ACCEPTED:
+                        entry.setStatus(WaitlistStatus.PROMOTED);
+                        entry.setNumRegistration(result.getNumRegistration());
+                        promoted++;
+                        break;
+                    case FULL:
+                        full = true;
+                        break;
+                    default:
+                        entry.setStatus(WaitlistStatus.REJECTED);
+                }
+            }
+            waitlistRepository.saveAll(heads);
+            if (full) {
+                break;
+            }
+        }
+        if (promoted > 0) {
+            log.info(promoted + " waitlisted skiers promoted to course " + numCourse + " week " + numWeek);
+        }
+        return promoted;
+    }
+
+    @Override
+    public List<CourseWeekCount> retrieveWaitingCourseWeeks() {
+        return waitlistRepository.countWaitingGroupByCourseAndNumWeek();
+    }
+
+    private WaitlistPosition positionOf(WaitlistEntry entry, Long numSkier, Long numCourse) {
+        long position = 0;
+        if (entry.getStatus() == WaitlistStatus.WAITING) {
+            position = waitlistRepository.countWaitingAhead(numCourse, entry.getNumWeek(), entry.getNumEntry()) + 1;
+        }
+        return new WaitlistPosition(entry.getNumEntry(), numSkier, numCourse, entry.getNumWeek(),
+                entry.getStatus(), position, entry.getNumRegistration());
+    }
+}
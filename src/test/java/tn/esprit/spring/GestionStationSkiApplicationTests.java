@@ -14,7 +14,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @TestPropertySource(properties = {
     "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
-    "server.port=0"
+    "server.port=0",
+    "registration.journal.directory=target/registration-journal/${random.uuid}"
 })
 class GestionStationSkiApplicationTests {
 
@@ -39,6 +40,27 @@ class GestionStationSkiApplicationTests {
     @MockBean
     private IInstructorRepository instructorRepository;
 
+    @MockBean
+    private IWaitlistRepository waitlistRepository;
+
+    @MockBean
+    private IInstructorWeekRepository instructorWeekRepository;
+
+    @MockBean
+    private IJobLeaseRepository jobLeaseRepository;
+
+    @MockBean
+    private IRevenueRollupRepository revenueRollupRepository;
+
+    @MockBean
+    private IRevenueRollupChangeRepository revenueRollupChangeRepository;
+
+    @MockBean
+    private IRenewalCheckpointRepository renewalCheckpointRepository;
+
+    @MockBean
+    private IIdempotentResponseRepository idempotentResponseRepository;
+
     @Test
     void contextLoads() {
         // This test verifies that the Spring application context loads successfully
@@ -0,0 +1,127 @@
+package tn.esprit.spring.benchmarks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.dto.BulkExcursionResult;
+import tn.esprit.spring.entities.Color;
+import tn.esprit.spring.entities.Piste;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.repositories.IPisteRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.ISkierServices;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Assigns new pistes to 20 skiers who already have 2000 excursions each: through the
+ * former path loading the whole collection and saving the skier, through the direct
+ * join-table insert, and with one bulk call. Run other sizes with
+ * {@code -Dbench.excursions=...}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class ExcursionAssignmentBenchmark {
+
+    private static final int SKIERS = 20;
+    private static final int NEW_PISTES = 10;
+
+    @Autowired
+    private ISkierServices skierServices;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private IPisteRepository pisteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void benchmarkDirectAgainstCollectionAssignment() {
+        int excursions = Integer.getInteger("bench.excursions", 2000);
+        List<Long> skiers = new ArrayList<>();
+        for (int i = 0; i < SKIERS; i++) {
+            skiers.add(skierRepository.save(new Skier()).getNumSkier());
+        }
+        List<Long> existing = pistes(excursions);
+        skierRepository.insertExcursions(skiers, existing);
+
+        // Warm-up of both paths, on pistes that are not measured
+        List<Long> warmUp = pistes(2);
+        runCollection(skiers, warmUp.subList(0, 1));
+        runDirect(skiers, warmUp.subList(1, 2));
+
+        long collection = runCollection(skiers, pistes(NEW_PISTES));
+        long direct = runDirect(skiers, pistes(NEW_PISTES));
+        List<Long> bulkPistes = pistes(NEW_PISTES);
+        long began = System.nanoTime();
+        BulkExcursionResult result = skierServices.assignSkiersToPistes(skiers, bulkPistes);
+        long bulk = System.nanoTime() - began;
+
+        int assignments = SKIERS * NEW_PISTES;
+        double speedup = (double) collection / direct;
+        log.info(String.format("%d assignments to skiers with %d excursions: collection %.0f us each, direct %.0f us"
+                        + " each (x%.1f), one bulk statement %.0f us in all",
+                assignments, excursions, collection / 1000.0 / assignments, direct / 1000.0 / assignments, speedup,
+                bulk / 1000.0));
+        assertEquals(assignments, result.getAssigned());
+        assertEquals(excursions + 3L * NEW_PISTES + 2, excursions(skiers.get(0)));
+        assertTrue(speedup >= Double.parseDouble(System.getProperty("bench.minSpeedup", "5")),
+                "Direct assignments are only " + speedup + " times faster");
+    }
+
+    /** Former path: loads every excursion of the skier to add one and saves the skier. */
+    private long runCollection(List<Long> skiers, List<Long> pistes) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long began = System.nanoTime();
+        for (Long numPiste : pistes) {
+            for (Long numSkier : skiers) {
+                transaction.executeWithoutResult(status -> {
+                    Skier skier = skierRepository.findById(numSkier).orElseThrow();
+                    skier.getPistes().add(pisteRepository.getReferenceById(numPiste));
+                    skierRepository.save(skier);
+                });
+            }
+        }
+        return System.nanoTime() - began;
+    }
+
+    private long runDirect(List<Long> skiers, List<Long> pistes) {
+        long began = System.nanoTime();
+        for (Long numPiste : pistes) {
+            for (Long numSkier : skiers) {
+                assertNotNull(skierServices.assignSkierToPiste(numSkier, numPiste));
+            }
+        }
+        return System.nanoTime() - began;
+    }
+
+    private List<Long> pistes(int count) {
+        List<Piste> pistes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pistes.add(new Piste(null, "Piste" + i, Color.values()[i % Color.values().length], 1000, 20, null));
+        }
+        List<Long> ids = new ArrayList<>();
+        pisteRepository.saveAll(pistes).forEach(piste -> ids.add(piste.getNumPiste()));
+        return ids;
+    }
+
+    private long excursions(Long numSkier) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                (long) skierRepository.findById(numSkier).orElseThrow().getPistes().size());
+    }
+}
@@ -0,0 +1,163 @@
+package tn.esprit.spring.benchmarks;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Instructor;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.EntityIds;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorRepository;
+import tn.esprit.spring.repositories.IInstructorWeekRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.IRegistrationServices;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Grows the registration table through the sizes of {@code bench.registrations} and times
+ * the weeks of an instructor read from the instructor week index, next to the reference
+ * join it replaces.
+ * <p>
+ * The default sizes fit the in-process H2 database; run it against MySQL with
+ * {@code -Dbench.registrations=10000,100000,1000000,5000000}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class InstructorWeekBenchmark {
+
+    private static final int INSTRUCTORS = 20;
+    private static final int COURSES_PER_INSTRUCTOR = 5;
+    private static final int INSERT_BATCH = 5000;
+    private static final int INDEX_LOOKUPS = 200;
+    private static final int REFERENCE_LOOKUPS = 5;
+    private static final int WEEKS = 52;
+
+    @Autowired
+    private IRegistrationServices registrationServices;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private IInstructorWeekRepository instructorWeekRepository;
+
+    @Autowired
+    private IInstructorRepository instructorRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void benchmarkWeeksLookupAsRegistrationsGrow() {
+        List<Long> skiers = new ArrayList<>();
+        List<Long> courses = new ArrayList<>();
+        Long numInstructor = null;
+        for (int i = 0; i < INSTRUCTORS; i++) {
+            Set<Course> taught = new HashSet<>();
+            for (int c = 0; c < COURSES_PER_INSTRUCTOR; c++) {
+                Course course = new Course();
+                course.setTypeCourse(TypeCourse.INDIVIDUAL);
+                course.setSupport(c % 2 == 0 ? Support.SKI : Support.SNOWBOARD);
+                course = courseRepository.save(course);
+                taught.add(course);
+                courses.add(course.getNumCourse());
+            }
+            Instructor instructor = new Instructor();
+            instructor.setCourses(taught);
+            numInstructor = instructorRepository.save(instructor).getNumInstructor();
+        }
+
+        long[] sizes = Arrays.stream(System.getProperty("bench.registrations", "10000,100000").split(","))
+                .mapToLong(size -> Long.parseLong(size.trim())).toArray();
+        double first = 0;
+        double last = 0;
+        for (long size : sizes) {
+            grow(size, skiers, courses);
+            instructorWeekRepository.reconcile(null);
+
+            Long instructorId = numInstructor;
+            List<Integer> weeks = registrationServices.numWeeksCourseOfInstructorBySupport(instructorId, Support.SKI);
+            assertEquals(registrationRepository.numWeeksCourseOfInstructorBySupport(instructorId, Support.SKI)
+                    .stream().sorted().toList(), weeks);
+
+            double index = median(INDEX_LOOKUPS,
+                    () -> registrationServices.numWeeksCourseOfInstructorBySupport(instructorId, Support.SKI));
+            double reference = median(REFERENCE_LOOKUPS,
+                    () -> registrationRepository.numWeeksCourseOfInstructorBySupport(instructorId, Support.SKI));
+            log.info(String.format("%d registrations: index %.0f us, reference join %.0f us", size, index, reference));
+            if (first == 0) {
+                first = index;
+            }
+            last = index;
+        }
+        double maxGrowth = Double.parseDouble(System.getProperty("bench.maxGrowth", "3"));
+        // Sub-100 us medians are dominated by timer noise
+        assertTrue(Math.max(last, 100) <= maxGrowth * Math.max(first, 100),
+                "Index lookup grew from " + first + " us to " + last + " us");
+    }
+
+    /** Registers each skier to every course for every week before the next one, creating skiers as needed. */
+    private void grow(long size, List<Long> skiers, List<Long> courses) {
+        EntityIds entityIds = new EntityIds(entityManagerFactory);
+        long row = jdbcTemplate.queryForObject("select count(*) from registration", Long.class);
+        int perSkier = courses.size() * WEEKS;
+        while (row < size) {
+            int batch = (int) Math.min(INSERT_BATCH, size - row);
+            long[] ids = entityIds.next(Registration.class, batch);
+            List<Object[]> rows = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++, row++) {
+                while (skiers.size() <= row / perSkier) {
+                    Skier skier = new Skier();
+                    skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+                    skiers.add(skierRepository.save(skier).getNumSkier());
+                }
+                rows.add(new Object[]{ids[i], 1 + (int) (row / courses.size() % WEEKS),
+                        skiers.get((int) (row / perSkier)), courses.get((int) (row % courses.size()))});
+            }
+            jdbcTemplate.batchUpdate("insert into registration (num_registration, num_week, skier_num_skier, "
+                    + "course_num_course) values (?, ?, ?, ?)", rows);
+        }
+    }
+
+    private static double median(int lookups, Runnable lookup) {
+        long[] elapsed = new long[lookups];
+        for (int i = 0; i < lookups; i++) {
+            long began = System.nanoTime();
+            lookup.run();
+            elapsed[i] = System.nanoTime() - began;
+        }
+        Arrays.sort(elapsed);
+        return elapsed[lookups / 2] / 1000.0;
+    }
+}
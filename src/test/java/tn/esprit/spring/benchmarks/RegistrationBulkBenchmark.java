@@ -0,0 +1,115 @@
+package tn.esprit.spring.benchmarks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.BulkRegistrationItem;
+import tn.esprit.spring.dto.BulkRegistrationResult;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.IRegistrationServices;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares 500 calls of the single registration path with one bulk call of 500 items.
+ * <p>
+ * Against the in-process H2 database there is no network round trip to save, so the
+ * default expected speed-up is 5; run it against MySQL with {@code -Dbench.minSpeedup=10}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class RegistrationBulkBenchmark {
+
+    private static final int ROWS = 500;
+    private static final int COURSES = 10;
+
+    @Autowired
+    private IRegistrationServices registrationServices;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Test
+    void benchmarkBulkAgainstSingleRegistrations() {
+        List<Skier> skiers = createSkiers(4 * ROWS);
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+            courses.add(course);
+        }
+        courses = courseRepository.saveAll(courses);
+
+        // Warm-up of both paths with the same volume, on skiers that are not measured
+        runSingle(skiers.subList(2 * ROWS, 3 * ROWS), courses);
+        runBulk(skiers.subList(3 * ROWS, 4 * ROWS), courses);
+
+        long single = runSingle(skiers.subList(0, ROWS), courses);
+        long bulk = runBulk(skiers.subList(ROWS, 2 * ROWS), courses);
+
+        double speedup = (double) single / bulk;
+        log.info(String.format("%d registrations: single path %.1f us/row, bulk %.1f us/row, speed-up x%.1f",
+                ROWS, single / 1000.0 / ROWS, bulk / 1000.0 / ROWS, speedup));
+        assertTrue(speedup >= Double.parseDouble(System.getProperty("bench.minSpeedup", "5")),
+                "Bulk registration is only " + speedup + " times faster");
+    }
+
+    private List<Skier> createSkiers(int count) {
+        List<Skier> skiers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("Skier" + i);
+            skier.setLastName("Bench");
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skiers.add(skier);
+        }
+        return skierRepository.saveAll(skiers);
+    }
+
+    private long runSingle(List<Skier> skiers, List<Course> courses) {
+        long began = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            Registration registration = new Registration(null, week(i), null, null, null);
+            assertNotNull(registrationServices.addRegistrationAndAssignToSkierAndCourse(registration,
+                    skiers.get(i).getNumSkier(), courses.get(i % COURSES).getNumCourse()));
+        }
+        return System.nanoTime() - began;
+    }
+
+    private long runBulk(List<Skier> skiers, List<Course> courses) {
+        List<BulkRegistrationItem> items = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            items.add(new BulkRegistrationItem(skiers.get(i).getNumSkier(),
+                    courses.get(i % COURSES).getNumCourse(), week(i)));
+        }
+        long began = System.nanoTime();
+        List<BulkRegistrationResult> results = registrationServices.addRegistrationsInBulk(items);
+        long elapsed = System.nanoTime() - began;
+        assertTrue(results.stream().allMatch(result -> result.getOutcome() == RegistrationOutcome.ACCEPTED));
+        return elapsed;
+    }
+
+    private static int week(int i) {
+        return 1 + (i / COURSES) % 50;
+    }
+}
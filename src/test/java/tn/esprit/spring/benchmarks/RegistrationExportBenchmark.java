@@ -0,0 +1,166 @@
+package tn.esprit.spring.benchmarks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.IRegistrationServices;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exports 200 000 registrations as gzipped NDJSON, as the export endpoint does, and
+ * measures the heap still reachable halfway through the export, after a full collection,
+ * against the heap held by the former path loading every registration as an entity.
+ * <p>
+ * The reachable heap of the export does not depend on the number of rows; run other sizes
+ * with {@code -Dbench.registrations=...}, and skip the loaded list, which soon outgrows a
+ * small heap, with {@code -Dbench.loadList=false}. The in-memory H2 database itself lives in
+ * the heap, so the 5M rows under 512 MB target is checked against MySQL with {@code -Xmx512m}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class RegistrationExportBenchmark {
+
+    private static final int COURSES = 20;
+    private static final int WEEKS = 52;
+    private static final int CHUNK = 10_000;
+
+    @Autowired
+    private IRegistrationServices registrationServices;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Test
+    void benchmarkStreamedExportAgainstLoadedList() throws IOException {
+        int registrations = Integer.getInteger("bench.registrations", 200_000);
+        insertRegistrations(registrations);
+
+        // Warm-up, which also gives the size of the export
+        long bytes = export(Long.MAX_VALUE).written;
+
+        long baseline = reachableHeap();
+        long began = System.nanoTime();
+        CountingOutputStream counted = export(bytes / 2);
+        double seconds = (System.nanoTime() - began) / 1e9;
+        long exportHeap = counted.reachableHalfway - baseline;
+
+        long listHeap = 0;
+        if (Boolean.parseBoolean(System.getProperty("bench.loadList", "true"))) {
+            List<Registration> loaded = new ArrayList<>();
+            registrationRepository.findAll().forEach(loaded::add);
+            listHeap = reachableHeap() - baseline;
+            assertEquals(registrations, loaded.size());
+        }
+
+        log.info(String.format("%d registrations exported in %.2f s (%.0f rows/s, %.1f MB gzipped): %.1f MB reachable"
+                        + " halfway through the export, %.1f MB for the loaded list",
+                registrations, seconds, registrations / seconds, counted.written / 1e6, exportHeap / 1e6,
+                listHeap / 1e6));
+        assertTrue(exportHeap / 1e6 <= Double.parseDouble(System.getProperty("bench.maxExportHeapMb", "32")),
+                "The export keeps " + exportHeap / 1e6 + " MB reachable");
+    }
+
+    private CountingOutputStream export(long gcAfterBytes) throws IOException {
+        CountingOutputStream counted = new CountingOutputStream(gcAfterBytes);
+        GZIPOutputStream out = new GZIPOutputStream(counted, 64 * 1024);
+        registrationServices.exportRegistrations(out, ExportFormat.NDJSON);
+        out.finish();
+        return counted;
+    }
+
+    private void insertRegistrations(int count) {
+        // Each skier is registered to every course for every week before the next one
+        List<Skier> skiers = new ArrayList<>();
+        for (int i = 0; i < (count + COURSES * WEEKS - 1) / (COURSES * WEEKS); i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("Skier" + i);
+            skier.setLastName("Bench");
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skiers.add(skier);
+        }
+        skiers = skierRepository.saveAll(skiers);
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setTypeCourse(TypeCourse.INDIVIDUAL);
+            course.setSupport(Support.SKI);
+            courses.add(course);
+        }
+        courses = courseRepository.saveAll(courses);
+        for (int from = 0; from < count; from += CHUNK) {
+            List<Registration> chunk = new ArrayList<>(CHUNK);
+            for (int i = from; i < Math.min(from + CHUNK, count); i++) {
+                chunk.add(new Registration(null, i / COURSES % WEEKS + 1, null, skiers.get(i / (COURSES * WEEKS)),
+                        courses.get(i % COURSES)));
+            }
+            registrationRepository.insertAll(chunk);
+        }
+    }
+
+    private static long reachableHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Counts the compressed bytes, and measures the reachable heap once past the given count. */
+    private static class CountingOutputStream extends OutputStream {
+
+        private final long gcAfterBytes;
+        private long written;
+        private long reachableHalfway;
+
+        CountingOutputStream(long gcAfterBytes) {
+            this.gcAfterBytes = gcAfterBytes;
+        }
+
+        @Override
+        public void write(int b) {
+            count(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count(len);
+        }
+
+        private void count(int len) {
+            written += len;
+            if (reachableHalfway == 0 && written >= gcAfterBytes) {
+                reachableHalfway = reachableHeap();
+            }
+        }
+    }
+}
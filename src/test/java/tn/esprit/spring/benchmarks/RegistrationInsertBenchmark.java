@@ -0,0 +1,119 @@
+package tn.esprit.spring.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Persists 100 000 registrations through JPA twice: once sending one insert per row, as
+ * Hibernate must while ids come from IDENTITY columns, then with the JDBC batches the
+ * pooled id generator allows. Run another size with {@code -Dbench.registrations=...}.
+ * <p>
+ * Against the in-process H2 database there is no network round trip to save, so the
+ * default expected speed-up is low; run it against MySQL with {@code -Dbench.minSpeedup=5}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class RegistrationInsertBenchmark {
+
+    private static final int COURSES = 50;
+    private static final int WEEKS = 52;
+    private static final int FLUSH_EVERY = 1000;
+    private static final int WARM_UP = 5000;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Test
+    void benchmarkBatchedAgainstSingleInserts() {
+        int size = Integer.getInteger("bench.registrations", 100_000);
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setTypeCourse(TypeCourse.INDIVIDUAL);
+            courses.add(course);
+        }
+        courses = courseRepository.saveAll(courses);
+
+        insert(WARM_UP, 1, createSkiers(WARM_UP), courses);
+        insert(WARM_UP, null, createSkiers(WARM_UP), courses);
+        long single = insert(size, 1, createSkiers(size), courses);
+        long batched = insert(size, null, createSkiers(size), courses);
+
+        double speedup = (double) single / batched;
+        log.info(String.format("%d registrations: one insert per row %.0f rows/s, batched %.0f rows/s, speed-up x%.1f",
+                size, size * 1e9 / single, size * 1e9 / batched, speedup));
+        assertEquals(2L * (size + WARM_UP), registrationRepository.count());
+        assertTrue(speedup >= Double.parseDouble(System.getProperty("bench.minSpeedup", "1.2")),
+                "Batched inserts are only " + speedup + " times faster");
+    }
+
+    /** Enough skiers for {@code count} registrations, each to every course for every week. */
+    private List<Skier> createSkiers(int count) {
+        List<Skier> skiers = new ArrayList<>();
+        for (int i = 0; i < (count + COURSES * WEEKS - 1) / (COURSES * WEEKS); i++) {
+            Skier skier = new Skier();
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skiers.add(skier);
+        }
+        return skierRepository.saveAll(skiers);
+    }
+
+    /**
+     * Persists {@code count} registrations in one transaction, flushing every
+     * {@link #FLUSH_EVERY} rows, with the given JDBC batch size or the configured one.
+     */
+    private long insert(int count, Integer batchSize, List<Skier> skiers, List<Course> courses) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            long began = System.nanoTime();
+            entityManager.getTransaction().begin();
+            for (int i = 0; i < count; i++) {
+                entityManager.persist(new Registration(null, 1 + i / COURSES % WEEKS, null,
+                        entityManager.getReference(Skier.class, skiers.get(i / (COURSES * WEEKS)).getNumSkier()),
+                        entityManager.getReference(Course.class, courses.get(i % COURSES).getNumCourse())));
+                if ((i + 1) % FLUSH_EVERY == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.getTransaction().commit();
+            return System.nanoTime() - began;
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package tn.esprit.spring.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.JournalEntryType;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.EntityIds;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.RegistrationJournal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rebuilds the per course and week registration counts, as the capacity ledger does at
+ * startup, by replaying a registration journal and by a full-table JPA scan, and compares
+ * the two. Run it with a larger table with {@code -Dbench.registrations=1000000}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class RegistrationJournalBenchmark {
+
+    private static final int COURSES = 50;
+    private static final int WEEKS = 52;
+    private static final int INSERT_BATCH = 5000;
+    private static final int RUNS = 3;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void benchmarkReplayAgainstTableScan() {
+        long size = Long.getLong("bench.registrations", 100_000);
+        grow(size);
+        RegistrationJournal journal = new RegistrationJournal(registrationRepository, new SimpleMeterRegistry(),
+                directory.toString(), 1 << 16, Duration.ofDays(30));
+        assertEquals(registrationRepository.count(), journal.nextOffset());
+
+        Map<Long, int[]> replayed = new HashMap<>();
+        Map<Long, int[]> scanned = new HashMap<>();
+        double replay = fastest(() -> {
+            replayed.clear();
+            journal.replay(0L, entry -> {
+                if (entry.getType() == JournalEntryType.ADDED) {
+                    replayed.computeIfAbsent(entry.getNumCourse(), numCourse -> new int[54])[entry.getNumWeek()]++;
+                }
+            });
+        });
+        double scan = fastest(() -> {
+            scanned.clear();
+            for (Registration registration : registrationRepository.findAll()) {
+                scanned.computeIfAbsent(registration.getCourse().getNumCourse(), numCourse -> new int[54])
+                        [registration.getNumWeek()]++;
+            }
+        });
+
+        log.info(String.format("%d registrations: journal replay %.0f ms, JPA table scan %.0f ms", size, replay, scan));
+        assertEquals(scanned.keySet(), replayed.keySet());
+        scanned.forEach((numCourse, weeks) -> assertArrayEquals(weeks, replayed.get(numCourse)));
+        assertTrue(replay * 5 < scan, "Replay took " + replay + " ms against " + scan + " ms for the table scan");
+    }
+
+    private void grow(long size) {
+        EntityIds entityIds = new EntityIds(entityManagerFactory);
+        List<Long> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setTypeCourse(TypeCourse.INDIVIDUAL);
+            courses.add(courseRepository.save(course).getNumCourse());
+        }
+        // Each skier is registered to every course for every week before the next one
+        long existing = registrationRepository.count();
+        List<Long> skiers = new ArrayList<>();
+        long missing = size - existing;
+        for (long i = 0; i < (missing + COURSES * WEEKS - 1) / (COURSES * WEEKS); i++) {
+            Skier skier = new Skier();
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skiers.add(skierRepository.save(skier).getNumSkier());
+        }
+        long next = 0;
+        while (missing > 0) {
+            int batch = (int) Math.min(INSERT_BATCH, missing);
+            long[] ids = entityIds.next(Registration.class, batch);
+            List<Object[]> rows = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++, next++) {
+                rows.add(new Object[]{ids[i], (int) (next / COURSES % WEEKS) + 1,
+                        skiers.get((int) (next / (COURSES * WEEKS))), courses.get((int) (next % COURSES))});
+            }
+            jdbcTemplate.batchUpdate("insert into registration (num_registration, num_week, skier_num_skier, "
+                    + "course_num_course) values (?, ?, ?, ?)", rows);
+            missing -= batch;
+        }
+    }
+
+    private static double fastest(Runnable rebuild) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long began = System.nanoTime();
+            rebuild.run();
+            best = Math.min(best, System.nanoTime() - began);
+        }
+        return best / 1_000_000.0;
+    }
+}
@@ -0,0 +1,124 @@
+package tn.esprit.spring.benchmarks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.services.EntityLookups;
+import tn.esprit.spring.services.IRegistrationServices;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the latency of the single registration path over 100 skiers and 20 courses,
+ * once with the entity caches emptied before every call, then with the caches warm, and
+ * compares their 99th percentiles.
+ * <p>
+ * Against the in-process H2 database a lookup costs no network round trip, so the default
+ * expected improvement is low; run it against MySQL with {@code -Dbench.minP99Speedup=1.5}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class RegistrationLookupCacheBenchmark {
+
+    private static final int SKIERS = 100;
+    private static final int COURSES = 20;
+    private static final int CALLS = SKIERS * COURSES;
+
+    @Autowired
+    private IRegistrationServices registrationServices;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void benchmarkCachedAgainstUncachedLookups() {
+        List<Skier> skiers = new ArrayList<>();
+        for (int i = 0; i < SKIERS; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("Skier" + i);
+            skier.setLastName("Bench");
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skiers.add(skier);
+        }
+        skiers = skierRepository.saveAll(skiers);
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setTypeCourse(TypeCourse.INDIVIDUAL);
+            course.setSupport(Support.SKI);
+            courses.add(course);
+        }
+        courses = courseRepository.saveAll(courses);
+
+        // Each run registers every skier to every course for a week of its own
+        register(1, skiers, courses, false);
+        register(2, skiers, courses, true);
+        long[] uncached = register(3, skiers, courses, false);
+        long[] cached = register(4, skiers, courses, true);
+
+        double speedup = (double) percentile(uncached, 0.99) / percentile(cached, 0.99);
+        log.info(String.format("%d registrations: uncached p50 %.0f us, p99 %.0f us; cached p50 %.0f us, p99 %.0f us;"
+                        + " p99 speed-up x%.2f, skier cache hit ratio %.2f",
+                CALLS, percentile(uncached, 0.5) / 1000.0, percentile(uncached, 0.99) / 1000.0,
+                percentile(cached, 0.5) / 1000.0, percentile(cached, 0.99) / 1000.0, speedup,
+                meterRegistry.get("cache.hit.ratio").tag("cache", EntityLookups.SKIERS).gauge().value()));
+        assertTrue(speedup >= Double.parseDouble(System.getProperty("bench.minP99Speedup", "1.05")),
+                "The p99 of cached lookups is only " + speedup + " times lower");
+    }
+
+    /**
+     * Latencies of one registration per skier and course for the given week, with the
+     * caches kept or emptied before each call.
+     */
+    private long[] register(int week, List<Skier> skiers, List<Course> courses, boolean cached) {
+        long[] latencies = new long[CALLS];
+        for (int i = 0; i < CALLS; i++) {
+            if (!cached) {
+                EntityLookups.CACHES.forEach(name -> cacheManager.getCache(name).clear());
+            }
+            Registration registration = new Registration(null, week, null, null, null);
+            long began = System.nanoTime();
+            Registration saved = registrationServices.addRegistrationAndAssignToSkierAndCourse(registration,
+                    skiers.get(i % SKIERS).getNumSkier(), courses.get(i / SKIERS).getNumCourse());
+            latencies[i] = System.nanoTime() - began;
+            assertNotNull(saved.getNumRegistration());
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] latencies, double rank) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(rank * sorted.length) - 1];
+    }
+}
@@ -0,0 +1,177 @@
+package tn.esprit.spring.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.core.io.DefaultResourceLoader;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.services.RegistrationRuleEngine;
+import tn.esprit.spring.services.RegistrationRules;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JMH comparison of a registration rule check with the duplicate count query the single
+ * registration path runs next to it, the cheapest I/O of that path, on an in-memory H2
+ * table. Also measures the bytes allocated per rule check, which must be none.
+ */
+@Slf4j
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegistrationRulesBenchmark {
+
+    private static final TypeCourse[] TYPES = TypeCourse.values();
+    private static final Support[] SUPPORTS = Support.values();
+    private static final int REGISTRATIONS = 10_000;
+    private static final int ALLOCATION_CHECKS = 1_000_000;
+
+    @State(Scope.Thread)
+    public static class Rules {
+
+        RegistrationRules rules;
+        int next;
+
+        @Setup
+        public void load() {
+            rules = engine().rules();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Database {
+
+        Connection connection;
+        PreparedStatement countDuplicates;
+        int next;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            connection = DriverManager.getConnection("jdbc:h2:mem:rules_benchmark;DB_CLOSE_DELAY=-1");
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("drop table if exists registration");
+                statement.execute("create table registration (num_registration bigint primary key, num_week int, "
+                        + "skier_num_skier bigint, course_num_course bigint)");
+                statement.execute("create index idx_registration_skier on registration (skier_num_skier, course_num_course, num_week)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("insert into registration values (?, ?, ?, ?)")) {
+                for (int i = 0; i < REGISTRATIONS; i++) {
+                    insert.setLong(1, i);
+                    insert.setInt(2, i % 52 + 1);
+                    insert.setLong(3, i % 2000);
+                    insert.setLong(4, i % 50);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            countDuplicates = connection.prepareStatement("select count(*) from registration "
+                    + "where num_week = ? and skier_num_skier = ? and course_num_course = ?");
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public RegistrationOutcome checkRules(Rules state) {
+        int i = state.next++;
+        return state.rules.check(TYPES[i % TYPES.length], SUPPORTS[i & 1], i & 63);
+    }
+
+    @Benchmark
+    public long countDuplicates(Database state) throws SQLException {
+        int i = state.next++;
+        state.countDuplicates.setInt(1, i % 52 + 1);
+        state.countDuplicates.setLong(2, i % 2000);
+        state.countDuplicates.setLong(3, i % 50);
+        try (ResultSet resultSet = state.countDuplicates.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    @Test
+    void testRuleCheckIsNegligibleNextToQuery() throws Exception {
+        // Given
+        Options options = new OptionsBuilder()
+                .include(RegistrationRulesBenchmark.class.getSimpleName())
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+
+        // When
+        Collection<RunResult> results = new Runner(options).run();
+
+        // Then
+        double rules = score(results, "checkRules");
+        double query = score(results, "countDuplicates");
+        log.info("Rule check " + String.format("%.1f", rules) + " ns, duplicate query " + String.format("%.1f", query) + " ns");
+        assertTrue(rules * 100 < query, "Rule check " + rules + " ns is not negligible next to " + query + " ns");
+    }
+
+    @Test
+    void testRuleCheckAllocatesNothing() {
+        // Given
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        RegistrationRules rules = engine().rules();
+        int accepted = 0;
+        for (int i = 0; i < ALLOCATION_CHECKS; i++) {
+            accepted += rules.check(TYPES[i % TYPES.length], SUPPORTS[i & 1], i & 63) == RegistrationOutcome.ACCEPTED ? 1 : 0;
+        }
+
+        // When
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ALLOCATION_CHECKS; i++) {
+            accepted += rules.check(TYPES[i % TYPES.length], SUPPORTS[i & 1], i & 63) == RegistrationOutcome.ACCEPTED ? 1 : 0;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Then
+        log.info(allocated + " bytes allocated by " + ALLOCATION_CHECKS + " rule checks (" + accepted + " accepted)");
+        assertTrue(allocated < 1024, allocated + " bytes allocated by " + ALLOCATION_CHECKS + " rule checks");
+    }
+
+    private static double score(Collection<RunResult> results, String method) {
+        return results.stream()
+                .filter(result -> result.getParams().getBenchmark().endsWith("." + method))
+                .findFirst()
+                .orElseThrow()
+                .getPrimaryResult().getScore();
+    }
+
+    private static RegistrationRuleEngine engine() {
+        return new RegistrationRuleEngine(new DefaultResourceLoader(), new ObjectMapper(), new SimpleMeterRegistry(),
+                "classpath:registration-rules.json");
+    }
+}
@@ -0,0 +1,133 @@
+package tn.esprit.spring.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.SubscriptionView;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.EntityIds;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares, at one million subscriptions, the former subscriptions-by-type path (every
+ * subscription of the type loaded as a managed entity after an ORDER BY, then hashed into
+ * a set) with the keyset projection behind {@code /subscription/all/{typeSub}}: its first
+ * page, and a walk over every page of the type. Run another size with
+ * {@code -Dbench.subscriptions=...}.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.springframework.web=WARN",
+        "logging.level.tn.esprit.spring.services=WARN"
+})
+@ActiveProfiles("test")
+class SubscriptionByTypeBenchmark {
+
+    private static final int INSERT_BATCH = 5000;
+    private static final int PAGE_SIZE = 100;
+    private static final int WALK_PAGE_SIZE = 1000;
+    private static final int RUNS = 3;
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void benchmarkProjectionPagesAgainstEntitySet() {
+        long size = Long.getLong("bench.subscriptions", 1_000_000);
+        grow(size);
+        TypeSubscription type = TypeSubscription.MONTHLY;
+
+        Set<Subscription> all = new HashSet<>();
+        double entitySet = fastest(() -> {
+            EntityManager entityManager = entityManagerFactory.createEntityManager();
+            try {
+                all.clear();
+                all.addAll(entityManager.createQuery("select s from Subscription s where s.typeSub = :typeS "
+                                + "order by s.startDate", Subscription.class)
+                        .setParameter("typeS", type)
+                        .getResultList());
+            } finally {
+                entityManager.close();
+            }
+            return all.size();
+        });
+        double firstPage = fastest(() -> subscriptionRepository.findViewsByTypeSub(type, PageRequest.of(0, PAGE_SIZE))
+                .size());
+        List<Long> walked = new ArrayList<>();
+        double walk = fastest(() -> {
+            walked.clear();
+            List<SubscriptionView> page = subscriptionRepository.findViewsByTypeSub(type,
+                    PageRequest.of(0, WALK_PAGE_SIZE));
+            while (!page.isEmpty()) {
+                page.forEach(subscription -> walked.add(subscription.getNumSub()));
+                SubscriptionView last = page.get(page.size() - 1);
+                page = subscriptionRepository.findViewsByTypeSubAfter(type, last.getStartDate(), last.getNumSub(),
+                        PageRequest.of(0, WALK_PAGE_SIZE));
+            }
+            return walked.size();
+        });
+
+        log.info(String.format("%d subscriptions, %d of type %s: entity set %.0f ms, first page of %d %.2f ms, "
+                        + "walk in pages of %d %.0f ms", size, all.size(), type, entitySet, PAGE_SIZE, firstPage,
+                WALK_PAGE_SIZE, walk));
+        assertEquals(all.size(), walked.size());
+        assertEquals(all.size(), new HashSet<>(walked).size());
+        assertTrue(firstPage * 100 < entitySet,
+                "First page took " + firstPage + " ms against " + entitySet + " ms for the entity set");
+    }
+
+    private void grow(long size) {
+        EntityIds entityIds = new EntityIds(entityManagerFactory);
+        TypeSubscription[] types = TypeSubscription.values();
+        LocalDate first = LocalDate.of(2020, 11, 1);
+        Random random = new Random(42);
+        long missing = size - subscriptionRepository.count();
+        while (missing > 0) {
+            int batch = (int) Math.min(INSERT_BATCH, missing);
+            long[] ids = entityIds.next(Subscription.class, batch);
+            List<Object[]> rows = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++) {
+                LocalDate startDate = first.plusDays(random.nextInt(5 * 365));
+                rows.add(new Object[]{ids[i], startDate, startDate.plusMonths(1), 50 + random.nextInt(900),
+                        types[random.nextInt(types.length)].ordinal()});
+            }
+            jdbcTemplate.batchUpdate("insert into subscription (num_sub, start_date, end_date, price, type_sub) "
+                    + "values (?, ?, ?, ?, ?)", rows);
+            missing -= batch;
+        }
+    }
+
+    private static double fastest(Supplier<Integer> query) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long began = System.nanoTime();
+            assertTrue(query.get() > 0);
+            best = Math.min(best, System.nanoTime() - began);
+        }
+        return best / 1_000_000.0;
+    }
+}
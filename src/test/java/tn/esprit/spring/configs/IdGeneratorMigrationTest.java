@@ -0,0 +1,86 @@
+package tn.esprit.spring.configs;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.entities.Color;
+import tn.esprit.spring.entities.IdGenerators;
+import tn.esprit.spring.entities.Piste;
+import tn.esprit.spring.repositories.EntityIds;
+import tn.esprit.spring.repositories.IPisteRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on H2 that ids handed out after the migration, by Hibernate or for JDBC inserts,
+ * never collide with rows inserted before it with ids of their own.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdGeneratorMigrationTest {
+
+    @Autowired
+    private IPisteRepository pisteRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        pisteRepository.deleteAll();
+    }
+
+    @Test
+    void testIdsStartPastExistingRows() {
+        // Given
+        long legacy = nextLegacyId();
+        jdbcTemplate.update("insert into piste (num_piste, name_piste, color, length, slope) values (?, ?, ?, ?, ?)",
+                legacy, "legacy", Color.RED.name(), 1200, 30);
+        IdGeneratorMigration migration = new IdGeneratorMigration(entityManagerFactory, jdbcTemplate);
+
+        // When
+        migration.afterPropertiesSet();
+        migration.afterPropertiesSet();
+        List<Piste> pistes = new ArrayList<>();
+        for (int i = 0; i < 3 * IdGenerators.ALLOCATION_SIZE; i++) {
+            pistes.add(new Piste(null, "piste" + i, Color.BLUE, 800, 20, null));
+        }
+        pisteRepository.saveAll(pistes);
+        long[] jdbcIds = new EntityIds(entityManagerFactory).next(Piste.class, IdGenerators.ALLOCATION_SIZE);
+
+        // Then
+        Set<Long> ids = new HashSet<>();
+        ids.add(legacy);
+        for (Piste piste : pistes) {
+            assertTrue(piste.getNumPiste() > legacy);
+            assertTrue(ids.add(piste.getNumPiste()));
+        }
+        for (long id : jdbcIds) {
+            assertTrue(id > legacy);
+            assertTrue(ids.add(id), "Id " + id + " handed out twice");
+        }
+        assertEquals(pistes.size() + 1, pisteRepository.count());
+    }
+
+    /** An id well beyond the block the generator may already have reserved in memory. */
+    private long nextLegacyId() {
+        Long stored = jdbcTemplate.queryForObject("select max(" + IdGenerators.VALUE_COLUMN + ") from "
+                + IdGenerators.TABLE, Long.class);
+        return (stored == null ? 0 : stored) + 10 * IdGenerators.ALLOCATION_SIZE;
+    }
+}
@@ -0,0 +1,278 @@
+package tn.esprit.spring.configs;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tn.esprit.spring.services.JobLeases;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"firstName\":\"John\"}";
+
+    private InMemoryIdempotentResponses responses;
+
+    private IdempotencyFilter idempotencyFilter;
+
+    @BeforeEach
+    void setUp() {
+        responses = new InMemoryIdempotentResponses();
+        idempotencyFilter = node();
+    }
+
+    @Test
+    void testConcurrentRequestsRunOnce() throws Exception {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            running.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ((HttpServletResponse) response).setStatus(201);
+            response.getOutputStream().write("{\"numSkier\":1}".getBytes(StandardCharsets.UTF_8));
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // When
+        Future<MockHttpServletResponse> first = executor.submit(() -> send(chain));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        MockHttpServletResponse whileRunning = send(chain);
+        release.countDown();
+        assertEquals(201, first.get(10, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse retried = send(chain);
+
+        // Then
+        assertEquals(409, whileRunning.getStatus());
+        assertEquals("2", whileRunning.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(201, retried.getStatus());
+        assertEquals("true", retried.getHeader(IdempotencyFilter.REPLAYED));
+        assertEquals("{\"numSkier\":1}", retried.getContentAsString());
+        assertEquals(1, executions.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testServerErrorIsNotStored() throws Exception {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            ((HttpServletResponse) response).setStatus(executions.incrementAndGet() == 1 ? 503 : 201);
+        };
+
+        // When
+        MockHttpServletResponse failed = send(chain);
+        MockHttpServletResponse retried = send(chain);
+
+        // Then
+        assertEquals(503, failed.getStatus());
+        assertEquals(201, retried.getStatus());
+        assertNull(retried.getHeader(IdempotencyFilter.REPLAYED));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testRequestWithoutKeyIsNotFiltered() throws Exception {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = (request, response) -> executions.incrementAndGet();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/skier/add");
+
+        // When
+        idempotencyFilter.doFilter(request, new MockHttpServletResponse(), chain);
+        idempotencyFilter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testRetryOnAnotherNodeIsReplayed() throws Exception {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(201);
+            response.getOutputStream().write("{\"numSkier\":1}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        // When
+        MockHttpServletResponse first = send(chain);
+        MockHttpServletResponse retried = send(node(), chain);
+
+        // Then
+        assertEquals(201, first.getStatus());
+        assertEquals(201, retried.getStatus());
+        assertEquals("true", retried.getHeader(IdempotencyFilter.REPLAYED));
+        assertEquals("{\"numSkier\":1}", retried.getContentAsString());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testRetryOnAnotherNodeWhileRunningIsAnsweredAtOnce() throws Exception {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain chain = (request, response) -> {
+            executions.incrementAndGet();
+            running.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ((HttpServletResponse) response).setStatus(201);
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        IdempotencyFilter otherNode = node();
+
+        // When
+        Future<MockHttpServletResponse> first = executor.submit(() -> send(chain));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        long began = System.nanoTime();
+        MockHttpServletResponse retried = send(otherNode, chain);
+        long elapsedMillis = (System.nanoTime() - began) / 1_000_000;
+        release.countDown();
+
+        // Then
+        assertEquals(201, first.get(10, TimeUnit.SECONDS).getStatus());
+        assertEquals(409, retried.getStatus());
+        assertEquals("2", retried.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(elapsedMillis < 1000, "Retry held for " + elapsedMillis + " ms");
+        assertEquals(1, executions.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testCachedBodyReadListenerReadsAtOnce() throws Exception {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        StringBuilder read = new StringBuilder();
+        FilterChain chain = (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    calls.incrementAndGet();
+                    read.append(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    calls.incrementAndGet();
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+            ((HttpServletResponse) response).setStatus(201);
+        };
+
+        // When
+        send(chain);
+
+        // Then
+        assertEquals(2, calls.get());
+        assertEquals(BODY, read.toString());
+    }
+
+    @Test
+    void testPurgeTrimsToMaxResponses() throws Exception {
+        // Given
+        JobLeases jobLeases = mock(JobLeases.class);
+        when(jobLeases.runExclusively(eq("idempotency.purge"), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+        @SuppressWarnings("unchecked")
+        IdempotencyFilter filter = new IdempotencyFilter(responses, jobLeases, List.of("/skier/add"),
+                Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(2), 2, mock(ObjectProvider.class));
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            responses.tryClaim("key-" + i, new byte[32], now, now + 60_000);
+            responses.complete("key-" + i, 201, null, new byte[0], now + 60_000 + i);
+        }
+
+        // When
+        filter.purgeExpired();
+
+        // Then
+        assertNull(responses.find("key-0"));
+        assertNotNull(responses.find("key-1"));
+        assertNotNull(responses.find("key-2"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnlyListedEndpointsAreFiltered() throws Exception {
+        // Given
+        IdempotencyFilter filter = new IdempotencyFilter(responses, mock(JobLeases.class),
+                List.of("/registration/addAndAssignToSkierAndCourse/{numSkier}/{numCourse}"), Duration.ofMinutes(1),
+                Duration.ofMinutes(1), Duration.ofSeconds(2), 100, mock(ObjectProvider.class));
+        AtomicInteger executions = new AtomicInteger();
+        FilterChain chain = (request, response) -> executions.incrementAndGet();
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            filter.doFilter(request("/registration/addAndAssignToSkierAndCourse/1/2"), new MockHttpServletResponse(), chain);
+            filter.doFilter(request("/registration/addAndAssignToSkierAndCourse/bulk"), new MockHttpServletResponse(), chain);
+        }
+
+        // Then
+        assertEquals(3, executions.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private IdempotencyFilter node() {
+        return new IdempotencyFilter(responses, mock(JobLeases.class), List.of("/skier/add"), Duration.ofMinutes(1),
+                Duration.ofMinutes(1), Duration.ofSeconds(2), 100, mock(ObjectProvider.class));
+    }
+
+    private MockHttpServletResponse send(FilterChain chain) throws Exception {
+        return send(idempotencyFilter, chain);
+    }
+
+    private static MockHttpServletResponse send(IdempotencyFilter filter, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("/skier/add"), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, "key-1");
+        request.setContent(BODY.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
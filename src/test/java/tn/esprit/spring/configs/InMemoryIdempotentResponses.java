@@ -0,0 +1,55 @@
+package tn.esprit.spring.configs;
+
+import tn.esprit.spring.entities.IdempotentResponse;
+import tn.esprit.spring.repositories.IIdempotentResponseRepositoryCustom;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The idempotent response table, kept in memory and shared by the filters of the tests. */
+public class InMemoryIdempotentResponses implements IIdempotentResponseRepositoryCustom {
+
+    private final Map<String, IdempotentResponse> rows = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean tryClaim(String requestKey, byte[] fingerprint, long now, long expiresAt) {
+        rows.computeIfPresent(requestKey, (key, row) -> row.getExpiresAt() <= now ? null : row);
+        return rows.putIfAbsent(requestKey, new IdempotentResponse(requestKey, fingerprint, 0, null, null,
+                expiresAt)) == null;
+    }
+
+    @Override
+    public IdempotentResponse find(String requestKey) {
+        IdempotentResponse row = rows.get(requestKey);
+        return row == null ? null : new IdempotentResponse(row.getRequestKey(), row.getFingerprint(),
+                row.getStatus(), row.getContentType(), row.getBody(), row.getExpiresAt());
+    }
+
+    @Override
+    public void complete(String requestKey, int status, String contentType, byte[] body, long expiresAt) {
+        rows.computeIfPresent(requestKey, (key, row) -> new IdempotentResponse(key, row.getFingerprint(), status,
+                contentType, body, expiresAt));
+    }
+
+    @Override
+    public void release(String requestKey) {
+        rows.computeIfPresent(requestKey, (key, row) -> row.getStatus() == 0 ? null : row);
+    }
+
+    @Override
+    public int deleteExpired(long now) {
+        int before = rows.size();
+        rows.values().removeIf(row -> row.getExpiresAt() <= now);
+        return before - rows.size();
+    }
+
+    @Override
+    public int deleteOldest(int keep) {
+        List<IdempotentResponse> stored = rows.values().stream().filter(row -> row.getStatus() != 0)
+                .sorted(Comparator.comparingLong(IdempotentResponse::getExpiresAt).reversed()).toList();
+        stored.stream().skip(keep).forEach(row -> rows.remove(row.getRequestKey()));
+        return Math.max(0, stored.size() - keep);
+    }
+}
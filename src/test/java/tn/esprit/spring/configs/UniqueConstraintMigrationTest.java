@@ -0,0 +1,126 @@
+package tn.esprit.spring.configs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.entities.WaitlistStatus;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.IWaitlistRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on H2 that tables which missed their unique constraint, because they held
+ * duplicates when the schema was updated, are deduplicated and constrained at startup.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UniqueConstraintMigrationTest {
+
+    private static final String INSERT = "insert into registration (num_registration, num_week, skier_num_skier, "
+            + "course_num_course) values (?, ?, ?, ?)";
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private IWaitlistRepository waitlistRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        waitlistRepository.deleteAll();
+        registrationRepository.deleteAll();
+        skierRepository.deleteAll();
+        courseRepository.deleteAll();
+    }
+
+    @Test
+    void testDuplicatesDeletedAndConstraintAdded() {
+        // Given
+        Long skier = skierRepository.save(newSkier()).getNumSkier();
+        Long course = courseRepository.save(newCourse()).getNumCourse();
+        UniqueConstraintMigration migration = new UniqueConstraintMigration(jdbcTemplate);
+        jdbcTemplate.execute("alter table registration drop constraint " + UniqueConstraintMigration.REGISTRATION.name());
+        jdbcTemplate.update(INSERT, 900_003L, 5, skier, course);
+        jdbcTemplate.update(INSERT, 900_001L, 5, skier, course);
+        jdbcTemplate.update(INSERT, 900_002L, 5, skier, course);
+        jdbcTemplate.update(INSERT, 900_004L, 6, skier, course);
+        assertFalse(migration.constrained(UniqueConstraintMigration.REGISTRATION));
+
+        // When
+        migration.afterPropertiesSet();
+        migration.afterPropertiesSet();
+
+        // Then
+        assertTrue(migration.constrained(UniqueConstraintMigration.REGISTRATION));
+        assertEquals(List.of(900_001L, 900_004L), jdbcTemplate.queryForList(
+                "select num_registration from registration order by num_registration", Long.class));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update(INSERT, 900_005L, 5, skier, course));
+    }
+
+    @Test
+    void testNewestWaitlistEntryKept() {
+        // Given
+        Long skier = skierRepository.save(newSkier()).getNumSkier();
+        Long course = courseRepository.save(newCourse()).getNumCourse();
+        UniqueConstraintMigration migration = new UniqueConstraintMigration(jdbcTemplate);
+        jdbcTemplate.execute("alter table waitlist_entry drop constraint " + UniqueConstraintMigration.WAITLIST.name());
+        String insert = "insert into waitlist_entry (num_entry, num_week, status, skier_num_skier, course_num_course) "
+                + "values (?, ?, ?, ?, ?)";
+        jdbcTemplate.update(insert, 900_001L, 5, WaitlistStatus.REJECTED.name(), skier, course);
+        jdbcTemplate.update(insert, 900_002L, 5, WaitlistStatus.WAITING.name(), skier, course);
+
+        // When
+        migration.migrate(UniqueConstraintMigration.WAITLIST);
+
+        // Then
+        assertTrue(migration.constrained(UniqueConstraintMigration.WAITLIST));
+        assertEquals(List.of(900_002L), jdbcTemplate.queryForList("select num_entry from waitlist_entry", Long.class));
+    }
+
+    @Test
+    void testNothingDoneWithoutDatabase() {
+        // Given
+        UniqueConstraintMigration migration = new UniqueConstraintMigration(null);
+
+        // When / Then
+        assertDoesNotThrow(migration::afterPropertiesSet);
+    }
+
+    private static Skier newSkier() {
+        Skier skier = new Skier();
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        return skier;
+    }
+
+    private static Course newCourse() {
+        Course course = new Course();
+        course.setTypeCourse(TypeCourse.INDIVIDUAL);
+        return course;
+    }
+}
@@ -0,0 +1,106 @@
+package tn.esprit.spring.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.spring.configs.InMemoryIdempotentResponses;
+import tn.esprit.spring.dto.AvailabilityMatrix;
+import tn.esprit.spring.dto.CourseAvailability;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.services.ICourseServices;
+import tn.esprit.spring.services.JobLeases;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(CourseRestController.class)
+@Import({PageResponses.class, InMemoryIdempotentResponses.class})
+class CourseRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ICourseServices courseServices;
+
+    @MockBean
+    private JobLeases jobLeases;
+
+    @Test
+    void testGetAvailability() throws Exception {
+        // Given
+        when(courseServices.availabilityVersion()).thenReturn("3f9a1c0e5b27d864");
+        when(courseServices.retrieveAvailability()).thenReturn(new AvailabilityMatrix("3f9a1c0e5b27d864", 1, 53,
+                List.of(new CourseAvailability(1L, TypeCourse.COLLECTIVE_ADULT, 6, "BgY="))));
+
+        // When & Then
+        mockMvc.perform(get("/course/availability"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3f9a1c0e5b27d864\""))
+                .andExpect(header().string("Cache-Control", "max-age=10, public"))
+                .andExpect(jsonPath("$.courses[0].numCourse").value(1))
+                .andExpect(jsonPath("$.courses[0].remaining").value("BgY="));
+    }
+
+    @Test
+    void testGetAvailabilityNotModified() throws Exception {
+        // Given
+        when(courseServices.availabilityVersion()).thenReturn("3f9a1c0e5b27d864");
+
+        // When & Then
+        mockMvc.perform(get("/course/availability").header("If-None-Match", "\"3f9a1c0e5b27d864\""))
+                .andExpect(status().isNotModified());
+        verify(courseServices, never()).retrieveAvailability();
+    }
+
+    @Test
+    void testGetAllCoursesLinksNextPage() throws Exception {
+        // Given
+        when(courseServices.retrieveCourses(null, 2)).thenReturn(List.of(course(3L), course(8L)));
+
+        // When & Then
+        mockMvc.perform(get("/course/all").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].typeCourse").value("INDIVIDUAL"))
+                .andExpect(header().string(PageResponses.NEXT_CURSOR, PageResponses.cursor(8L)))
+                .andExpect(header().string("Link", containsString("cursor=" + PageResponses.cursor(8L) + "&size=2")));
+    }
+
+    @Test
+    void testGetAllCoursesFromCursorWithSelectedFields() throws Exception {
+        // Given
+        when(courseServices.retrieveCourses(8L, 100)).thenReturn(List.of(course(11L)));
+
+        // When & Then
+        mockMvc.perform(get("/course/all").param("cursor", PageResponses.cursor(8L)).param("fields", "numCourse,price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].numCourse").value(11))
+                .andExpect(jsonPath("$[0].price").value(120.0))
+                .andExpect(jsonPath("$[0].typeCourse").doesNotExist())
+                .andExpect(header().doesNotExist(PageResponses.NEXT_CURSOR));
+    }
+
+    @Test
+    void testGetAllCoursesWithInvalidCursorOrField() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/course/all").param("cursor", "not a cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/course/all").param("fields", "registrations"))
+                .andExpect(status().isBadRequest());
+        verify(courseServices, never()).retrieveCourses(any(), anyInt());
+    }
+
+    private static Course course(Long numCourse) {
+        return new Course(numCourse, 1, TypeCourse.INDIVIDUAL, Support.SKI, 120f, 1, null);
+    }
+}
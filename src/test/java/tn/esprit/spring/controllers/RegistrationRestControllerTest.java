@@ -0,0 +1,74 @@
+package tn.esprit.spring.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import tn.esprit.spring.configs.InMemoryIdempotentResponses;
+import tn.esprit.spring.services.IRegistrationServices;
+import tn.esprit.spring.services.IWaitlistServices;
+import tn.esprit.spring.services.JobLeases;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(RegistrationRestController.class)
+@Import(InMemoryIdempotentResponses.class)
+class RegistrationRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private IRegistrationServices registrationServices;
+
+    @MockBean
+    private IWaitlistServices waitlistServices;
+
+    @MockBean
+    private JobLeases jobLeases;
+
+    @Test
+    void testBulkRegistrationWithTooManyItems() throws Exception {
+        // Given
+        when(registrationServices.addRegistrationsInBulk(anyList()))
+                .thenThrow(new IllegalArgumentException("A bulk registration cannot contain more than 1000 items"));
+
+        // When & Then
+        mockMvc.perform(put("/registration/addAndAssignToSkierAndCourse/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"numSkier\": 1, \"numCourse\": 2, \"numWeek\": 5}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testJoinWaitlistOfIndividualCourse() throws Exception {
+        // Given
+        when(waitlistServices.joinWaitlist(1L, 2L, 5))
+                .thenThrow(new IllegalArgumentException("Courses without seat limit have no waitlist"));
+
+        // When & Then
+        mockMvc.perform(put("/registration/waitlist/1/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numWeek\": 5}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testJoinWaitlistWhenAlreadyRegistered() throws Exception {
+        // Given
+        when(waitlistServices.joinWaitlist(1L, 2L, 5))
+                .thenThrow(new IllegalStateException("Skier 1 is already registered to course 2 week 5"));
+
+        // When & Then
+        mockMvc.perform(put("/registration/waitlist/1/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numWeek\": 5}"))
+                .andExpect(status().isConflict());
+    }
+}
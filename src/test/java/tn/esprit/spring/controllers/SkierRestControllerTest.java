@@ -6,21 +6,47 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tn.esprit.spring.configs.InMemoryIdempotentResponses;
+import tn.esprit.spring.dto.BulkExcursionAssignment;
+import tn.esprit.spring.dto.BulkExcursionResult;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.dto.RegistrationView;
+import tn.esprit.spring.dto.SkierExpansion;
+import tn.esprit.spring.dto.SkierImportError;
+import tn.esprit.spring.dto.SkierImportFormat;
+import tn.esprit.spring.dto.SkierImportReport;
+import tn.esprit.spring.dto.SkierView;
+import tn.esprit.spring.dto.SubscriptionView;
 import tn.esprit.spring.entities.*;
 import tn.esprit.spring.services.ISkierServices;
+import tn.esprit.spring.services.JobLeases;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(SkierRestController.class)
+@Import({PageResponses.class, InMemoryIdempotentResponses.class})
 class SkierRestControllerTest {
 
     @Autowired
@@ -29,6 +55,9 @@ class SkierRestControllerTest {
     @MockBean
     private ISkierServices skierServices;
 
+    @MockBean
+    private JobLeases jobLeases;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -70,6 +99,51 @@ class SkierRestControllerTest {
                 .andExpect(jsonPath("$.city").value("Chamonix"));
     }
 
+    @Test
+    void testAddSkierReplaysIdempotentRetry() throws Exception {
+        // Given
+        when(skierServices.addSkier(any(Skier.class))).thenReturn(testSkier);
+        String body = objectMapper.writeValueAsString(testSkier);
+
+        // When & Then
+        mockMvc.perform(post("/skier/add")
+                .header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andExpect(jsonPath("$.numSkier").value(1));
+        mockMvc.perform(post("/skier/add")
+                .header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.numSkier").value(1))
+                .andExpect(jsonPath("$.firstName").value("John"));
+        verify(skierServices, times(1)).addSkier(any(Skier.class));
+    }
+
+    @Test
+    void testAddSkierRejectsReusedIdempotencyKeyWithOtherBody() throws Exception {
+        // Given
+        when(skierServices.addSkier(any(Skier.class))).thenReturn(testSkier);
+        mockMvc.perform(post("/skier/add")
+                .header("Idempotency-Key", "retry-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testSkier)))
+                .andExpect(status().isCreated());
+        testSkier.setCity("Tignes");
+
+        // When & Then
+        mockMvc.perform(post("/skier/add")
+                .header("Idempotency-Key", "retry-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testSkier)))
+                .andExpect(status().isUnprocessableEntity());
+        verify(skierServices, times(1)).addSkier(any(Skier.class));
+    }
+
     @Test
     void testAddSkierAndAssignToCourse() throws Exception {
         // Given
@@ -113,6 +187,44 @@ class SkierRestControllerTest {
                 .andExpect(jsonPath("$.firstName").value("John"));
     }
 
+    @Test
+    void testAssignToUnknownPiste() throws Exception {
+        // Given
+        when(skierServices.assignSkierToPiste(1L, 999L)).thenReturn(null);
+
+        // When & Then
+        mockMvc.perform(put("/skier/assignToPiste/{numSkier}/{numPiste}", 1L, 999L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testAssignToPistesInBulk() throws Exception {
+        // Given
+        when(skierServices.assignSkiersToPistes(List.of(1L, 2L), List.of(3L, 4L, 5L)))
+                .thenReturn(new BulkExcursionResult(6, 5));
+
+        // When & Then
+        mockMvc.perform(put("/skier/assignToPiste/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                        new BulkExcursionAssignment(List.of(1L, 2L), List.of(3L, 4L, 5L)))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.requested").value(6))
+                .andExpect(jsonPath("$.assigned").value(5));
+    }
+
+    @Test
+    void testAssignTooManyToPistesInBulk() throws Exception {
+        // Given
+        when(skierServices.assignSkiersToPistes(any(), any())).thenThrow(new IllegalArgumentException("Too many"));
+
+        // When & Then
+        mockMvc.perform(put("/skier/assignToPiste/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"numSkiers\": [1], \"numPistes\": [2]}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testRetrieveSkiersBySubscriptionType() throws Exception {
         // Given
@@ -156,15 +268,61 @@ class SkierRestControllerTest {
     @Test
     void testGetAllSkiers() throws Exception {
         // Given
-        List<Skier> skiers = Arrays.asList(testSkier);
-        when(skierServices.retrieveAllSkiers()).thenReturn(skiers);
+        List<SkierView> skiers = List.of(new SkierView(1L, "John", "Doe", LocalDate.of(1990, 5, 15), "Chamonix",
+                4L));
+        when(skierServices.retrieveSkierViews(null, 100, Set.of())).thenReturn(skiers);
 
         // When & Then
         mockMvc.perform(get("/skier/all"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$[0].numSkier").value(1))
-                .andExpect(jsonPath("$[0].firstName").value("John"));
+                .andExpect(jsonPath("$[0].firstName").value("John"))
+                .andExpect(jsonPath("$[0].numSub").value(4))
+                .andExpect(jsonPath("$[0].subscription").doesNotExist())
+                .andExpect(jsonPath("$[0].registrations").doesNotExist())
+                .andExpect(header().doesNotExist(PageResponses.NEXT_CURSOR));
+    }
+
+    @Test
+    void testGetAllSkiersPageWithSelectedFields() throws Exception {
+        // Given
+        when(skierServices.retrieveSkierViews(7L, 1, Set.of())).thenReturn(List.of(new SkierView(9L, "John", "Doe",
+                LocalDate.of(1990, 5, 15), "Chamonix", null)));
+
+        // When & Then
+        mockMvc.perform(get("/skier/all").param("cursor", PageResponses.cursor(7L)).param("size", "1")
+                        .param("fields", "numSkier,lastName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].numSkier").value(9))
+                .andExpect(jsonPath("$[0].lastName").value("Doe"))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist())
+                .andExpect(header().string(PageResponses.NEXT_CURSOR, PageResponses.cursor(9L)));
+    }
+
+    @Test
+    void testGetAllSkiersExpanded() throws Exception {
+        // Given
+        SkierView skier = new SkierView(1L, "John", "Doe", LocalDate.of(1990, 5, 15), "Chamonix", 4L);
+        skier.setSubscription(new SubscriptionView(4L, LocalDate.of(2025, 1, 1), LocalDate.of(2026, 1, 1), 900f,
+                TypeSubscription.ANNUAL));
+        skier.setRegistrations(List.of(new RegistrationView(7L, 3, null, 1L, 2L)));
+        when(skierServices.retrieveSkierViews(null, 100, EnumSet.allOf(SkierExpansion.class)))
+                .thenReturn(List.of(skier));
+
+        // When & Then
+        mockMvc.perform(get("/skier/all").param("expand", "registrations,Subscription"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].subscription.typeSub").value("ANNUAL"))
+                .andExpect(jsonPath("$[0].registrations[0].numCourse").value(2));
+    }
+
+    @Test
+    void testGetAllSkiersWithUnknownExpansion() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/skier/all").param("expand", "pistes"))
+                .andExpect(status().isBadRequest());
+        verify(skierServices, never()).retrieveSkierViews(any(), anyInt(), any());
     }
 
     @Test
@@ -192,4 +350,66 @@ class SkierRestControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string(""));
     }
+
+    @Test
+    void testImportSkiersFromCsv() throws Exception {
+        // Given
+        when(skierServices.importSkiers(any(), eq(SkierImportFormat.CSV))).thenReturn(new SkierImportReport(3, 2, 1,
+                List.of(new SkierImportError(3, "Invalid typeSub WEEKLY")), 12, 250.0));
+
+        // When & Then
+        mockMvc.perform(post("/skier/import").contentType("text/csv")
+                        .content("firstName,lastName,dateOfBirth,city,startDate,typeSub,price\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    @Test
+    void testImportSkiersWithIncompleteHeader() throws Exception {
+        // Given
+        when(skierServices.importSkiers(any(), eq(SkierImportFormat.NDJSON)))
+                .thenThrow(new IllegalArgumentException("CSV header is missing column price"));
+
+        // When & Then
+        mockMvc.perform(post("/skier/import").contentType("application/x-ndjson").content("{}\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportSkiersAsGzippedCsv() throws Exception {
+        // Given
+        String csv = "numSkier,firstName,lastName,dateOfBirth,city,numSub\n1,John,Doe,1990-05-15,Chamonix,1\n";
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write(csv.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(skierServices).exportSkiers(any(), eq(ExportFormat.CSV));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/skier/export")
+                        .header("Accept", "text/csv")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"skiers.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream unzipped = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals(csv, new String(unzipped.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testExportSkiersRejectsUnsupportedType() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/skier/export").header("Accept", "application/xml"))
+                .andExpect(status().isNotAcceptable());
+        verify(skierServices, never()).exportSkiers(any(), any());
+    }
 }
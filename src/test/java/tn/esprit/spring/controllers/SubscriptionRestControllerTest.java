@@ -0,0 +1,249 @@
+package tn.esprit.spring.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tn.esprit.spring.configs.InMemoryIdempotentResponses;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.dto.RecurringRevenue;
+import tn.esprit.spring.dto.RenewalProgress;
+import tn.esprit.spring.dto.RevenueAggregate;
+import tn.esprit.spring.dto.RevenueGranularity;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.dto.SubscriptionView;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.services.ISubscriptionServices;
+import tn.esprit.spring.services.JobLeases;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(SubscriptionRestController.class)
+@Import({PageResponses.class, InMemoryIdempotentResponses.class})
+class SubscriptionRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ISubscriptionServices subscriptionServices;
+
+    @MockBean
+    private JobLeases jobLeases;
+
+    @Test
+    void testGetMonthlyRecurringRevenue() throws Exception {
+        // Given
+        when(subscriptionServices.retrieveMonthlyRecurringRevenue()).thenReturn(new RecurringRevenue(150.0,
+                List.of(new RevenueAggregate(TypeSubscription.MONTHLY, 300.0, 2L))));
+
+        // When & Then
+        mockMvc.perform(get("/subscription/mrr"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.monthlyRecurringRevenue").value(150.0))
+                .andExpect(jsonPath("$.aggregates[0].typeSub").value("MONTHLY"))
+                .andExpect(jsonPath("$.aggregates[0].averagePrice").value(150.0));
+    }
+
+    @Test
+    void testGetRevenueByMonth() throws Exception {
+        // Given
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+        when(subscriptionServices.retrieveRevenue(from, to, RevenueGranularity.MONTH)).thenReturn(List.of(
+                new RevenuePoint(from, TypeSubscription.MONTHLY, 200.0, 2L)));
+
+        // When & Then
+        mockMvc.perform(get("/subscription/revenue")
+                        .param("from", "2024-01-01").param("to", "2024-03-31").param("granularity", "MONTH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].period").value("2024-01-01"))
+                .andExpect(jsonPath("$[0].typeSub").value("MONTHLY"))
+                .andExpect(jsonPath("$[0].revenue").value(200.0))
+                .andExpect(jsonPath("$[0].subscriptions").value(2));
+    }
+
+    @Test
+    void testGetRevenueWithReversedRange() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/subscription/revenue").param("from", "2024-03-31").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+        verify(subscriptionServices, never()).retrieveRevenue(any(), any(), any());
+    }
+
+    @Test
+    void testRenewSubscriptionsDefaultsToAnnualAndSemestriel() throws Exception {
+        // Given
+        LocalDate from = LocalDate.of(2025, 4, 1);
+        LocalDate to = LocalDate.of(2025, 4, 30);
+        LocalDateTime startedAt = LocalDateTime.of(2025, 3, 20, 8, 0);
+        when(subscriptionServices.renewSubscriptions(from, to,
+                Set.of(TypeSubscription.ANNUAL, TypeSubscription.SEMESTRIEL))).thenReturn(new RenewalProgress(
+                "2025-04-01/2025-04-30/ANNUAL,SEMESTRIEL", from, to, 4200L, 4000, 2, true, startedAt,
+                startedAt.plusSeconds(2), 2000.0));
+
+        // When & Then
+        mockMvc.perform(post("/subscription/renewal").param("from", "2025-04-01").param("to", "2025-04-30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.renewed").value(4000))
+                .andExpect(jsonPath("$.completed").value(true))
+                .andExpect(jsonPath("$.renewedPerSecond").value(2000.0));
+    }
+
+    @Test
+    void testGetRenewalNeverStarted() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/subscription/renewal").param("from", "2025-04-01").param("to", "2025-04-30")
+                        .param("types", "ANNUAL"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetSubscriptionsByDatesLinksNextPage() throws Exception {
+        // Given
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        when(subscriptionServices.retrieveSubscriptionsByDates(from, to, null, null, 2)).thenReturn(List.of(
+                new Subscription(3L, LocalDate.of(2024, 1, 2), null, 100f, TypeSubscription.MONTHLY),
+                new Subscription(9L, LocalDate.of(2024, 1, 5), null, 100f, TypeSubscription.MONTHLY)));
+
+        // When & Then
+        mockMvc.perform(get("/subscription/all/2024-01-01/2024-12-31").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string(PageResponses.NEXT_CURSOR, PageResponses.cursor("2024-01-05", 9L)))
+                .andExpect(header().string("Link",
+                        containsString("cursor=" + PageResponses.cursor("2024-01-05", 9L) + "&size=2")));
+    }
+
+    @Test
+    void testGetSubscriptionsByTypeLinksNextPage() throws Exception {
+        // Given
+        when(subscriptionServices.getSubscriptionByType(TypeSubscription.ANNUAL, null, null, 1)).thenReturn(List.of(
+                new SubscriptionView(4L, LocalDate.of(2024, 2, 1), LocalDate.of(2025, 2, 1), 900f,
+                        TypeSubscription.ANNUAL)));
+
+        // When & Then
+        mockMvc.perform(get("/subscription/all/ANNUAL").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].numSub").value(4))
+                .andExpect(jsonPath("$[0].startDate").value("2024-02-01"))
+                .andExpect(header().string("Link",
+                        containsString("cursor=" + PageResponses.cursor("2024-02-01", 4L) + "&size=1")));
+    }
+
+    @Test
+    void testGetSubscriptionsByDatesLastPageHasNoLink() throws Exception {
+        // Given
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        when(subscriptionServices.retrieveSubscriptionsByDates(from, to, LocalDate.of(2024, 1, 5), 9L, 2))
+                .thenReturn(List.of(new Subscription(12L, LocalDate.of(2024, 3, 1), null, 100f, TypeSubscription.ANNUAL)));
+
+        // When & Then
+        mockMvc.perform(get("/subscription/all/2024-01-01/2024-12-31")
+                        .param("cursor", PageResponses.cursor("2024-01-05", 9L)).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andExpect(header().doesNotExist(PageResponses.NEXT_CURSOR));
+    }
+
+    @Test
+    void testGetSubscriptionsByDatesWithHalfCursor() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/subscription/all/2024-01-01/2024-12-31").param("cursor", PageResponses.cursor(9L)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/subscription/all/2024-01-01/2024-12-31")
+                        .param("cursor", PageResponses.cursor("2024-13-01", 9L)))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(subscriptionServices);
+    }
+
+    @Test
+    void testGetSubscriptionsByTypeKeepsSelectedFields() throws Exception {
+        // Given
+        when(subscriptionServices.getSubscriptionByType(TypeSubscription.ANNUAL, null, null, 100)).thenReturn(List.of(
+                new SubscriptionView(4L, LocalDate.of(2024, 2, 1), LocalDate.of(2025, 2, 1), 900f,
+                        TypeSubscription.ANNUAL)));
+
+        // When & Then
+        mockMvc.perform(get("/subscription/all/ANNUAL").param("fields", "numSub,price"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].numSub").value(4))
+                .andExpect(jsonPath("$[0].price").value(900.0))
+                .andExpect(jsonPath("$[0].startDate").doesNotExist());
+        mockMvc.perform(get("/subscription/all/ANNUAL").param("fields", "numSub,owner"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testStreamSubscriptionsByDates() throws Exception {
+        // Given
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        doAnswer(invocation -> {
+            Consumer<Subscription> consumer = invocation.getArgument(2);
+            consumer.accept(new Subscription(3L, LocalDate.of(2024, 1, 2), null, 100f, TypeSubscription.MONTHLY));
+            consumer.accept(new Subscription(9L, LocalDate.of(2024, 1, 5), null, 500f, TypeSubscription.ANNUAL));
+            return null;
+        }).when(subscriptionServices).forEachSubscriptionByDates(eq(from), eq(to), any());
+
+        // When
+        MvcResult result = mockMvc.perform(get("/subscription/all/2024-01-01/2024-12-31/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"numSub\":3"));
+        assertTrue(lines[1].contains("\"startDate\":\"2024-01-05\""));
+    }
+
+    @Test
+    void testExportSubscriptionsAsNdjsonByDefault() throws Exception {
+        // Given
+        String ndjson = "{\"numSub\":3,\"startDate\":\"2024-01-02\",\"endDate\":null,\"price\":100.0,"
+                + "\"typeSub\":\"MONTHLY\"}\n";
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write(ndjson.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(subscriptionServices).exportSubscriptions(any(), eq(ExportFormat.NDJSON));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/subscription/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string(ndjson));
+    }
+}
@@ -0,0 +1,155 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.configs.CacheConfig;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Instructor;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.services.EntityLookups;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on H2 that lookups by id reach the database once until the entity is evicted,
+ * that evictions made in a transaction wait for its commit, and that unknown ids are
+ * looked up every time.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({CacheConfig.class, EntityLookups.class})
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EntityLookupsCacheTest {
+
+    @Autowired
+    private EntityLookups entityLookups;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private IInstructorRepository instructorRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        instructorRepository.deleteAll();
+        courseRepository.deleteAll();
+        skierRepository.deleteAll();
+    }
+
+    @Test
+    void testLookupReadsDatabaseUntilEvicted() {
+        // Given
+        Skier skier = skierRepository.save(skier("Cached"));
+        Statistics statistics = statistics();
+
+        // When
+        Skier first = entityLookups.skier(skier.getNumSkier());
+        Skier second = entityLookups.skier(skier.getNumSkier());
+        long queriesBeforeEviction = statistics.getPrepareStatementCount();
+        entityLookups.skierChanged(skier.getNumSkier());
+        Skier third = entityLookups.skier(skier.getNumSkier());
+
+        // Then
+        assertEquals(1, queriesBeforeEviction);
+        assertSame(first, second);
+        assertNotSame(first, third);
+        assertEquals("Cached", third.getFirstName());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testEvictionWaitsForCommit() {
+        // Given
+        Skier skier = skierRepository.save(skier("Before"));
+        entityLookups.skier(skier.getNumSkier());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // When
+        Skier seenBeforeCommit = transaction.execute(status -> {
+            Skier managed = skierRepository.findById(skier.getNumSkier()).orElseThrow();
+            managed.setFirstName("After");
+            entityLookups.skierChanged(skier.getNumSkier());
+            return entityLookups.skier(skier.getNumSkier());
+        });
+        Skier seenAfterCommit = entityLookups.skier(skier.getNumSkier());
+
+        // Then
+        assertEquals("Before", seenBeforeCommit.getFirstName());
+        assertEquals("After", seenAfterCommit.getFirstName());
+    }
+
+    @Test
+    void testUnknownIdIsNotCached() {
+        // Given
+        Statistics statistics = statistics();
+
+        // When
+        Course first = entityLookups.course(-1L);
+        Course second = entityLookups.course(-1L);
+
+        // Then
+        assertNull(first);
+        assertNull(second);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testInstructorIsCachedWithItsCourses() {
+        // Given
+        Course course = new Course();
+        course.setTypeCourse(TypeCourse.INDIVIDUAL);
+        course = courseRepository.save(course);
+        Instructor instructor = instructorRepository.save(
+                new Instructor(null, "Ann", "Lee", LocalDate.of(2020, 1, 1), Set.of(course)));
+        Statistics statistics = statistics();
+
+        // When
+        Instructor cached = entityLookups.instructor(instructor.getNumInstructor());
+
+        // Then
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(Hibernate.isInitialized(cached.getCourses()));
+        assertEquals(1, cached.getCourses().size());
+    }
+
+    private static Skier skier(String firstName) {
+        Skier skier = new Skier();
+        skier.setFirstName(firstName);
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        return skier;
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
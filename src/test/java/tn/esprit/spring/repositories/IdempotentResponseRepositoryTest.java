@@ -0,0 +1,110 @@
+package tn.esprit.spring.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.entities.IdempotentResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on H2 that an idempotency key is claimed by one request at a time, keeps its
+ * response until it expires, and can be claimed again once released or expired.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotentResponseRepositoryTest {
+
+    private static final byte[] FINGERPRINT = new byte[32];
+
+    @Autowired
+    private IIdempotentResponseRepository responseRepository;
+
+    @Test
+    void testClaimKeepsResponseUntilExpired() {
+        // Given
+        String key = "key-" + System.nanoTime();
+        byte[] body = "{\"numSkier\":1}".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        boolean first = responseRepository.tryClaim(key, FINGERPRINT, 1_000, 60_000);
+        boolean whileRunning = responseRepository.tryClaim(key, FINGERPRINT, 2_000, 61_000);
+        responseRepository.complete(key, 201, "application/json", body, 100_000);
+        responseRepository.release(key);
+        boolean beforeExpiry = responseRepository.tryClaim(key, FINGERPRINT, 99_000, 159_000);
+        IdempotentResponse stored = responseRepository.find(key);
+        boolean afterExpiry = responseRepository.tryClaim(key, FINGERPRINT, 100_000, 160_000);
+
+        // Then
+        assertTrue(first);
+        assertFalse(whileRunning);
+        assertFalse(beforeExpiry);
+        assertEquals(201, stored.getStatus());
+        assertEquals("application/json", stored.getContentType());
+        assertArrayEquals(body, stored.getBody());
+        assertArrayEquals(FINGERPRINT, stored.getFingerprint());
+        assertTrue(afterExpiry);
+        assertEquals(0, responseRepository.find(key).getStatus());
+    }
+
+    @Test
+    void testReleasedClaimCanBeRetried() {
+        // Given
+        String key = "key-" + System.nanoTime();
+        responseRepository.tryClaim(key, FINGERPRINT, 1_000, 60_000);
+
+        // When
+        responseRepository.release(key);
+
+        // Then
+        assertNull(responseRepository.find(key));
+        assertTrue(responseRepository.tryClaim(key, FINGERPRINT, 2_000, 61_000));
+    }
+
+    @Test
+    void testDeleteExpired() {
+        // Given
+        String expired = "key-" + System.nanoTime();
+        String live = expired + "-live";
+        responseRepository.tryClaim(expired, FINGERPRINT, 1_000, 10_000);
+        responseRepository.tryClaim(live, FINGERPRINT, 1_000, 30_000);
+
+        // When
+        int deleted = responseRepository.deleteExpired(20_000);
+
+        // Then
+        assertEquals(1, deleted);
+        assertNull(responseRepository.find(expired));
+        assertNotNull(responseRepository.find(live));
+    }
+
+    @Test
+    void testDeleteOldestKeepsLatestResponsesAndClaims() {
+        // Given
+        responseRepository.deleteAll();
+        String key = "key-" + System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            responseRepository.tryClaim(key + i, FINGERPRINT, 1_000, 60_000);
+            responseRepository.complete(key + i, 201, "application/json", new byte[0], 100_000 + i);
+        }
+        responseRepository.tryClaim(key + "-running", FINGERPRINT, 1_000, 60_000);
+
+        // When
+        int deleted = responseRepository.deleteOldest(2);
+
+        // Then
+        assertEquals(2, deleted);
+        assertNull(responseRepository.find(key + 0));
+        assertNull(responseRepository.find(key + 1));
+        assertNotNull(responseRepository.find(key + 2));
+        assertNotNull(responseRepository.find(key + 3));
+        assertNotNull(responseRepository.find(key + "-running"));
+        assertEquals(0, responseRepository.deleteOldest(2));
+    }
+}
@@ -0,0 +1,141 @@
+package tn.esprit.spring.repositories;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.entities.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the index maintenance SQL against the reference join of
+ * {@link IRegistrationRepository#numWeeksCourseOfInstructorBySupport}.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InstructorWeekRepositoryTest {
+
+    @Autowired
+    private IInstructorWeekRepository instructorWeekRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private IInstructorRepository instructorRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    private Course skiCourse;
+    private Course snowboardCourse;
+    private Instructor instructor;
+
+    @BeforeEach
+    void setUp() {
+        skiCourse = courseRepository.save(course(Support.SKI));
+        snowboardCourse = courseRepository.save(course(Support.SNOWBOARD));
+        instructor = new Instructor();
+        instructor.setCourses(Set.of(skiCourse, snowboardCourse));
+        instructor = instructorRepository.save(instructor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        instructorWeekRepository.deleteAll();
+        registrationRepository.deleteAll();
+        instructorRepository.deleteAll();
+        courseRepository.deleteAll();
+        skierRepository.deleteAll();
+    }
+
+    @Test
+    void testReconcileMatchesReferenceQuery() {
+        // Given
+        register(skiCourse, 3);
+        register(skiCourse, 3);
+        register(skiCourse, 7);
+        register(snowboardCourse, 4);
+
+        // When
+        long corrected = instructorWeekRepository.reconcile(null);
+
+        // Then
+        assertEquals(4L, corrected);
+        assertEquals(List.of(3, 7), weeks(Support.SKI));
+        assertEquals(List.of(4), weeks(Support.SNOWBOARD));
+        assertEquals(registrationRepository.numWeeksCourseOfInstructorBySupport(instructor.getNumInstructor(), Support.SKI)
+                .stream().sorted().toList(), List.of(3, 3, 7));
+        assertEquals(List.of(2L, 1L), instructorWeekRepository.findByInstructorAndSupport(instructor.getNumInstructor(),
+                Support.SKI).stream().map(InstructorWeek::getRegistrations).toList());
+        assertEquals(0L, instructorWeekRepository.reconcile(null));
+    }
+
+    @Test
+    void testAddRegistrationsCreatesAndRemovesWeeks() {
+        // When
+        instructorWeekRepository.addRegistrations(List.of(
+                new CourseWeekCount(skiCourse.getNumCourse(), 2, 2L),
+                new CourseWeekCount(snowboardCourse.getNumCourse(), 9, 1L)));
+        instructorWeekRepository.addRegistrations(List.of(new CourseWeekCount(skiCourse.getNumCourse(), 2, 1L)));
+
+        // Then
+        assertEquals(List.of(2), weeks(Support.SKI));
+        assertEquals(List.of(9), weeks(Support.SNOWBOARD));
+
+        // When
+        instructorWeekRepository.addRegistrations(List.of(new CourseWeekCount(skiCourse.getNumCourse(), 2, -3L)));
+
+        // Then
+        assertTrue(weeks(Support.SKI).isEmpty());
+    }
+
+    @Test
+    void testReconcileCourseAfterSupportChange() {
+        // Given
+        register(skiCourse, 5);
+        instructorWeekRepository.reconcile(null);
+        skiCourse.setSupport(Support.SNOWBOARD);
+        courseRepository.save(skiCourse);
+
+        // When
+        instructorWeekRepository.reconcileCourse(skiCourse.getNumCourse());
+
+        // Then
+        assertTrue(weeks(Support.SKI).isEmpty());
+        assertEquals(List.of(5), weeks(Support.SNOWBOARD));
+    }
+
+    private List<Integer> weeks(Support support) {
+        return instructorWeekRepository.findByInstructorAndSupport(instructor.getNumInstructor(), support).stream()
+                .map(InstructorWeek::getNumWeek).toList();
+    }
+
+    /** Registers a new skier, each skier being registered once to a course for a week. */
+    private void register(Course course, int numWeek) {
+        Skier skier = new Skier();
+        skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        registrationRepository.save(new Registration(null, numWeek, null, skierRepository.save(skier), course));
+    }
+
+    private static Course course(Support support) {
+        Course course = new Course();
+        course.setTypeCourse(TypeCourse.INDIVIDUAL);
+        course.setSupport(support);
+        return course;
+    }
+}
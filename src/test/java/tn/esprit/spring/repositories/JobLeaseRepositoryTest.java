@@ -0,0 +1,82 @@
+package tn.esprit.spring.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on H2 that a job lease is held by one owner at a time and passes to another once
+ * expired.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JobLeaseRepositoryTest {
+
+    @Autowired
+    private IJobLeaseRepository jobLeaseRepository;
+
+    @Test
+    void testLeaseHeldUntilExpired() {
+        // Given
+        String job = "job-" + System.nanoTime();
+
+        // When
+        boolean first = jobLeaseRepository.tryAcquire(job, "node-1", 1_000, 26_000);
+        boolean whileHeld = jobLeaseRepository.tryAcquire(job, "node-2", 10_000, 35_000);
+        boolean renewed = jobLeaseRepository.tryAcquire(job, "node-1", 20_000, 45_000);
+        boolean afterExpiry = jobLeaseRepository.tryAcquire(job, "node-2", 45_000, 70_000);
+
+        // Then
+        assertTrue(first);
+        assertFalse(whileHeld);
+        assertTrue(renewed);
+        assertTrue(afterExpiry);
+        assertEquals("node-2", jobLeaseRepository.findById(job).orElseThrow().getOwner());
+    }
+
+    @Test
+    void testOneOfConcurrentNodesTakesLease() throws Exception {
+        // Given
+        String job = "job-" + System.nanoTime();
+        int nodes = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < nodes; i++) {
+            String owner = "node-" + i;
+            Callable<Boolean> attempt = () -> {
+                start.await(10, TimeUnit.SECONDS);
+                return jobLeaseRepository.tryAcquire(job, owner, 1_000, 26_000);
+            };
+            attempts.add(executor.submit(attempt));
+        }
+        start.countDown();
+        int granted = 0;
+        for (Future<Boolean> attempt : attempts) {
+            if (attempt.get(10, TimeUnit.SECONDS)) {
+                granted++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(1, granted);
+    }
+}
@@ -0,0 +1,242 @@
+package tn.esprit.spring.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.TypeCourse;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hammers {@link IRegistrationRepositoryCustom#insertIntoFreeSeat} from many clients at once
+ * and checks that no (course, week) ever ends up with more than its capacity, counting the
+ * registrations made before seats were numbered, and that no skier is registered twice to
+ * the same course for a week.
+ */
+@Slf4j
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RegistrationSeatContentionTest {
+
+    private static final int CAPACITY = 6;
+    private static final int COURSES = 4;
+    private static final int WEEKS = 5;
+    private static final int ATTEMPTS_PER_CLIENT = 40;
+    private static final int SKIERS = 4 * CAPACITY;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Long> courseIds;
+    private List<Long> skierIds;
+
+    @BeforeEach
+    void setUp() {
+        skierIds = new ArrayList<>();
+        for (int i = 0; i < SKIERS; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("Load" + i);
+            skier.setLastName("Test");
+            skier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            skierIds.add(skierRepository.save(skier).getNumSkier());
+        }
+
+        courseIds = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            Course course = new Course();
+            course.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+            courseIds.add(courseRepository.save(course).getNumCourse());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        registrationRepository.deleteAll();
+        courseRepository.deleteAll();
+        skierRepository.deleteAll();
+    }
+
+    @ParameterizedTest(name = "{0} concurrent clients")
+    @ValueSource(ints = {8, 32, 128})
+    void testConcurrentReservationsNeverExceedCapacity(int clients) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int admitted = 0;
+                for (int i = 0; i < ATTEMPTS_PER_CLIENT; i++) {
+                    Long numSkier = skierIds.get(ThreadLocalRandom.current().nextInt(SKIERS));
+                    Long numCourse = courseIds.get(ThreadLocalRandom.current().nextInt(COURSES));
+                    int numWeek = 1 + ThreadLocalRandom.current().nextInt(WEEKS);
+                    try {
+                        if (registrationRepository.insertIntoFreeSeat(numWeek, numSkier, numCourse, CAPACITY) != null) {
+                            admitted++;
+                        }
+                    } catch (DuplicateKeyException e) {
+                        // Already registered to the course that week
+                    }
+                }
+                return admitted;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        int admitted = 0;
+        for (Future<Integer> result : results) {
+            admitted += result.get(60, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - began;
+        executor.shutdown();
+
+        int attempts = clients * ATTEMPTS_PER_CLIENT;
+        log.info(String.format("%d clients: %d attempts, %d admitted in %d ms (%.0f attempts/s)",
+                clients, attempts, admitted, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                attempts / (elapsed / 1_000_000_000.0)));
+
+        List<Map<String, Object>> perWeek = jdbcTemplate.queryForList(
+                "select course_num_course, num_week, count(*) as taken from registration " +
+                        "group by course_num_course, num_week");
+        for (Map<String, Object> row : perWeek) {
+            assertTrue(((Number) row.get("taken")).intValue() <= CAPACITY, "Over capacity: " + row);
+        }
+        int totalRows = jdbcTemplate.queryForObject("select count(*) from registration", Integer.class);
+        assertEquals(admitted, totalRows);
+        assertEquals(totalRows, jdbcTemplate.queryForObject("select count(*) from (select distinct skier_num_skier, "
+                + "course_num_course, num_week from registration) keys", Integer.class));
+        if (attempts >= 4 * COURSES * WEEKS * CAPACITY) {
+            assertEquals(COURSES * WEEKS * CAPACITY, admitted);
+        }
+    }
+
+    @Test
+    void testUnseatedRegistrationsFillTheCourse() {
+        // Given
+        Long numCourse = courseIds.get(0);
+        for (int i = 0; i < CAPACITY - 2; i++) {
+            unseated(skierIds.get(i), numCourse, 1);
+        }
+
+        // When
+        Long first = registrationRepository.insertIntoFreeSeat(1, skierIds.get(CAPACITY), numCourse, CAPACITY);
+        Long second = registrationRepository.insertIntoFreeSeat(1, skierIds.get(CAPACITY + 1), numCourse, CAPACITY);
+        Long third = registrationRepository.insertIntoFreeSeat(1, skierIds.get(CAPACITY + 2), numCourse, CAPACITY);
+
+        // Then
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(third);
+        assertEquals(CAPACITY, jdbcTemplate.queryForObject(
+                "select count(*) from registration where course_num_course = ? and num_week = 1", Integer.class,
+                numCourse));
+    }
+
+    @Test
+    void testMoveIntoFreeSeat() {
+        // Given
+        Long numCourse = courseIds.get(0);
+        for (int i = 0; i < CAPACITY - 1; i++) {
+            registrationRepository.insertIntoFreeSeat(1, skierIds.get(i), numCourse, CAPACITY);
+        }
+        Long moved = unseated(skierIds.get(CAPACITY), courseIds.get(1), 1);
+        Long refused = unseated(skierIds.get(CAPACITY + 1), courseIds.get(1), 1);
+
+        // When
+        Integer seat = registrationRepository.moveIntoFreeSeat(moved, numCourse, 1, CAPACITY);
+        Integer again = registrationRepository.moveIntoFreeSeat(moved, numCourse, 1, CAPACITY);
+        Integer full = registrationRepository.moveIntoFreeSeat(refused, numCourse, 1, CAPACITY);
+
+        // Then
+        assertEquals(CAPACITY, seat);
+        assertEquals(CAPACITY, again);
+        assertNull(full);
+        assertEquals(numCourse, jdbcTemplate.queryForObject(
+                "select course_num_course from registration where num_registration = ?", Long.class, moved));
+    }
+
+    @Test
+    void testInsertAllLeavesOutSeatTakenConcurrently() {
+        // Given
+        Long numCourse = courseIds.get(0);
+        registrationRepository.insertIntoFreeSeat(1, skierIds.get(0), numCourse, CAPACITY);
+        Course course = courseRepository.findById(numCourse).orElseThrow();
+        List<Registration> batch = List.of(new Registration(null, 1, 2, skier(1), course),
+                new Registration(null, 1, 1, skier(2), course), new Registration(null, 1, 3, skier(3), course));
+
+        // When
+        boolean[] inserted = registrationRepository.insertAll(batch);
+
+        // Then
+        assertArrayEquals(new boolean[]{true, false, true}, inserted);
+        assertNull(batch.get(1).getNumRegistration());
+        assertEquals(3, jdbcTemplate.queryForObject("select count(*) from registration", Integer.class));
+    }
+
+    @Test
+    void testSkierIsRegisteredOnceToACourseWeek() {
+        // Given
+        Long numCourse = courseIds.get(0);
+        Long numSkier = skierIds.get(0);
+        registrationRepository.insertIntoFreeSeat(1, numSkier, numCourse, CAPACITY);
+        Long elsewhere = unseated(numSkier, courseIds.get(1), 1);
+        Course course = courseRepository.findById(numCourse).orElseThrow();
+
+        // When & Then
+        assertThrows(DuplicateKeyException.class, () ->
+                registrationRepository.insertIntoFreeSeat(1, numSkier, numCourse, CAPACITY));
+        assertThrows(DuplicateKeyException.class, () ->
+                registrationRepository.moveIntoFreeSeat(elsewhere, numCourse, 1, CAPACITY));
+        assertArrayEquals(new boolean[]{false, true}, registrationRepository.insertAll(List.of(
+                new Registration(null, 1, null, skier(0), course), new Registration(null, 2, null, skier(0), course))));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from registration where course_num_course = ? and num_week = 1", Integer.class,
+                numCourse));
+    }
+
+    private Skier skier(int index) {
+        return skierRepository.findById(skierIds.get(index)).orElseThrow();
+    }
+
+    /** A registration made before seats were numbered. */
+    private Long unseated(Long numSkier, Long numCourse, int numWeek) {
+        return registrationRepository.save(new Registration(null, numWeek, null,
+                skierRepository.findById(numSkier).orElseThrow(),
+                courseRepository.findById(numCourse).orElseThrow())).getNumRegistration();
+    }
+}
@@ -0,0 +1,164 @@
+package tn.esprit.spring.repositories;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.RevenueGranularity;
+import tn.esprit.spring.dto.RevenuePoint;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.services.RevenueRollups;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the revenue served from the rollups matches an aggregation of the
+ * subscriptions themselves, after inserts, updates moving subscriptions across days and
+ * types, removals, and with changes still pending.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class RevenueRollupEquivalenceTest {
+
+    private static final LocalDate SEASONS_START = LocalDate.of(2023, 11, 1);
+    private static final int SEASONS_DAYS = 540;
+    private static final TypeSubscription[] TYPES = TypeSubscription.values();
+    private static final float[] PRICES = {49.9f, 120f, 300.5f, 899.99f};
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private IRevenueRollupRepository rollupRepository;
+
+    @Autowired
+    private IRevenueRollupChangeRepository changeRepository;
+
+    private RevenueRollups revenueRollups;
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void setUp() {
+        revenueRollups = new RevenueRollups(subscriptionRepository, rollupRepository, changeRepository,
+                new SimpleMeterRegistry(), 7, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void testRollupsMatchRawAggregation() {
+        // Given
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Subscription subscription = new Subscription(null, randomDay(), null, randomPrice(),
+                    i % 50 == 0 ? null : TYPES[random.nextInt(TYPES.length)]);
+            subscriptions.add(subscriptionRepository.save(subscription));
+            revenueRollups.subscriptionChanged(null, subscription);
+        }
+        rollUpAll();
+        for (int i = 0; i < 40; i++) {
+            Subscription subscription = subscriptions.get(random.nextInt(subscriptions.size()));
+            Subscription previous = new Subscription(subscription.getNumSub(), subscription.getStartDate(),
+                    subscription.getEndDate(), subscription.getPrice(), subscription.getTypeSub());
+            subscription.setStartDate(i % 2 == 0 ? randomDay() : subscription.getStartDate());
+            subscription.setPrice(randomPrice());
+            subscription.setTypeSub(TYPES[random.nextInt(TYPES.length)]);
+            subscriptionRepository.save(subscription);
+            revenueRollups.subscriptionChanged(previous, subscription);
+        }
+        for (int i = 0; i < 20; i++) {
+            Subscription removed = subscriptions.remove(random.nextInt(subscriptions.size()));
+            revenueRollups.subscriptionChanged(removed, null);
+            subscriptionRepository.delete(removed);
+        }
+        rollUpAll();
+        for (int i = 0; i < 15; i++) {
+            Subscription subscription = subscriptionRepository.save(new Subscription(null, randomDay(), null,
+                    randomPrice(), TYPES[random.nextInt(TYPES.length)]));
+            revenueRollups.subscriptionChanged(null, subscription);
+        }
+        revenueRollups.rollUp();
+
+        // When & Then
+        assertTrue(changeRepository.count() > 0, "Some changes should still be pending");
+        LocalDate seasonsEnd = SEASONS_START.plusDays(SEASONS_DAYS);
+        for (RevenueGranularity granularity : RevenueGranularity.values()) {
+            assertSameSeries(raw(SEASONS_START, seasonsEnd, granularity),
+                    revenueRollups.revenue(SEASONS_START, seasonsEnd, granularity));
+            assertSameSeries(raw(LocalDate.of(2024, 2, 14), LocalDate.of(2024, 9, 3), granularity),
+                    revenueRollups.revenue(LocalDate.of(2024, 2, 14), LocalDate.of(2024, 9, 3), granularity));
+        }
+        for (RevenuePoint point : revenueRollups.revenue(SEASONS_START, seasonsEnd, RevenueGranularity.WEEK)) {
+            assertEquals(DayOfWeek.MONDAY, point.getPeriod().getDayOfWeek());
+        }
+    }
+
+    @Test
+    void testFullyRolledUpSeriesIsServedFromRollups() {
+        // Given
+        for (int i = 0; i < 50; i++) {
+            Subscription subscription = subscriptionRepository.save(new Subscription(null, randomDay(), null,
+                    randomPrice(), TYPES[random.nextInt(TYPES.length)]));
+            revenueRollups.subscriptionChanged(null, subscription);
+        }
+
+        // When
+        rollUpAll();
+
+        // Then
+        assertEquals(0, changeRepository.count());
+        LocalDate seasonsEnd = SEASONS_START.plusDays(SEASONS_DAYS);
+        assertSameSeries(raw(SEASONS_START, seasonsEnd, RevenueGranularity.MONTH),
+                revenueRollups.revenue(SEASONS_START, seasonsEnd, RevenueGranularity.MONTH));
+    }
+
+    private void rollUpAll() {
+        while (revenueRollups.rollUp() >= revenueRollups.chunkSize()) {
+            // next chunk
+        }
+    }
+
+    private LocalDate randomDay() {
+        return SEASONS_START.plusDays(random.nextInt(SEASONS_DAYS));
+    }
+
+    private float randomPrice() {
+        return PRICES[random.nextInt(PRICES.length)];
+    }
+
+    /** Revenue per period and type computed from every subscription, without the rollups. */
+    private Map<String, double[]> raw(LocalDate from, LocalDate to, RevenueGranularity granularity) {
+        Map<String, double[]> series = new TreeMap<>();
+        for (Subscription subscription : subscriptionRepository.findAll()) {
+            LocalDate day = subscription.getStartDate();
+            if (subscription.getTypeSub() == null || day.isBefore(from) || day.isAfter(to)) {
+                continue;
+            }
+            double[] point = series.computeIfAbsent(granularity.periodOf(day) + " " + subscription.getTypeSub(),
+                    key -> new double[2]);
+            point[0] += subscription.getPrice();
+            point[1]++;
+        }
+        return series;
+    }
+
+    private static void assertSameSeries(Map<String, double[]> expected, List<RevenuePoint> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (RevenuePoint point : actual) {
+            double[] raw = expected.get(point.getPeriod() + " " + point.getTypeSub());
+            assertNotNull(raw, "Unexpected point " + point.getPeriod() + " " + point.getTypeSub());
+            assertEquals(raw[0], point.getRevenue(), 1e-3);
+            assertEquals((long) raw[1], point.getSubscriptions());
+        }
+    }
+}
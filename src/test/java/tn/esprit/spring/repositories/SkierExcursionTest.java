@@ -0,0 +1,90 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.entities.Color;
+import tn.esprit.spring.entities.Piste;
+import tn.esprit.spring.entities.Skier;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on H2 that excursions are written straight into the join table, once per skier
+ * and piste, and that the bulk insert skips existing excursions and unknown ids.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+// The piste ids reserved here would precede the ones IdGeneratorMigrationTest expects past its legacy row
+@DirtiesContext
+class SkierExcursionTest {
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private IPisteRepository pisteRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testInsertExcursionOnce() {
+        // Given
+        Skier skier = skierRepository.save(new Skier());
+        Piste piste = pisteRepository.save(new Piste(null, "Blue", Color.BLUE, 800, 20, null));
+        entityManager.flush();
+
+        // When
+        boolean first = skierRepository.insertExcursion(skier.getNumSkier(), piste.getNumPiste());
+        boolean second = skierRepository.insertExcursion(skier.getNumSkier(), piste.getNumPiste());
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, excursions());
+        entityManager.clear();
+        Set<Piste> pistes = skierRepository.findById(skier.getNumSkier()).orElseThrow().getPistes();
+        assertEquals(piste.getNumPiste(), pistes.iterator().next().getNumPiste());
+    }
+
+    @Test
+    void testInsertExcursionsSkipsExistingPairsAndUnknownIds() {
+        // Given
+        List<Long> skiers = new ArrayList<>();
+        List<Long> pistes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            skiers.add(skierRepository.save(new Skier()).getNumSkier());
+            pistes.add(pisteRepository.save(new Piste(null, "Piste" + i, Color.RED, 800, 20, null)).getNumPiste());
+        }
+        entityManager.flush();
+        skierRepository.insertExcursion(skiers.get(0), pistes.get(0));
+        Set<Long> requestedSkiers = new HashSet<>(skiers);
+        requestedSkiers.add(-1L);
+
+        // When
+        int inserted = skierRepository.insertExcursions(requestedSkiers, pistes);
+        int insertedAgain = skierRepository.insertExcursions(requestedSkiers, pistes);
+
+        // Then
+        assertEquals(8, inserted);
+        assertEquals(0, insertedAgain);
+        assertEquals(9, excursions());
+    }
+
+    private long excursions() {
+        return jdbcTemplate.queryForObject("select count(*) from excursion", Long.class);
+    }
+}
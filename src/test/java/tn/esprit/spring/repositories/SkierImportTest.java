@@ -0,0 +1,134 @@
+package tn.esprit.spring.repositories;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.SkierImportFormat;
+import tn.esprit.spring.dto.SkierImportReport;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.services.RecurringRevenueAggregates;
+import tn.esprit.spring.services.RevenueRollups;
+import tn.esprit.spring.services.SkierImporter;
+import tn.esprit.spring.services.SkierServicesImpl;
+import tn.esprit.spring.services.SubscriptionExpiryScheduler;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that CSV and NDJSON imports insert every valid row, across several chunks, with
+ * its subscription linked and ending as {@code addSkier} computes it, and report the
+ * invalid rows with their line.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class SkierImportTest {
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private IRevenueRollupRepository rollupRepository;
+
+    @Autowired
+    private IRevenueRollupChangeRepository changeRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private SkierServicesImpl skierServices;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RecurringRevenueAggregates revenueAggregates = new RecurringRevenueAggregates(subscriptionRepository,
+                meterRegistry);
+        RevenueRollups revenueRollups = new RevenueRollups(subscriptionRepository, rollupRepository, changeRepository,
+                meterRegistry, 100, Duration.ofMinutes(1));
+        SubscriptionExpiryScheduler expiryScheduler = mock(SubscriptionExpiryScheduler.class);
+        SkierImporter skierImporter = new SkierImporter(skierRepository, subscriptionRepository, revenueAggregates,
+                revenueRollups, expiryScheduler, new ObjectMapper().findAndRegisterModules(), meterRegistry, 3);
+        skierServices = new SkierServicesImpl(skierRepository, null, subscriptionRepository,
+                revenueAggregates, expiryScheduler, revenueRollups, skierImporter, null);
+    }
+
+    @Test
+    void testCsvImportInsertsValidRowsInChunks() {
+        // Given
+        String csv = """
+                city,firstName,lastName,dateOfBirth,startDate,typeSub,price
+                Chamonix,Ana,Martin,1990-05-15,2024-02-29,ANNUAL,900
+                "Val d'Isère, Savoie",Bob,"Le ""Roc""\",,2024-12-01,semestriel,450.5
+                Tignes,Cleo,Durand,1985-01-01,2024-12-01,WEEKLY,100
+
+                Tignes,,Durand,1985-01-01,2024-12-01,MONTHLY,100
+                Tignes,Dan,Petit,1985-13-01,2024-12-01,MONTHLY,100
+                Morzine,Eve,Roux,2001-07-07,2025-01-15,MONTHLY,80
+                Morzine,Fay,Roux,2001-07-07,2025-01-15,MONTHLY,80
+                Morzine,Gus,Roux,2001-07-07,2025-01-15,MONTHLY,80
+                """;
+
+        // When
+        SkierImportReport report = skierServices.importSkiers(new StringReader(csv), SkierImportFormat.CSV);
+        entityManager.clear();
+
+        // Then
+        assertEquals(8, report.getRows());
+        assertEquals(5, report.getImported());
+        assertEquals(3, report.getRejected());
+        assertEquals(List.of(4L, 6L, 7L), report.getErrors().stream().map(e -> e.getLine()).toList());
+        List<Skier> skiers = skierRepository.findAll().stream()
+                .sorted(Comparator.comparing(Skier::getNumSkier)).toList();
+        assertEquals(5, skiers.size());
+        assertEquals(LocalDate.of(2025, 2, 28), skiers.get(0).getSubscription().getEndDate());
+        assertEquals("Val d'Isère, Savoie", skiers.get(1).getCity());
+        assertEquals("Le \"Roc\"", skiers.get(1).getLastName());
+        assertEquals(TypeSubscription.SEMESTRIEL, skiers.get(1).getSubscription().getTypeSub());
+        assertEquals(LocalDate.of(2025, 6, 1), skiers.get(1).getSubscription().getEndDate());
+        assertEquals(450.5f, skiers.get(1).getSubscription().getPrice());
+        assertEquals(5, subscriptionRepository.count());
+        assertTrue(changeRepository.count() > 0);
+    }
+
+    @Test
+    void testNdjsonImportReportsInvalidLines() {
+        // Given
+        String ndjson = """
+                {"firstName":"Ana","lastName":"Martin","startDate":"2025-01-01","typeSub":"MONTHLY","price":80}
+                {"firstName":"Bob","lastName":"Roux","startDate":"2025-01-01","typeSub":"MONTHLY"
+                {"firstName":"Cleo","lastName":"Petit","startDate":"2025-01-01","typeSub":"ANNUAL","price":900,"pass":1}
+                {"firstName":"Dan","lastName":"Petit","dateOfBirth":"1990-01-02","startDate":"2025-01-01","typeSub":"ANNUAL","price":900}
+                """;
+
+        // When
+        SkierImportReport report = skierServices.importSkiers(new StringReader(ndjson), SkierImportFormat.NDJSON);
+
+        // Then
+        assertEquals(4, report.getRows());
+        assertEquals(2, report.getImported());
+        assertEquals(List.of(2L, 3L), report.getErrors().stream().map(e -> e.getLine()).toList());
+        assertEquals(2, skierRepository.count());
+    }
+
+    @Test
+    void testCsvHeaderMissingColumnIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> skierServices.importSkiers(
+                new StringReader("firstName,lastName\nAna,Martin\n"), SkierImportFormat.CSV));
+        assertEquals(0, skierRepository.count());
+    }
+}
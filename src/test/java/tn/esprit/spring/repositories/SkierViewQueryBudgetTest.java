@@ -0,0 +1,142 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import tn.esprit.spring.dto.SkierExpansion;
+import tn.esprit.spring.dto.SkierView;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.services.SkierServicesImpl;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a page of skier read models costs one query, plus one per expansion, whatever
+ * the number of skiers, subscriptions and registrations, and that nothing gets managed, and
+ * that walking the pages returns every skier once.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SkierViewQueryBudgetTest {
+
+    private static final int SKIERS = 40;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private SkierServicesImpl skierServices;
+
+    @BeforeEach
+    void setUp() {
+        Course course = new Course();
+        course.setTypeCourse(TypeCourse.INDIVIDUAL);
+        courseRepository.save(course);
+        for (int i = 0; i < SKIERS; i++) {
+            Skier skier = new Skier();
+            skier.setFirstName("Skier");
+            skier.setLastName(String.valueOf(i));
+            if (i % 4 != 0) {
+                skier.setSubscription(new Subscription(null, LocalDate.of(2025, 1, 1), LocalDate.of(2026, 1, 1), 900f,
+                        TypeSubscription.ANNUAL));
+            }
+            skierRepository.save(skier);
+            for (int week = 1; week <= i % 3; week++) {
+                registrationRepository.save(new Registration(null, week, null, skier, course));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        skierServices = new SkierServicesImpl(skierRepository, registrationRepository,
+                subscriptionRepository, null, null, null, null, null);
+    }
+
+    @Test
+    void testFlatListRunsOneQuery() {
+        // Given
+        Statistics statistics = statistics();
+
+        // When
+        List<SkierView> skiers = skierServices.retrieveSkierViews(null, SKIERS, EnumSet.noneOf(SkierExpansion.class));
+
+        // Then
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(SKIERS, skiers.size());
+        assertEquals(SKIERS * 3 / 4, skiers.stream().filter(skier -> skier.getNumSub() != null).count());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testEachExpansionAddsOneQuery() {
+        // Given
+        Statistics statistics = statistics();
+
+        // When
+        List<SkierView> skiers = skierServices.retrieveSkierViews(null, SKIERS, EnumSet.allOf(SkierExpansion.class));
+
+        // Then
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        for (SkierView skier : skiers) {
+            assertEquals(skier.getNumSub(), skier.getSubscription() == null ? null
+                    : skier.getSubscription().getNumSub());
+            assertEquals(Integer.parseInt(skier.getLastName()) % 3, skier.getRegistrations().size());
+        }
+    }
+
+    @Test
+    void testPagesCoverSkiersOnce() {
+        // Given
+        List<Long> seen = new ArrayList<>();
+
+        // When
+        List<SkierView> page = skierServices.retrieveSkierViews(null, 7, EnumSet.noneOf(SkierExpansion.class));
+        while (!page.isEmpty()) {
+            page.forEach(skier -> seen.add(skier.getNumSkier()));
+            page = skierServices.retrieveSkierViews(page.get(page.size() - 1).getNumSkier(), 7,
+                    EnumSet.noneOf(SkierExpansion.class));
+        }
+
+        // Then
+        assertEquals(SKIERS, seen.size());
+        assertEquals(seen.stream().sorted().distinct().toList(), seen);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,106 @@
+package tn.esprit.spring.repositories;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.events.SubscriptionsExpiredEvent;
+import tn.esprit.spring.services.RecurringRevenueAggregates;
+import tn.esprit.spring.services.SubscriptionServicesImpl;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the expired subscriptions report and the handling of a lapsed day run a single
+ * query whatever the number of expired subscriptions.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class SubscriptionExpiredReportTest {
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @ParameterizedTest
+    @ValueSource(ints = {3, 60})
+    void testReportRunsOneQuery(int expired) {
+        // Given
+        for (int i = 0; i < expired; i++) {
+            Subscription subscription = new Subscription(null, LocalDate.now().minusMonths(2),
+                    LocalDate.now().minusDays(i + 1), 100f, TypeSubscription.MONTHLY);
+            if (i % 3 == 0) {
+                subscriptionRepository.save(subscription);
+            } else {
+                Skier skier = new Skier();
+                skier.setFirstName("Skier");
+                skier.setLastName(String.valueOf(i));
+                skier.setSubscription(subscription);
+                skierRepository.save(skier);
+            }
+        }
+        subscriptionRepository.save(new Subscription(null, LocalDate.now(), LocalDate.now().plusMonths(1), 100f,
+                TypeSubscription.MONTHLY));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SubscriptionServicesImpl subscriptionServices = new SubscriptionServicesImpl(subscriptionRepository,
+                new RecurringRevenueAggregates(subscriptionRepository, meterRegistry), null, null, null, null,
+                meterRegistry, null);
+        // Pooled ids defer the inserts of the setup until the flush
+        entityManager.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        subscriptionServices.retrieveSubscriptions();
+
+        // Then
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(expired, meterRegistry.get("subscription.expired.report.rows").counter().count());
+    }
+
+    @Test
+    void testLapsedDayRunsOneQuery() {
+        // Given
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        for (int i = 0; i < 20; i++) {
+            subscriptionRepository.save(new Subscription(null, yesterday.minusMonths(1), i % 2 == 0 ? yesterday
+                    : yesterday.minusDays(i), 100f, TypeSubscription.MONTHLY));
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SubscriptionServicesImpl subscriptionServices = new SubscriptionServicesImpl(subscriptionRepository,
+                new RecurringRevenueAggregates(subscriptionRepository, meterRegistry), null, null, null, null,
+                meterRegistry, null);
+        entityManager.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When
+        subscriptionServices.onSubscriptionsExpired(new SubscriptionsExpiredEvent(yesterday, 10));
+
+        // Then
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(10, subscriptionRepository.findEndsFrom(yesterday).size());
+    }
+}
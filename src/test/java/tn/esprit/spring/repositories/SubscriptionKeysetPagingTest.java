@@ -0,0 +1,134 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.SubscriptionView;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that keyset pages, by range or by type, and the streamed range return every
+ * subscription exactly once in (startDate, numSub) order, including subscriptions sharing
+ * a start date across page boundaries, and that they keep nothing in the persistence context.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class SubscriptionKeysetPagingTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 1, 31);
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private List<Subscription> saved;
+    private List<Subscription> expected;
+
+    @BeforeEach
+    void setUp() {
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            // Several subscriptions per day, and some outside the range
+            subscriptions.add(new Subscription(null, FROM.minusDays(3).plusDays(i % 40), null, 100f,
+                    i % 3 == 0 ? TypeSubscription.ANNUAL : TypeSubscription.MONTHLY));
+        }
+        saved = subscriptions;
+        subscriptionRepository.saveAll(subscriptions);
+        entityManager.flush();
+        entityManager.clear();
+        expected = subscriptions.stream()
+                .filter(s -> !s.getStartDate().isBefore(FROM) && !s.getStartDate().isAfter(TO))
+                .sorted(Comparator.comparing(Subscription::getStartDate).thenComparing(Subscription::getNumSub))
+                .toList();
+    }
+
+    @Test
+    void testPagesCoverRangeOnce() {
+        // Given
+        int size = 7;
+        List<Long> seen = new ArrayList<>();
+
+        // When
+        List<Subscription> page = subscriptionRepository.findByStartDateBetweenOrderByStartDateAscNumSubAsc(FROM, TO,
+                PageRequest.of(0, size));
+        while (!page.isEmpty()) {
+            page.forEach(s -> seen.add(s.getNumSub()));
+            Subscription last = page.get(page.size() - 1);
+            page = subscriptionRepository.findPageAfter(FROM, TO, last.getStartDate(), last.getNumSub(),
+                    PageRequest.of(0, size));
+        }
+
+        // Then
+        assertEquals(expected.stream().map(Subscription::getNumSub).toList(), seen);
+    }
+
+    @Test
+    void testTypePagesCoverTypeOnceWithoutManagedEntities() {
+        // Given
+        int size = 9;
+        List<Long> seen = new ArrayList<>();
+        Session session = entityManager.unwrap(Session.class);
+
+        // When
+        List<SubscriptionView> page = subscriptionRepository.findViewsByTypeSub(TypeSubscription.ANNUAL,
+                PageRequest.of(0, size));
+        while (!page.isEmpty()) {
+            page.forEach(s -> seen.add(s.getNumSub()));
+            SubscriptionView last = page.get(page.size() - 1);
+            page = subscriptionRepository.findViewsByTypeSubAfter(TypeSubscription.ANNUAL, last.getStartDate(),
+                    last.getNumSub(), PageRequest.of(0, size));
+        }
+        int managed = session.getStatistics().getEntityCount();
+
+        // Then
+        assertEquals(0, managed);
+        List<Long> annual = saved.stream()
+                .filter(s -> s.getTypeSub() == TypeSubscription.ANNUAL)
+                .sorted(Comparator.comparing(Subscription::getStartDate).thenComparing(Subscription::getNumSub))
+                .map(Subscription::getNumSub)
+                .toList();
+        assertEquals(annual, seen);
+    }
+
+    @Test
+    void testStreamKeepsPersistenceContextEmpty() {
+        // Given
+        Session session = entityManager.unwrap(Session.class);
+        AtomicInteger rows = new AtomicInteger();
+        AtomicReference<Subscription> previous = new AtomicReference<>();
+
+        // When
+        try (Stream<Subscription> subscriptions = subscriptionRepository.streamByStartDateBetween(FROM, TO)) {
+            subscriptions.forEach(subscription -> {
+                assertFalse(session.contains(subscription));
+                Subscription before = previous.getAndSet(subscription);
+                assertTrue(before == null || before.getStartDate().isBefore(subscription.getStartDate())
+                        || before.getNumSub() < subscription.getNumSub());
+                rows.incrementAndGet();
+            });
+        }
+
+        // Then
+        assertEquals(expected.size(), rows.get());
+        assertEquals(0, session.getStatistics().getEntityCount());
+    }
+}
@@ -0,0 +1,142 @@
+package tn.esprit.spring.repositories;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.SubscriptionRenewal;
+import tn.esprit.spring.entities.RenewalCheckpoint;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.services.RevenueRollups;
+import tn.esprit.spring.services.SubscriptionExpiryScheduler;
+import tn.esprit.spring.services.SubscriptionRenewals;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that a bulk renewal interrupted between chunks and resumed from its checkpoint
+ * renews every expiring subscription of the chosen types exactly once, with the dates
+ * {@code addSubscription} would give it, and leaves every other subscription untouched.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class SubscriptionRenewalTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 4, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 4, 30);
+    private static final Set<TypeSubscription> TYPES = EnumSet.of(TypeSubscription.ANNUAL, TypeSubscription.SEMESTRIEL);
+    private static final int CHUNK = 7;
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private IRenewalCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private IRevenueRollupRepository rollupRepository;
+
+    @Autowired
+    private IRevenueRollupChangeRepository changeRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private List<Subscription> saved;
+
+    @BeforeEach
+    void setUp() {
+        TypeSubscription[] types = TypeSubscription.values();
+        saved = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            // End dates from a week before the window to a week after it, and one on a leap day
+            LocalDate endDate = i == 0 ? LocalDate.of(2024, 2, 29) : FROM.minusDays(7).plusDays(i % 45);
+            saved.add(new Subscription(null, endDate.minusMonths(6), endDate, 100f + i, types[i % types.length]));
+        }
+        subscriptionRepository.saveAll(saved);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testResumedRenewalRenewsEachExpiringSubscriptionOnce() {
+        // Given
+        String job = renewals().start(FROM, TO, TYPES).getJob();
+        renewals().renewChunk(job, TYPES);
+        renewals().renewChunk(job, TYPES);
+
+        // When: a new instance, as after a restart, resumes from the checkpoint
+        SubscriptionRenewals resumed = renewals();
+        RenewalCheckpoint checkpoint = resumed.start(FROM, TO, TYPES);
+        while (!checkpoint.isCompleted()) {
+            checkpoint = resumed.renewChunk(job, TYPES);
+        }
+        resumed.renewChunk(job, TYPES);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then
+        Map<Long, Subscription> after = new HashMap<>();
+        subscriptionRepository.findAll().forEach(subscription -> after.put(subscription.getNumSub(), subscription));
+        long expiring = 0;
+        for (Subscription before : saved) {
+            Subscription current = after.get(before.getNumSub());
+            boolean renew = TYPES.contains(before.getTypeSub())
+                    && !before.getEndDate().isBefore(FROM) && !before.getEndDate().isAfter(TO);
+            if (renew) {
+                expiring++;
+                assertEquals(before.getEndDate(), current.getStartDate());
+                assertEquals(before.getTypeSub().endDateFrom(before.getEndDate()), current.getEndDate());
+            } else {
+                assertEquals(before.getStartDate(), current.getStartDate());
+                assertEquals(before.getEndDate(), current.getEndDate());
+            }
+        }
+        assertTrue(expiring > 2 * CHUNK);
+        assertEquals(expiring, checkpoint.getRenewed());
+        assertEquals(0, checkpoint.getSkipped());
+        assertTrue(changeRepository.count() > 0);
+    }
+
+    @Test
+    void testRenewalOfChangedSubscriptionIsSkipped() {
+        // Given
+        Subscription stale = saved.get(1);
+        Subscription current = saved.get(2);
+
+        // When: the first renewal was computed from an end date changed since
+        boolean[] renewed = subscriptionRepository.renewAll(List.of(
+                new SubscriptionRenewal(stale.getNumSub(), stale.getEndDate().minusDays(1), FROM, TO),
+                new SubscriptionRenewal(current.getNumSub(), current.getEndDate(), FROM, TO)));
+        entityManager.clear();
+
+        // Then
+        assertArrayEquals(new boolean[]{false, true}, renewed);
+        assertEquals(stale.getEndDate(), subscriptionRepository.findById(stale.getNumSub()).orElseThrow().getEndDate());
+        assertEquals(TO, subscriptionRepository.findById(current.getNumSub()).orElseThrow().getEndDate());
+    }
+
+    private SubscriptionRenewals renewals() {
+        return new SubscriptionRenewals(subscriptionRepository, checkpointRepository, revenueRollups(),
+                mock(SubscriptionExpiryScheduler.class), new SimpleMeterRegistry(), CHUNK);
+    }
+
+    private RevenueRollups revenueRollups() {
+        return new RevenueRollups(subscriptionRepository, rollupRepository, changeRepository,
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+}
@@ -0,0 +1,128 @@
+package tn.esprit.spring.repositories;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import tn.esprit.spring.dto.ExportFormat;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.Registration;
+import tn.esprit.spring.entities.Skier;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.services.ExportWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks on H2 that the table exports read every row through their cursor and write it as
+ * CSV or NDJSON, with dates, numbers, nulls, subscription types and quoted fields in the
+ * form the list endpoints use.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class TableExportTest {
+
+    @Autowired
+    private ISkierRepository skierRepository;
+
+    @Autowired
+    private ISubscriptionRepository subscriptionRepository;
+
+    @Autowired
+    private IRegistrationRepository registrationRepository;
+
+    @Autowired
+    private ICourseRepository courseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Subscription subscription;
+    private Skier skier;
+    private Registration registration;
+
+    @BeforeEach
+    void setUp() {
+        subscription = subscriptionRepository.save(new Subscription(null, LocalDate.of(2024, 1, 2),
+                LocalDate.of(2024, 2, 2), 100f, TypeSubscription.MONTHLY));
+        skier = new Skier();
+        skier.setFirstName("Anne");
+        skier.setLastName("Lee, \"Jr\"");
+        skier.setDateOfBirth(LocalDate.of(1990, 5, 15));
+        skier.setCity("Val d'Isère");
+        skier.setSubscription(subscription);
+        skier = skierRepository.save(skier);
+        Course course = new Course();
+        course.setTypeCourse(TypeCourse.INDIVIDUAL);
+        course = courseRepository.save(course);
+        registration = registrationRepository.save(new Registration(null, 3, null, skier, course));
+        entityManager.flush();
+    }
+
+    @Test
+    void testExportSkiersAsCsv() {
+        // When
+        List<String> lines = export(ExportFormat.CSV, writer -> skierRepository.exportAll(writer),
+                ISkierRepository.EXPORT_COLUMNS);
+
+        // Then
+        assertEquals("numSkier,firstName,lastName,dateOfBirth,city,numSub", lines.get(0));
+        assertTrue(lines.contains(skier.getNumSkier() + ",Anne,\"Lee, \"\"Jr\"\"\",1990-05-15,Val d'Isère,"
+                + subscription.getNumSub()));
+        assertEquals(count("skier") + 1, lines.size());
+    }
+
+    @Test
+    void testExportSubscriptionsAsNdjson() {
+        // When
+        List<String> lines = export(ExportFormat.NDJSON, writer -> subscriptionRepository.exportAll(writer),
+                ISubscriptionRepository.EXPORT_COLUMNS);
+
+        // Then
+        assertTrue(lines.contains("{\"numSub\":" + subscription.getNumSub() + ",\"startDate\":\"2024-01-02\","
+                + "\"endDate\":\"2024-02-02\",\"price\":100.0,\"typeSub\":\"MONTHLY\"}"));
+        assertEquals(count("subscription"), lines.size());
+    }
+
+    @Test
+    void testExportRegistrationsWithNullSeat() {
+        // When
+        List<String> lines = export(ExportFormat.NDJSON, writer -> registrationRepository.exportAll(writer),
+                IRegistrationRepository.EXPORT_COLUMNS);
+
+        // Then
+        assertTrue(lines.contains("{\"numRegistration\":" + registration.getNumRegistration() + ",\"numWeek\":3,"
+                + "\"seat\":null,\"numSkier\":" + skier.getNumSkier() + ",\"numCourse\":"
+                + registration.getCourse().getNumCourse() + "}"));
+        assertEquals(count("registration"), lines.size());
+    }
+
+    private static List<String> export(ExportFormat format, Consumer<ExportWriter> query,
+                                       List<String> columns) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = new ExportWriter(out, format, columns);
+        query.accept(writer);
+        long rows = writer.finish();
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(format == ExportFormat.CSV ? rows + 1 : rows, lines.size());
+        return lines;
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+    }
+}
@@ -0,0 +1,145 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import tn.esprit.spring.dto.AvailabilityMatrix;
+import tn.esprit.spring.dto.CourseAvailability;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.entities.Course;
+import tn.esprit.spring.entities.TypeCourse;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CourseAvailabilityMatrixTest {
+
+    @Mock
+    private ICourseRepository courseRepository;
+
+    @Mock
+    private IRegistrationRepository registrationRepository;
+
+    private CourseCapacityLedger capacityLedger;
+
+    private CourseAvailabilityMatrix availabilityMatrix;
+
+    @BeforeEach
+    void setUp() {
+        capacityLedger = new CourseCapacityLedger(registrationRepository, mock(RegistrationJournal.class),
+                new SimpleMeterRegistry());
+        availabilityMatrix = new CourseAvailabilityMatrix(courseRepository, capacityLedger, new RegistrationRuleEngine(
+                new DefaultResourceLoader(), new ObjectMapper(), new SimpleMeterRegistry(), "classpath:registration-rules.json"));
+    }
+
+    @Test
+    void testSnapshotEncodesRemainingSeats() {
+        // Given
+        when(registrationRepository.countGroupByCourseAndNumWeek()).thenReturn(List.of(
+                new CourseWeekCount(1L, 1, 2L), new CourseWeekCount(1L, 3, 6L)));
+        when(courseRepository.findByTypeCourseNot(TypeCourse.INDIVIDUAL)).thenReturn(List.of(
+                course(1L, TypeCourse.COLLECTIVE_ADULT), course(2L, TypeCourse.COLLECTIVE_CHILDREN)));
+        capacityLedger.warm();
+        availabilityMatrix.load();
+
+        // When
+        AvailabilityMatrix matrix = availabilityMatrix.snapshot();
+
+        // Then
+        assertEquals(1, matrix.getFirstWeek());
+        assertEquals(53, matrix.getLastWeek());
+        assertEquals(2, matrix.getCourses().size());
+        byte[] first = remaining(matrix.getCourses().get(0));
+        assertEquals(53, first.length);
+        assertEquals(4, first[0]);
+        assertEquals(6, first[1]);
+        assertEquals(0, first[2]);
+        byte[] second = remaining(matrix.getCourses().get(1));
+        assertEquals(6, second[2]);
+    }
+
+    @Test
+    void testSnapshotIsRebuiltOnlyAfterChange() {
+        // Given
+        when(courseRepository.findByTypeCourseNot(TypeCourse.INDIVIDUAL)).thenReturn(List.of(
+                course(1L, TypeCourse.COLLECTIVE_ADULT)));
+        when(registrationRepository.countByCourseGroupByNumWeek(1L)).thenReturn(List.of());
+        availabilityMatrix.load();
+        AvailabilityMatrix first = availabilityMatrix.snapshot();
+
+        // When
+        AvailabilityMatrix unchanged = availabilityMatrix.snapshot();
+        capacityLedger.tryAcquire(1L, 10, 6);
+        AvailabilityMatrix changed = availabilityMatrix.snapshot();
+
+        // Then
+        assertSame(first, unchanged);
+        assertNotSame(first, changed);
+        assertNotEquals(first.getVersion(), changed.getVersion());
+        assertEquals(5, remaining(changed.getCourses().get(0))[9]);
+    }
+
+    @Test
+    void testVersionDependsOnContentOnly() {
+        // Given
+        when(courseRepository.findByTypeCourseNot(TypeCourse.INDIVIDUAL)).thenReturn(List.of(
+                course(1L, TypeCourse.COLLECTIVE_ADULT)));
+        when(registrationRepository.countByCourseGroupByNumWeek(1L)).thenReturn(List.of());
+        availabilityMatrix.load();
+        String first = availabilityMatrix.version();
+        CourseCapacityLedger otherLedger = new CourseCapacityLedger(registrationRepository, mock(RegistrationJournal.class),
+                new SimpleMeterRegistry());
+        CourseAvailabilityMatrix otherNode = new CourseAvailabilityMatrix(courseRepository, otherLedger,
+                new RegistrationRuleEngine(new DefaultResourceLoader(), new ObjectMapper(), new SimpleMeterRegistry(),
+                        "classpath:registration-rules.json"));
+        otherNode.load();
+        otherNode.load();
+
+        // When
+        capacityLedger.tryAcquire(1L, 10, 6);
+        String taken = availabilityMatrix.version();
+        capacityLedger.release(1L, 10);
+        String released = availabilityMatrix.version();
+        otherLedger.tryAcquire(1L, 10, 6);
+
+        // Then
+        assertNotEquals(first, taken);
+        assertEquals(first, released);
+        assertEquals(taken, otherNode.version());
+    }
+
+    @Test
+    void testIndividualCourseIsDropped() {
+        // Given
+        availabilityMatrix.courseSaved(course(3L, TypeCourse.COLLECTIVE_ADULT));
+        assertEquals(1, availabilityMatrix.snapshot().getCourses().size());
+
+        // When
+        availabilityMatrix.courseSaved(course(3L, TypeCourse.INDIVIDUAL));
+
+        // Then
+        assertTrue(availabilityMatrix.snapshot().getCourses().isEmpty());
+    }
+
+    private static byte[] remaining(CourseAvailability availability) {
+        return Base64.getDecoder().decode(availability.getRemaining());
+    }
+
+    private static Course course(Long numCourse, TypeCourse typeCourse) {
+        Course course = new Course();
+        course.setNumCourse(numCourse);
+        course.setTypeCourse(typeCourse);
+        return course;
+    }
+}
@@ -0,0 +1,190 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.dto.JournalEntry;
+import tn.esprit.spring.dto.JournalEntryType;
+import tn.esprit.spring.dto.RegistrationKey;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CourseCapacityLedgerTest {
+
+    @Mock
+    private IRegistrationRepository registrationRepository;
+
+    @Mock
+    private RegistrationJournal journal;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CourseCapacityLedger capacityLedger;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        capacityLedger = new CourseCapacityLedger(registrationRepository, journal, meterRegistry);
+    }
+
+    @Test
+    void testWarmThenAdmitFromMemory() {
+        // Given
+        when(registrationRepository.countGroupByCourseAndNumWeek()).thenReturn(List.of(count(1L, 3, 5L)));
+        capacityLedger.warm();
+
+        // When
+        boolean first = capacityLedger.tryAcquire(1L, 3, 6);
+        boolean second = capacityLedger.tryAcquire(1L, 3, 6);
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(6, capacityLedger.taken(1L, 3));
+        assertEquals(2.0, meterRegistry.get("registration.ledger.lookups").tag("result", "hit").counter().count());
+        verify(registrationRepository, never()).countByCourseGroupByNumWeek(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWarmFromJournalThenRegistrationsAfterIt() {
+        // Given
+        when(journal.isEnabled()).thenReturn(true);
+        when(journal.hasEntries()).thenReturn(true);
+        when(journal.replay(eq(0L), any())).thenAnswer(invocation -> {
+            Consumer<JournalEntry> consumer = invocation.getArgument(1);
+            consumer.accept(entry(0L, JournalEntryType.ADDED, 10L, 1L, 3));
+            consumer.accept(entry(1L, JournalEntryType.ADDED, 11L, 1L, 3));
+            consumer.accept(entry(2L, JournalEntryType.FULL, 0L, 1L, 3));
+            consumer.accept(entry(3L, JournalEntryType.REMOVED, 10L, 1L, 3));
+            consumer.accept(entry(4L, JournalEntryType.ADDED, 12L, 2L, 5));
+            return 5L;
+        });
+        when(registrationRepository.forEachKeyAfter(eq(12L), any())).thenAnswer(invocation -> {
+            // Taken through another node
+            ((Consumer<RegistrationKey>) invocation.getArgument(1)).accept(new RegistrationKey(60L, 4L, 2L, 5));
+            return 60L;
+        });
+
+        // When
+        capacityLedger.warm();
+
+        // Then
+        assertEquals(1, capacityLedger.taken(1L, 3));
+        assertEquals(2, capacityLedger.taken(2L, 5));
+        verify(registrationRepository, never()).countGroupByCourseAndNumWeek();
+    }
+
+    @Test
+    void testWarmFromDatabaseWhenJournalIsCorrupt() {
+        // Given
+        when(journal.isEnabled()).thenReturn(true);
+        when(journal.hasEntries()).thenReturn(true);
+        when(journal.replay(eq(0L), any())).thenThrow(new IllegalStateException("Corrupt journal entry at offset 3"));
+        when(registrationRepository.countGroupByCourseAndNumWeek()).thenReturn(List.of(count(1L, 3, 4L)));
+
+        // When
+        capacityLedger.warm();
+
+        // Then
+        assertEquals(4, capacityLedger.taken(1L, 3));
+        verify(registrationRepository, never()).forEachKeyAfter(anyLong(), any());
+    }
+
+    @Test
+    void testMissLoadsCourseOnce() {
+        // Given
+        when(registrationRepository.countByCourseGroupByNumWeek(2L)).thenReturn(List.of(count(2L, 1, 2L)));
+
+        // When
+        capacityLedger.tryAcquire(2L, 1, 6);
+        capacityLedger.tryAcquire(2L, 1, 6);
+
+        // Then
+        assertEquals(4, capacityLedger.taken(2L, 1));
+        assertEquals(1.0, meterRegistry.get("registration.ledger.lookups").tag("result", "miss").counter().count());
+        verify(registrationRepository, times(1)).countByCourseGroupByNumWeek(2L);
+    }
+
+    @Test
+    void testRelease() {
+        // Given
+        when(registrationRepository.countByCourseGroupByNumWeek(1L)).thenReturn(Collections.emptyList());
+        capacityLedger.tryAcquire(1L, 1, 6);
+
+        // When
+        capacityLedger.release(1L, 1);
+        capacityLedger.release(1L, 1);
+
+        // Then
+        assertEquals(0, capacityLedger.taken(1L, 1));
+    }
+
+    @Test
+    void testReconcileReportsDrift() {
+        // Given
+        when(registrationRepository.countGroupByCourseAndNumWeek())
+                .thenReturn(List.of(count(1L, 1, 2L)))
+                .thenReturn(List.of(count(1L, 1, 5L), count(3L, 2, 1L)));
+        capacityLedger.warm();
+
+        // When
+        capacityLedger.reconcile();
+
+        // Then
+        assertEquals(5, capacityLedger.taken(1L, 1));
+        assertEquals(1, capacityLedger.taken(3L, 2));
+        assertEquals(4.0, meterRegistry.get("registration.ledger.drift").counter().count());
+    }
+
+    @Test
+    void testConcurrentAcquireNeverExceedsCapacity() throws Exception {
+        // Given
+        when(registrationRepository.countByCourseGroupByNumWeek(1L)).thenReturn(Collections.emptyList());
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 200; i++) {
+            attempts.add(executor.submit(() -> capacityLedger.tryAcquire(1L, 1, 6)));
+        }
+        int admitted = 0;
+        for (Future<Boolean> attempt : attempts) {
+            admitted += attempt.get() ? 1 : 0;
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(6, admitted);
+        assertEquals(6, capacityLedger.taken(1L, 1));
+    }
+
+    private static CourseWeekCount count(Long numCourse, int numWeek, Long total) {
+        return new CourseWeekCount(numCourse, numWeek, total);
+    }
+
+    private static JournalEntry entry(long offset, JournalEntryType type, long numRegistration, long numCourse,
+                                      int numWeek) {
+        return new JournalEntry(offset, 0L, type, numRegistration, 1L, numCourse, numWeek);
+    }
+}
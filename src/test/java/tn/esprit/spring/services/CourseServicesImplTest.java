@@ -6,6 +6,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.entities.TypeCourse;
 import tn.esprit.spring.repositories.ICourseRepository;
@@ -24,6 +25,15 @@ class CourseServicesImplTest {
     @Mock
     private ICourseRepository courseRepository;
 
+    @Mock
+    private InstructorWeekIndex instructorWeekIndex;
+
+    @Mock
+    private CourseAvailabilityMatrix availabilityMatrix;
+
+    @Mock
+    private EntityLookups entityLookups;
+
     @InjectMocks
     private CourseServicesImpl courseServices;
 
@@ -54,6 +64,7 @@ class CourseServicesImplTest {
         assertEquals(testCourse.getLevel(), result.getLevel());
         assertEquals(testCourse.getTypeCourse(), result.getTypeCourse());
         assertEquals(testCourse.getPrice(), result.getPrice());
+        verify(availabilityMatrix).courseSaved(testCourse);
         verify(courseRepository).save(testCourse);
     }
 
@@ -100,7 +111,7 @@ class CourseServicesImplTest {
     void testRetrieveCourse_Success() {
         // Given
         Long courseId = 1L;
-        when(courseRepository.findById(courseId)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.course(courseId)).thenReturn(testCourse);
 
         // When
         Course result = courseServices.retrieveCourse(courseId);
@@ -109,21 +120,21 @@ class CourseServicesImplTest {
         assertNotNull(result);
         assertEquals(testCourse.getNumCourse(), result.getNumCourse());
         assertEquals(testCourse.getLevel(), result.getLevel());
-        verify(courseRepository).findById(courseId);
+        verify(entityLookups).course(courseId);
     }
 
     @Test
     void testRetrieveCourse_NotFound() {
         // Given
         Long courseId = 999L;
-        when(courseRepository.findById(courseId)).thenReturn(Optional.empty());
+        when(entityLookups.course(courseId)).thenReturn(null);
 
         // When
         Course result = courseServices.retrieveCourse(courseId);
 
         // Then
         assertNull(result);
-        verify(courseRepository).findById(courseId);
+        verify(entityLookups).course(courseId);
     }
 
     @Test
@@ -158,6 +169,8 @@ class CourseServicesImplTest {
         assertEquals(updatedCourse.getTypeCourse(), result.getTypeCourse());
         assertEquals(updatedCourse.getPrice(), result.getPrice());
         verify(courseRepository).save(updatedCourse);
+        verify(instructorWeekIndex).rebuildCourse(1L);
+        verify(entityLookups).courseChanged(1L);
     }
 
     @Test
@@ -254,4 +267,22 @@ class CourseServicesImplTest {
         assertEquals(course2.getNumCourse(), result.get(1).getNumCourse());
         verify(courseRepository).findAll();
     }
+
+    @Test
+    void testRetrieveCoursesPagesAfterCursor() {
+        // Given
+        when(courseRepository.findAllByOrderByNumCourseAsc(PageRequest.of(0, 2))).thenReturn(List.of(testCourse));
+        when(courseRepository.findByNumCourseGreaterThanOrderByNumCourseAsc(5L, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        // When
+        List<Course> first = courseServices.retrieveCourses(null, 2);
+        List<Course> after = courseServices.retrieveCourses(5L, 2);
+
+        // Then
+        assertEquals(List.of(testCourse), first);
+        assertTrue(after.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> courseServices.retrieveCourses(null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> courseServices.retrieveCourses(null, KeysetPaging.MAX_PAGE_SIZE + 1));
+    }
 }
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import tn.esprit.spring.entities.Course;
 import tn.esprit.spring.entities.Instructor;
 import tn.esprit.spring.repositories.ICourseRepository;
@@ -29,6 +30,12 @@ class InstructorServicesImplTest {
     @Mock
     private ICourseRepository courseRepository;
 
+    @Mock
+    private InstructorWeekIndex instructorWeekIndex;
+
+    @Mock
+    private EntityLookups entityLookups;
+
     @InjectMocks
     private InstructorServicesImpl instructorServices;
 
@@ -94,7 +101,7 @@ class InstructorServicesImplTest {
     @Test
     void testRetrieveInstructor() {
         // Given
-        when(instructorRepository.findById(1L)).thenReturn(Optional.of(testInstructor));
+        when(entityLookups.instructor(1L)).thenReturn(testInstructor);
 
         // When
         Instructor result = instructorServices.retrieveInstructor(1L);
@@ -102,20 +109,20 @@ class InstructorServicesImplTest {
         // Then
         assertNotNull(result);
         assertEquals(testInstructor.getNumInstructor(), result.getNumInstructor());
-        verify(instructorRepository, times(1)).findById(1L);
+        verify(entityLookups, times(1)).instructor(1L);
     }
 
     @Test
     void testRetrieveInstructorNotFound() {
         // Given
-        when(instructorRepository.findById(999L)).thenReturn(Optional.empty());
+        when(entityLookups.instructor(999L)).thenReturn(null);
 
         // When
         Instructor result = instructorServices.retrieveInstructor(999L);
 
         // Then
         assertNull(result);
-        verify(instructorRepository, times(1)).findById(999L);
+        verify(entityLookups, times(1)).instructor(999L);
     }
 
     @Test
@@ -137,6 +144,7 @@ class InstructorServicesImplTest {
         assertEquals(testInstructor.getNumInstructor(), result.getNumInstructor());
         verify(courseRepository, times(1)).findById(1L);
         verify(instructorRepository, times(1)).save(testInstructor);
+        verify(instructorWeekIndex, times(1)).rebuildInstructor(1L);
     }
 
     @Test
@@ -311,4 +319,22 @@ class InstructorServicesImplTest {
         assertEquals(hireDate, result.getDateOfHire());
         verify(instructorRepository, times(1)).save(testInstructor);
     }
+
+    @Test
+    void testRetrieveInstructorsPagesAfterCursor() {
+        // Given
+        when(instructorRepository.findAllByOrderByNumInstructorAsc(PageRequest.of(0, 2))).thenReturn(List.of(testInstructor));
+        when(instructorRepository.findByNumInstructorGreaterThanOrderByNumInstructorAsc(5L, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        // When
+        List<Instructor> first = instructorServices.retrieveInstructors(null, 2);
+        List<Instructor> after = instructorServices.retrieveInstructors(5L, 2);
+
+        // Then
+        assertEquals(List.of(testInstructor), first);
+        assertTrue(after.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> instructorServices.retrieveInstructors(null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> instructorServices.retrieveInstructors(null, KeysetPaging.MAX_PAGE_SIZE + 1));
+    }
 }
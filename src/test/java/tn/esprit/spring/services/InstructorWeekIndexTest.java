@@ -0,0 +1,188 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.dto.CourseWeekCount;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.events.RegistrationRemovedEvent;
+import tn.esprit.spring.repositories.IInstructorWeekRepository;
+import tn.esprit.spring.repositories.IJobLeaseRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InstructorWeekIndexTest {
+
+    @Mock
+    private IInstructorWeekRepository instructorWeekRepository;
+
+    @Mock
+    private IJobLeaseRepository jobLeaseRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private InstructorWeekIndex instructorWeekIndex;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        instructorWeekIndex = new InstructorWeekIndex(instructorWeekRepository,
+                new JobLeases(jobLeaseRepository, meterRegistry, Duration.ofSeconds(25), Clock.systemUTC(), "node-1"),
+                meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEventOutsideTransactionIsAppliedImmediately() {
+        // When
+        instructorWeekIndex.onRegistrationAdded(new RegistrationAddedEvent(1L, 1L, 2L, 5));
+
+        // Then
+        ArgumentCaptor<Collection<CourseWeekCount>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(instructorWeekRepository, times(1)).addRegistrations(captor.capture());
+        CourseWeekCount delta = captor.getValue().iterator().next();
+        assertEquals(2L, delta.getNumCourse());
+        assertEquals(5, delta.getNumWeek());
+        assertEquals(1L, delta.getTotal());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEventsAreSummedUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Given
+            instructorWeekIndex.onRegistrationAdded(new RegistrationAddedEvent(1L, 1L, 2L, 5));
+            instructorWeekIndex.onRegistrationAdded(new RegistrationAddedEvent(2L, 2L, 2L, 5));
+            instructorWeekIndex.onRegistrationAdded(new RegistrationAddedEvent(3L, 1L, 3L, 1));
+            instructorWeekIndex.onRegistrationRemoved(new RegistrationRemovedEvent(3L, 1L, 3L, 1));
+            verify(instructorWeekRepository, never()).addRegistrations(any());
+
+            // When
+            List<TransactionSynchronization> synchronizations = new ArrayList<>(
+                    TransactionSynchronizationManager.getSynchronizations());
+            assertEquals(1, synchronizations.size());
+            synchronizations.get(0).beforeCommit(false);
+            synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+            // Then
+            ArgumentCaptor<Collection<CourseWeekCount>> captor = ArgumentCaptor.forClass(Collection.class);
+            verify(instructorWeekRepository, times(1)).addRegistrations(captor.capture());
+            assertEquals(1, captor.getValue().size());
+            CourseWeekCount delta = captor.getValue().iterator().next();
+            assertEquals(2L, delta.getNumCourse());
+            assertEquals(2L, delta.getTotal());
+            assertNull(TransactionSynchronizationManager.getResource(instructorWeekIndex));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPromotionAfterCommitAppliesItsOwnEvents() {
+        // Given
+        TransactionTemplate outer = new TransactionTemplate(new StubTransactionManager());
+        TransactionTemplate requiresNew = new TransactionTemplate(new StubTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // When: a seat freed by the outer transaction is handed to the waitlist after its commit
+        outer.executeWithoutResult(status -> {
+            instructorWeekIndex.onRegistrationRemoved(new RegistrationRemovedEvent(1L, 1L, 2L, 5));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requiresNew.executeWithoutResult(inner -> instructorWeekIndex.onRegistrationAdded(
+                            new RegistrationAddedEvent(2L, 2L, 2L, 5)));
+                }
+            });
+        });
+
+        // Then
+        ArgumentCaptor<Collection<CourseWeekCount>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(instructorWeekRepository, times(2)).addRegistrations(captor.capture());
+        assertEquals(-1L, captor.getAllValues().get(0).iterator().next().getTotal());
+        assertEquals(1L, captor.getAllValues().get(1).iterator().next().getTotal());
+        assertNull(TransactionSynchronizationManager.getResource(instructorWeekIndex));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRolledBackNestedTransactionDropsItsEvents() {
+        // Given
+        TransactionTemplate outer = new TransactionTemplate(new StubTransactionManager());
+        TransactionTemplate requiresNew = new TransactionTemplate(new StubTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // When
+        outer.executeWithoutResult(status -> {
+            instructorWeekIndex.onRegistrationAdded(new RegistrationAddedEvent(1L, 1L, 2L, 5));
+            requiresNew.executeWithoutResult(inner -> {
+                instructorWeekIndex.onRegistrationAdded(new RegistrationAddedEvent(2L, 2L, 2L, 5));
+                inner.setRollbackOnly();
+            });
+        });
+
+        // Then
+        ArgumentCaptor<Collection<CourseWeekCount>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(instructorWeekRepository, times(1)).addRegistrations(captor.capture());
+        assertEquals(1L, captor.getValue().iterator().next().getTotal());
+    }
+
+    @Test
+    void testReconcileCountsDrift() {
+        // Given
+        when(jobLeaseRepository.tryAcquire(eq("registration.instructor-weeks.reconcile"), eq("node-1"), anyLong(),
+                anyLong())).thenReturn(true);
+        when(instructorWeekRepository.reconcile(null)).thenReturn(3L);
+
+        // When
+        instructorWeekIndex.reconcile();
+
+        // Then
+        assertEquals(3.0, meterRegistry.get("registration.instructor.weeks.drift").counter().count());
+    }
+
+    @Test
+    void testReconcileSkippedWithoutLease() {
+        // Given
+        when(jobLeaseRepository.tryAcquire(anyString(), anyString(), anyLong(), anyLong())).thenReturn(false);
+
+        // When
+        instructorWeekIndex.reconcile();
+
+        // Then
+        verifyNoInteractions(instructorWeekRepository);
+    }
+
+    @Test
+    void testRebuildInstructor() {
+        // When
+        instructorWeekIndex.rebuildInstructor(4L);
+        instructorWeekIndex.rebuildInstructor(null);
+
+        // Then
+        verify(instructorWeekRepository, times(1)).reconcile(4L);
+        verifyNoMoreInteractions(instructorWeekRepository);
+    }
+}
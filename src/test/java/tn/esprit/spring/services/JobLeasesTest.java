@@ -0,0 +1,107 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import tn.esprit.spring.repositories.IJobLeaseRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class JobLeasesTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-10T09:00:00Z");
+
+    private IJobLeaseRepository jobLeaseRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private JobLeases jobLeases;
+
+    @BeforeEach
+    void setUp() {
+        jobLeaseRepository = mock(IJobLeaseRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        jobLeases = new JobLeases(jobLeaseRepository, meterRegistry, Duration.ofSeconds(25),
+                Clock.fixed(NOW, ZoneOffset.UTC), "node-1");
+    }
+
+    @Test
+    void testRunsWhenLeaseTaken() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+        when(jobLeaseRepository.tryAcquire("job", "node-1", NOW.toEpochMilli(), NOW.toEpochMilli() + 25_000))
+                .thenReturn(true);
+
+        // When
+        boolean ran = jobLeases.runExclusively("job", runs::incrementAndGet);
+
+        // Then
+        assertTrue(ran);
+        assertEquals(1, runs.get());
+        assertEquals(1.0, meterRegistry.get("scheduling.lease.runs").tag("job", "job").counter().count());
+        assertEquals(1, meterRegistry.get("scheduling.lease.acquire").tag("job", "job").timer().count());
+    }
+
+    @Test
+    void testSkipsWhenLeaseHeldElsewhere() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+        when(jobLeaseRepository.tryAcquire(any(), any(), anyLong(), anyLong())).thenReturn(false);
+
+        // When
+        boolean ran = jobLeases.runExclusively("job", runs::incrementAndGet);
+
+        // Then
+        assertFalse(ran);
+        assertEquals(0, runs.get());
+        assertEquals(1.0, meterRegistry.get("scheduling.lease.skipped").tag("job", "job").counter().count());
+    }
+
+    @Test
+    void testSkipsWhenLeaseTableUnavailable() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+        when(jobLeaseRepository.tryAcquire(any(), any(), anyLong(), anyLong()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        // When
+        boolean ran = jobLeases.runExclusively("job", runs::incrementAndGet);
+
+        // Then
+        assertFalse(ran);
+        assertEquals(0, runs.get());
+        assertEquals(1.0, meterRegistry.get("scheduling.lease.failures").tag("job", "job").counter().count());
+        assertEquals(1.0, meterRegistry.get("scheduling.lease.skipped").tag("job", "job").counter().count());
+    }
+
+    @Test
+    void testRunsWithJobLease() {
+        // Given
+        AtomicInteger runs = new AtomicInteger();
+        when(jobLeaseRepository.tryAcquire("job", "node-1", NOW.toEpochMilli(), NOW.toEpochMilli() + 60_000))
+                .thenReturn(true);
+
+        // When
+        boolean ran = jobLeases.runExclusively("job", Duration.ofMinutes(1), runs::incrementAndGet);
+
+        // Then
+        assertTrue(ran);
+        assertEquals(1, runs.get());
+        assertThrows(IllegalArgumentException.class, () -> jobLeases.runExclusively("job", Duration.ZERO,
+                runs::incrementAndGet));
+    }
+
+    @Test
+    void testNonPositiveDurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new JobLeases(jobLeaseRepository, meterRegistry,
+                Duration.ZERO));
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import tn.esprit.spring.entities.Color;
 import tn.esprit.spring.entities.Piste;
 import tn.esprit.spring.repositories.IPisteRepository;
@@ -24,6 +25,9 @@ class PisteServicesImplTest {
     @Mock
     private IPisteRepository pisteRepository;
 
+    @Mock
+    private EntityLookups entityLookups;
+
     @InjectMocks
     private PisteServicesImpl pisteServices;
 
@@ -86,7 +90,7 @@ class PisteServicesImplTest {
     @Test
     void testRetrievePiste() {
         // Given
-        when(pisteRepository.findById(1L)).thenReturn(Optional.of(testPiste));
+        when(entityLookups.piste(1L)).thenReturn(testPiste);
 
         // When
         Piste result = pisteServices.retrievePiste(1L);
@@ -95,20 +99,20 @@ class PisteServicesImplTest {
         assertNotNull(result);
         assertEquals(testPiste.getNumPiste(), result.getNumPiste());
         assertEquals(testPiste.getNamePiste(), result.getNamePiste());
-        verify(pisteRepository, times(1)).findById(1L);
+        verify(entityLookups, times(1)).piste(1L);
     }
 
     @Test
     void testRetrievePisteNotFound() {
         // Given
-        when(pisteRepository.findById(999L)).thenReturn(Optional.empty());
+        when(entityLookups.piste(999L)).thenReturn(null);
 
         // When
         Piste result = pisteServices.retrievePiste(999L);
 
         // Then
         assertNull(result);
-        verify(pisteRepository, times(1)).findById(999L);
+        verify(entityLookups, times(1)).piste(999L);
     }
 
     @Test
@@ -237,7 +241,7 @@ class PisteServicesImplTest {
         specificPiste.setNumPiste(specificId);
         specificPiste.setNamePiste("Specific Piste");
 
-        when(pisteRepository.findById(specificId)).thenReturn(Optional.of(specificPiste));
+        when(entityLookups.piste(specificId)).thenReturn(specificPiste);
 
         // When
         Piste result = pisteServices.retrievePiste(specificId);
@@ -246,6 +250,24 @@ class PisteServicesImplTest {
         assertNotNull(result);
         assertEquals(specificId, result.getNumPiste());
         assertEquals("Specific Piste", result.getNamePiste());
-        verify(pisteRepository, times(1)).findById(specificId);
+        verify(entityLookups, times(1)).piste(specificId);
+    }
+
+    @Test
+    void testRetrievePistesPagesAfterCursor() {
+        // Given
+        when(pisteRepository.findAllByOrderByNumPisteAsc(PageRequest.of(0, 2))).thenReturn(List.of(testPiste));
+        when(pisteRepository.findByNumPisteGreaterThanOrderByNumPisteAsc(5L, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        // When
+        List<Piste> first = pisteServices.retrievePistes(null, 2);
+        List<Piste> after = pisteServices.retrievePistes(5L, 2);
+
+        // Then
+        assertEquals(List.of(testPiste), first);
+        assertTrue(after.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> pisteServices.retrievePistes(null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> pisteServices.retrievePistes(null, KeysetPaging.MAX_PAGE_SIZE + 1));
     }
 }
@@ -0,0 +1,145 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tn.esprit.spring.dto.RecurringRevenue;
+import tn.esprit.spring.dto.RevenueAggregate;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecurringRevenueAggregatesTest {
+
+    @Mock
+    private ISubscriptionRepository subscriptionRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RecurringRevenueAggregates revenueAggregates;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        revenueAggregates = new RecurringRevenueAggregates(subscriptionRepository, meterRegistry);
+    }
+
+    @Test
+    void testNoSubscriptions() {
+        // Given
+        when(subscriptionRepository.sumPriceGroupByTypeSub()).thenReturn(Collections.emptyList());
+
+        // When
+        revenueAggregates.reconcile();
+
+        // Then
+        assertEquals(0.0, revenueAggregates.monthlyRecurringRevenue());
+        assertEquals(0.0, meterRegistry.get("subscription.revenue.drift").counter().count());
+    }
+
+    @Test
+    void testReconcileComputesRevenue() {
+        // Given
+        when(subscriptionRepository.sumPriceGroupByTypeSub()).thenReturn(List.of(
+                new RevenueAggregate(TypeSubscription.MONTHLY, 300.0, 3L),
+                new RevenueAggregate(TypeSubscription.ANNUAL, 1200.0, 1L)));
+
+        // When
+        revenueAggregates.reconcile();
+
+        // Then
+        assertEquals(200.0, revenueAggregates.monthlyRecurringRevenue(), 1e-9);
+        assertEquals(200.0, meterRegistry.get("subscription.revenue.monthly.recurring").gauge().value(), 1e-9);
+        assertEquals(2.0, meterRegistry.get("subscription.revenue.drift").counter().count());
+    }
+
+    @Test
+    void testSavedSubscriptionsUpdateAggregates() {
+        // Given
+        Subscription monthly = subscription(1L, TypeSubscription.MONTHLY, 100f);
+        Subscription semester = subscription(2L, TypeSubscription.SEMESTRIEL, 600f);
+        revenueAggregates.subscriptionSaved(null, monthly);
+        revenueAggregates.subscriptionSaved(null, semester);
+
+        // When
+        revenueAggregates.subscriptionSaved(semester, subscription(2L, TypeSubscription.ANNUAL, 1200f));
+
+        // Then
+        RecurringRevenue revenue = revenueAggregates.snapshot();
+        assertEquals(200.0, revenue.getMonthlyRecurringRevenue(), 1e-9);
+        RevenueAggregate annual = revenue.getAggregates().get(TypeSubscription.ANNUAL.ordinal());
+        assertEquals(1L, annual.getCount());
+        assertEquals(1200.0, annual.getAveragePrice(), 1e-9);
+        assertEquals(0L, revenue.getAggregates().get(TypeSubscription.SEMESTRIEL.ordinal()).getCount());
+        verifyNoInteractions(subscriptionRepository);
+    }
+
+    @Test
+    void testReconcileKeepsMatchingAggregates() {
+        // Given
+        revenueAggregates.subscriptionSaved(null, subscription(1L, TypeSubscription.MONTHLY, 100f));
+        when(subscriptionRepository.sumPriceGroupByTypeSub()).thenReturn(List.of(
+                new RevenueAggregate(TypeSubscription.MONTHLY, 100.0, 1L)));
+
+        // When
+        revenueAggregates.reconcile();
+
+        // Then
+        assertEquals(0.0, meterRegistry.get("subscription.revenue.drift").counter().count());
+        assertEquals(100.0, revenueAggregates.monthlyRecurringRevenue(), 1e-9);
+    }
+
+    @Test
+    void testTransactionChangesApplyOnCommit() {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(new StubTransactionManager());
+
+        // When
+        double during = transaction.execute(status -> {
+            revenueAggregates.subscriptionSaved(null, subscription(1L, TypeSubscription.MONTHLY, 100f));
+            revenueAggregates.subscriptionSaved(null, subscription(2L, TypeSubscription.MONTHLY, 300f));
+            return revenueAggregates.monthlyRecurringRevenue();
+        });
+
+        // Then
+        assertEquals(0.0, during);
+        assertEquals(200.0, revenueAggregates.monthlyRecurringRevenue(), 1e-9);
+        assertEquals(2L, revenueAggregates.snapshot().getAggregates().get(TypeSubscription.MONTHLY.ordinal()).getCount());
+        assertNull(TransactionSynchronizationManager.getResource(revenueAggregates));
+    }
+
+    @Test
+    void testRolledBackTransactionLeavesAggregates() {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(new StubTransactionManager());
+        revenueAggregates.subscriptionSaved(null, subscription(1L, TypeSubscription.MONTHLY, 100f));
+
+        // When
+        transaction.executeWithoutResult(status -> {
+            revenueAggregates.subscriptionSaved(null, subscription(2L, TypeSubscription.ANNUAL, 1200f));
+            status.setRollbackOnly();
+        });
+
+        // Then
+        assertEquals(100.0, revenueAggregates.monthlyRecurringRevenue(), 1e-9);
+        assertEquals(0L, revenueAggregates.snapshot().getAggregates().get(TypeSubscription.ANNUAL.ordinal()).getCount());
+        assertNull(TransactionSynchronizationManager.getResource(revenueAggregates));
+    }
+
+    private static Subscription subscription(Long numSub, TypeSubscription type, Float price) {
+        return new Subscription(numSub, LocalDate.now(), LocalDate.now().plusMonths(1), price, type);
+    }
+}
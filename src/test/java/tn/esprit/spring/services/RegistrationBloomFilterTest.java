@@ -0,0 +1,143 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tn.esprit.spring.dto.RegistrationKey;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistrationBloomFilterTest {
+
+    @Mock
+    private IRegistrationRepository registrationRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RegistrationBloomFilter registrationFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registrationFilter = new RegistrationBloomFilter(registrationRepository, meterRegistry, 10_000, 0.01, 0);
+    }
+
+    @Test
+    void testEveryKeyIsPossibleBeforeFirstBuild() {
+        assertTrue(registrationFilter.mightContain(1, 1L, 1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebuildLoadsExistingRegistrations() {
+        // Given
+        when(registrationRepository.count()).thenReturn(2L);
+        when(registrationRepository.forEachKeyAfter(eq(0L), any())).thenAnswer(invocation -> {
+            Consumer<RegistrationKey> consumer = invocation.getArgument(1);
+            consumer.accept(new RegistrationKey(1L, 1L, 2L, 3));
+            consumer.accept(new RegistrationKey(2L, 4L, 5L, 6));
+            return 2L;
+        });
+
+        // When
+        registrationFilter.rebuild();
+
+        // Then
+        assertTrue(registrationFilter.mightContain(3, 1L, 2L));
+        assertTrue(registrationFilter.mightContain(6, 4L, 5L));
+        assertFalse(registrationFilter.mightContain(3, 2L, 1L));
+        assertTrue(meterRegistry.get("registration.bloom.memory").gauge().value() > 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefreshReadsOnlyNewRegistrations() {
+        // Given
+        when(registrationRepository.forEachKeyAfter(eq(0L), any())).thenReturn(10L);
+        registrationFilter.rebuild();
+        when(registrationRepository.forEachKeyAfter(eq(10L), any())).thenAnswer(invocation -> {
+            ((Consumer<RegistrationKey>) invocation.getArgument(1)).accept(new RegistrationKey(11L, 7L, 8L, 9));
+            return 11L;
+        });
+
+        // When
+        registrationFilter.refresh();
+
+        // Then
+        assertTrue(registrationFilter.mightContain(9, 7L, 8L));
+        verify(registrationRepository, times(1)).forEachKeyAfter(eq(10L), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefreshReadsAgainIdsBelowHighestFromOtherNodes() {
+        // Given
+        registrationFilter = new RegistrationBloomFilter(registrationRepository, meterRegistry, 10_000, 0.01, 50);
+        when(registrationRepository.forEachKeyAfter(eq(0L), any())).thenReturn(100L);
+        registrationFilter.rebuild();
+        when(registrationRepository.forEachKeyAfter(eq(50L), any())).thenAnswer(invocation -> {
+            // Inserted by another node from an older block of ids
+            ((Consumer<RegistrationKey>) invocation.getArgument(1)).accept(new RegistrationKey(80L, 7L, 8L, 9));
+            return 80L;
+        });
+
+        // When
+        registrationFilter.refresh();
+        registrationFilter.refresh();
+
+        // Then
+        assertTrue(registrationFilter.mightContain(9, 7L, 8L));
+        verify(registrationRepository, times(2)).forEachKeyAfter(eq(50L), any());
+    }
+
+    @Test
+    void testNoFalseNegativesAndBoundedFalsePositives() {
+        // Given
+        when(registrationRepository.forEachKeyAfter(eq(0L), any())).thenReturn(0L);
+        registrationFilter.rebuild();
+        for (long skier = 0; skier < 10_000; skier++) {
+            registrationFilter.onRegistrationAdded(new RegistrationAddedEvent(skier, skier, skier % 50, (int) (skier % 52)));
+        }
+
+        // When
+        int falsePositives = 0;
+        for (long skier = 0; skier < 10_000; skier++) {
+            assertTrue(registrationFilter.mightContain((int) (skier % 52), skier, skier % 50));
+            if (registrationFilter.mightContain((int) (skier % 52), skier + 100_000, skier % 50)) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertTrue(falsePositives < 200, falsePositives + " false positives out of 10000");
+        double expected = meterRegistry.get("registration.bloom.fpp.expected").gauge().value();
+        assertTrue(expected > 0.005 && expected < 0.02, "Expected false positive probability " + expected);
+    }
+
+    @Test
+    void testObservedFalsePositiveRate() {
+        // Given
+        when(registrationRepository.forEachKeyAfter(eq(0L), any())).thenReturn(0L);
+        registrationFilter.rebuild();
+        registrationFilter.mightContain(1, 1L, 1L);
+        registrationFilter.mightContain(2, 1L, 1L);
+        registrationFilter.mightContain(3, 1L, 1L);
+
+        // When
+        registrationFilter.recordFalsePositive();
+
+        // Then
+        assertEquals(0.25, meterRegistry.get("registration.bloom.fpp.observed").gauge().value());
+    }
+}
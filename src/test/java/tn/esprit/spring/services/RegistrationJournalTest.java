@@ -0,0 +1,227 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import tn.esprit.spring.dto.JournalEntry;
+import tn.esprit.spring.dto.JournalEntryType;
+import tn.esprit.spring.dto.RegistrationKey;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.events.RegistrationRejectedEvent;
+import tn.esprit.spring.events.RegistrationRemovedEvent;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegistrationJournalTest {
+
+    @Mock
+    private IRegistrationRepository registrationRepository;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testAppendAndReplayFromOffset() {
+        // Given
+        RegistrationJournal journal = journal(100);
+        journal.onRegistrationAdded(new RegistrationAddedEvent(10L, 1L, 2L, 5));
+        journal.onRegistrationRejected(new RegistrationRejectedEvent(3L, 2L, 5, RegistrationOutcome.FULL));
+        journal.onRegistrationRemoved(new RegistrationRemovedEvent(10L, 1L, 2L, 5));
+
+        // When
+        List<JournalEntry> all = replay(journal, 0);
+        List<JournalEntry> tail = replay(journal, 1);
+
+        // Then
+        assertEquals(3, journal.nextOffset());
+        assertEquals(List.of(JournalEntryType.ADDED, JournalEntryType.FULL, JournalEntryType.REMOVED),
+                all.stream().map(JournalEntry::getType).toList());
+        assertEquals(10L, all.get(0).getNumRegistration());
+        assertEquals(1L, all.get(0).getNumSkier());
+        assertEquals(2L, all.get(0).getNumCourse());
+        assertEquals(5, all.get(0).getNumWeek());
+        assertEquals(0L, all.get(1).getNumRegistration());
+        assertEquals(List.of(1L, 2L), tail.stream().map(JournalEntry::getOffset).toList());
+    }
+
+    @Test
+    void testRollsSegmentsAndReopens() throws IOException {
+        // Given
+        RegistrationJournal journal = journal(4);
+        for (int i = 0; i < 10; i++) {
+            journal.append(JournalEntryType.ADDED, (long) i, 1L, 2L, i);
+        }
+        journal.close();
+
+        // When
+        RegistrationJournal reopened = journal(4);
+        reopened.append(JournalEntryType.ADDED, 10L, 1L, 2L, 10);
+
+        // Then
+        assertEquals(3, segments());
+        assertEquals(11, reopened.nextOffset());
+        assertEquals(List.of(7L, 8L, 9L, 10L), replay(reopened, 7).stream().map(JournalEntry::getOffset).toList());
+        verify(registrationRepository, times(1)).forEachKeyAfter(eq(0L), any());
+    }
+
+    @Test
+    void testReopenStopsAtTornEntry() throws IOException {
+        // Given
+        RegistrationJournal journal = journal(100);
+        journal.append(JournalEntryType.ADDED, 1L, 1L, 2L, 3);
+        journal.append(JournalEntryType.ADDED, 2L, 1L, 2L, 4);
+        journal.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve(String.format("%020d", 0) + ".seg"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), RegistrationJournal.RECORD_BYTES + 20);
+        }
+
+        // When
+        RegistrationJournal reopened = journal(100);
+
+        // Then
+        assertEquals(1, reopened.nextOffset());
+        assertEquals(1, replay(reopened, 0).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSeedsWithExistingRegistrations() {
+        // Given
+        when(registrationRepository.forEachKeyAfter(eq(0L), any())).thenAnswer(invocation -> {
+            Consumer<RegistrationKey> consumer = invocation.getArgument(1);
+            consumer.accept(new RegistrationKey(7L, 1L, 2L, 3));
+            consumer.accept(new RegistrationKey(9L, 4L, 2L, 3));
+            return 2L;
+        });
+
+        // When
+        RegistrationJournal journal = journal(100);
+
+        // Then
+        assertTrue(journal.hasEntries());
+        List<JournalEntry> entries = replay(journal, 0);
+        assertEquals(2, entries.size());
+        assertEquals(JournalEntryType.ADDED, entries.get(1).getType());
+        assertEquals(4L, entries.get(1).getNumSkier());
+        assertEquals(9L, entries.get(1).getNumRegistration());
+    }
+
+    @Test
+    void testReplayRejectsCorruptSegment() throws IOException {
+        // Given
+        RegistrationJournal journal = journal(2);
+        journal.append(JournalEntryType.ADDED, 1L, 1L, 2L, 3);
+        journal.append(JournalEntryType.ADDED, 2L, 1L, 2L, 4);
+        journal.append(JournalEntryType.ADDED, 3L, 1L, 2L, 5);
+        Path sealed;
+        try (Stream<Path> files = Files.list(directory)) {
+            sealed = files.filter(file -> file.toString().endsWith(".seg")).sorted().findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(sealed, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), RegistrationJournal.RECORD_BYTES + 20);
+        }
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> replay(journal, 0));
+    }
+
+    @Test
+    void testCompactionDropsRemovedRegistrationsAndRejections() {
+        // Given
+        RegistrationJournal journal = journal(4);
+        journal.append(JournalEntryType.ADDED, 1L, 1L, 2L, 3);
+        journal.append(JournalEntryType.ADDED, 2L, 5L, 2L, 3);
+        journal.append(JournalEntryType.FULL, null, 6L, 2L, 3);
+        journal.append(JournalEntryType.DUPLICATE, null, 1L, 2L, 3);
+        journal.append(JournalEntryType.REMOVED, 1L, 1L, 2L, 3);
+        journal.append(JournalEntryType.REJECTED_AGE, null, 7L, 2L, 3);
+        journal.append(JournalEntryType.ADDED, 3L, 8L, 2L, 3);
+        journal.append(JournalEntryType.ADDED, 4L, 9L, 2L, 3);
+        journal.append(JournalEntryType.REMOVED, 4L, 9L, 2L, 3);
+
+        // When
+        int dropped = journal.compact(Long.MAX_VALUE);
+
+        // Then
+        // The removal at offset 8 is still in the active segment, so its registration is kept
+        assertEquals(5, dropped);
+        List<JournalEntry> kept = replay(journal, 0);
+        assertEquals(List.of(1L, 6L, 7L, 8L), kept.stream().map(JournalEntry::getOffset).toList());
+        assertEquals(List.of(6L, 7L, 8L), replay(journal, 5).stream().map(JournalEntry::getOffset).toList());
+        assertEquals(9, journal.nextOffset());
+        assertEquals(0, journal.compact(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testCompactionKeepsRecentDecisions() {
+        // Given
+        RegistrationJournal journal = journal(2);
+        journal.append(JournalEntryType.ADDED, 1L, 1L, 2L, 3);
+        journal.append(JournalEntryType.REMOVED, 1L, 1L, 2L, 3);
+        journal.append(JournalEntryType.FULL, null, 6L, 2L, 3);
+
+        // When
+        int dropped = journal.compact(System.currentTimeMillis() - Duration.ofDays(1).toMillis());
+
+        // Then
+        assertEquals(0, dropped);
+        assertEquals(3, replay(journal, 0).size());
+    }
+
+    @Test
+    void testUnwritableDirectoryDisablesJournal() throws IOException {
+        // Given
+        Path file = Files.createFile(directory.resolve("not-a-directory"));
+
+        // When
+        RegistrationJournal journal = new RegistrationJournal(registrationRepository, new SimpleMeterRegistry(),
+                file.resolve("journal").toString(), 100, Duration.ofDays(30));
+        journal.onRegistrationAdded(new RegistrationAddedEvent(10L, 1L, 2L, 5));
+
+        // Then
+        assertFalse(journal.isEnabled());
+        assertFalse(journal.hasEntries());
+        assertTrue(replay(journal, 0).isEmpty());
+        assertThrows(IllegalStateException.class, () -> journal.append(JournalEntryType.ADDED, 1L, 1L, 2L, 3));
+        verifyNoInteractions(registrationRepository);
+    }
+
+    private RegistrationJournal journal(int segmentRecords) {
+        return new RegistrationJournal(registrationRepository, new SimpleMeterRegistry(), directory.toString(),
+                segmentRecords, Duration.ofDays(30));
+    }
+
+    private static List<JournalEntry> replay(RegistrationJournal journal, long fromOffset) {
+        List<JournalEntry> entries = new ArrayList<>();
+        journal.replay(fromOffset, entries::add);
+        return entries;
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).count();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrationRuleEngineTest {
+
+    @TempDir
+    Path directory;
+
+    private Path table;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        table = directory.resolve("registration-rules.json");
+        try (InputStream shipped = getClass().getResourceAsStream("/registration-rules.json")) {
+            Files.copy(shipped, table);
+        }
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testReloadPicksUpEditedTable() throws IOException {
+        // Given
+        RegistrationRuleEngine engine = engine();
+        String version = engine.version();
+        assertEquals(6, engine.capacity(TypeCourse.COLLECTIVE_ADULT));
+        Files.writeString(table, Files.readString(table).replaceFirst("\"capacity\": 6", "\"capacity\": 8"));
+
+        // When
+        engine.reload();
+
+        // Then
+        assertNotEquals(version, engine.version());
+        assertEquals(8, engine.capacity(TypeCourse.COLLECTIVE_CHILDREN));
+    }
+
+    @Test
+    void testReloadUnchangedTableKeepsRules() {
+        // Given
+        RegistrationRuleEngine engine = engine();
+        RegistrationRules rules = engine.rules();
+
+        // When
+        engine.reload();
+
+        // Then
+        assertSame(rules, engine.rules());
+    }
+
+    @Test
+    void testInvalidEditKeepsCurrentRules() throws IOException {
+        // Given
+        RegistrationRuleEngine engine = engine();
+        String version = engine.version();
+        Files.writeString(table, "[{\"typeCourse\": \"INDIVIDUAL\", \"supports\": [\"SKI\"]}]", StandardCharsets.UTF_8);
+
+        // When
+        engine.reload();
+
+        // Then
+        assertEquals(version, engine.version());
+        assertEquals(RegistrationOutcome.REJECTED_AGE, engine.check(TypeCourse.COLLECTIVE_ADULT, Support.SKI, 10));
+        assertEquals(1.0, meterRegistry.get("registration.rules.reload.failures").counter().count());
+    }
+
+    @Test
+    void testInvalidTableFailsStartup() throws IOException {
+        // Given
+        Files.writeString(table, "not json", StandardCharsets.UTF_8);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, this::engine);
+    }
+
+    private RegistrationRuleEngine engine() {
+        return new RegistrationRuleEngine(new DefaultResourceLoader(), new ObjectMapper(), meterRegistry,
+                table.toUri().toString());
+    }
+}
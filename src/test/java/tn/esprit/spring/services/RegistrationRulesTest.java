@@ -0,0 +1,89 @@
+package tn.esprit.spring.services;
+
+import org.junit.jupiter.api.Test;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.dto.RegistrationRule;
+import tn.esprit.spring.entities.Support;
+import tn.esprit.spring.entities.TypeCourse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrationRulesTest {
+
+    private static final Set<Support> ALL_SUPPORTS = Set.of(Support.SKI, Support.SNOWBOARD);
+
+    @Test
+    void testCheckAgeBounds() {
+        // Given
+        RegistrationRules rules = RegistrationRules.compile(defaultRules(), "1");
+
+        // When & Then
+        assertEquals(RegistrationOutcome.ACCEPTED, rules.check(TypeCourse.COLLECTIVE_CHILDREN, Support.SKI, 15));
+        assertEquals(RegistrationOutcome.REJECTED_AGE, rules.check(TypeCourse.COLLECTIVE_CHILDREN, Support.SKI, 16));
+        assertEquals(RegistrationOutcome.ACCEPTED, rules.check(TypeCourse.COLLECTIVE_ADULT, Support.SKI, 16));
+        assertEquals(RegistrationOutcome.REJECTED_AGE, rules.check(TypeCourse.COLLECTIVE_ADULT, Support.SKI, 15));
+        assertEquals(RegistrationOutcome.ACCEPTED, rules.check(TypeCourse.INDIVIDUAL, Support.SNOWBOARD, 3));
+    }
+
+    @Test
+    void testCheckSupport() {
+        // Given
+        List<RegistrationRule> rows = defaultRules();
+        rows.get(0).setSupports(Set.of(Support.SKI));
+        RegistrationRules rules = RegistrationRules.compile(rows, "1");
+
+        // When & Then
+        assertEquals(RegistrationOutcome.ACCEPTED, rules.check(TypeCourse.INDIVIDUAL, Support.SKI, 30));
+        assertEquals(RegistrationOutcome.REJECTED_SUPPORT, rules.check(TypeCourse.INDIVIDUAL, Support.SNOWBOARD, 30));
+        assertEquals(RegistrationOutcome.ACCEPTED, rules.check(TypeCourse.INDIVIDUAL, null, 30));
+    }
+
+    @Test
+    void testCapacity() {
+        // Given
+        RegistrationRules rules = RegistrationRules.compile(defaultRules(), "1");
+
+        // When & Then
+        assertEquals(RegistrationRules.UNLIMITED, rules.capacity(TypeCourse.INDIVIDUAL));
+        assertEquals(6, rules.capacity(TypeCourse.COLLECTIVE_ADULT));
+        assertEquals("1", rules.version());
+    }
+
+    @Test
+    void testCompileRejectsMissingType() {
+        // Given
+        List<RegistrationRule> rows = defaultRules();
+        rows.remove(2);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> RegistrationRules.compile(rows, "1"));
+    }
+
+    @Test
+    void testCompileRejectsInvalidRows() {
+        // Given
+        List<RegistrationRule> duplicated = defaultRules();
+        duplicated.add(new RegistrationRule(TypeCourse.INDIVIDUAL, null, null, null, ALL_SUPPORTS));
+        List<RegistrationRule> inverted = defaultRules();
+        inverted.get(1).setMinAge(20);
+        List<RegistrationRule> oversized = defaultRules();
+        oversized.get(2).setCapacity(RegistrationRules.MAX_CAPACITY + 1);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> RegistrationRules.compile(duplicated, "1"));
+        assertThrows(IllegalArgumentException.class, () -> RegistrationRules.compile(inverted, "1"));
+        assertThrows(IllegalArgumentException.class, () -> RegistrationRules.compile(oversized, "1"));
+        assertThrows(NullPointerException.class, () -> RegistrationRules.compile(null, "1"));
+    }
+
+    static List<RegistrationRule> defaultRules() {
+        return new ArrayList<>(List.of(
+                new RegistrationRule(TypeCourse.INDIVIDUAL, null, null, null, ALL_SUPPORTS),
+                new RegistrationRule(TypeCourse.COLLECTIVE_CHILDREN, null, 15, 6, ALL_SUPPORTS),
+                new RegistrationRule(TypeCourse.COLLECTIVE_ADULT, 16, null, 6, ALL_SUPPORTS)));
+    }
+}
@@ -1,23 +1,41 @@
 package tn.esprit.spring.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.dao.DuplicateKeyException;
+import tn.esprit.spring.dto.BulkRegistrationItem;
+import tn.esprit.spring.dto.BulkRegistrationResult;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.dto.TakenSeat;
 import tn.esprit.spring.entities.*;
+import tn.esprit.spring.events.RegistrationAddedEvent;
+import tn.esprit.spring.events.RegistrationRejectedEvent;
+import tn.esprit.spring.events.RegistrationRemovedEvent;
 import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IInstructorWeekRepository;
 import tn.esprit.spring.repositories.IRegistrationRepository;
 import tn.esprit.spring.repositories.ISkierRepository;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +50,25 @@ class RegistrationServicesImplTest {
     @Mock
     private ICourseRepository courseRepository;
 
+    @Mock
+    private CourseCapacityLedger capacityLedger;
+
+    @Mock
+    private RegistrationBloomFilter registrationFilter;
+
+    @Spy
+    private RegistrationRuleEngine registrationRules = new RegistrationRuleEngine(new DefaultResourceLoader(),
+            new ObjectMapper(), new SimpleMeterRegistry(), "classpath:registration-rules.json");
+
+    @Mock
+    private IInstructorWeekRepository instructorWeekRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private EntityLookups entityLookups;
+
     @InjectMocks
     private RegistrationServicesImpl registrationServices;
 
@@ -55,6 +92,9 @@ class RegistrationServicesImplTest {
         testCourse.setNumCourse(1L);
         testCourse.setLevel(1);
         testCourse.setTypeCourse(TypeCourse.INDIVIDUAL);
+
+        // Every key is a possible duplicate unless a test says otherwise
+        lenient().when(registrationFilter.mightContain(anyInt(), any(), any())).thenReturn(true);
     }
 
     @Test
@@ -107,6 +147,80 @@ class RegistrationServicesImplTest {
         verify(registrationRepository, times(1)).save(testRegistration);
     }
 
+    @Test
+    void testAssignRegistrationToCollectiveCourseTakesSeat() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        when(registrationRepository.findById(1L)).thenReturn(Optional.of(testRegistration));
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.moveIntoFreeSeat(1L, 1L, 1, 6)).thenReturn(3);
+        when(registrationRepository.save(any(Registration.class))).thenReturn(testRegistration);
+
+        // When
+        Registration result = registrationServices.assignRegistrationToCourse(1L, 1L);
+
+        // Then
+        assertEquals(3, result.getSeat());
+        assertEquals(testCourse, result.getCourse());
+        verify(registrationRepository, times(1)).moveIntoFreeSeat(1L, 1L, 1, 6);
+    }
+
+    @Test
+    void testAssignRegistrationToFullCollectiveCourse() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        when(registrationRepository.findById(1L)).thenReturn(Optional.of(testRegistration));
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.moveIntoFreeSeat(1L, 1L, 1, 6)).thenReturn(null);
+
+        // When
+        Registration result = registrationServices.assignRegistrationToCourse(1L, 1L);
+
+        // Then
+        assertNull(result);
+        assertNull(testRegistration.getCourse());
+        verify(registrationRepository, never()).save(any());
+        verify(eventPublisher, times(1)).publishEvent(any(RegistrationRejectedEvent.class));
+    }
+
+    @Test
+    void testAssignRegistrationToFullCollectiveCourseReleasesSeat() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        when(registrationRepository.findById(1L)).thenReturn(Optional.of(testRegistration));
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.moveIntoFreeSeat(1L, 1L, 1, 6)).thenReturn(null);
+
+        // When
+        registrationServices.assignRegistrationToCourse(1L, 1L);
+
+        // Then
+        verify(capacityLedger, times(1)).release(1L, 1);
+    }
+
+    @Test
+    void testAssignRegistrationToSameCourseKeepsSeat() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        testRegistration.setCourse(testCourse);
+        testRegistration.setSeat(3);
+        when(registrationRepository.findById(1L)).thenReturn(Optional.of(testRegistration));
+        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+
+        // When
+        Registration result = registrationServices.assignRegistrationToCourse(1L, 1L);
+
+        // Then
+        assertEquals(3, result.getSeat());
+        verify(capacityLedger, never()).tryAcquire(anyLong(), anyInt(), anyInt());
+        verify(capacityLedger, never()).release(anyLong(), anyInt());
+        verify(registrationRepository, never()).moveIntoFreeSeat(anyLong(), anyLong(), anyInt(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     void testAssignRegistrationToCourseNotFound() {
         // Given
@@ -124,11 +238,11 @@ class RegistrationServicesImplTest {
     @Test
     void testAddRegistrationAndAssignToSkierAndCourseIndividual() {
         // Given
-        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
-        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
         when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong()))
                 .thenReturn(0L);
-        when(registrationRepository.save(any(Registration.class))).thenReturn(testRegistration);
+        when(registrationRepository.insertAll(List.of(testRegistration))).thenReturn(new boolean[]{true});
 
         // When
         Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
@@ -136,33 +250,36 @@ class RegistrationServicesImplTest {
         // Then
         assertNotNull(result);
         assertEquals(testRegistration.getNumRegistration(), result.getNumRegistration());
-        verify(skierRepository, times(1)).findById(1L);
-        verify(courseRepository, times(1)).findById(1L);
-        verify(registrationRepository, times(1)).save(testRegistration);
+        verify(entityLookups, times(1)).skier(1L);
+        verify(entityLookups, times(1)).course(1L);
+        verify(registrationRepository, times(1)).insertAll(List.of(testRegistration));
     }
 
     @Test
     void testAddRegistrationAndAssignToSkierAndCourseCollectiveChildren() {
         // Given
-        testSkier.setDateOfBirth(LocalDate.of(2010, 1, 1)); // Child
+        testSkier.setDateOfBirth(LocalDate.now().minusYears(10)); // Child
         testCourse.setTypeCourse(TypeCourse.COLLECTIVE_CHILDREN);
 
-        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
-        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
         when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong()))
                 .thenReturn(0L);
-        when(registrationRepository.countByCourseAndNumWeek(any(Course.class), anyInt())).thenReturn(3L);
-        when(registrationRepository.save(any(Registration.class))).thenReturn(testRegistration);
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.insertIntoFreeSeat(1, 1L, 1L, 6)).thenReturn(7L);
 
         // When
         Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
 
         // Then
         assertNotNull(result);
-        assertEquals(testRegistration.getNumRegistration(), result.getNumRegistration());
-        verify(skierRepository, times(1)).findById(1L);
-        verify(courseRepository, times(1)).findById(1L);
-        verify(registrationRepository, times(1)).save(testRegistration);
+        assertEquals(7L, result.getNumRegistration());
+        assertEquals(testSkier, result.getSkier());
+        assertEquals(testCourse, result.getCourse());
+        verify(entityLookups, times(1)).skier(1L);
+        verify(entityLookups, times(1)).course(1L);
+        verify(registrationRepository, times(1)).insertIntoFreeSeat(1, 1L, 1L, 6);
+        verify(registrationRepository, never()).save(any());
     }
 
     @Test
@@ -171,59 +288,63 @@ class RegistrationServicesImplTest {
         testSkier.setDateOfBirth(LocalDate.of(1990, 1, 1)); // Adult
         testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
 
-        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
-        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
         when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong()))
                 .thenReturn(0L);
-        when(registrationRepository.countByCourseAndNumWeek(any(Course.class), anyInt())).thenReturn(3L);
-        when(registrationRepository.save(any(Registration.class))).thenReturn(testRegistration);
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.insertIntoFreeSeat(1, 1L, 1L, 6)).thenReturn(7L);
 
         // When
         Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
 
         // Then
         assertNotNull(result);
-        assertEquals(testRegistration.getNumRegistration(), result.getNumRegistration());
-        verify(skierRepository, times(1)).findById(1L);
-        verify(courseRepository, times(1)).findById(1L);
-        verify(registrationRepository, times(1)).save(testRegistration);
+        assertEquals(7L, result.getNumRegistration());
+        assertEquals(testSkier, result.getSkier());
+        assertEquals(testCourse, result.getCourse());
+        verify(entityLookups, times(1)).skier(1L);
+        verify(entityLookups, times(1)).course(1L);
+        verify(registrationRepository, times(1)).insertIntoFreeSeat(1, 1L, 1L, 6);
+        verify(registrationRepository, never()).save(any());
+        verify(eventPublisher, times(1)).publishEvent(any(RegistrationAddedEvent.class));
     }
 
     @Test
     void testAddRegistrationAndAssignToSkierAndCourseWithNullSkier() {
         // Given
-        when(skierRepository.findById(999L)).thenReturn(Optional.empty());
-        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.skier(999L)).thenReturn(null);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
 
         // When
         Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 999L, 1L);
 
         // Then
         assertNull(result);
-        verify(skierRepository, times(1)).findById(999L);
-        verify(courseRepository, times(1)).findById(1L);
+        verify(entityLookups, times(1)).skier(999L);
+        verify(entityLookups, times(1)).course(1L);
     }
 
     @Test
     void testAddRegistrationAndAssignToSkierAndCourseWithNullCourse() {
         // Given
-        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
-        when(courseRepository.findById(999L)).thenReturn(Optional.empty());
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(999L)).thenReturn(null);
 
         // When
         Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 999L);
 
         // Then
         assertNull(result);
-        verify(skierRepository, times(1)).findById(1L);
-        verify(courseRepository, times(1)).findById(999L);
+        verify(entityLookups, times(1)).skier(1L);
+        verify(entityLookups, times(1)).course(999L);
     }
 
     @Test
     void testAddRegistrationAndAssignToSkierAndCourseAlreadyRegistered() {
         // Given
-        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
-        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
         when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong()))
                 .thenReturn(1L); // Already registered
 
@@ -232,31 +353,267 @@ class RegistrationServicesImplTest {
 
         // Then
         assertNull(result);
-        verify(skierRepository, times(1)).findById(1L);
-        verify(courseRepository, times(1)).findById(1L);
+        verify(entityLookups, times(1)).skier(1L);
+        verify(entityLookups, times(1)).course(1L);
         verify(registrationRepository, never()).save(any());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof RegistrationRejectedEvent
+                && ((RegistrationRejectedEvent) event).getOutcome() == RegistrationOutcome.DUPLICATE));
     }
 
     @Test
     void testAddRegistrationAndAssignToSkierAndCourseFullCourse() {
         // Given
-        testSkier.setDateOfBirth(LocalDate.of(2010, 1, 1)); // Child
+        testSkier.setDateOfBirth(LocalDate.now().minusYears(10)); // Child
         testCourse.setTypeCourse(TypeCourse.COLLECTIVE_CHILDREN);
 
-        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
-        when(courseRepository.findById(1L)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
         when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong()))
                 .thenReturn(0L);
-        when(registrationRepository.countByCourseAndNumWeek(any(Course.class), anyInt())).thenReturn(6L); // Full course
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(false); // Full course
 
         // When
         Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
 
         // Then
         assertNull(result);
-        verify(skierRepository, times(1)).findById(1L);
-        verify(courseRepository, times(1)).findById(1L);
+        verify(entityLookups, times(1)).skier(1L);
+        verify(entityLookups, times(1)).course(1L);
         verify(registrationRepository, never()).save(any());
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) -> event instanceof RegistrationRejectedEvent
+                && ((RegistrationRejectedEvent) event).getOutcome() == RegistrationOutcome.FULL));
+    }
+
+    @Test
+    void testAddRegistrationAndAssignToSkierAndCourseFullInDatabase() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
+        when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong()))
+                .thenReturn(0L);
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.insertIntoFreeSeat(1, 1L, 1L, 6)).thenReturn(null);
+
+        // When
+        Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
+
+        // Then
+        assertNull(result);
+        verify(registrationRepository, never()).save(any());
+    }
+
+    @Test
+    void testAddRegistrationAndAssignToSkierAndCourseSkipsDuplicateQueryOnFilterMiss() {
+        // Given
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
+        when(registrationFilter.mightContain(1, 1L, 1L)).thenReturn(false);
+        when(registrationRepository.insertAll(List.of(testRegistration))).thenReturn(new boolean[]{true});
+
+        // When
+        Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
+
+        // Then
+        assertNotNull(result);
+        verify(registrationRepository, never()).countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong());
+        verify(registrationFilter, never()).recordFalsePositive();
+    }
+
+    @Test
+    void testAddRegistrationAndAssignToSkierAndCourseRejectsDuplicateMissedByFilter() {
+        // Given
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
+        when(registrationFilter.mightContain(1, 1L, 1L)).thenReturn(false);
+        when(registrationRepository.insertAll(List.of(testRegistration))).thenReturn(new boolean[]{false});
+
+        // When
+        Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
+
+        // Then
+        assertNull(result);
+        ArgumentCaptor<RegistrationRejectedEvent> captor = ArgumentCaptor.forClass(RegistrationRejectedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(captor.capture());
+        assertEquals(RegistrationOutcome.DUPLICATE, captor.getValue().getOutcome());
+    }
+
+    @Test
+    void testAddRegistrationAndAssignToSkierAndCourseCollectiveDuplicateReleasesSeat() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
+        when(registrationFilter.mightContain(1, 1L, 1L)).thenReturn(false);
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.insertIntoFreeSeat(1, 1L, 1L, 6))
+                .thenThrow(new DuplicateKeyException("uk_registration_skier_course_week"));
+
+        // When
+        Registration result = registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
+
+        // Then
+        assertNull(result);
+        verify(capacityLedger, times(1)).release(1L, 1);
+        ArgumentCaptor<RegistrationRejectedEvent> captor = ArgumentCaptor.forClass(RegistrationRejectedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(captor.capture());
+        assertEquals(RegistrationOutcome.DUPLICATE, captor.getValue().getOutcome());
+    }
+
+    @Test
+    void testAddRegistrationAndAssignToSkierAndCourseRecordsFilterFalsePositive() {
+        // Given
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
+        when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(1, 1L, 1L)).thenReturn(0L);
+        when(registrationRepository.insertAll(List.of(testRegistration))).thenReturn(new boolean[]{true});
+
+        // When
+        registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L);
+
+        // Then
+        verify(registrationFilter, times(1)).recordFalsePositive();
+    }
+
+    @Test
+    void testAddRegistrationAndAssignToSkierAndCourseReleasesSeatWhenInsertFails() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+
+        when(entityLookups.skier(1L)).thenReturn(testSkier);
+        when(entityLookups.course(1L)).thenReturn(testCourse);
+        when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(anyInt(), anyLong(), anyLong()))
+                .thenReturn(0L);
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.insertIntoFreeSeat(1, 1L, 1L, 6)).thenThrow(new IllegalStateException("db down"));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () ->
+                registrationServices.addRegistrationAndAssignToSkierAndCourse(testRegistration, 1L, 1L));
+        verify(capacityLedger, times(1)).release(1L, 1);
+    }
+
+    @Test
+    void testAddRegistrationsInBulk() {
+        // Given
+        Skier child = new Skier();
+        child.setNumSkier(2L);
+        child.setDateOfBirth(LocalDate.now().minusYears(8));
+        Course collective = new Course();
+        collective.setNumCourse(2L);
+        collective.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+
+        when(skierRepository.findAllById(any())).thenReturn(List.of(testSkier, child));
+        when(courseRepository.findAllById(any())).thenReturn(List.of(testCourse, collective));
+        when(registrationRepository.findKeysBySkiersAndCourses(any(), any())).thenReturn(Collections.emptyList());
+        when(registrationRepository.findTakenSeatsByCoursesAndWeeks(any(), any())).thenReturn(Collections.emptyList());
+        when(capacityLedger.tryAcquire(2L, 1, 6)).thenReturn(true);
+        doAnswer(invocation -> {
+            List<Registration> accepted = invocation.getArgument(0);
+            for (int i = 0; i < accepted.size(); i++) {
+                accepted.get(i).setNumRegistration(100L + i);
+            }
+            return new boolean[]{true, true};
+        }).when(registrationRepository).insertAll(anyList());
+
+        List<BulkRegistrationItem> items = List.of(
+                new BulkRegistrationItem(1L, 1L, 1),   // individual course
+                new BulkRegistrationItem(1L, 2L, 1),   // adult in collective adult course
+                new BulkRegistrationItem(2L, 2L, 1),   // child in collective adult course
+                new BulkRegistrationItem(1L, 1L, 1),   // same as the first item
+                new BulkRegistrationItem(999L, 1L, 1)); // unknown skier
+
+        // When
+        List<BulkRegistrationResult> results = registrationServices.addRegistrationsInBulk(items);
+
+        // Then
+        assertEquals(5, results.size());
+        assertEquals(RegistrationOutcome.ACCEPTED, results.get(0).getOutcome());
+        assertEquals(100L, results.get(0).getNumRegistration());
+        assertEquals(RegistrationOutcome.ACCEPTED, results.get(1).getOutcome());
+        assertEquals(101L, results.get(1).getNumRegistration());
+        assertEquals(RegistrationOutcome.REJECTED_AGE, results.get(2).getOutcome());
+        assertEquals(RegistrationOutcome.DUPLICATE, results.get(3).getOutcome());
+        assertEquals(RegistrationOutcome.NOT_FOUND, results.get(4).getOutcome());
+        verify(registrationRepository, times(1)).insertAll(anyList());
+        verify(registrationRepository, never()).save(any());
+    }
+
+    @Test
+    void testAddRegistrationsInBulkCountsUnseatedRegistrations() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        when(skierRepository.findAllById(any())).thenReturn(List.of(testSkier));
+        when(courseRepository.findAllById(any())).thenReturn(List.of(testCourse));
+        when(registrationRepository.findKeysBySkiersAndCourses(any(), any())).thenReturn(Collections.emptyList());
+        List<TakenSeat> taken = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            taken.add(new TakenSeat(1L, 1, null));
+        }
+        when(registrationRepository.findTakenSeatsByCoursesAndWeeks(any(), any())).thenReturn(taken);
+
+        // When
+        List<BulkRegistrationResult> results =
+                registrationServices.addRegistrationsInBulk(List.of(new BulkRegistrationItem(1L, 1L, 1)));
+
+        // Then
+        assertEquals(RegistrationOutcome.FULL, results.get(0).getOutcome());
+        verify(capacityLedger, never()).tryAcquire(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testAddRegistrationsInBulkRetriesSeatTakenConcurrently() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        Skier other = new Skier();
+        other.setNumSkier(2L);
+        other.setDateOfBirth(LocalDate.of(1985, 1, 1));
+        when(skierRepository.findAllById(any())).thenReturn(List.of(testSkier, other));
+        when(courseRepository.findAllById(any())).thenReturn(List.of(testCourse));
+        when(registrationRepository.findKeysBySkiersAndCourses(any(), any())).thenReturn(Collections.emptyList());
+        when(registrationRepository.findTakenSeatsByCoursesAndWeeks(any(), any())).thenReturn(Collections.emptyList());
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(true);
+        when(registrationRepository.insertAll(anyList())).thenReturn(new boolean[]{false, false});
+        when(registrationRepository.insertIntoFreeSeat(1, 1L, 1L, 6)).thenReturn(40L);
+        when(registrationRepository.insertIntoFreeSeat(1, 2L, 1L, 6)).thenReturn(null);
+
+        // When
+        List<BulkRegistrationResult> results = registrationServices.addRegistrationsInBulk(List.of(
+                new BulkRegistrationItem(1L, 1L, 1), new BulkRegistrationItem(2L, 1L, 1)));
+
+        // Then
+        assertEquals(RegistrationOutcome.ACCEPTED, results.get(0).getOutcome());
+        assertEquals(40L, results.get(0).getNumRegistration());
+        assertEquals(RegistrationOutcome.FULL, results.get(1).getOutcome());
+        assertNull(results.get(1).getNumRegistration());
+        verify(capacityLedger, times(1)).release(1L, 1);
+        verify(eventPublisher, times(1)).publishEvent(any(RegistrationAddedEvent.class));
+    }
+
+    @Test
+    void testAddRegistrationsInBulkFullWeek() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        when(skierRepository.findAllById(any())).thenReturn(List.of(testSkier));
+        when(courseRepository.findAllById(any())).thenReturn(List.of(testCourse));
+        when(registrationRepository.findKeysBySkiersAndCourses(any(), any())).thenReturn(Collections.emptyList());
+        when(registrationRepository.findTakenSeatsByCoursesAndWeeks(any(), any())).thenReturn(Collections.emptyList());
+        when(capacityLedger.tryAcquire(1L, 1, 6)).thenReturn(false);
+
+        // When
+        List<BulkRegistrationResult> results =
+                registrationServices.addRegistrationsInBulk(List.of(new BulkRegistrationItem(1L, 1L, 1)));
+
+        // Then
+        assertEquals(RegistrationOutcome.FULL, results.get(0).getOutcome());
+        assertNull(results.get(0).getNumRegistration());
+    }
+
+    @Test
+    void testAddRegistrationsInBulkWithNull() {
+        // When & Then
+        assertThrows(NullPointerException.class, () -> registrationServices.addRegistrationsInBulk(null));
     }
 
     @Test
@@ -302,18 +659,16 @@ class RegistrationServicesImplTest {
     @Test
     void testNumWeeksCourseOfInstructorBySupport() {
         // Given
-        List<Integer> expectedWeeks = Arrays.asList(1, 2, 3);
-        when(registrationRepository.numWeeksCourseOfInstructorBySupport(1L, Support.SKI))
-                .thenReturn(expectedWeeks);
+        when(instructorWeekRepository.findByInstructorAndSupport(1L, Support.SKI)).thenReturn(List.of(
+                new InstructorWeek(1L, 1L, Support.SKI, 1, 1), new InstructorWeek(2L, 1L, Support.SKI, 3, 2)));
 
         // When
         List<Integer> result = registrationServices.numWeeksCourseOfInstructorBySupport(1L, Support.SKI);
 
         // Then
-        assertNotNull(result);
-        assertEquals(3, result.size());
-        assertEquals(Arrays.asList(1, 2, 3), result);
-        verify(registrationRepository, times(1)).numWeeksCourseOfInstructorBySupport(1L, Support.SKI);
+        assertEquals(Arrays.asList(1, 3, 3), result);
+        verify(instructorWeekRepository, times(1)).findByInstructorAndSupport(1L, Support.SKI);
+        verify(registrationRepository, never()).numWeeksCourseOfInstructorBySupport(any(), any());
     }
 
     @Test
@@ -327,4 +682,38 @@ class RegistrationServicesImplTest {
             registrationServices.numWeeksCourseOfInstructorBySupport(1L, null);
         });
     }
+
+    @Test
+    void testRemoveRegistration() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+        testRegistration.setSkier(testSkier);
+        testRegistration.setCourse(testCourse);
+        when(registrationRepository.findById(1L)).thenReturn(Optional.of(testRegistration));
+
+        // When
+        registrationServices.removeRegistration(1L);
+
+        // Then
+        verify(registrationRepository, times(1)).delete(testRegistration);
+        verify(capacityLedger, times(1)).release(1L, 1);
+        verify(eventPublisher, times(1)).publishEvent(any(RegistrationRemovedEvent.class));
+    }
+
+    @Test
+    void testRemoveRegistrationNotFound() {
+        // Given
+        when(registrationRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(NullPointerException.class, () -> registrationServices.removeRegistration(1L));
+        verify(registrationRepository, never()).delete(any(Registration.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testRemoveRegistrationWithNull() {
+        // When & Then
+        assertThrows(NullPointerException.class, () -> registrationServices.removeRegistration(null));
+    }
 }
@@ -6,6 +6,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import tn.esprit.spring.dto.BulkExcursionResult;
+import tn.esprit.spring.dto.RegistrationView;
+import tn.esprit.spring.dto.SkierExpansion;
+import tn.esprit.spring.dto.SkierView;
+import tn.esprit.spring.dto.SubscriptionView;
 import tn.esprit.spring.entities.*;
 import tn.esprit.spring.repositories.*;
 
@@ -23,16 +28,25 @@ class SkierServicesImplTest {
     private ISkierRepository skierRepository;
 
     @Mock
-    private IPisteRepository pisteRepository;
+    private IRegistrationRepository registrationRepository;
 
     @Mock
-    private ICourseRepository courseRepository;
+    private ISubscriptionRepository subscriptionRepository;
 
     @Mock
-    private IRegistrationRepository registrationRepository;
+    private RecurringRevenueAggregates revenueAggregates;
 
     @Mock
-    private ISubscriptionRepository subscriptionRepository;
+    private SubscriptionExpiryScheduler expiryScheduler;
+
+    @Mock
+    private RevenueRollups revenueRollups;
+
+    @Mock
+    private SkierImporter skierImporter;
+
+    @Mock
+    private EntityLookups entityLookups;
 
     @InjectMocks
     private SkierServicesImpl skierServices;
@@ -100,6 +114,51 @@ class SkierServicesImplTest {
         verify(skierRepository).findAll();
     }
 
+    @Test
+    void testRetrieveSkierViewsWithoutExpansionRunsOneQuery() {
+        // Given
+        when(skierRepository.findViews(any())).thenReturn(List.of(new SkierView(1L, "John", "Doe", null, null, 4L)));
+
+        // When
+        List<SkierView> result = skierServices.retrieveSkierViews(null, 10, EnumSet.noneOf(SkierExpansion.class));
+
+        // Then
+        assertEquals(1, result.size());
+        assertNull(result.get(0).getSubscription());
+        assertNull(result.get(0).getRegistrations());
+        verifyNoInteractions(subscriptionRepository, registrationRepository);
+    }
+
+    @Test
+    void testRetrieveSkierViewsExpandsPageWithOneQueryEach() {
+        // Given
+        List<SkierView> skiers = List.of(new SkierView(11L, "Skier", "11", null, null, null),
+                new SkierView(12L, "Skier", "12", null, null, 112L));
+        when(skierRepository.findViewsAfter(eq(10L), any())).thenReturn(skiers);
+        when(subscriptionRepository.findViewsByNumSubIn(Set.of(112L))).thenReturn(List.of(
+                new SubscriptionView(112L, null, null, 100f, TypeSubscription.MONTHLY)));
+        when(registrationRepository.findViewsBySkiers(Set.of(11L, 12L))).thenReturn(List.of(
+                new RegistrationView(9L, 1, null, 12L, 5L)));
+
+        // When
+        List<SkierView> result = skierServices.retrieveSkierViews(10L, 2, EnumSet.allOf(SkierExpansion.class));
+
+        // Then
+        assertNull(result.get(0).getSubscription());
+        assertTrue(result.get(0).getRegistrations().isEmpty());
+        assertEquals(112L, result.get(1).getSubscription().getNumSub());
+        assertEquals(List.of(9L), result.get(1).getRegistrations().stream().map(RegistrationView::getNumRegistration)
+                .toList());
+    }
+
+    @Test
+    void testRetrieveSkierViewsRejectsOversizedPage() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> skierServices.retrieveSkierViews(null,
+                KeysetPaging.MAX_PAGE_SIZE + 1, EnumSet.noneOf(SkierExpansion.class)));
+        verifyNoInteractions(skierRepository);
+    }
+
     @Test
     void testAddSkierWithAnnualSubscription() {
         // Given
@@ -190,7 +249,7 @@ class SkierServicesImplTest {
         // Given
         Long courseId = 1L;
         when(skierRepository.save(any(Skier.class))).thenReturn(testSkier);
-        when(courseRepository.findById(courseId)).thenReturn(Optional.of(testCourse));
+        when(entityLookups.course(courseId)).thenReturn(testCourse);
         when(registrationRepository.save(any(Registration.class))).thenReturn(testRegistration);
 
         // When
@@ -199,7 +258,7 @@ class SkierServicesImplTest {
         // Then
         assertNotNull(result);
         verify(skierRepository).save(testSkier);
-        verify(courseRepository).findById(courseId);
+        verify(entityLookups).course(courseId);
         verify(registrationRepository).save(testRegistration);
     }
 
@@ -216,32 +275,48 @@ class SkierServicesImplTest {
     }
 
     @Test
-    void testRetrieveSkier() {
+    void testRemoveSkierRemovesSubscription() {
         // Given
         Long skierId = 1L;
         when(skierRepository.findById(skierId)).thenReturn(Optional.of(testSkier));
 
+        // When
+        skierServices.removeSkier(skierId);
+
+        // Then
+        verify(revenueAggregates).subscriptionRemoved(testSubscription);
+        verify(revenueRollups).subscriptionChanged(testSubscription, null);
+        verify(expiryScheduler).subscriptionRemoved(1L);
+        verify(skierRepository).deleteById(skierId);
+    }
+
+    @Test
+    void testRetrieveSkier() {
+        // Given
+        Long skierId = 1L;
+        when(entityLookups.skier(skierId)).thenReturn(testSkier);
+
         // When
         Skier result = skierServices.retrieveSkier(skierId);
 
         // Then
         assertNotNull(result);
         assertEquals(testSkier.getFirstName(), result.getFirstName());
-        verify(skierRepository).findById(skierId);
+        verify(entityLookups).skier(skierId);
     }
 
     @Test
     void testRetrieveSkierNotFound() {
         // Given
         Long skierId = 999L;
-        when(skierRepository.findById(skierId)).thenReturn(Optional.empty());
+        when(entityLookups.skier(skierId)).thenReturn(null);
 
         // When
         Skier result = skierServices.retrieveSkier(skierId);
 
         // Then
         assertNull(result);
-        verify(skierRepository).findById(skierId);
+        verify(entityLookups).skier(skierId);
     }
 
     @Test
@@ -249,39 +324,63 @@ class SkierServicesImplTest {
         // Given
         Long skierId = 1L;
         Long pisteId = 1L;
-        when(skierRepository.findById(skierId)).thenReturn(Optional.of(testSkier));
-        when(pisteRepository.findById(pisteId)).thenReturn(Optional.of(testPiste));
-        when(skierRepository.save(any(Skier.class))).thenReturn(testSkier);
+        when(entityLookups.skier(skierId)).thenReturn(testSkier);
+        when(entityLookups.piste(pisteId)).thenReturn(testPiste);
+        when(skierRepository.insertExcursion(skierId, pisteId)).thenReturn(true);
 
         // When
         Skier result = skierServices.assignSkierToPiste(skierId, pisteId);
 
         // Then
-        assertNotNull(result);
-        assertTrue(result.getPistes().contains(testPiste));
-        verify(skierRepository).findById(skierId);
-        verify(pisteRepository).findById(pisteId);
-        verify(skierRepository).save(testSkier);
+        assertSame(testSkier, result);
+        verify(skierRepository).insertExcursion(skierId, pisteId);
+        verify(skierRepository, never()).findById(any());
+        verify(skierRepository, never()).save(any());
     }
 
     @Test
-    void testAssignSkierToPisteWithNullPistes() {
+    void testAssignSkierToUnknownPiste() {
         // Given
         Long skierId = 1L;
-        Long pisteId = 1L;
-        testSkier.setPistes(null); // Simulate null pistes
-        when(skierRepository.findById(skierId)).thenReturn(Optional.of(testSkier));
-        when(pisteRepository.findById(pisteId)).thenReturn(Optional.of(testPiste));
-        when(skierRepository.save(any(Skier.class))).thenReturn(testSkier);
+        Long pisteId = 999L;
+        when(entityLookups.skier(skierId)).thenReturn(testSkier);
+        when(entityLookups.piste(pisteId)).thenReturn(null);
 
         // When
         Skier result = skierServices.assignSkierToPiste(skierId, pisteId);
 
         // Then
-        assertNotNull(result);
-        assertNotNull(result.getPistes());
-        assertTrue(result.getPistes().contains(testPiste));
-        verify(skierRepository).save(testSkier);
+        assertNull(result);
+        verify(skierRepository, never()).insertExcursion(any(), any());
+    }
+
+    @Test
+    void testAssignSkiersToPistesInBulk() {
+        // Given
+        when(skierRepository.insertExcursions(Set.of(1L, 2L), Set.of(3L, 4L, 5L))).thenReturn(5);
+
+        // When
+        BulkExcursionResult result = skierServices.assignSkiersToPistes(Arrays.asList(1L, 2L, 2L, null),
+                List.of(3L, 4L, 5L));
+
+        // Then
+        assertEquals(6, result.getRequested());
+        assertEquals(5, result.getAssigned());
+    }
+
+    @Test
+    void testAssignTooManySkiersToPistesInBulk() {
+        // Given
+        List<Long> skiers = new ArrayList<>();
+        List<Long> pistes = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            skiers.add(i);
+            pistes.add(i);
+        }
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> skierServices.assignSkiersToPistes(skiers, pistes));
+        verify(skierRepository, never()).insertExcursions(any(), any());
     }
 
     @Test
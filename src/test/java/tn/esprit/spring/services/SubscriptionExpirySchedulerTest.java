@@ -0,0 +1,244 @@
+package tn.esprit.spring.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import tn.esprit.spring.dto.SubscriptionEnd;
+import tn.esprit.spring.entities.Subscription;
+import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.events.SubscriptionsExpiredEvent;
+import tn.esprit.spring.repositories.IJobLeaseRepository;
+import tn.esprit.spring.repositories.ISubscriptionRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class SubscriptionExpirySchedulerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 10);
+
+    private ISubscriptionRepository subscriptionRepository;
+    private TaskScheduler taskScheduler;
+    private ApplicationEventPublisher eventPublisher;
+    private IJobLeaseRepository jobLeaseRepository;
+    private ScheduledFuture<?> future;
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private SubscriptionExpiryScheduler expiryScheduler;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionRepository = mock(ISubscriptionRepository.class);
+        taskScheduler = mock(TaskScheduler.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        jobLeaseRepository = mock(IJobLeaseRepository.class);
+        when(jobLeaseRepository.tryAcquire(any(), any(), anyLong(), anyLong())).thenReturn(true);
+        future = mock(ScheduledFuture.class);
+        doReturn(future).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(TODAY);
+        expiryScheduler = new SubscriptionExpiryScheduler(subscriptionRepository, taskScheduler, eventPublisher,
+                new JobLeases(jobLeaseRepository, meterRegistry, Duration.ofSeconds(25), clock, "node-1"),
+                meterRegistry, clock);
+    }
+
+    @Test
+    void testLoadSchedulesEarliestEndDate() {
+        // Given
+        when(subscriptionRepository.findEndsFrom(TODAY)).thenReturn(List.of(
+                new SubscriptionEnd(1L, TODAY.plusDays(30)), new SubscriptionEnd(2L, TODAY.plusDays(3)),
+                new SubscriptionEnd(3L, TODAY.plusDays(3))));
+
+        // When
+        expiryScheduler.load();
+
+        // Then
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOf(TODAY.plusDays(3))));
+        assertEquals(3, expiryScheduler.pending());
+        assertEquals(3.0, meterRegistry.get("subscription.expiry.pending").gauge().value());
+    }
+
+    @Test
+    void testFirePublishesLapsedDayAndSchedulesNext() {
+        // Given
+        when(subscriptionRepository.findEndsFrom(TODAY)).thenReturn(List.of(
+                new SubscriptionEnd(1L, TODAY.plusDays(3)), new SubscriptionEnd(2L, TODAY.plusDays(3)),
+                new SubscriptionEnd(3L, TODAY.plusDays(30))));
+        expiryScheduler.load();
+        Runnable task = scheduledTask();
+
+        // When
+        clock.today = TODAY.plusDays(3);
+        task.run();
+
+        // Then
+        ArgumentCaptor<SubscriptionsExpiredEvent> event = ArgumentCaptor.forClass(SubscriptionsExpiredEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(TODAY.plusDays(3), event.getValue().getEndDate());
+        assertEquals(2, event.getValue().getSubscriptions());
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOf(TODAY.plusDays(30))));
+        assertEquals(1, expiryScheduler.pending());
+        assertEquals(2.0, meterRegistry.get("subscription.expiry.fired").counter().count());
+    }
+
+    @Test
+    void testSavedSubscriptionMovesItsEndDate() {
+        // Given
+        when(subscriptionRepository.findEndsFrom(TODAY)).thenReturn(List.of(
+                new SubscriptionEnd(1L, TODAY.plusDays(3)), new SubscriptionEnd(2L, TODAY.plusDays(30))));
+        expiryScheduler.load();
+
+        // When
+        expiryScheduler.subscriptionSaved(new Subscription(1L, TODAY, TODAY.plusYears(1), 900f,
+                TypeSubscription.ANNUAL));
+
+        // Then
+        verify(future).cancel(false);
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOf(TODAY.plusDays(30))));
+        assertEquals(2, expiryScheduler.pending());
+    }
+
+    @Test
+    void testRemovedSubscriptionIsNoLongerTracked() {
+        // Given
+        when(subscriptionRepository.findEndsFrom(TODAY)).thenReturn(List.of(
+                new SubscriptionEnd(1L, TODAY.plusDays(3)), new SubscriptionEnd(2L, TODAY.plusDays(30))));
+        expiryScheduler.load();
+
+        // When
+        expiryScheduler.subscriptionRemoved(1L);
+
+        // Then
+        verify(future).cancel(false);
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOf(TODAY.plusDays(30))));
+        assertEquals(1, expiryScheduler.pending());
+    }
+
+    @Test
+    void testSavedSubscriptionAlreadyLapsedIsNotTracked() {
+        // When
+        expiryScheduler.subscriptionSaved(new Subscription(1L, TODAY.minusMonths(2), TODAY.minusMonths(1), 100f,
+                TypeSubscription.MONTHLY));
+
+        // Then
+        assertEquals(0, expiryScheduler.pending());
+        verifyNoInteractions(taskScheduler);
+    }
+
+    @Test
+    void testFailingHandlerKeepsSchedule() {
+        // Given
+        when(subscriptionRepository.findEndsFrom(TODAY)).thenReturn(List.of(
+                new SubscriptionEnd(1L, TODAY), new SubscriptionEnd(2L, TODAY.plusDays(1))));
+        doThrow(new IllegalStateException("database down")).when(eventPublisher).publishEvent(any(Object.class));
+        expiryScheduler.load();
+
+        // When
+        scheduledTask().run();
+
+        // Then
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOf(TODAY.plusDays(1))));
+        assertEquals(1, expiryScheduler.pending());
+    }
+
+    @Test
+    void testLapseHandledOnLeaseHolderOnly() {
+        // Given
+        when(jobLeaseRepository.tryAcquire(any(), any(), anyLong(), anyLong())).thenReturn(false);
+        when(subscriptionRepository.findEndsFrom(TODAY)).thenReturn(List.of(
+                new SubscriptionEnd(1L, TODAY), new SubscriptionEnd(2L, TODAY.plusDays(1))));
+        expiryScheduler.load();
+
+        // When
+        scheduledTask().run();
+
+        // Then
+        verifyNoInteractions(eventPublisher);
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOf(TODAY.plusDays(1))));
+        assertEquals(1, expiryScheduler.pending());
+    }
+
+    @Test
+    void testFiringNotDelayedBySharedSchedulerJobs() throws InterruptedException {
+        // Given: the application scheduler, one thread by default, busy with a long job
+        ThreadPoolTaskScheduler shared = new ThreadPoolTaskScheduler();
+        shared.initialize();
+        CountDownLatch slowJob = new CountDownLatch(1);
+        shared.scheduleWithFixedDelay(() -> {
+            try {
+                slowJob.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Duration.ofSeconds(1));
+        SubscriptionExpiryScheduler ownThread = new SubscriptionExpiryScheduler(subscriptionRepository,
+                SubscriptionExpiryScheduler.newTaskScheduler(), eventPublisher,
+                new JobLeases(jobLeaseRepository, meterRegistry, Duration.ofSeconds(25), clock, "node-1"),
+                meterRegistry, clock);
+        when(subscriptionRepository.findEndsFrom(TODAY)).thenReturn(List.of(new SubscriptionEnd(1L, TODAY)));
+
+        // When
+        try {
+            ownThread.load();
+
+            // Then
+            verify(eventPublisher, timeout(5000)).publishEvent(argThat((Object event) ->
+                    event instanceof SubscriptionsExpiredEvent expired && TODAY.equals(expired.getEndDate())));
+            assertEquals(1, slowJob.getCount());
+        } finally {
+            slowJob.countDown();
+            shared.shutdown();
+            ownThread.close();
+        }
+    }
+
+    private Runnable scheduledTask() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, atLeastOnce()).schedule(task.capture(), any(Instant.class));
+        return task.getValue();
+    }
+
+    private static Instant startOf(LocalDate date) {
+        return date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static class MutableClock extends Clock {
+
+        LocalDate today;
+
+        MutableClock(LocalDate today) {
+            this.today = today;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return startOf(today).plusSeconds(1);
+        }
+    }
+}
@@ -1,23 +1,37 @@
 package tn.esprit.spring.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import tn.esprit.spring.dto.ExpiredSubscription;
+import tn.esprit.spring.dto.RenewalProgress;
+import tn.esprit.spring.dto.RevenueGranularity;
+import tn.esprit.spring.dto.SubscriptionView;
+import tn.esprit.spring.entities.RenewalCheckpoint;
 import tn.esprit.spring.entities.Subscription;
 import tn.esprit.spring.entities.TypeSubscription;
+import tn.esprit.spring.events.SubscriptionsExpiredEvent;
 import tn.esprit.spring.repositories.ISubscriptionRepository;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +40,27 @@ class SubscriptionServicesImplTest {
     @Mock
     private ISubscriptionRepository subscriptionRepository;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private RecurringRevenueAggregates revenueAggregates;
+
+    @Mock
+    private SubscriptionExpiryScheduler expiryScheduler;
+
+    @Mock
+    private RevenueRollups revenueRollups;
+
+    @Mock
+    private JobLeases jobLeases;
+
+    @Mock
+    private SubscriptionRenewals subscriptionRenewals;
+
+    @Mock
+    private EntityLookups entityLookups;
+
     @InjectMocks
     private SubscriptionServicesImpl subscriptionServices;
 
@@ -68,6 +103,8 @@ class SubscriptionServicesImplTest {
         assertNotNull(result);
         assertEquals(testSubscription.getNumSub(), result.getNumSub());
         verify(subscriptionRepository, times(1)).save(testSubscription);
+        verify(revenueAggregates, times(1)).subscriptionSaved(null, testSubscription);
+        verify(entityLookups).skiersChanged();
     }
 
     @Test
@@ -100,18 +137,19 @@ class SubscriptionServicesImplTest {
     @Test
     void testGetSubscriptionByType() {
         // Given
-        Set<Subscription> subscriptions = Set.of(testSubscription);
-        when(subscriptionRepository.findByTypeSubOrderByStartDateAsc(TypeSubscription.MONTHLY))
+        List<SubscriptionView> subscriptions = List.of(view(testSubscription));
+        when(subscriptionRepository.findViewsByTypeSub(TypeSubscription.MONTHLY, PageRequest.of(0, 100)))
                 .thenReturn(subscriptions);
 
         // When
-        Set<Subscription> result = subscriptionServices.getSubscriptionByType(TypeSubscription.MONTHLY);
+        List<SubscriptionView> result = subscriptionServices.getSubscriptionByType(TypeSubscription.MONTHLY,
+                null, null, 100);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
-        assertTrue(result.contains(testSubscription));
-        verify(subscriptionRepository, times(1)).findByTypeSubOrderByStartDateAsc(TypeSubscription.MONTHLY);
+        assertEquals(testSubscription.getNumSub(), result.get(0).getNumSub());
+        verify(subscriptionRepository, times(1)).findViewsByTypeSub(TypeSubscription.MONTHLY, PageRequest.of(0, 100));
     }
 
     @Test
@@ -120,17 +158,46 @@ class SubscriptionServicesImplTest {
         LocalDate startDate = LocalDate.now().minusDays(30);
         LocalDate endDate = LocalDate.now();
         List<Subscription> subscriptions = Arrays.asList(testSubscription);
-        when(subscriptionRepository.getSubscriptionsByStartDateBetween(startDate, endDate))
-                .thenReturn(subscriptions);
+        when(subscriptionRepository.findByStartDateBetweenOrderByStartDateAscNumSubAsc(startDate, endDate,
+                PageRequest.of(0, 100))).thenReturn(subscriptions);
 
         // When
-        List<Subscription> result = subscriptionServices.retrieveSubscriptionsByDates(startDate, endDate);
+        List<Subscription> result = subscriptionServices.retrieveSubscriptionsByDates(startDate, endDate, null, null, 100);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(testSubscription, result.get(0));
-        verify(subscriptionRepository, times(1)).getSubscriptionsByStartDateBetween(startDate, endDate);
+        verify(subscriptionRepository, times(1)).findByStartDateBetweenOrderByStartDateAscNumSubAsc(startDate, endDate,
+                PageRequest.of(0, 100));
+    }
+
+    @Test
+    void testRetrieveSubscriptionsByDatesAfterCursor() {
+        // Given
+        LocalDate startDate = LocalDate.now().minusDays(30);
+        LocalDate endDate = LocalDate.now();
+        LocalDate afterDate = LocalDate.now().minusDays(10);
+        when(subscriptionRepository.findPageAfter(startDate, endDate, afterDate, 7L, PageRequest.of(0, 50)))
+                .thenReturn(List.of(testSubscription));
+
+        // When
+        List<Subscription> result = subscriptionServices.retrieveSubscriptionsByDates(startDate, endDate, afterDate, 7L, 50);
+
+        // Then
+        assertEquals(List.of(testSubscription), result);
+    }
+
+    @Test
+    void testRetrieveSubscriptionsByDatesWithInvalidPage() {
+        LocalDate today = LocalDate.now();
+        assertThrows(IllegalArgumentException.class, () ->
+                subscriptionServices.retrieveSubscriptionsByDates(today, today, today, null, 100));
+        assertThrows(IllegalArgumentException.class, () ->
+                subscriptionServices.retrieveSubscriptionsByDates(today, today, null, null, 0));
+        assertThrows(IllegalArgumentException.class, () ->
+                subscriptionServices.retrieveSubscriptionsByDates(today, today, null, null,
+                        ISubscriptionServices.MAX_PAGE_SIZE + 1));
     }
 
     @Test
@@ -225,7 +292,7 @@ class SubscriptionServicesImplTest {
     void testGetSubscriptionByTypeWithNull() {
         // When & Then
         assertThrows(NullPointerException.class, () -> {
-            subscriptionServices.getSubscriptionByType(null);
+            subscriptionServices.getSubscriptionByType(null, null, null, 100);
         });
     }
 
@@ -233,7 +300,7 @@ class SubscriptionServicesImplTest {
     void testRetrieveSubscriptionsByDatesWithNullStartDate() {
         // Test null start date
         assertThrows(NullPointerException.class, () -> 
-            subscriptionServices.retrieveSubscriptionsByDates(null, LocalDate.now())
+            subscriptionServices.retrieveSubscriptionsByDates(null, LocalDate.now(), null, null, 100)
         );
     }
 
@@ -241,7 +308,7 @@ class SubscriptionServicesImplTest {
     void testRetrieveSubscriptionsByDatesWithNullEndDate() {
         // Test null end date  
         assertThrows(NullPointerException.class, () -> 
-            subscriptionServices.retrieveSubscriptionsByDates(LocalDate.now(), null)
+            subscriptionServices.retrieveSubscriptionsByDates(LocalDate.now(), null, null, null, 100)
         );
     }
 
@@ -273,18 +340,20 @@ class SubscriptionServicesImplTest {
         subscription2.setNumSub(2L);
         subscription2.setTypeSub(TypeSubscription.MONTHLY);
 
-        Set<Subscription> subscriptions = Set.of(subscription1, subscription2);
-        when(subscriptionRepository.findByTypeSubOrderByStartDateAsc(TypeSubscription.MONTHLY))
-                .thenReturn(subscriptions);
+        LocalDate afterDate = LocalDate.now().minusDays(5);
+        List<SubscriptionView> subscriptions = List.of(view(subscription1), view(subscription2));
+        when(subscriptionRepository.findViewsByTypeSubAfter(TypeSubscription.MONTHLY, afterDate, 0L,
+                PageRequest.of(0, 10))).thenReturn(subscriptions);
 
         // When
-        Set<Subscription> result = subscriptionServices.getSubscriptionByType(TypeSubscription.MONTHLY);
+        List<SubscriptionView> result = subscriptionServices.getSubscriptionByType(TypeSubscription.MONTHLY,
+                afterDate, 0L, 10);
 
         // Then
         assertNotNull(result);
         assertEquals(2, result.size());
         assertTrue(result.stream().allMatch(sub -> sub.getTypeSub() == TypeSubscription.MONTHLY));
-        verify(subscriptionRepository, times(1)).findByTypeSubOrderByStartDateAsc(TypeSubscription.MONTHLY);
+        assertEquals(List.of(1L, 2L), result.stream().map(SubscriptionView::getNumSub).toList());
     }
 
     @Test
@@ -308,4 +377,180 @@ class SubscriptionServicesImplTest {
         assertEquals(150.0f, result.getPrice());
         verify(subscriptionRepository, times(1)).save(updatedSubscription);
     }
+
+    @Test
+    void testRetrieveSubscriptionsReportsRows() {
+        // Given
+        when(subscriptionRepository.streamExpired()).thenReturn(Stream.of(
+                new ExpiredSubscription(1L, LocalDate.now().minusDays(2), "John", "Doe"),
+                new ExpiredSubscription(2L, LocalDate.now().minusDays(1), null, null)));
+
+        // When
+        subscriptionServices.retrieveSubscriptions();
+
+        // Then
+        assertEquals(2.0, meterRegistry.get("subscription.expired.report.rows").counter().count());
+        assertEquals(1, meterRegistry.get("subscription.expired.report.duration").timer().count());
+    }
+
+    @Test
+    void testSubscriptionsExpiredLogsThatDay() {
+        // Given
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        when(subscriptionRepository.streamByEndDate(yesterday)).thenReturn(Stream.of(
+                new ExpiredSubscription(1L, yesterday, "John", "Doe")));
+
+        // When
+        subscriptionServices.onSubscriptionsExpired(new SubscriptionsExpiredEvent(yesterday, 1));
+
+        // Then
+        verify(subscriptionRepository).streamByEndDate(yesterday);
+        verify(subscriptionRepository, never()).streamExpired();
+    }
+
+    @Test
+    void testAddSubscriptionSchedulesExpiry() {
+        // Given
+        when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
+
+        // When
+        subscriptionServices.addSubscription(testSubscription);
+
+        // Then
+        verify(expiryScheduler).subscriptionSaved(testSubscription);
+    }
+
+    @Test
+    void testRetrieveRevenueWithReversedRange() {
+        assertThrows(IllegalArgumentException.class, () -> subscriptionServices.retrieveRevenue(
+                LocalDate.now(), LocalDate.now().minusDays(1), RevenueGranularity.DAY));
+        verifyNoInteractions(revenueRollups);
+    }
+
+    @Test
+    void testUpdateSubscriptionMarksBothDays() {
+        // Given
+        Subscription previous = new Subscription();
+        previous.setNumSub(1L);
+        LocalDate previousStart = LocalDate.now().minusDays(3);
+        previous.setStartDate(previousStart);
+        when(subscriptionRepository.findById(1L)).thenReturn(Optional.of(previous));
+        // Saving merges the new state into the entity loaded first
+        when(subscriptionRepository.save(testSubscription)).thenAnswer(invocation -> {
+            previous.setStartDate(testSubscription.getStartDate());
+            return testSubscription;
+        });
+
+        // When
+        subscriptionServices.updateSubscription(testSubscription);
+
+        // Then
+        verify(revenueRollups).subscriptionChanged(
+                argThat(stored -> stored.getNumSub() == 1L && previousStart.equals(stored.getStartDate())),
+                eq(testSubscription));
+    }
+
+    @Test
+    void testRenewSubscriptionsRunsChunksUntilCompleted() {
+        // Given
+        LocalDate from = LocalDate.of(2025, 4, 1);
+        LocalDate to = LocalDate.of(2025, 4, 30);
+        Set<TypeSubscription> types = Set.of(TypeSubscription.ANNUAL, TypeSubscription.SEMESTRIEL);
+        when(subscriptionRenewals.start(from, to, types)).thenReturn(checkpoint(null, 0, false));
+        when(subscriptionRenewals.renewChunk("renewal", types))
+                .thenReturn(checkpoint(1000L, 1000, false), checkpoint(1500L, 1498, true));
+        when(jobLeases.runExclusively(eq("subscription.renewal"), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        });
+
+        // When
+        RenewalProgress progress = subscriptionServices.renewSubscriptions(from, to, types);
+
+        // Then
+        verify(subscriptionRenewals, times(2)).renewChunk("renewal", types);
+        assertTrue(progress.isCompleted());
+        assertEquals(1498, progress.getRenewed());
+        assertEquals(1500L, progress.getLastNumSub());
+    }
+
+    @Test
+    void testRenewSubscriptionsStopsWhenAnotherNodeRenews() {
+        // Given
+        LocalDate from = LocalDate.of(2025, 4, 1);
+        LocalDate to = LocalDate.of(2025, 4, 30);
+        Set<TypeSubscription> types = Set.of(TypeSubscription.ANNUAL);
+        when(subscriptionRenewals.start(from, to, types)).thenReturn(checkpoint(1000L, 1000, false));
+        when(jobLeases.runExclusively(eq("subscription.renewal"), any())).thenReturn(false);
+
+        // When
+        RenewalProgress progress = subscriptionServices.renewSubscriptions(from, to, types);
+
+        // Then
+        verify(subscriptionRenewals, never()).renewChunk(any(), any());
+        assertFalse(progress.isCompleted());
+        assertEquals(1000, progress.getRenewed());
+    }
+
+    @Test
+    void testRollUpRevenueRenewsLeaseForEachChunk() {
+        // Given
+        Duration lease = Duration.ofMinutes(1);
+        when(revenueRollups.lease()).thenReturn(lease);
+        when(revenueRollups.chunkSize()).thenReturn(1000);
+        when(revenueRollups.rollUp()).thenReturn(1000, 1000, 12);
+        when(jobLeases.runExclusively(eq("subscription.revenue.rollup"), eq(lease), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return true;
+        });
+
+        // When
+        subscriptionServices.rollUpRevenue();
+
+        // Then
+        verify(jobLeases, times(3)).runExclusively(eq("subscription.revenue.rollup"), eq(lease), any());
+        verify(revenueRollups, times(3)).rollUp();
+    }
+
+    @Test
+    void testRollUpRevenueStopsWhenLeaseLost() {
+        // Given
+        Duration lease = Duration.ofMinutes(1);
+        when(revenueRollups.lease()).thenReturn(lease);
+        when(revenueRollups.chunkSize()).thenReturn(1000);
+        when(revenueRollups.rollUp()).thenReturn(1000);
+        when(jobLeases.runExclusively(eq("subscription.revenue.rollup"), eq(lease), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(2).run();
+                    return true;
+                })
+                .thenReturn(false);
+
+        // When
+        subscriptionServices.rollUpRevenue();
+
+        // Then
+        verify(jobLeases, times(2)).runExclusively(eq("subscription.revenue.rollup"), eq(lease), any());
+        verify(revenueRollups, times(1)).rollUp();
+    }
+
+    @Test
+    void testRenewSubscriptionsWithReversedRange() {
+        assertThrows(IllegalArgumentException.class, () -> subscriptionServices.renewSubscriptions(
+                LocalDate.now(), LocalDate.now().minusDays(1), Set.of(TypeSubscription.ANNUAL)));
+        assertThrows(IllegalArgumentException.class, () -> subscriptionServices.renewSubscriptions(
+                LocalDate.now(), LocalDate.now(), Set.of()));
+        verifyNoInteractions(subscriptionRenewals);
+    }
+
+    private static RenewalCheckpoint checkpoint(Long lastNumSub, long renewed, boolean completed) {
+        LocalDateTime startedAt = LocalDateTime.of(2025, 3, 20, 8, 0);
+        return new RenewalCheckpoint("renewal", LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 30), lastNumSub,
+                renewed, 0, completed, startedAt, startedAt.plusSeconds(renewed / 500));
+    }
+
+    private static SubscriptionView view(Subscription subscription) {
+        return new SubscriptionView(subscription.getNumSub(), subscription.getStartDate(), subscription.getEndDate(),
+                subscription.getPrice(), subscription.getTypeSub());
+    }
 }
@@ -0,0 +1,275 @@
+package tn.esprit.spring.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.data.domain.Limit;
+import tn.esprit.spring.dto.BulkRegistrationResult;
+import tn.esprit.spring.dto.RegistrationOutcome;
+import tn.esprit.spring.dto.WaitlistPosition;
+import tn.esprit.spring.entities.*;
+import tn.esprit.spring.repositories.ICourseRepository;
+import tn.esprit.spring.repositories.IRegistrationRepository;
+import tn.esprit.spring.repositories.ISkierRepository;
+import tn.esprit.spring.repositories.IWaitlistRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WaitlistServicesImplTest {
+
+    @Mock
+    private IWaitlistRepository waitlistRepository;
+
+    @Mock
+    private ISkierRepository skierRepository;
+
+    @Mock
+    private ICourseRepository courseRepository;
+
+    @Mock
+    private IRegistrationRepository registrationRepository;
+
+    @Mock
+    private IRegistrationServices registrationServices;
+
+    @Mock
+    private CourseCapacityLedger capacityLedger;
+
+    @Spy
+    private RegistrationRuleEngine registrationRules = new RegistrationRuleEngine(new DefaultResourceLoader(),
+            new ObjectMapper(), new SimpleMeterRegistry(), "classpath:registration-rules.json");
+
+    @InjectMocks
+    private WaitlistServicesImpl waitlistServices;
+
+    private Skier testSkier;
+    private Course testCourse;
+
+    @BeforeEach
+    void setUp() {
+        testSkier = new Skier();
+        testSkier.setNumSkier(1L);
+        testSkier.setDateOfBirth(LocalDate.of(1990, 1, 1));
+
+        testCourse = new Course();
+        testCourse.setNumCourse(2L);
+        testCourse.setTypeCourse(TypeCourse.COLLECTIVE_ADULT);
+    }
+
+    @Test
+    void testJoinWaitlist() {
+        // Given
+        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+        when(capacityLedger.taken(2L, 5)).thenReturn(6);
+        when(waitlistRepository.save(any(WaitlistEntry.class))).thenAnswer(invocation -> {
+            WaitlistEntry entry = invocation.getArgument(0);
+            entry.setNumEntry(10L);
+            return entry;
+        });
+        when(waitlistRepository.countWaitingAhead(2L, 5, 10L)).thenReturn(2L);
+
+        // When
+        WaitlistPosition result = waitlistServices.joinWaitlist(1L, 2L, 5);
+
+        // Then
+        assertNotNull(result);
+        assertEquals(10L, result.getNumEntry());
+        assertEquals(WaitlistStatus.WAITING, result.getStatus());
+        assertEquals(3L, result.getPosition());
+    }
+
+    @Test
+    void testJoinWaitlistTwiceReturnsExistingEntry() {
+        // Given
+        WaitlistEntry existing = entry(10L, 5);
+        when(waitlistRepository.findBySkier_NumSkierAndCourse_NumCourseAndNumWeek(1L, 2L, 5)).thenReturn(existing);
+        when(waitlistRepository.countWaitingAhead(2L, 5, 10L)).thenReturn(0L);
+
+        // When
+        WaitlistPosition result = waitlistServices.joinWaitlist(1L, 2L, 5);
+
+        // Then
+        assertEquals(1L, result.getPosition());
+        verify(waitlistRepository, never()).save(any(WaitlistEntry.class));
+    }
+
+    @Test
+    void testJoinWaitlistIndividualCourse() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.INDIVIDUAL);
+        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> waitlistServices.joinWaitlist(1L, 2L, 5));
+        verify(waitlistRepository, never()).save(any(WaitlistEntry.class));
+    }
+
+    @Test
+    void testJoinWaitlistAlreadyRegistered() {
+        // Given
+        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+        when(registrationRepository.countDistinctByNumWeekAndSkier_NumSkierAndCourse_NumCourse(5, 1L, 2L))
+                .thenReturn(1L);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> waitlistServices.joinWaitlist(1L, 2L, 5));
+        verify(waitlistRepository, never()).save(any(WaitlistEntry.class));
+    }
+
+    @Test
+    void testJoinWaitlistWeekWithFreeSeats() {
+        // Given
+        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+        when(capacityLedger.taken(2L, 5)).thenReturn(5);
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> waitlistServices.joinWaitlist(1L, 2L, 5));
+        verify(waitlistRepository, never()).save(any(WaitlistEntry.class));
+    }
+
+    @Test
+    void testJoinWaitlistAgainAfterRejection() {
+        // Given
+        WaitlistEntry rejected = entry(10L, 5);
+        rejected.setStatus(WaitlistStatus.REJECTED);
+        when(waitlistRepository.findBySkier_NumSkierAndCourse_NumCourseAndNumWeek(1L, 2L, 5)).thenReturn(rejected);
+        when(skierRepository.findById(1L)).thenReturn(Optional.of(testSkier));
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+        when(capacityLedger.taken(2L, 5)).thenReturn(6);
+        when(waitlistRepository.save(any(WaitlistEntry.class))).thenAnswer(invocation -> {
+            WaitlistEntry entry = invocation.getArgument(0);
+            entry.setNumEntry(14L);
+            return entry;
+        });
+        when(waitlistRepository.countWaitingAhead(2L, 5, 14L)).thenReturn(3L);
+
+        // When
+        WaitlistPosition result = waitlistServices.joinWaitlist(1L, 2L, 5);
+
+        // Then
+        assertEquals(14L, result.getNumEntry());
+        assertEquals(4L, result.getPosition());
+        verify(waitlistRepository, times(1)).deleteEntry(10L);
+    }
+
+    @Test
+    void testJoinWaitlistWithNull() {
+        // When & Then
+        assertThrows(NullPointerException.class, () -> waitlistServices.joinWaitlist(null, 2L, 5));
+    }
+
+    @Test
+    void testRetrievePromotedPosition() {
+        // Given
+        WaitlistEntry promoted = entry(10L, 5);
+        promoted.setStatus(WaitlistStatus.PROMOTED);
+        promoted.setNumRegistration(42L);
+        when(waitlistRepository.findById(10L)).thenReturn(Optional.of(promoted));
+
+        // When
+        WaitlistPosition result = waitlistServices.retrievePosition(10L);
+
+        // Then
+        assertEquals(0L, result.getPosition());
+        assertEquals(42L, result.getNumRegistration());
+        verify(waitlistRepository, never()).countWaitingAhead(any(), anyInt(), any());
+    }
+
+    @Test
+    void testPromoteAdmitsHeadsInOrder() {
+        // Given
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+        WaitlistEntry first = entry(10L, 5);
+        WaitlistEntry second = entry(11L, 5);
+        WaitlistEntry third = entry(12L, 5);
+        when(capacityLedger.taken(2L, 5)).thenReturn(4);
+        when(waitlistRepository.findByCourse_NumCourseAndNumWeekAndStatusOrderByNumEntryAsc(2L, 5,
+                WaitlistStatus.WAITING, Limit.of(2))).thenReturn(List.of(first, second, third));
+        when(registrationServices.addRegistrationsInBulk(anyList())).thenReturn(List.of(
+                new BulkRegistrationResult(1L, 2L, 5, RegistrationOutcome.ACCEPTED, 42L),
+                new BulkRegistrationResult(1L, 2L, 5, RegistrationOutcome.REJECTED_AGE, null),
+                new BulkRegistrationResult(1L, 2L, 5, RegistrationOutcome.FULL, null)));
+
+        // When
+        int promoted = waitlistServices.promote(2L, 5);
+
+        // Then
+        assertEquals(1, promoted);
+        assertEquals(WaitlistStatus.PROMOTED, first.getStatus());
+        assertEquals(42L, first.getNumRegistration());
+        assertEquals(WaitlistStatus.REJECTED, second.getStatus());
+        assertEquals(WaitlistStatus.WAITING, third.getStatus());
+        verify(waitlistRepository, times(1)).saveAll(List.of(first, second, third));
+    }
+
+    @Test
+    void testPromoteFullWeek() {
+        // Given
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+        when(capacityLedger.taken(2L, 5)).thenReturn(6);
+
+        // When
+        int promoted = waitlistServices.promote(2L, 5);
+
+        // Then
+        assertEquals(0, promoted);
+        verifyNoInteractions(registrationServices);
+        verify(waitlistRepository, never()).findByCourse_NumCourseAndNumWeekAndStatusOrderByNumEntryAsc(any(),
+                anyInt(), any(), any());
+    }
+
+    @Test
+    void testPromoteEmptyWaitlist() {
+        // Given
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+        when(waitlistRepository.findByCourse_NumCourseAndNumWeekAndStatusOrderByNumEntryAsc(2L, 5,
+                WaitlistStatus.WAITING, Limit.of(6))).thenReturn(Collections.emptyList());
+
+        // When
+        int promoted = waitlistServices.promote(2L, 5);
+
+        // Then
+        assertEquals(0, promoted);
+        verifyNoInteractions(registrationServices);
+    }
+
+    @Test
+    void testPromoteCourseWithoutSeatLimit() {
+        // Given
+        testCourse.setTypeCourse(TypeCourse.INDIVIDUAL);
+        when(courseRepository.findById(2L)).thenReturn(Optional.of(testCourse));
+
+        // When
+        int promoted = waitlistServices.promote(2L, 5);
+
+        // Then
+        assertEquals(0, promoted);
+        verifyNoInteractions(capacityLedger, registrationServices);
+    }
+
+    private WaitlistEntry entry(Long numEntry, int numWeek) {
+        return new WaitlistEntry(numEntry, numWeek, WaitlistStatus.WAITING, LocalDateTime.now(), null,
+                testSkier, testCourse);
+    }
+}